@@ -0,0 +1,564 @@
+package io.github.lemostic.toolsuite.modules.convert.xmljson;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultIndenter;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+import com.fasterxml.jackson.core.util.Separators;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.LongConsumer;
+
+/**
+ * 流式 XML 转 JSON
+ * <p>用 StAX 逐个读取 XML 事件，通过 Jackson 的 {@link JsonGenerator} 直接写出 JSON，不建立文档树，
+ * 内存占用只与预读上限和单个文本节点的大小有关，与文档大小无关</p>
+ * <p>转换规则参照 Hutool 的 {@code XML.toJSONObject}：根元素为唯一的键；属性和子元素为对象的键；
+ * 只有文本的元素输出为值，数字和布尔值转为对应的 JSON 类型；有属性或子元素时文本放在 content 键中；
+ * 同一元素下的同名子元素合并为数组</p>
+ * <p>写出一个键之前必须知道同一元素下是否还有同名的子元素，因此子元素先按名称分组缓冲，
+ * 元素结束时再按第一次出现的顺序写出（不相邻的同名元素也会合并）。缓冲超过预读上限时提前写出：</p>
+ * <ul>
+ *     <li>最后一组为数组时保持打开，后面相邻的同名元素直接追加，适合 {@code /feed/item} 这类很长的列表</li>
+ *     <li>之后再出现已写出的同名元素时，只能输出重复的键并记录警告</li>
+ *     <li>数组路径（如 {@code /feed/item}）上的元素即使只有一个也输出为数组</li>
+ * </ul>
+ * <p>因此输出与 Hutool 的区别在于：键按第一次出现的顺序排列；数组路径；超出预读范围的同名元素不合并</p>
+ */
+public class StreamingXmlJsonConverter {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingXmlJsonConverter.class);
+
+    /** 每个元素最多缓冲的字符数 */
+    public static final int DEFAULT_LOOKAHEAD = 64 * 1024;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String CONTENT = "content";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Set<String> arrayPaths = new HashSet<>();
+    private int lookahead = DEFAULT_LOOKAHEAD;
+    private boolean prettyPrint;
+    private LongConsumer progressListener;
+
+    /**
+     * 总是输出为数组的元素路径，如 {@code /feed/item}，从根元素开始，用 / 分隔
+     */
+    public void setArrayPaths(Collection<String> paths) {
+        arrayPaths.clear();
+        for (String path : paths) {
+            String trimmed = path.trim();
+            while (trimmed.endsWith("/")) {
+                trimmed = trimmed.substring(0, trimmed.length() - 1);
+            }
+            if (!trimmed.isEmpty()) {
+                arrayPaths.add(trimmed.startsWith("/") ? trimmed : "/" + trimmed);
+            }
+        }
+    }
+
+    public void setLookahead(int lookahead) {
+        this.lookahead = Math.max(0, lookahead);
+    }
+
+    public void setPrettyPrint(boolean prettyPrint) {
+        this.prettyPrint = prettyPrint;
+    }
+
+    /**
+     * 从输入流转换时回调已读取的字节数（在转换线程中调用）
+     */
+    public void setProgressListener(LongConsumer progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * 转换文件，输出为 UTF-8
+     */
+    public void convert(Path xml, Path json) throws IOException {
+        try (InputStream in = Files.newInputStream(xml);
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(json), BUFFER_SIZE)) {
+            convert(in, out);
+        }
+    }
+
+    /**
+     * 按 XML 声明的编码读取，输出为 UTF-8；不关闭传入的流
+     */
+    public void convert(InputStream in, OutputStream out) throws IOException {
+        InputStream counted = progressListener == null ? in : new CountingInputStream(in, progressListener);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            XMLStreamReader reader = createFactory().createXMLStreamReader(new BufferedInputStream(counted, BUFFER_SIZE));
+            convert(reader, generator);
+        } catch (XMLStreamException e) {
+            throw new IOException("XML解析失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 不关闭传入的 Reader 和 Writer
+     */
+    public void convert(Reader in, Writer out) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            convert(createFactory().createXMLStreamReader(in), generator);
+        } catch (XMLStreamException e) {
+            throw new IOException("XML解析失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 只检查 XML 是否格式正确，不建立文档树
+     */
+    public static boolean isWellFormed(Reader in) {
+        try {
+            XMLStreamReader reader = createFactory().createXMLStreamReader(in);
+            boolean hasRoot = false;
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                    hasRoot = true;
+                }
+            }
+            reader.close();
+            return hasRoot;
+        } catch (XMLStreamException e) {
+            return false;
+        }
+    }
+
+    private void convert(XMLStreamReader reader, JsonGenerator generator) throws IOException, XMLStreamException {
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        if (prettyPrint) {
+            // 与 Hutool 格式化输出的缩进一致
+            DefaultIndenter indenter = new DefaultIndenter("    ", DefaultIndenter.SYS_LF);
+            generator.setPrettyPrinter(new DefaultPrettyPrinter(Separators.createDefaultInstance()
+                    .withObjectFieldValueSpacing(Separators.Spacing.AFTER))
+                    .withObjectIndenter(indenter)
+                    .withArrayIndenter(indenter));
+        }
+        try {
+            new Conversion(reader).run(generator);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * 禁止 DTD 和外部实体，避免 XXE 和实体膨胀
+     */
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return factory;
+    }
+
+    /**
+     * 按 Hutool 的规则写出文本：true/false 为布尔值，整数和小数为数字（前导零、超出 long 的整数保持字符串），null 为空字符串
+     */
+    private static void writeValue(JsonGenerator generator, String text) throws IOException {
+        if (text.equals("true") || text.equals("false")) {
+            generator.writeBoolean(Boolean.parseBoolean(text));
+        } else if (text.equals("null")) {
+            generator.writeString("");
+        } else if (!isNumber(text)) {
+            generator.writeString(text);
+        } else if (text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0) {
+            try {
+                generator.writeNumber(Long.parseLong(text));
+            } catch (NumberFormatException e) {
+                generator.writeString(text);
+            }
+        } else if (text.indexOf('e') < 0 && text.indexOf('E') < 0 && text.charAt(text.length() - 1) != '0') {
+            // 已是最简形式的小数原样写出
+            generator.writeNumber(text);
+        } else {
+            BigDecimal number = new BigDecimal(text).stripTrailingZeros();
+            if (number.scale() <= 0 && number.precision() - number.scale() <= 18) {
+                generator.writeNumber(number.longValueExact());
+            } else {
+                generator.writeNumber(number);
+            }
+        }
+    }
+
+    /**
+     * 是否为 JSON 数字：-?(0|[1-9]\d*)(\.\d+)?([eE][+-]?\d+)?，每个文本节点都要判断，不用正则
+     */
+    private static boolean isNumber(String text) {
+        int length = text.length();
+        int i = 0;
+        if (i < length && text.charAt(i) == '-') {
+            i++;
+        }
+        if (i >= length || !isDigit(text.charAt(i))) {
+            return false;
+        }
+        if (text.charAt(i) == '0') {
+            i++;
+        } else {
+            i = skipDigits(text, i);
+        }
+        if (i < length && text.charAt(i) == '.') {
+            int start = ++i;
+            i = skipDigits(text, i);
+            if (i == start) {
+                return false;
+            }
+        }
+        if (i < length && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+                i++;
+            }
+            int start = i;
+            i = skipDigits(text, i);
+            if (i == start) {
+                return false;
+            }
+        }
+        return i == length;
+    }
+
+    private static int skipDigits(String text, int i) {
+        while (i < text.length() && isDigit(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * 一次转换的状态
+     */
+    private class Conversion {
+        private final XMLStreamReader reader;
+        /** 尚未写完的元素，外层在前 */
+        private final Deque<Element> open = new ArrayDeque<>();
+        /** 已警告过重复键的路径 */
+        private final Set<String> warned = new HashSet<>();
+        /** 已读取的字符数（元素名和文本），用于判断预读是否超限 */
+        private long consumed;
+
+        Conversion(XMLStreamReader reader) {
+            this.reader = reader;
+        }
+
+        void run(JsonGenerator generator) throws IOException, XMLStreamException {
+            while (reader.hasNext() && reader.next() != XMLStreamConstants.START_ELEMENT) {
+                // 跳过 XML 声明、注释等
+            }
+            if (!reader.isStartElement()) {
+                throw new IOException("XML中没有根元素");
+            }
+            String name = qualifiedName();
+            generator.writeStartObject();
+            generator.writeFieldName(name);
+            writeElement(new Element(generator, "/" + name));
+            generator.writeEndObject();
+        }
+
+        /**
+         * 写出当前元素的值（不含键名），调用时位于元素开始，返回时位于元素结束
+         */
+        private void writeElement(Element element) throws IOException, XMLStreamException {
+            JsonGenerator out = element.out;
+            boolean object = reader.getAttributeCount() + reader.getNamespaceCount() > 0;
+            if (object) {
+                out.writeStartObject();
+                writeAttributes(out);
+            }
+            StringBuilder text = new StringBuilder();
+            List<String> contents = new ArrayList<>(1);
+
+            open.addLast(element);
+            try {
+                while (true) {
+                    switch (reader.next()) {
+                        case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+                            text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                            advance(reader.getTextLength());
+                        }
+                        case XMLStreamConstants.START_ELEMENT -> {
+                            if (!object) {
+                                out.writeStartObject();
+                                object = true;
+                            }
+                            addContent(contents, text);
+                            String child = qualifiedName();
+                            advance(child.length());
+                            element.writeChild(child);
+                        }
+                        case XMLStreamConstants.END_ELEMENT -> {
+                            if (!object) {
+                                writeValue(out, text.toString().trim());
+                                return;
+                            }
+                            element.finish();
+                            addContent(contents, text);
+                            if (contents.size() == 1) {
+                                out.writeFieldName(CONTENT);
+                                writeValue(out, contents.get(0));
+                            } else if (contents.size() > 1) {
+                                out.writeFieldName(CONTENT);
+                                out.writeStartArray();
+                                for (String content : contents) {
+                                    writeValue(out, content);
+                                }
+                                out.writeEndArray();
+                            }
+                            out.writeEndObject();
+                            return;
+                        }
+                        default -> {
+                            // 注释、处理指令等
+                        }
+                    }
+                }
+            } finally {
+                open.removeLast();
+            }
+        }
+
+        private void writeAttributes(JsonGenerator generator) throws IOException {
+            for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                String prefix = reader.getNamespacePrefix(i);
+                generator.writeFieldName(prefix == null || prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix);
+                generator.writeString(reader.getNamespaceURI(i));
+            }
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                String prefix = reader.getAttributePrefix(i);
+                String local = reader.getAttributeLocalName(i);
+                generator.writeFieldName(prefix == null || prefix.isEmpty() ? local : prefix + ":" + local);
+                String value = reader.getAttributeValue(i);
+                writeValue(generator, value.trim());
+                advance(local.length() + value.length());
+            }
+        }
+
+        /**
+         * 元素名，带命名空间前缀时为 prefix:name
+         */
+        private String qualifiedName() {
+            String prefix = reader.getPrefix();
+            String local = reader.getLocalName();
+            return prefix == null || prefix.isEmpty() ? local : prefix + ":" + local;
+        }
+
+        /**
+         * 有子元素的元素中，子元素之间的非空白文本各自作为一段 content
+         */
+        private void addContent(List<String> contents, StringBuilder text) {
+            String trimmed = text.toString().trim();
+            if (!trimmed.isEmpty()) {
+                contents.add(trimmed);
+            }
+            text.setLength(0);
+        }
+
+        /**
+         * 记录读取的字符数，缓冲超过预读上限的元素写出已缓冲的子元素（外层先写出）
+         */
+        private void advance(int chars) throws IOException {
+            consumed += chars;
+            for (Element element : open) {
+                if (consumed - element.since > lookahead) {
+                    element.flush(true);
+                }
+            }
+        }
+
+        /**
+         * 一个正在写出的元素：子元素按名称分组缓冲，元素结束或缓冲超过预读上限时再按组写出，
+         * 同名的子元素（包括不相邻的）合并为一个数组；是否为数组只看本元素下的个数和数组路径
+         */
+        private class Element {
+            final JsonGenerator out;
+            final String path;
+            /** 已缓冲、尚未写出的子元素，按第一次出现的顺序 */
+            final Map<String, Group> groups = new LinkedHashMap<>();
+            /** 已写出的子元素名，之后再出现时只能输出重复的键 */
+            final Set<String> written = new HashSet<>();
+            /** 最近写入的一组，写出时排在最后，可以保持数组打开 */
+            Group recent;
+            /** 正在写入缓冲区的子元素 */
+            Group current;
+            SwitchingGenerator currentGenerator;
+            /** 已写出但仍未结束的数组，相邻的同名子元素直接追加 */
+            String openArray;
+            long since = consumed;
+
+            Element(JsonGenerator out, String path) {
+                this.out = out;
+                this.path = path;
+            }
+
+            /**
+             * 写出一个子元素，调用时位于子元素开始
+             */
+            void writeChild(String name) throws IOException, XMLStreamException {
+                String childPath = path + "/" + name;
+                if (name.equals(openArray)) {
+                    writeElement(new Element(out, childPath));
+                    return;
+                }
+                closeArray();
+                if (written.contains(name) && warned.add(childPath)) {
+                    logger.warn("同名元素超出预读范围，将输出重复的键，请把 {} 设为数组路径", childPath);
+                }
+                Group group = groups.computeIfAbsent(name, key -> new Group(key, arrayPaths.contains(childPath)));
+                group.count++;
+                recent = group;
+                current = group;
+                currentGenerator = new SwitchingGenerator(group.buffer);
+                try {
+                    writeElement(new Element(currentGenerator, childPath));
+                } finally {
+                    current = null;
+                    currentGenerator = null;
+                }
+            }
+
+            /**
+             * 写出已缓冲的子元素
+             * @param partial 元素尚未结束时提前写出：最近写入的一组排在最后，为数组时保持打开，
+             *                后面相邻的同名元素直接追加；只有一个已结束的子元素时继续缓冲，等待下一个兄弟元素；
+             *                正在写入的子元素此后直接写入输出
+             */
+            void flush(boolean partial) throws IOException {
+                if (!partial) {
+                    for (Group group : groups.values()) {
+                        writeGroup(group, false);
+                    }
+                    groups.clear();
+                    return;
+                }
+                for (Group group : groups.values()) {
+                    if (group != recent) {
+                        writeGroup(group, false);
+                    }
+                }
+                groups.clear();
+                if (recent != null && recent != current && !recent.array && recent.count == 1) {
+                    groups.put(recent.name, recent);
+                } else if (recent != null) {
+                    writeGroup(recent, true);
+                    recent = null;
+                }
+                since = consumed;
+            }
+
+            private void writeGroup(Group group, boolean keepOpen) throws IOException {
+                boolean array = group.array || group.count > 1;
+                out.writeFieldName(group.name);
+                if (array) {
+                    out.writeStartArray();
+                }
+                group.buffer.serialize(out);
+                if (group == current) {
+                    currentGenerator.switchTo(out);
+                }
+                if (array && keepOpen) {
+                    openArray = group.name;
+                } else {
+                    if (array) {
+                        out.writeEndArray();
+                    }
+                    written.add(group.name);
+                }
+            }
+
+            /**
+             * 元素结束，写出剩余的子元素
+             */
+            void finish() throws IOException {
+                closeArray();
+                flush(false);
+            }
+
+            private void closeArray() throws IOException {
+                if (openArray != null) {
+                    out.writeEndArray();
+                    written.add(openArray);
+                    openArray = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * 同名子元素的缓冲区，依次存放每个子元素的值
+     */
+    private static class Group {
+        final String name;
+        final boolean array;
+        final TokenBuffer buffer = new TokenBuffer(null, false);
+        int count;
+
+        Group(String name, boolean array) {
+            this.name = name;
+            this.array = array;
+        }
+    }
+
+    /**
+     * 可中途切换目标的生成器：预读超限后从缓冲区切换到外层生成器
+     */
+    private static class SwitchingGenerator extends JsonGeneratorDelegate {
+        SwitchingGenerator(JsonGenerator target) {
+            super(target, false);
+        }
+
+        void switchTo(JsonGenerator target) {
+            delegate = target;
+        }
+    }
+
+    /**
+     * 统计读取的字节数，用于进度
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private final LongConsumer listener;
+        private long count;
+
+        CountingInputStream(InputStream in, LongConsumer listener) {
+            super(in);
+            this.listener = listener;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                listener.accept(++count);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+                listener.accept(count);
+            }
+            return read;
+        }
+    }
+}
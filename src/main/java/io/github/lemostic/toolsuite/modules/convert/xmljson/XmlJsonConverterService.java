@@ -9,11 +9,17 @@ import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 
+import java.io.File;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 /**
  * XML与JSON转换服务类
- * 使用Hutool工具类实现转换逻辑
+ * 字符串之间的转换使用Hutool工具类；XML文件转JSON文件使用 {@link StreamingXmlJsonConverter} 流式转换，
+ * 两者的键顺序和超大文档中重复元素的处理可能不同
  */
 public class XmlJsonConverterService {
 
@@ -36,6 +42,18 @@ public class XmlJsonConverterService {
      * @return 转换后的JSON字符串
      */
     public CompletableFuture<String> xmlToJsonAsync(String xmlString, boolean prettyPrint) {
+        return xmlToJsonAsync(xmlString, prettyPrint, List.of());
+    }
+
+    /**
+     * 将XML字符串转换为JSON字符串
+     *
+     * @param xmlString XML字符串
+     * @param prettyPrint 是否格式化输出
+     * @param arrayPaths 即使只有一个也输出为数组的元素路径，如 /feed/item
+     * @return 转换后的JSON字符串
+     */
+    public CompletableFuture<String> xmlToJsonAsync(String xmlString, boolean prettyPrint, Collection<String> arrayPaths) {
         return CompletableFuture.supplyAsync(() -> {
             try {
                 updateProgress(0.3);
@@ -43,6 +61,9 @@ public class XmlJsonConverterService {
 
                 // 使用Hutool的XML转JSON功能
                 JSONObject jsonObject = XML.toJSONObject(xmlString);
+                for (String path : arrayPaths) {
+                    wrapInArray(jsonObject, Arrays.stream(path.split("/")).filter(s -> !s.isBlank()).toList(), 0);
+                }
 
                 updateProgress(0.7);
                 statusMessage.set("正在格式化JSON...");
@@ -66,6 +87,74 @@ public class XmlJsonConverterService {
         });
     }
 
+    /**
+     * 将XML文件流式转换为JSON文件，内存占用与文件大小无关，适合几百MB以上的文件
+     *
+     * @param xmlFile XML文件
+     * @param jsonFile 输出的JSON文件（UTF-8）
+     * @param prettyPrint 是否格式化输出
+     * @param arrayPaths 总是输出为数组的元素路径，如 /feed/item
+     * @return JSON文件
+     */
+    public CompletableFuture<File> xmlFileToJsonAsync(File xmlFile, File jsonFile, boolean prettyPrint,
+                                                      Collection<String> arrayPaths) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                updateProgress(0);
+                statusMessage.set("正在转换 " + xmlFile.getName() + "...");
+
+                long total = Math.max(1, xmlFile.length());
+                StreamingXmlJsonConverter converter = createConverter(prettyPrint, arrayPaths);
+                long[] reported = {0};
+                converter.setProgressListener(read -> {
+                    // 每读取 1% 更新一次，避免频繁刷新界面
+                    if (read - reported[0] >= total / 100) {
+                        reported[0] = read;
+                        updateProgress(Math.min(1.0, (double) read / total));
+                    }
+                });
+                converter.convert(xmlFile.toPath(), jsonFile.toPath());
+
+                updateProgress(1.0);
+                statusMessage.set("XML转JSON完成: " + jsonFile.getName());
+
+                return jsonFile;
+            } catch (Exception e) {
+                updateProgress(0);
+                statusMessage.set("转换失败: " + e.getMessage());
+                throw new RuntimeException("XML转换失败: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * 把路径上不是数组的值包装为只有一个元素的数组，路径经过数组时对每个元素处理
+     */
+    private void wrapInArray(Object node, List<String> path, int depth) {
+        if (node instanceof JSONArray array) {
+            for (Object item : array) {
+                wrapInArray(item, path, depth);
+            }
+        } else if (node instanceof JSONObject object && depth < path.size() && object.containsKey(path.get(depth))) {
+            String key = path.get(depth);
+            Object value = object.get(key);
+            if (depth < path.size() - 1) {
+                wrapInArray(value, path, depth + 1);
+            } else if (!(value instanceof JSONArray)) {
+                JSONArray wrapped = new JSONArray();
+                wrapped.add(value);
+                object.set(key, wrapped);
+            }
+        }
+    }
+
+    private StreamingXmlJsonConverter createConverter(boolean prettyPrint, Collection<String> arrayPaths) {
+        StreamingXmlJsonConverter converter = new StreamingXmlJsonConverter();
+        converter.setPrettyPrint(prettyPrint);
+        converter.setArrayPaths(arrayPaths);
+        return converter;
+    }
+
     /**
      * 将JSON字符串转换为XML字符串
      *
@@ -168,12 +257,7 @@ public class XmlJsonConverterService {
         if (xmlString == null || xmlString.trim().isEmpty()) {
             return false;
         }
-        try {
-            XML.toJSONObject(xmlString);
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
+        return StreamingXmlJsonConverter.isWellFormed(new StringReader(xmlString));
     }
 
     /**
@@ -15,6 +15,8 @@ import org.kordamp.ikonli.materialdesign.MaterialDesign;
 
 import java.io.File;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * XML/JSON转换器视图
@@ -30,12 +32,14 @@ public class XmlJsonConverterView extends BorderPane {
     private Label statusLabel;
     private ProgressBar progressBar;
     private CheckBox formatCheck;
+    private TextField arrayPathsField;
     private Button xmlToJsonBtn;
     private Button jsonToXmlBtn;
     private Button copyBtn;
     private Button clearBtn;
     private Button loadFileBtn;
     private Button saveFileBtn;
+    private Button convertFileBtn;
     private Label inputTypeLabel;
     private Label outputTypeLabel;
 
@@ -102,7 +106,15 @@ public class XmlJsonConverterView extends BorderPane {
         formatCheck.setTooltip(new Tooltip("勾选此项将美化输出格式，使其更易阅读"));
         formatCheck.setStyle("-fx-font-size: 13px;");
 
-        optionsBox.getChildren().addAll(formatCheck);
+        // 数组路径，XML转JSON时这些元素总是输出为数组
+        Label arrayPathsLabel = new Label("数组路径:");
+        arrayPathsLabel.setStyle("-fx-font-size: 13px;");
+        arrayPathsField = new TextField();
+        arrayPathsField.setPromptText("如 /feed/item，多个用逗号分隔");
+        arrayPathsField.setTooltip(new Tooltip("XML转JSON时，这些路径上的元素即使只有一个也输出为数组"));
+        HBox.setHgrow(arrayPathsField, Priority.ALWAYS);
+
+        optionsBox.getChildren().addAll(formatCheck, arrayPathsLabel, arrayPathsField);
 
         card.getChildren().add(optionsBox);
 
@@ -270,10 +282,16 @@ public class XmlJsonConverterView extends BorderPane {
         saveFileBtn.setOnAction(e -> saveToFile());
         saveFileBtn.setDisable(true);
 
+        // 大文件转换按钮
+        convertFileBtn = new Button("大文件XML转JSON", new FontIcon(MaterialDesign.MDI_FILE_XML));
+        convertFileBtn.setStyle("-fx-background-color: #009688; -fx-text-fill: white; -fx-font-weight: bold;");
+        convertFileBtn.setTooltip(new Tooltip("直接将XML文件流式转换为JSON文件，不加载到界面，适合大文件"));
+        convertFileBtn.setOnAction(e -> convertXmlFile());
+
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
 
-        buttonBox.getChildren().addAll(loadFileBtn, clearBtn, spacer, copyBtn, saveFileBtn);
+        buttonBox.getChildren().addAll(loadFileBtn, clearBtn, convertFileBtn, spacer, copyBtn, saveFileBtn);
 
         return buttonBox;
     }
@@ -371,7 +389,7 @@ public class XmlJsonConverterView extends BorderPane {
         setButtonsDisabled(true);
         outputArea.setText("");
 
-        service.xmlToJsonAsync(xmlContent, formatCheck.isSelected())
+        service.xmlToJsonAsync(xmlContent, formatCheck.isSelected(), getArrayPaths())
             .thenAcceptAsync(result -> {
                 Platform.runLater(() -> {
                     outputArea.setText(result);
@@ -394,6 +412,55 @@ public class XmlJsonConverterView extends BorderPane {
             });
     }
 
+    /**
+     * 流式转换XML文件，结果直接写入JSON文件
+     */
+    private void convertXmlFile() {
+        FileChooser openChooser = new FileChooser();
+        openChooser.setTitle("选择XML文件");
+        openChooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("XML文件", "*.xml"),
+            new FileChooser.ExtensionFilter("所有文件", "*.*")
+        );
+        File xmlFile = openChooser.showOpenDialog(getScene().getWindow());
+        if (xmlFile == null) {
+            return;
+        }
+
+        FileChooser saveChooser = new FileChooser();
+        saveChooser.setTitle("保存JSON文件");
+        saveChooser.setInitialDirectory(xmlFile.getParentFile());
+        saveChooser.setInitialFileName(xmlFile.getName().replaceFirst("(?i)\\.xml$", "") + ".json");
+        saveChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("JSON文件", "*.json"));
+        File jsonFile = saveChooser.showSaveDialog(getScene().getWindow());
+        if (jsonFile == null) {
+            return;
+        }
+
+        setButtonsDisabled(true);
+        service.xmlFileToJsonAsync(xmlFile, jsonFile, formatCheck.isSelected(), getArrayPaths())
+            .thenAcceptAsync(result -> setButtonsDisabled(false), Platform::runLater)
+            .exceptionally(throwable -> {
+                Platform.runLater(() -> {
+                    showAlert("转换失败", throwable.getCause() != null ?
+                        throwable.getCause().getMessage() : throwable.getMessage(),
+                        Alert.AlertType.ERROR);
+                    setButtonsDisabled(false);
+                });
+                return null;
+            });
+    }
+
+    private List<String> getArrayPaths() {
+        List<String> paths = new ArrayList<>();
+        for (String path : arrayPathsField.getText().split("[,，\\s]+")) {
+            if (!path.isBlank()) {
+                paths.add(path.trim());
+            }
+        }
+        return paths;
+    }
+
     private void convertJsonToXml() {
         String jsonContent = inputArea.getText();
         if (jsonContent == null || jsonContent.trim().isEmpty()) {
@@ -555,6 +622,7 @@ public class XmlJsonConverterView extends BorderPane {
         jsonToXmlBtn.setDisable(disabled);
         loadFileBtn.setDisable(disabled);
         clearBtn.setDisable(disabled);
+        convertFileBtn.setDisable(disabled);
     }
 
     private void showHelp() {
@@ -16,6 +16,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.function.ObjIntConsumer;
 
 public class ExcelToJSONService {
     
@@ -89,21 +90,7 @@ public class ExcelToJSONService {
             }
             
             // 读取表头（如果存在）
-            List<String> headers = new ArrayList<>();
-            if (hasHeaderRow) {
-                Row headerRow = sheet.getRow(firstRowNum);
-                if (headerRow != null) {
-                    int lastCellNum = headerRow.getLastCellNum();
-                    for (int i = 0; i < lastCellNum; i++) {
-                        Cell cell = headerRow.getCell(i);
-                        String headerName = getCellValueAsString(cell);
-                        if (headerName == null || headerName.trim().isEmpty()) {
-                            headerName = "Column" + (i + 1); // 默认列名，从1开始编号
-                        }
-                        headers.add(headerName);
-                    }
-                }
-            }
+            List<String> headers = readHeaders(sheet, hasHeaderRow);
             
             // 读取数据
             List<Map<String, Object>> jsonList = new ArrayList<>();
@@ -116,19 +103,7 @@ public class ExcelToJSONService {
                     continue; // 跳过空行
                 }
                 
-                Map<String, Object> rowMap = new HashMap<>();
-                
-                int lastCellNum = row.getLastCellNum();
-                for (int colIndex = 0; colIndex < lastCellNum; colIndex++) {
-                    Cell cell = row.getCell(colIndex);
-                    Object cellValue = getCellValueAsObject(cell);
-                    
-                    if (hasHeaderRow && colIndex < headers.size()) {
-                        rowMap.put(headers.get(colIndex), cellValue);
-                    } else {
-                        rowMap.put("Column" + (colIndex + 1), cellValue); // 列名从1开始编号
-                    }
-                }
+                Map<String, Object> rowMap = readRow(row, headers, hasHeaderRow, new HashMap<>());
                 
                 // 如果指定了包装键名，则将每行数据包装在一个对象中
                 if (wrapperKey != null && !wrapperKey.trim().isEmpty()) {
@@ -166,6 +141,81 @@ public class ExcelToJSONService {
         }
     }
     
+    /**
+     * 逐行读取工作表数据，供其他模块复用（如批量写入ES）
+     * @param sheetName 工作表名称，为空时读取第一个工作表
+     * @param rowHandler 每行数据的处理函数，参数为行数据（键为表头，无表头时为 Column1、Column2...）
+     *                   和该行在工作表中的行号（从1开始，跳过的空行也计入）
+     * @return 读取的数据行数
+     */
+    public long readRows(File excelFile, String sheetName, boolean hasHeaderRow,
+                         ObjIntConsumer<Map<String, Object>> rowHandler) throws IOException {
+        try (FileInputStream fis = new FileInputStream(excelFile);
+             Workbook workbook = createWorkbook(fis, excelFile.getName())) {
+            
+            Sheet sheet = sheetName == null || sheetName.isEmpty() 
+                    ? workbook.getSheetAt(0) 
+                    : workbook.getSheet(sheetName);
+            if (sheet == null) {
+                throw new IllegalArgumentException("工作表不存在: " + sheetName);
+            }
+            
+            List<String> headers = readHeaders(sheet, hasHeaderRow);
+            int startRow = hasHeaderRow ? sheet.getFirstRowNum() + 1 : sheet.getFirstRowNum();
+            long count = 0;
+            for (int rowIndex = startRow; rowIndex <= sheet.getLastRowNum(); rowIndex++) {
+                Row row = sheet.getRow(rowIndex);
+                if (row == null) {
+                    continue;
+                }
+                rowHandler.accept(readRow(row, headers, hasHeaderRow, new LinkedHashMap<>()), rowIndex + 1);
+                count++;
+            }
+            return count;
+        }
+    }
+    
+    /**
+     * 读取表头，空白表头使用默认列名
+     */
+    private List<String> readHeaders(Sheet sheet, boolean hasHeaderRow) {
+        List<String> headers = new ArrayList<>();
+        if (hasHeaderRow) {
+            Row headerRow = sheet.getRow(sheet.getFirstRowNum());
+            if (headerRow != null) {
+                int lastCellNum = headerRow.getLastCellNum();
+                for (int i = 0; i < lastCellNum; i++) {
+                    Cell cell = headerRow.getCell(i);
+                    String headerName = getCellValueAsString(cell);
+                    if (headerName == null || headerName.trim().isEmpty()) {
+                        headerName = "Column" + (i + 1); // 默认列名，从1开始编号
+                    }
+                    headers.add(headerName);
+                }
+            }
+        }
+        return headers;
+    }
+    
+    /**
+     * 读取一行数据到 rowMap
+     */
+    private Map<String, Object> readRow(Row row, List<String> headers, boolean hasHeaderRow, 
+                                        Map<String, Object> rowMap) {
+        int lastCellNum = row.getLastCellNum();
+        for (int colIndex = 0; colIndex < lastCellNum; colIndex++) {
+            Cell cell = row.getCell(colIndex);
+            Object cellValue = getCellValueAsObject(cell);
+            
+            if (hasHeaderRow && colIndex < headers.size()) {
+                rowMap.put(headers.get(colIndex), cellValue);
+            } else {
+                rowMap.put("Column" + (colIndex + 1), cellValue); // 列名从1开始编号
+            }
+        }
+        return rowMap;
+    }
+    
     /**
      * 根据文件扩展名创建合适的Workbook
      */
@@ -0,0 +1,255 @@
+package io.github.lemostic.toolsuite.modules.file.zipclean;
+
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipBatchCleanService;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipBatchCleanService.ArchiveReport;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipBatchCleanService.BatchOptions;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipBatchCleanService.BatchResult;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.CleanOptions;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.CleanResult;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.CleanRule;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.scene.control.*;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
+import javafx.stage.Window;
+import org.kordamp.ikonli.javafx.FontIcon;
+import org.kordamp.ikonli.materialdesign.MaterialDesign;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * 批量清理对话框：用当前的规则和选项清理一个目录下的全部压缩包
+ */
+public class ZipBatchCleanDialog extends Dialog<Void> {
+
+    private final ZipBatchCleanService batchService = new ZipBatchCleanService();
+    private final List<CleanRule> rules;
+    private final CleanOptions cleanOptions;
+
+    private final TextField sourceDirField = new TextField();
+    private final TextField patternField = new TextField(ZipBatchCleanService.DEFAULT_FILE_PATTERN);
+    private final TextField outputDirField = new TextField();
+    private final CheckBox recursiveCheck = new CheckBox("包含子目录");
+    private final Spinner<Integer> parallelismSpinner;
+    private final ProgressBar progressBar = new ProgressBar(0);
+    private final Label progressLabel = new Label("等待开始");
+    private final TableView<ArchiveReport> reportTable = new TableView<>();
+    private final Button startBtn = new Button("开始清理", new FontIcon(MaterialDesign.MDI_PLAY));
+    private final Button stopBtn = new Button("停止", new FontIcon(MaterialDesign.MDI_STOP));
+    private final Button exportBtn = new Button("导出报告", new FontIcon(MaterialDesign.MDI_FILE_EXPORT));
+
+    private volatile CompletableFuture<BatchResult> running;
+    private BatchResult lastResult;
+    private final AtomicBoolean progressPending = new AtomicBoolean();
+
+    public ZipBatchCleanDialog(Window owner, List<CleanRule> rules, CleanOptions cleanOptions) {
+        this.rules = rules;
+        this.cleanOptions = cleanOptions;
+        initOwner(owner);
+        setTitle("批量清理");
+        setHeaderText("使用当前的清理规则和选项，清理目录下所有匹配的压缩包");
+        setResizable(true);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        parallelismSpinner = new Spinner<>(1, Math.max(1, cores * 2), Math.max(1, cores / 2));
+        parallelismSpinner.setEditable(true);
+        parallelismSpinner.setTooltip(new Tooltip("同时清理（读写磁盘）的压缩包数，机械硬盘上建议设为 1-2"));
+        recursiveCheck.setSelected(true);
+        patternField.setPromptText("glob 语法，如 *.{zip,jar,war,tar.gz}、release/**/*.zip");
+        outputDirField.setPromptText("可选，为空时输出到各压缩包所在目录（文件名加 _cleaned）");
+        progressBar.setMaxWidth(Double.MAX_VALUE);
+        stopBtn.setDisable(true);
+        exportBtn.setDisable(true);
+
+        Button sourceBrowseBtn = new Button("浏览", new FontIcon(MaterialDesign.MDI_FOLDER));
+        sourceBrowseBtn.setOnAction(e -> chooseDirectory(sourceDirField, "选择要清理的目录"));
+        Button outputBrowseBtn = new Button("浏览", new FontIcon(MaterialDesign.MDI_FOLDER));
+        outputBrowseBtn.setOnAction(e -> chooseDirectory(outputDirField, "选择输出目录"));
+        startBtn.setOnAction(e -> startBatch());
+        stopBtn.setOnAction(e -> stopBatch());
+        exportBtn.setOnAction(e -> exportReport());
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        HBox sourceBox = new HBox(10, sourceDirField, sourceBrowseBtn);
+        HBox.setHgrow(sourceDirField, Priority.ALWAYS);
+        grid.add(new Label("源目录:"), 0, 0);
+        grid.add(sourceBox, 1, 0, 3, 1);
+        grid.add(new Label("文件模式:"), 0, 1);
+        grid.add(patternField, 1, 1);
+        grid.add(recursiveCheck, 3, 1);
+        HBox outputBox = new HBox(10, outputDirField, outputBrowseBtn);
+        HBox.setHgrow(outputDirField, Priority.ALWAYS);
+        grid.add(new Label("输出目录:"), 0, 2);
+        grid.add(outputBox, 1, 2, 3, 1);
+        grid.add(new Label("同时清理:"), 0, 3);
+        grid.add(parallelismSpinner, 1, 3);
+
+        reportTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+        reportTable.setPrefHeight(260);
+        reportTable.setPlaceholder(new Label("开始后这里显示每个压缩包的结果"));
+        reportTable.getColumns().add(column("压缩包", report -> report.getSource().getName()));
+        reportTable.getColumns().add(column("大小", report -> ZipCleanView.formatSize(report.getOriginalSize())));
+        reportTable.getColumns().add(column("状态", report -> switch (report.getStatus()) {
+            case RUNNING -> String.format("%s %.0f%%", report.getStatus(), report.getProgress() * 100);
+            case FAILED -> report.getStatus() + ": " + report.getError();
+            default -> report.getStatus().toString();
+        }));
+        reportTable.getColumns().add(column("删除文件", report -> {
+            CleanResult result = report.getResult();
+            return result == null ? "" : result.getDeletedFiles() + " / " + result.getTotalFiles();
+        }));
+        reportTable.getColumns().add(column("节省", report -> report.getResult() == null ? "" : ZipCleanView.formatSize(report.getSavedBytes())));
+        reportTable.getColumns().add(column("耗时", report -> report.getResult() == null ? ""
+                : String.format("%.1f 秒", report.getElapsed().toMillis() / 1000.0)));
+
+        HBox buttons = new HBox(10, startBtn, stopBtn, exportBtn);
+        VBox content = new VBox(12, grid, buttons, progressBar, progressLabel, reportTable);
+        content.setPadding(new Insets(10));
+        content.setPrefWidth(760);
+        VBox.setVgrow(reportTable, Priority.ALWAYS);
+
+        getDialogPane().setContent(content);
+        getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+        setOnCloseRequest(e -> stopBatch());
+    }
+
+    private void chooseDirectory(TextField target, String title) {
+        DirectoryChooser chooser = new DirectoryChooser();
+        chooser.setTitle(title);
+        File dir = chooser.showDialog(getOwner());
+        if (dir != null) {
+            target.setText(dir.getAbsolutePath());
+        }
+    }
+
+    private void startBatch() {
+        File sourceDir = new File(sourceDirField.getText().trim());
+        if (!sourceDir.isDirectory()) {
+            showError("请选择要清理的目录");
+            return;
+        }
+
+        BatchOptions options = new BatchOptions(sourceDir);
+        options.setFilePattern(patternField.getText());
+        options.setRecursive(recursiveCheck.isSelected());
+        options.setOutputDir(outputDirField.getText().isBlank() ? null : new File(outputDirField.getText().trim()));
+        options.setCleanOptions(cleanOptions);
+        options.setParallelism(parallelismSpinner.getValue());
+
+        CompletableFuture<BatchResult> future;
+        try {
+            future = batchService.cleanAll(options, rules, this::scheduleProgress);
+        } catch (Exception e) {
+            showError("无法读取目录: " + e.getMessage());
+            return;
+        }
+
+        startBtn.setDisable(true);
+        stopBtn.setDisable(false);
+        exportBtn.setDisable(true);
+        progressBar.setProgress(0);
+        progressLabel.setText("正在清理...");
+        reportTable.getItems().clear();
+
+        running = future;
+        future.whenComplete((result, error) -> Platform.runLater(() -> {
+            running = null;
+            startBtn.setDisable(false);
+            stopBtn.setDisable(true);
+            if (error != null) {
+                progressLabel.setText(future.isCancelled() ? "已停止，正在清理的压缩包会继续完成" : "批量清理失败: " + error.getMessage());
+                reportTable.refresh();
+                return;
+            }
+            lastResult = result;
+            exportBtn.setDisable(result.getTotal() == 0);
+            showProgress(result);
+            progressBar.setProgress(1);
+            progressLabel.setText(result.getTotal() == 0 ? "没有找到匹配的压缩包" : String.format(
+                    "完成：%d 个压缩包（成功 %d，失败 %d），删除 %d 个文件，%s -> %s，节省 %s，耗时 %.1f 秒",
+                    result.getTotal(), result.getSucceeded(), result.getFailed(), result.getDeletedFiles(),
+                    ZipCleanView.formatSize(result.getOriginalBytes()), ZipCleanView.formatSize(result.getCleanedBytes()),
+                    ZipCleanView.formatSize(result.getSavedBytes()), result.getElapsed().toMillis() / 1000.0));
+        }));
+    }
+
+    private void stopBatch() {
+        CompletableFuture<BatchResult> future = running;
+        if (future != null) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * 合并进度回调，多个压缩包同时清理时每一帧最多刷新一次
+     */
+    private void scheduleProgress(BatchResult result) {
+        if (progressPending.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                progressPending.set(false);
+                if (running != null) {
+                    showProgress(result);
+                }
+            });
+        }
+    }
+
+    private void showProgress(BatchResult result) {
+        lastResult = result;
+        if (reportTable.getItems().size() != result.getTotal()) {
+            reportTable.setItems(FXCollections.observableArrayList(result.getReports()));
+        }
+        reportTable.refresh();
+        progressBar.setProgress(result.getProgress());
+        progressLabel.setText(String.format("已完成 %d / %d 个压缩包，%.0f%%，已节省 %s",
+                result.getCompleted(), result.getTotal(), result.getProgress() * 100, ZipCleanView.formatSize(result.getSavedBytes())));
+    }
+
+    private void exportReport() {
+        if (lastResult == null) {
+            return;
+        }
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("导出批量清理报告");
+        fileChooser.setInitialFileName("zip-clean-report.csv");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV文件", "*.csv"));
+        File file = fileChooser.showSaveDialog(getOwner());
+        if (file == null) {
+            return;
+        }
+        try {
+            lastResult.writeReport(file);
+            progressLabel.setText("报告已导出: " + file.getAbsolutePath());
+        } catch (Exception e) {
+            showError("导出报告失败: " + e.getMessage());
+        }
+    }
+
+    private static TableColumn<ArchiveReport, String> column(String title, Function<ArchiveReport, String> getter) {
+        TableColumn<ArchiveReport, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> new ReadOnlyStringWrapper(getter.apply(cell.getValue())));
+        return column;
+    }
+
+    private void showError(String message) {
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.initOwner(getOwner());
+        alert.setTitle("错误");
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+}
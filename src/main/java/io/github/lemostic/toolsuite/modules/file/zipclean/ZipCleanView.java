@@ -1,8 +1,17 @@
 package io.github.lemostic.toolsuite.modules.file.zipclean;
 
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.DuplicateFinder.DuplicateGroup;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.DuplicateFinder.DuplicateReport;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.GlobRuleSet;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.TarCodecs;
 import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.CleanOptions;
 import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.CleanRule;
 import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.CleanResult;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.PreviewEntry;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.PreviewResult;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.RuleType;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipSpaceAnalyzer.SpaceReport;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -30,11 +39,20 @@ public class ZipCleanView extends BorderPane {
     
     private final ZipCleanService service = new ZipCleanService();
     
+    /** 预览区最多列出的文件数，避免超大压缩包撑爆文本框 */
+    private static final int MAX_PREVIEW_LINES = 5000;
+    /** 勾选清理嵌套压缩包时展开的最大层数 */
+    private static final int NESTED_DEPTH = 3;
+    
     // UI 组件
     private TextField zipFileField;
     private TextField outputNameField;
     private CheckBox extractAfterCleanCheck;
     private CheckBox deleteOriginalCheck;
+    private CheckBox inPlaceCheck;
+    private CheckBox nestedCheck;
+    private CheckBox dedupCheck;
+    private ComboBox<String> compressionCombo;
     private TableView<RuleItem> ruleTable;
     private ObservableList<RuleItem> ruleItems;
     private TextArea previewArea;
@@ -78,7 +96,10 @@ public class ZipCleanView extends BorderPane {
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
         
-        toolbar.getItems().addAll(helpBtn, aboutBtn);
+        Button batchBtn = new Button("批量清理", new FontIcon(MaterialDesign.MDI_FOLDER_MULTIPLE));
+        batchBtn.setOnAction(e -> showBatchClean());
+        
+        toolbar.getItems().addAll(batchBtn, new Separator(), helpBtn, aboutBtn);
         
         return toolbar;
     }
@@ -138,11 +159,36 @@ public class ZipCleanView extends BorderPane {
         deleteOriginalCheck = new CheckBox("删除原文件（谨慎操作）");
         deleteOriginalCheck.setStyle("-fx-font-size: 13px; -fx-text-fill: #d32f2f;");
         
+        // 直接替换原文件时不需要输出名称，也不存在另外的原文件可删
+        inPlaceCheck = new CheckBox("直接替换原文件（校验通过后替换）");
+        inPlaceCheck.setStyle("-fx-font-size: 13px;");
+        inPlaceCheck.disableProperty().bind(extractAfterCleanCheck.selectedProperty());
+        outputNameField.disableProperty().bind(
+            inPlaceCheck.selectedProperty().and(extractAfterCleanCheck.selectedProperty().not()));
+        deleteOriginalCheck.disableProperty().bind(outputNameField.disableProperty());
+        
+        nestedCheck = new CheckBox("同时清理嵌套压缩包（jar/war/ear/zip）");
+        nestedCheck.setStyle("-fx-font-size: 13px;");
+        
+        dedupCheck = new CheckBox("删除内容重复的文件（只保留一份）");
+        dedupCheck.setStyle("-fx-font-size: 13px;");
+        
+        // 压缩级别：默认直接复制原有压缩数据
+        compressionCombo = new ComboBox<>();
+        compressionCombo.getItems().add("保持原有压缩（最快）");
+        for (int level = 0; level <= 9; level++) {
+            compressionCombo.getItems().add(level == 0 ? "0 - 仅存储" : level == 9 ? "9 - 最小体积" : String.valueOf(level));
+        }
+        compressionCombo.getSelectionModel().selectFirst();
+        compressionCombo.disableProperty().bind(extractAfterCleanCheck.selectedProperty());
+        HBox compressionBox = new HBox(8, new Label("压缩级别:"), compressionCombo);
+        compressionBox.setAlignment(Pos.CENTER_LEFT);
+        
         // 添加提示
         Label tipLabel = new Label("ℹ️ 提示：默认保留原文件，生成 _cleaned 后缀的新文件");
         tipLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #666; -fx-font-style: italic;");
         
-        optionsBox.getChildren().addAll(extractAfterCleanCheck, deleteOriginalCheck, tipLabel);
+        optionsBox.getChildren().addAll(extractAfterCleanCheck, deleteOriginalCheck, inPlaceCheck, nestedCheck, dedupCheck, compressionBox, tipLabel);
         
         grid.add(sourceLabel, 0, 0);
         grid.add(zipFileField, 1, 0);
@@ -214,7 +260,10 @@ public class ZipCleanView extends BorderPane {
         Button resetBtn = new Button("重置默认", new FontIcon(MaterialDesign.MDI_REFRESH));
         resetBtn.setOnAction(e -> setupDefaultRules());
         
-        btnBox.getChildren().addAll(addBtn, removeBtn, resetBtn);
+        Button importBtn = new Button("导入忽略文件", new FontIcon(MaterialDesign.MDI_FILE_IMPORT));
+        importBtn.setOnAction(e -> importIgnoreFile());
+        
+        btnBox.getChildren().addAll(addBtn, removeBtn, resetBtn, importBtn);
         
         card.getChildren().addAll(ruleTable, btnBox);
         
@@ -233,6 +282,14 @@ public class ZipCleanView extends BorderPane {
         previewBtn.setStyle("-fx-background-color: #2196F3; -fx-text-fill: white; -fx-font-size: 14px;");
         previewBtn.setOnAction(e -> previewDeletion());
         
+        Button duplicateBtn = new Button("查找重复文件", new FontIcon(MaterialDesign.MDI_CONTENT_COPY));
+        duplicateBtn.setStyle("-fx-font-size: 14px;");
+        duplicateBtn.setOnAction(e -> findDuplicates());
+        
+        Button spaceBtn = new Button("空间分析", new FontIcon(MaterialDesign.MDI_CHART_PIE));
+        spaceBtn.setStyle("-fx-font-size: 14px;");
+        spaceBtn.setOnAction(e -> analyzeSpace());
+        
         Button cleanBtn = new Button("开始清理", new FontIcon(MaterialDesign.MDI_DELETE_SWEEP));
         cleanBtn.setStyle("-fx-background-color: #4CAF50; -fx-text-fill: white; -fx-font-size: 14px; -fx-font-weight: bold;");
         cleanBtn.setOnAction(e -> startCleaning());
@@ -243,7 +300,7 @@ public class ZipCleanView extends BorderPane {
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
         
-        buttonBox.getChildren().addAll(previewBtn, cleanBtn, spacer, statsLabel);
+        buttonBox.getChildren().addAll(previewBtn, duplicateBtn, spaceBtn, cleanBtn, spacer, statsLabel);
         
         // 预览区
         Label previewLabel = new Label("预览结果:");
@@ -328,8 +385,10 @@ public class ZipCleanView extends BorderPane {
     private void selectZipFile() {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("选择压缩包文件");
+        List<String> patterns = new ArrayList<>(List.of("*.zip", "*.jar", "*.war"));
+        TarCodecs.extensions().forEach(ext -> patterns.add("*" + ext));
         fileChooser.getExtensionFilters().add(
-            new FileChooser.ExtensionFilter("压缩文件", "*.zip", "*.jar", "*.war")
+            new FileChooser.ExtensionFilter("压缩文件", patterns)
         );
         
         File file = fileChooser.showOpenDialog(getScene().getWindow());
@@ -339,8 +398,7 @@ public class ZipCleanView extends BorderPane {
             
             // 自动设置输出文件名
             String name = file.getName();
-            int dotIndex = name.lastIndexOf('.');
-            String baseName = dotIndex > 0 ? name.substring(0, dotIndex) : name;
+            String baseName = name.substring(0, name.length() - TarCodecs.extensionOf(name).length());
             
             outputNameField.setText(baseName + "_cleaned");
         }
@@ -366,15 +424,20 @@ public class ZipCleanView extends BorderPane {
         TextField patternField = new TextField();
         patternField.setPromptText("例如: ^lib/.*\\.jar$");
         
-        CheckBox regexCheck = new CheckBox("使用正则表达式");
-        regexCheck.setSelected(true);
+        ComboBox<String> typeCombo = new ComboBox<>(FXCollections.observableArrayList(
+            RuleItem.TYPE_REGEX, RuleItem.TYPE_SIMPLE, RuleItem.TYPE_GLOB));
+        typeCombo.setValue(RuleItem.TYPE_REGEX);
+        typeCombo.valueProperty().addListener((obs, oldType, newType) -> patternField.setPromptText(
+            RuleItem.TYPE_GLOB.equals(newType) ? "例如: **/node_modules/**、*.map、!keep/**" 
+                : RuleItem.TYPE_REGEX.equals(newType) ? "例如: ^lib/.*\\.jar$" : "例如: .DS_Store"));
         
         TextField descField = new TextField();
         descField.setPromptText("规则说明");
         
         grid.add(new Label("匹配规则:"), 0, 0);
         grid.add(patternField, 1, 0);
-        grid.add(regexCheck, 1, 1);
+        grid.add(new Label("类型:"), 0, 1);
+        grid.add(typeCombo, 1, 1);
         grid.add(new Label("说明:"), 0, 2);
         grid.add(descField, 1, 2);
         
@@ -387,7 +450,7 @@ public class ZipCleanView extends BorderPane {
                 return new RuleItem(
                     true,
                     patternField.getText(),
-                    regexCheck.isSelected() ? "正则" : "简单",
+                    typeCombo.getValue(),
                     descField.getText()
                 );
             }
@@ -398,6 +461,32 @@ public class ZipCleanView extends BorderPane {
         result.ifPresent(ruleItems::add);
     }
     
+    /**
+     * 导入 .gitignore / .dockerignore，每行作为一条 Glob 规则追加到末尾
+     */
+    private void importIgnoreFile() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("选择 .gitignore / .dockerignore 文件");
+        fileChooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("忽略文件", "*.gitignore", "*.dockerignore"),
+            new FileChooser.ExtensionFilter("所有文件", "*.*")
+        );
+        
+        File file = fileChooser.showOpenDialog(getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        try {
+            List<CleanRule> rules = GlobRuleSet.load(file.toPath());
+            for (CleanRule rule : rules) {
+                ruleItems.add(new RuleItem(true, rule.getPattern(), RuleItem.TYPE_GLOB, "导入自 " + file.getName()));
+            }
+            statsLabel.setText(String.format("已从 %s 导入 %d 条规则", file.getName(), rules.size()));
+        } catch (Exception e) {
+            showAlert("导入失败", "无法读取文件: " + e.getMessage(), Alert.AlertType.ERROR);
+        }
+    }
+    
     private void removeSelectedRule() {
         RuleItem selected = ruleTable.getSelectionModel().getSelectedItem();
         if (selected != null) {
@@ -418,37 +507,149 @@ public class ZipCleanView extends BorderPane {
         }
         
         try {
-            List<String> toDelete = service.previewDeletion(selectedZipFile, rules);
+            PreviewResult preview = service.previewDeletion(selectedZipFile, rules);
+            List<PreviewEntry> toDelete = preview.getDeletedEntries();
             
             StringBuilder sb = new StringBuilder();
-            sb.append(String.format("将删除 %d 个文件:\n\n", toDelete.size()));
+            sb.append(String.format("共 %d 个文件（压缩后 %s，解压后 %s），读取目录耗时 %d ms\n",
+                preview.getTotalFiles(), formatSize(preview.getTotalCompressedSize()),
+                formatSize(preview.getTotalSize()), preview.getElapsedMillis()));
+            sb.append(String.format("将删除 %d 个文件（压缩后 %s，解压后 %s）\n",
+                toDelete.size(), formatSize(preview.getDeletedCompressedSize()), formatSize(preview.getDeletedSize())));
+            sb.append(String.format("预计清理后: %s -> %s，节省 %s (%.1f%%)\n\n",
+                formatSize(preview.getArchiveSize()), formatSize(preview.getProjectedSize()),
+                formatSize(preview.getSavedBytes()), preview.getSavedPercent()));
             
-            for (String path : toDelete) {
-                sb.append("  ✗ ").append(path).append("\n");
+            int shown = Math.min(toDelete.size(), MAX_PREVIEW_LINES);
+            for (int i = 0; i < shown; i++) {
+                PreviewEntry entry = toDelete.get(i);
+                sb.append("  ✗ ").append(entry.getPath())
+                  .append("  [").append(formatSize(entry.getCompressedSize()))
+                  .append(" / ").append(formatSize(entry.getSize())).append("]\n");
+            }
+            if (toDelete.size() > shown) {
+                sb.append(String.format("  ... 还有 %d 个文件未显示\n", toDelete.size() - shown));
             }
             
             previewArea.setText(sb.toString());
-            statsLabel.setText(String.format("预计删除: %d 个文件", toDelete.size()));
+            statsLabel.setText(String.format("预计删除: %d 个文件，节省 %s (%.1f%%)", 
+                toDelete.size(), formatSize(preview.getSavedBytes()), preview.getSavedPercent()));
             
         } catch (Exception e) {
             showAlert("预览失败", "无法预览文件: " + e.getMessage(), Alert.AlertType.ERROR);
         }
     }
     
+    /**
+     * 列出内容重复的文件，每组第一个为清理时保留的文件
+     */
+    private void findDuplicates() {
+        if (selectedZipFile == null) {
+            showAlert("错误", "请先选择压缩包文件", Alert.AlertType.ERROR);
+            return;
+        }
+        
+        statsLabel.setText("正在查找重复文件...");
+        File zipFile = selectedZipFile;
+        new Thread(() -> {
+            try {
+                DuplicateReport report = service.findDuplicates(zipFile);
+                Platform.runLater(() -> showDuplicates(report));
+            } catch (Exception e) {
+                Platform.runLater(() -> {
+                    statsLabel.setText("查找重复文件失败");
+                    showAlert("查找失败", "无法读取文件: " + e.getMessage(), Alert.AlertType.ERROR);
+                });
+            }
+        }).start();
+    }
+    
+    private void showDuplicates(DuplicateReport report) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("共 %d 个文件，其中 %d 个 CRC 与大小相同、已解压确认（%s），耗时 %d ms\n",
+            report.getTotalFiles(), report.getHashedFiles(), formatSize(report.getHashedBytes()), 
+            report.getElapsedMillis()));
+        sb.append(String.format("发现 %d 组重复，可删除 %d 个文件，节省 %s\n\n",
+            report.getGroups().size(), report.getDuplicateFiles(), formatSize(report.getSavedBytes())));
+        
+        int lines = 0;
+        for (DuplicateGroup group : report.getGroups()) {
+            if (lines >= MAX_PREVIEW_LINES) {
+                sb.append("  ... 其余重复文件未显示\n");
+                break;
+            }
+            sb.append(String.format("● %d 份，每份 %s，可节省 %s\n", 
+                group.getCopies(), formatSize(group.getSize()), formatSize(group.getSavedBytes())));
+            List<PreviewEntry> files = group.getFiles();
+            for (int i = 0; i < files.size(); i++) {
+                sb.append(i == 0 ? "  ✓ " : "  ✗ ").append(files.get(i).getPath()).append('\n');
+                lines++;
+            }
+        }
+        
+        previewArea.setText(sb.toString());
+        statsLabel.setText(String.format("重复文件: %d 个，可节省 %s", 
+            report.getDuplicateFiles(), formatSize(report.getSavedBytes())));
+    }
+    
+    /**
+     * 按目录和扩展名统计空间占用，可从结果直接生成清理规则
+     */
+    private void analyzeSpace() {
+        if (selectedZipFile == null) {
+            showAlert("错误", "请先选择压缩包文件", Alert.AlertType.ERROR);
+            return;
+        }
+        
+        statsLabel.setText("正在分析空间占用...");
+        File zipFile = selectedZipFile;
+        new Thread(() -> {
+            try {
+                SpaceReport report = service.analyzeSpace(zipFile);
+                Platform.runLater(() -> {
+                    statsLabel.setText(String.format("空间分析完成: %d 个文件，耗时 %d ms", 
+                        report.getTotalFiles(), report.getElapsedMillis()));
+                    new ZipSpaceDialog(getScene().getWindow(), zipFile.getName(), report, 
+                        (pattern, description) -> ruleItems.add(new RuleItem(true, pattern, RuleItem.TYPE_GLOB, description)))
+                        .show();
+                });
+            } catch (Exception e) {
+                Platform.runLater(() -> {
+                    statsLabel.setText("空间分析失败");
+                    showAlert("分析失败", "无法读取文件: " + e.getMessage(), Alert.AlertType.ERROR);
+                });
+            }
+        }).start();
+    }
+    
+    static String formatSize(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        if (bytes < 1024L * 1024 * 1024) {
+            return String.format("%.1f MB", bytes / 1024.0 / 1024.0);
+        }
+        return String.format("%.2f GB", bytes / 1024.0 / 1024.0 / 1024.0);
+    }
+    
     private void startCleaning() {
         if (selectedZipFile == null) {
             showAlert("错误", "请先选择压缩包文件", Alert.AlertType.ERROR);
             return;
         }
         
-        String outputName = outputNameField.getText();
+        CleanOptions options = getCleanOptions();
+        String outputName = options.isInPlace() ? selectedZipFile.getName() : outputNameField.getText();
         if (outputName == null || outputName.trim().isEmpty()) {
             showAlert("错误", "请指定输出名称", Alert.AlertType.ERROR);
             return;
         }
         
         List<CleanRule> rules = getRules();
-        if (rules.isEmpty()) {
+        if (rules.isEmpty() && !dedupCheck.isSelected()) {
             showAlert("错误", "请至少启用一条清理规则", Alert.AlertType.WARNING);
             return;
         }
@@ -463,7 +664,9 @@ public class ZipCleanView extends BorderPane {
         confirmMsg.append("输出名称: ").append(outputName).append("\n");
         confirmMsg.append("输出类型: ").append(extractAfterCleanCheck.isSelected() ? "文件夹" : "压缩包").append("\n");
         
-        if (deleteOriginalCheck.isSelected()) {
+        if (options.isInPlace()) {
+            confirmMsg.append("\n⚠️ 注意：清理结果校验通过后将替换原文件！");
+        } else if (options.isDeleteOriginal()) {
             confirmMsg.append("\n⚠️ 注意：处理后将删除原文件！");
         } else {
             confirmMsg.append("\n原文件将被保留。");
@@ -474,13 +677,12 @@ public class ZipCleanView extends BorderPane {
         
         Optional<ButtonType> result = confirm.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            performClean(outputName.trim(), extractAfterCleanCheck.isSelected(), 
-                        deleteOriginalCheck.isSelected(), rules);
+            performClean(outputName.trim(), options, rules);
         }
     }
     
-    private void performClean(String outputName, boolean extractAfterClean, 
-                             boolean deleteOriginal, List<CleanRule> rules) {
+    private void performClean(String outputName, CleanOptions options, List<CleanRule> rules) {
+        boolean extractAfterClean = options.isExtractAfterClean();
         new Thread(() -> {
             try {
                 // 构建输出路径
@@ -490,16 +692,18 @@ public class ZipCleanView extends BorderPane {
                 if (extractAfterClean) {
                     // 输出为文件夹
                     outputFile = new File(parentDir, outputName);
+                } else if (options.isInPlace()) {
+                    outputFile = selectedZipFile;
                 } else {
                     // 输出为压缩包，保留原始扩展名
-                    String originalName = selectedZipFile.getName();
-                    int dotIndex = originalName.lastIndexOf('.');
-                    String ext = dotIndex > 0 ? originalName.substring(dotIndex) : ".zip";
+                    String ext = TarCodecs.extensionOf(selectedZipFile.getName());
+                    if (ext.isEmpty()) {
+                        ext = ".zip";
+                    }
                     outputFile = new File(parentDir, outputName + ext);
                 }
                 
-                CleanResult result = service.cleanZip(selectedZipFile, rules, outputFile, 
-                                                       extractAfterClean, deleteOriginal);
+                CleanResult result = service.cleanZip(selectedZipFile, rules, outputFile, options);
                 
                 Platform.runLater(() -> {
                     if (result.isSuccess()) {
@@ -554,11 +758,36 @@ public class ZipCleanView extends BorderPane {
             result.getDeletedFiles(), savedPercent));
     }
     
+    private CleanOptions getCleanOptions() {
+        CleanOptions options = new CleanOptions();
+        options.setExtractAfterClean(extractAfterCleanCheck.isSelected());
+        boolean inPlace = inPlaceCheck.isSelected() && !extractAfterCleanCheck.isSelected();
+        options.setInPlace(inPlace);
+        options.setDeleteOriginal(deleteOriginalCheck.isSelected() && !inPlace);
+        // 第一项为保持原有压缩，其后依次为级别 0-9
+        options.setCompressionLevel(compressionCombo.getSelectionModel().getSelectedIndex() - 1);
+        options.setNestedDepth(nestedCheck.isSelected() ? NESTED_DEPTH : 0);
+        options.setRemoveDuplicates(dedupCheck.isSelected());
+        return options;
+    }
+    
+    /**
+     * 批量清理使用当前的规则和清理选项
+     */
+    private void showBatchClean() {
+        List<CleanRule> rules = getRules();
+        if (rules.isEmpty() && !dedupCheck.isSelected()) {
+            showAlert("错误", "请至少启用一条清理规则", Alert.AlertType.WARNING);
+            return;
+        }
+        new ZipBatchCleanDialog(getScene().getWindow(), rules, getCleanOptions()).show();
+    }
+    
     private List<CleanRule> getRules() {
         List<CleanRule> rules = new ArrayList<>();
         for (RuleItem item : ruleItems) {
             if (item.isEnabled()) {
-                rules.add(new CleanRule(item.getPattern(), item.isRegex(), true));
+                rules.add(new CleanRule(item.getPattern(), item.getRuleType(), true));
             }
         }
         return rules;
@@ -601,6 +830,10 @@ public class ZipCleanView extends BorderPane {
      * 规则项（用于表格显示）
      */
     public static class RuleItem {
+        public static final String TYPE_REGEX = "正则";
+        public static final String TYPE_SIMPLE = "简单";
+        public static final String TYPE_GLOB = "Glob";
+        
         private javafx.beans.property.BooleanProperty enabled;
         private javafx.beans.property.StringProperty pattern;
         private javafx.beans.property.StringProperty type;
@@ -630,7 +863,14 @@ public class ZipCleanView extends BorderPane {
         public javafx.beans.property.StringProperty descriptionProperty() { return description; }
         
         public boolean isRegex() {
-            return "正则".equals(type.get());
+            return TYPE_REGEX.equals(type.get());
+        }
+        
+        public RuleType getRuleType() {
+            if (TYPE_GLOB.equals(type.get())) {
+                return RuleType.GLOB;
+            }
+            return isRegex() ? RuleType.REGEX : RuleType.CONTAINS;
         }
     }
 }
@@ -0,0 +1,205 @@
+package io.github.lemostic.toolsuite.modules.file.zipclean;
+
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipSpaceAnalyzer;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipSpaceAnalyzer.ExtensionStat;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipSpaceAnalyzer.SpaceReport;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+import javafx.stage.Window;
+import org.kordamp.ikonli.javafx.FontIcon;
+import org.kordamp.ikonli.materialdesign.MaterialDesign;
+
+import java.util.Comparator;
+import java.util.function.BiConsumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * 空间分析对话框：按目录（可展开、可排序的目录树）和扩展名查看空间占用，选中任一项即可生成清理规则
+ */
+public class ZipSpaceDialog extends Dialog<Void> {
+
+    private final SpaceReport report;
+    private final BiConsumer<String, String> ruleCreator;
+    private final TreeTableView<ZipSpaceAnalyzer.Node> tree = new TreeTableView<>();
+    private final TableView<ExtensionStat> extensionTable = new TableView<>();
+    private final TabPane tabs = new TabPane();
+    private final Label tipLabel = new Label();
+
+    /**
+     * @param ruleCreator 添加规则：Glob 规则、说明
+     */
+    public ZipSpaceDialog(Window owner, String archiveName, SpaceReport report, BiConsumer<String, String> ruleCreator) {
+        this.report = report;
+        this.ruleCreator = ruleCreator;
+        initOwner(owner);
+        setTitle("空间分析");
+        ZipSpaceAnalyzer.Node root = report.getRoot();
+        setHeaderText(String.format("%s：%d 个文件，压缩后 %s，原始 %s（分析耗时 %d ms）", archiveName,
+                report.getTotalFiles(), ZipCleanView.formatSize(root.getCompressedSize()),
+                ZipCleanView.formatSize(root.getSize()), report.getElapsedMillis()));
+        setResizable(true);
+
+        // 目录树
+        TreeTableColumn<ZipSpaceAnalyzer.Node, String> nameColumn = new TreeTableColumn<>("名称");
+        nameColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(
+                cell.getValue().getValue().isDirectory() ? cell.getValue().getValue().getName() + "/"
+                        : cell.getValue().getValue().getName()));
+        nameColumn.setPrefWidth(300);
+        TreeTableColumn<ZipSpaceAnalyzer.Node, Long> compressedColumn = treeSizeColumn("压缩后", ZipSpaceAnalyzer.Node::getCompressedSize);
+        TreeTableColumn<ZipSpaceAnalyzer.Node, Long> sizeColumn = treeSizeColumn("原始大小", ZipSpaceAnalyzer.Node::getSize);
+        TreeTableColumn<ZipSpaceAnalyzer.Node, Long> filesColumn = new TreeTableColumn<>("文件数");
+        filesColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>((long) cell.getValue().getValue().getFiles()));
+        TreeTableColumn<ZipSpaceAnalyzer.Node, String> shareColumn = new TreeTableColumn<>("占比");
+        shareColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(share(cell.getValue().getValue().getCompressedSize())));
+        shareColumn.setSortable(false);
+        tree.getColumns().add(nameColumn);
+        tree.getColumns().add(compressedColumn);
+        tree.getColumns().add(sizeColumn);
+        tree.getColumns().add(filesColumn);
+        tree.getColumns().add(shareColumn);
+        tree.setColumnResizePolicy(TreeTableView.CONSTRAINED_RESIZE_POLICY);
+        TreeItem<ZipSpaceAnalyzer.Node> rootItem = new NodeItem(root);
+        rootItem.setExpanded(true);
+        tree.setRoot(rootItem);
+        tree.setShowRoot(false);
+        compressedColumn.setSortType(TreeTableColumn.SortType.DESCENDING);
+        tree.getSortOrder().add(compressedColumn);
+
+        // 扩展名
+        TableColumn<ExtensionStat, String> extensionColumn = new TableColumn<>("扩展名");
+        extensionColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(
+                cell.getValue().getExtension().isEmpty() ? "（无扩展名）" : "." + cell.getValue().getExtension()));
+        TableColumn<ExtensionStat, Long> extensionCompressed = tableSizeColumn("压缩后", ExtensionStat::getCompressedSize);
+        TableColumn<ExtensionStat, Long> extensionSize = tableSizeColumn("原始大小", ExtensionStat::getSize);
+        TableColumn<ExtensionStat, Long> extensionFiles = new TableColumn<>("文件数");
+        extensionFiles.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>((long) cell.getValue().getFiles()));
+        TableColumn<ExtensionStat, String> extensionShare = new TableColumn<>("占比");
+        extensionShare.setCellValueFactory(cell -> new ReadOnlyStringWrapper(share(cell.getValue().getCompressedSize())));
+        extensionShare.setSortable(false);
+        extensionTable.getColumns().add(extensionColumn);
+        extensionTable.getColumns().add(extensionCompressed);
+        extensionTable.getColumns().add(extensionSize);
+        extensionTable.getColumns().add(extensionFiles);
+        extensionTable.getColumns().add(extensionShare);
+        extensionTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+        extensionTable.setItems(FXCollections.observableArrayList(report.getExtensions()));
+
+        tabs.getTabs().add(new Tab("按目录", tree));
+        tabs.getTabs().add(new Tab("按扩展名", extensionTable));
+        tabs.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+        tabs.setPrefSize(800, 480);
+        VBox.setVgrow(tabs, Priority.ALWAYS);
+
+        Button ruleBtn = new Button("添加为清理规则", new FontIcon(MaterialDesign.MDI_PLUS));
+        ruleBtn.setOnAction(e -> createRule());
+        tipLabel.setStyle("-fx-text-fill: #666; -fx-font-style: italic;");
+        tipLabel.setText("选中目录、文件或扩展名后点击\"添加为清理规则\"，生成的 Glob 规则会加入规则列表");
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        HBox buttons = new HBox(10, tipLabel, spacer, ruleBtn);
+        buttons.setAlignment(Pos.CENTER_LEFT);
+
+        VBox content = new VBox(10, tabs, buttons);
+        content.setPadding(new Insets(10));
+        getDialogPane().setContent(content);
+        getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+    }
+
+    private void createRule() {
+        String rule;
+        String description;
+        if (tabs.getSelectionModel().getSelectedIndex() == 0) {
+            TreeItem<ZipSpaceAnalyzer.Node> item = tree.getSelectionModel().getSelectedItem();
+            if (item == null) {
+                return;
+            }
+            ZipSpaceAnalyzer.Node node = item.getValue();
+            rule = node.toGlobRule();
+            description = String.format("空间分析：%s（%s）", node.isDirectory() ? "删除目录" : "删除文件",
+                    ZipCleanView.formatSize(node.getCompressedSize()));
+        } else {
+            ExtensionStat stat = extensionTable.getSelectionModel().getSelectedItem();
+            if (stat == null) {
+                return;
+            }
+            rule = stat.toGlobRule();
+            if (rule == null) {
+                tipLabel.setText("没有扩展名的文件无法用一条规则删除，请在目录树中选择");
+                return;
+            }
+            description = String.format("空间分析：删除 %d 个 .%s 文件（%s）", stat.getFiles(), stat.getExtension(),
+                    ZipCleanView.formatSize(stat.getCompressedSize()));
+        }
+        ruleCreator.accept(rule, description);
+        tipLabel.setText("已添加规则: " + rule);
+    }
+
+    private String share(long compressedSize) {
+        long total = report.getRoot().getCompressedSize();
+        return total == 0 ? "" : String.format("%.1f%%", 100.0 * compressedSize / total);
+    }
+
+    private static TreeTableColumn<ZipSpaceAnalyzer.Node, Long> treeSizeColumn(
+            String title, ToLongFunction<ZipSpaceAnalyzer.Node> getter) {
+        TreeTableColumn<ZipSpaceAnalyzer.Node, Long> column = new TreeTableColumn<>(title);
+        column.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(getter.applyAsLong(cell.getValue().getValue())));
+        column.setCellFactory(c -> new TreeTableCell<>() {
+            @Override
+            protected void updateItem(Long item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : ZipCleanView.formatSize(item));
+            }
+        });
+        return column;
+    }
+
+    private static <T> TableColumn<T, Long> tableSizeColumn(String title, ToLongFunction<T> getter) {
+        TableColumn<T, Long> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(getter.applyAsLong(cell.getValue())));
+        column.setCellFactory(c -> new TableCell<>() {
+            @Override
+            protected void updateItem(Long item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : ZipCleanView.formatSize(item));
+            }
+        });
+        return column;
+    }
+
+    /**
+     * 展开时才创建子节点，百万级条目的压缩包也只为看到的目录建立界面节点
+     */
+    private static class NodeItem extends TreeItem<ZipSpaceAnalyzer.Node> {
+        private boolean loaded;
+
+        NodeItem(ZipSpaceAnalyzer.Node node) {
+            super(node);
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return !getValue().isDirectory() || getValue().getChildren().isEmpty();
+        }
+
+        @Override
+        public ObservableList<TreeItem<ZipSpaceAnalyzer.Node>> getChildren() {
+            if (!loaded) {
+                loaded = true;
+                super.getChildren().setAll(getValue().getChildren().stream()
+                        .sorted(Comparator.comparingLong(ZipSpaceAnalyzer.Node::getCompressedSize).reversed())
+                        .<TreeItem<ZipSpaceAnalyzer.Node>>map(NodeItem::new)
+                        .toList());
+            }
+            return super.getChildren();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package io.github.lemostic.toolsuite.modules.file.zipclean.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * 崩溃安全的输出
+ * <p>输出先写到目标旁边的临时文件（同一目录，保证在同一文件系统上），落盘后再原子重命名为目标，
+ * 任何时刻中断，目标位置要么是原来的内容，要么是完整的新内容</p>
+ */
+final class AtomicOutput {
+
+    private static final Logger logger = LoggerFactory.getLogger(AtomicOutput.class);
+
+    private AtomicOutput() {
+    }
+
+    /**
+     * 目标旁边的临时路径（隐藏文件，不会与已有文件重名）
+     */
+    static Path tempSibling(Path target, String suffix) {
+        Path parent = target.toAbsolutePath().getParent();
+        String name = "." + target.getFileName() + suffix + "-" + Long.toHexString(ThreadLocalRandom.current().nextLong());
+        return parent.resolve(name);
+    }
+
+    /**
+     * 把临时文件落盘后原子替换目标文件
+     */
+    static void commitFile(Path temp, Path target) throws IOException {
+        fsync(temp);
+        move(temp, target);
+        fsyncDirectory(target.toAbsolutePath().getParent());
+    }
+
+    /**
+     * 用临时目录替换目标目录：目录无法原子覆盖，先把旧目录改名备份，新目录改名到位后再删除备份；
+     * 中途失败时恢复旧目录。两次都是同一文件系统内的改名，不复制文件
+     * <p>目录中的文件内容不会在这里落盘，需要时先调用 {@link #fsyncTree}</p>
+     */
+    static void commitDirectory(Path tempDir, Path target) throws IOException {
+        Path backup = null;
+        if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+            backup = tempSibling(target, ".old");
+            move(target, backup);
+        }
+        try {
+            move(tempDir, target);
+        } catch (IOException e) {
+            if (backup != null) {
+                move(backup, target);
+            }
+            throw e;
+        }
+        fsyncDirectory(target.toAbsolutePath().getParent());
+        if (backup != null) {
+            deleteRecursively(backup);
+        }
+    }
+
+    /**
+     * 把文件内容刷到磁盘
+     */
+    static void fsync(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * 把目录下所有文件和目录项刷到磁盘
+     * <p>解压出的文件可以从源压缩包重新得到，只有源文件随后会被删除时才需要调用；
+     * 统一在最后刷新，不在解压每个文件时落盘</p>
+     */
+    static void fsyncTree(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                if (Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
+                    fsync(path);
+                } else if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    fsyncDirectory(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * 刷新目录项使改名持久化；部分系统（如 Windows）不支持打开目录，忽略
+     */
+    static void fsyncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.debug("无法刷新目录: {}", dir);
+        }
+    }
+
+    static void deleteRecursively(Path dir) {
+        if (dir == null || !Files.exists(dir, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    logger.warn("删除临时文件失败: {}", path, e);
+                }
+            });
+        } catch (IOException e) {
+            logger.error("删除临时目录失败: {}", dir, e);
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            logger.warn("文件系统不支持原子改名，使用普通改名: {}", target);
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package io.github.lemostic.toolsuite.modules.file.zipclean.service;
+
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.CleanRule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 编译后的清理规则匹配器
+ * <p>一组规则只编译一次，之后每个路径只需扫描一遍，与规则条数基本无关：</p>
+ * <ul>
+ *     <li>简单模式（包含匹配）合并为一个 Aho–Corasick 自动机，一次扫描路径即可判断是否包含任一子串</li>
+ *     <li>形如 {@code ^lib/.*} 的纯前缀正则放入前缀树，形如 {@code ^a/b\.txt$} 的纯文本正则放入哈希表</li>
+ *     <li>其余正则合并为一个 {@code (?:r1)|(?:r2)|...} 的整体正则；含反向引用的正则因分组编号会变化、
+ *     含命名分组的正则因不同规则的分组名可能重复，单独编译</li>
+ *     <li>Glob 规则按原有顺序编译为一个 {@link GlobRuleSet}，规则之间按 gitignore 语义处理取反和优先级</li>
+ * </ul>
+ * <p>匹配语义与 {@link CleanRule#matches} 相同：正则要求完整匹配路径，任一规则命中即删除。
+ * Glob 规则中的 ! 只能保留被其他 Glob 规则删除的路径。无法编译的正则记录警告后忽略</p>
+ */
+public class CleanRuleMatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(CleanRuleMatcher.class);
+
+    private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\[1-9]|\\\\k<");
+    /** 命名分组 (?<name>...)，不包括 (?<= 和 (?<! 断言 */
+    private static final Pattern NAMED_GROUP = Pattern.compile("\\(\\?<[a-zA-Z]");
+
+    private final SubstringAutomaton substrings;
+    private final PrefixTrie prefixes;
+    private final Set<String> exactPaths;
+    private final Pattern combinedRegex;
+    private final List<Pattern> separateRegexes;
+    private final GlobRuleSet globs;
+    private final int ruleCount;
+
+    private CleanRuleMatcher(SubstringAutomaton substrings, PrefixTrie prefixes, Set<String> exactPaths,
+                             Pattern combinedRegex, List<Pattern> separateRegexes, GlobRuleSet globs, int ruleCount) {
+        this.substrings = substrings;
+        this.prefixes = prefixes;
+        this.exactPaths = exactPaths;
+        this.combinedRegex = combinedRegex;
+        this.separateRegexes = separateRegexes;
+        this.globs = globs;
+        this.ruleCount = ruleCount;
+    }
+
+    /**
+     * 编译规则，未启用的规则被忽略
+     */
+    public static CleanRuleMatcher compile(List<CleanRule> rules) {
+        List<String> contains = new ArrayList<>();
+        PrefixTrie prefixes = new PrefixTrie();
+        Set<String> exactPaths = new HashSet<>();
+        List<String> regexes = new ArrayList<>();
+        List<Pattern> separate = new ArrayList<>();
+        List<String> globs = new ArrayList<>();
+        int count = 0;
+
+        for (CleanRule rule : rules) {
+            if (!rule.isEnabled()) {
+                continue;
+            }
+            count++;
+            String pattern = rule.getPattern();
+            if (rule.isGlob()) {
+                globs.add(pattern);
+                continue;
+            }
+            if (!rule.isRegex()) {
+                contains.add(pattern);
+                continue;
+            }
+            try {
+                Pattern.compile(pattern);
+            } catch (PatternSyntaxException e) {
+                logger.warn("正则表达式无效，已忽略: {}", pattern, e);
+                continue;
+            }
+            LiteralRegex literal = LiteralRegex.parse(pattern);
+            if (literal != null && literal.prefix) {
+                prefixes.add(literal.text);
+            } else if (literal != null) {
+                exactPaths.add(literal.text);
+            } else if (BACK_REFERENCE.matcher(pattern).find() || NAMED_GROUP.matcher(pattern).find()) {
+                separate.add(Pattern.compile(pattern));
+            } else {
+                regexes.add(pattern);
+            }
+        }
+
+        Pattern combined = combine(regexes, separate);
+        return new CleanRuleMatcher(new SubstringAutomaton(contains), prefixes, exactPaths,
+                combined, separate, new GlobRuleSet(globs), count);
+    }
+
+    /**
+     * 把正则合并为一个整体正则，无法编译时退回逐条匹配
+     * @param separate 收集需要单独匹配的正则
+     * @return 整体正则，没有可合并的规则时为 null
+     */
+    private static Pattern combine(List<String> regexes, List<Pattern> separate) {
+        if (regexes.isEmpty()) {
+            return null;
+        }
+        StringJoiner joiner = new StringJoiner("|");
+        for (String regex : regexes) {
+            joiner.add("(?:" + regex + ")");
+        }
+        try {
+            return Pattern.compile(joiner.toString());
+        } catch (IllegalArgumentException e) {
+            logger.warn("合并正则规则失败，逐条匹配", e);
+            for (String regex : regexes) {
+                separate.add(Pattern.compile(regex));
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 路径是否命中任一规则
+     * <p>Glob 规则缓存了目录的判断结果，同一个匹配器不能在多个线程中同时使用</p>
+     * @param path 使用 / 分隔的条目路径
+     */
+    public boolean matches(String path) {
+        if (globs.isIgnored(path)) {
+            return true;
+        }
+        if (substrings.containsAny(path) || prefixes.hasPrefixOf(path) || exactPaths.contains(path)) {
+            return true;
+        }
+        if (combinedRegex != null && combinedRegex.matcher(path).matches()) {
+            return true;
+        }
+        for (Pattern regex : separateRegexes) {
+            if (regex.matcher(path).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 启用的规则数
+     */
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    public boolean isEmpty() {
+        return ruleCount == 0;
+    }
+
+    /**
+     * 只由普通字符组成的正则，可选以 {@code ^} 开头、以 {@code .*} 或 {@code $} 结尾
+     */
+    private static class LiteralRegex {
+        final String text;
+        final boolean prefix;
+
+        LiteralRegex(String text, boolean prefix) {
+            this.text = text;
+            this.prefix = prefix;
+        }
+
+        static LiteralRegex parse(String regex) {
+            int start = regex.startsWith("^") ? 1 : 0;
+            int end = regex.length();
+            boolean prefix = false;
+            if (regex.endsWith("\\.*") || regex.endsWith("\\.*$")) {
+                // \.* 是“任意个点号”，不是通配
+                return null;
+            }
+            if (regex.endsWith(".*")) {
+                end -= 2;
+                prefix = true;
+            } else if (regex.endsWith(".*$")) {
+                end -= 3;
+                prefix = true;
+            } else if (regex.endsWith("$") && !regex.endsWith("\\$")) {
+                end -= 1;
+            }
+            StringBuilder text = new StringBuilder();
+            for (int i = start; i < end; i++) {
+                char c = regex.charAt(i);
+                if (c == '\\') {
+                    // 只接受转义的标点，\d \w 之类的字符类不是普通字符
+                    if (i + 1 >= end || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                        return null;
+                    }
+                    text.append(regex.charAt(++i));
+                } else if (".[]{}()*+?^$|".indexOf(c) >= 0) {
+                    return null;
+                } else {
+                    text.append(c);
+                }
+            }
+            return new LiteralRegex(text.toString(), prefix);
+        }
+    }
+
+    /**
+     * Aho–Corasick 自动机：一次扫描判断文本是否包含任一模式串
+     * <p>状态转移按字符排序后二分查找，节点数与模式串总长度成正比</p>
+     */
+    private static class SubstringAutomaton {
+        private char[][] keys = new char[1][0];
+        private int[][] targets = new int[1][0];
+        private int[] fail = new int[1];
+        private boolean[] output = new boolean[1];
+        private int size = 1;
+
+        SubstringAutomaton(List<String> patterns) {
+            for (String pattern : patterns) {
+                int state = 0;
+                for (int i = 0; i < pattern.length(); i++) {
+                    int next = child(state, pattern.charAt(i));
+                    state = next >= 0 ? next : addChild(state, pattern.charAt(i));
+                }
+                output[state] = true;
+            }
+            buildFailLinks();
+        }
+
+        boolean containsAny(String text) {
+            if (output[0]) {
+                return true;
+            }
+            if (size == 1) {
+                return false;
+            }
+            int state = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                int next;
+                while ((next = child(state, c)) < 0 && state != 0) {
+                    state = fail[state];
+                }
+                state = Math.max(next, 0);
+                if (output[state]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int child(int state, char c) {
+            int index = Arrays.binarySearch(keys[state], c);
+            return index >= 0 ? targets[state][index] : -1;
+        }
+
+        private int addChild(int state, char c) {
+            if (size == keys.length) {
+                int capacity = size * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                fail = Arrays.copyOf(fail, capacity);
+                output = Arrays.copyOf(output, capacity);
+            }
+            int created = size++;
+            keys[created] = new char[0];
+            targets[created] = new int[0];
+
+            char[] stateKeys = keys[state];
+            int[] stateTargets = targets[state];
+            int insertAt = -Arrays.binarySearch(stateKeys, c) - 1;
+            char[] newKeys = new char[stateKeys.length + 1];
+            int[] newTargets = new int[stateKeys.length + 1];
+            System.arraycopy(stateKeys, 0, newKeys, 0, insertAt);
+            System.arraycopy(stateTargets, 0, newTargets, 0, insertAt);
+            newKeys[insertAt] = c;
+            newTargets[insertAt] = created;
+            System.arraycopy(stateKeys, insertAt, newKeys, insertAt + 1, stateKeys.length - insertAt);
+            System.arraycopy(stateTargets, insertAt, newTargets, insertAt + 1, stateKeys.length - insertAt);
+            keys[state] = newKeys;
+            targets[state] = newTargets;
+            return created;
+        }
+
+        /**
+         * 按广度优先计算失败指针，并把失败链上的输出合并到当前节点
+         */
+        private void buildFailLinks() {
+            Deque<Integer> queue = new ArrayDeque<>();
+            for (int child : targets[0]) {
+                fail[child] = 0;
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                for (int i = 0; i < keys[state].length; i++) {
+                    char c = keys[state][i];
+                    int child = targets[state][i];
+                    int f = fail[state];
+                    int next;
+                    while ((next = child(f, c)) < 0 && f != 0) {
+                        f = fail[f];
+                    }
+                    fail[child] = next >= 0 && next != child ? next : 0;
+                    output[child] |= output[fail[child]];
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * 前缀树：判断路径是否以任一前缀开头，只需沿路径走一遍
+     */
+    private static class PrefixTrie {
+        private final Node root = new Node();
+        private boolean empty = true;
+
+        void add(String prefix) {
+            Node node = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), k -> new Node());
+            }
+            node.terminal = true;
+            empty = false;
+        }
+
+        boolean hasPrefixOf(String path) {
+            if (empty) {
+                return false;
+            }
+            Node node = root;
+            for (int i = 0; ; i++) {
+                if (node.terminal) {
+                    return true;
+                }
+                if (i == path.length() || (node = node.children.get(path.charAt(i))) == null) {
+                    return false;
+                }
+            }
+        }
+
+        private static class Node {
+            final Map<Character, Node> children = new HashMap<>(4);
+            boolean terminal;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package io.github.lemostic.toolsuite.modules.file.zipclean.service;
+
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.PreviewEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * 查找压缩包中内容相同的文件
+ * <p>先用中央目录中记录的 CRC32 和解压后大小分组，不读取任何数据；只有 CRC 和大小都相同的文件才解压计算 SHA-256 确认，
+ * 其余文件不解压。每组按在压缩包中的顺序保留第一份，其余为可删除的重复文件</p>
+ */
+public class DuplicateFinder {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ZipFile source;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int hashedFiles;
+    private long hashedBytes;
+
+    DuplicateFinder(ZipFile source) {
+        this.source = source;
+    }
+
+    /**
+     * 一组内容相同的文件
+     */
+    public static class DuplicateGroup {
+        private final String sha256;
+        private final long size;
+        private final List<ZipArchiveEntry> entries;
+
+        DuplicateGroup(String sha256, long size, List<ZipArchiveEntry> entries) {
+            this.sha256 = sha256;
+            this.size = size;
+            this.entries = entries;
+        }
+
+        public String getSha256() { return sha256; }
+        /** 单个文件解压后的大小 */
+        public long getSize() { return size; }
+        public int getCopies() { return entries.size(); }
+
+        /** 所有副本，第一个为保留的文件 */
+        public List<PreviewEntry> getFiles() {
+            List<PreviewEntry> files = new ArrayList<>(entries.size());
+            for (ZipArchiveEntry entry : entries) {
+                files.add(new PreviewEntry(ZipCleanService.normalizeName(entry.getName()),
+                        Math.max(0, entry.getCompressedSize()), size));
+            }
+            return files;
+        }
+
+        /** 删除重复副本可节省的压缩后字节数 */
+        public long getSavedBytes() {
+            long saved = 0;
+            for (ZipArchiveEntry entry : getRedundantEntries()) {
+                saved += Math.max(0, entry.getCompressedSize());
+            }
+            return saved;
+        }
+
+        List<ZipArchiveEntry> getRedundantEntries() {
+            return entries.subList(1, entries.size());
+        }
+    }
+
+    /**
+     * 查找结果
+     */
+    public static class DuplicateReport {
+        private final List<DuplicateGroup> groups;
+        private final int totalFiles;
+        private final int hashedFiles;
+        private final long hashedBytes;
+        private final long elapsedMillis;
+
+        DuplicateReport(List<DuplicateGroup> groups, int totalFiles, int hashedFiles, long hashedBytes, long elapsedMillis) {
+            this.groups = groups;
+            this.totalFiles = totalFiles;
+            this.hashedFiles = hashedFiles;
+            this.hashedBytes = hashedBytes;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /** 重复文件组，按可节省的空间从大到小排列 */
+        public List<DuplicateGroup> getGroups() { return groups; }
+        public int getTotalFiles() { return totalFiles; }
+        /** CRC 和大小相同、需要解压确认的文件数 */
+        public int getHashedFiles() { return hashedFiles; }
+        /** 为确认而解压的字节数 */
+        public long getHashedBytes() { return hashedBytes; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        /** 可删除的重复副本数 */
+        public int getDuplicateFiles() {
+            return groups.stream().mapToInt(group -> group.getCopies() - 1).sum();
+        }
+
+        public long getSavedBytes() {
+            return groups.stream().mapToLong(DuplicateGroup::getSavedBytes).sum();
+        }
+    }
+
+    /**
+     * 在压缩包的全部文件中查找重复
+     */
+    public static DuplicateReport analyze(ZipFile source) throws IOException {
+        long start = System.nanoTime();
+        List<ZipArchiveEntry> files = new ArrayList<>();
+        for (ZipArchiveEntry entry : Collections.list(source.getEntriesInPhysicalOrder())) {
+            if (!entry.isDirectory()) {
+                files.add(entry);
+            }
+        }
+        DuplicateFinder finder = new DuplicateFinder(source);
+        List<DuplicateGroup> groups = finder.find(files);
+        groups.sort(Comparator.comparingLong(DuplicateGroup::getSavedBytes).reversed());
+        return new DuplicateReport(groups, files.size(), finder.hashedFiles, finder.hashedBytes,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 在给定的文件中查找重复
+     * @param files 按在压缩包中的顺序排列，每组保留最前面的一份
+     */
+    List<DuplicateGroup> find(List<ZipArchiveEntry> files) throws IOException {
+        // 空文件删除后节省不了空间，不参与比较
+        Map<String, List<ZipArchiveEntry>> byKey = new LinkedHashMap<>();
+        for (ZipArchiveEntry entry : files) {
+            if (entry.getSize() > 0 && entry.getCrc() >= 0) {
+                byKey.computeIfAbsent(entry.getCrc() + ":" + entry.getSize(), k -> new ArrayList<>()).add(entry);
+            }
+        }
+
+        List<DuplicateGroup> groups = new ArrayList<>();
+        for (List<ZipArchiveEntry> candidates : byKey.values()) {
+            if (candidates.size() < 2) {
+                continue;
+            }
+            // CRC 可能碰撞，用 SHA-256 确认内容相同
+            Map<String, List<ZipArchiveEntry>> byDigest = new LinkedHashMap<>();
+            for (ZipArchiveEntry entry : candidates) {
+                byDigest.computeIfAbsent(sha256(entry), k -> new ArrayList<>()).add(entry);
+                hashedFiles++;
+                hashedBytes += entry.getSize();
+            }
+            for (Map.Entry<String, List<ZipArchiveEntry>> same : byDigest.entrySet()) {
+                if (same.getValue().size() > 1) {
+                    groups.add(new DuplicateGroup(same.getKey(), same.getValue().get(0).getSize(), same.getValue()));
+                }
+            }
+        }
+        return groups;
+    }
+
+    private String sha256(ZipArchiveEntry entry) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = source.getInputStream(entry)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,341 @@
+package io.github.lemostic.toolsuite.modules.file.zipclean.service;
+
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.CleanRule;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.RuleType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * gitignore 语法的规则集
+ * <p>支持的语法与 .gitignore 相同：</p>
+ * <ul>
+ *     <li>{@code *} 匹配除 / 以外的任意字符，{@code ?} 匹配单个字符，{@code [a-z]} 匹配字符集合</li>
+ *     <li>{@code **} 匹配任意层目录，如 {@code **}{@code /node_modules/**}</li>
+ *     <li>以 / 结尾的规则只匹配目录；开头或中间含 / 的规则相对压缩包根目录，否则匹配任意层级</li>
+ *     <li>以 ! 开头的规则重新保留之前被删除的路径，后面的规则优先；父目录已被删除时其下的路径无法再保留</li>
+ * </ul>
+ * <p>判断按目录逐层进行，每个目录的结果缓存在目录树中：一个目录被删除后，其下所有文件直接删除，不再逐个匹配规则。
+ * 缓存使实例不是线程安全的</p>
+ */
+public class GlobRuleSet {
+
+    private final List<GlobPattern> patterns = new ArrayList<>();
+    /** 不含 / 的纯文本规则，按文件名索引 */
+    private final Map<String, List<GlobPattern>> byName = new HashMap<>();
+    /** 形如 *.ext 的规则，按后缀（含点号）索引 */
+    private final Map<String, List<GlobPattern>> bySuffix = new HashMap<>();
+    private final List<GlobPattern> generic = new ArrayList<>();
+    private final DirNode root = new DirNode(false);
+
+    /**
+     * @param lines 规则行，顺序即优先级（后面的优先）；空行和 # 开头的注释被忽略
+     */
+    public GlobRuleSet(List<String> lines) {
+        for (String line : lines) {
+            GlobPattern pattern = GlobPattern.parse(line, patterns.size());
+            if (pattern == null) {
+                continue;
+            }
+            patterns.add(pattern);
+            if (pattern.literalName != null) {
+                byName.computeIfAbsent(pattern.literalName, k -> new ArrayList<>()).add(pattern);
+            } else if (pattern.suffix != null) {
+                bySuffix.computeIfAbsent(pattern.suffix, k -> new ArrayList<>()).add(pattern);
+            } else {
+                generic.add(pattern);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return patterns.isEmpty();
+    }
+
+    /**
+     * 转义通配符，使路径按字面匹配（用于从具体的文件或目录生成规则）
+     */
+    public static String escape(String literal) {
+        StringBuilder escaped = new StringBuilder(literal.length() + 8);
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            boolean leading = i == 0 && (c == '!' || c == '#');
+            boolean trailingSpace = c == ' ' && i == literal.length() - 1;
+            if (c == '*' || c == '?' || c == '[' || c == '\\' || leading || trailingSpace) {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * 路径是否被规则删除
+     * @param path 使用 / 分隔的路径，以 / 结尾表示目录
+     */
+    public boolean isIgnored(String path) {
+        if (patterns.isEmpty()) {
+            return false;
+        }
+        boolean directory = path.endsWith("/");
+        String[] segments = splitPath(path);
+        if (segments.length == 0) {
+            return false;
+        }
+
+        // 逐层判断父目录，结果缓存
+        DirNode node = root;
+        for (int depth = 0; depth < segments.length - 1; depth++) {
+            DirNode child = node.children.get(segments[depth]);
+            if (child == null) {
+                boolean ignored = node.ignored || decide(segments, depth + 1, true);
+                child = new DirNode(ignored);
+                node.children.put(segments[depth], child);
+            }
+            if (child.ignored) {
+                return true;
+            }
+            node = child;
+        }
+        return decide(segments, segments.length, directory);
+    }
+
+    /**
+     * 用最后一条命中的规则判断路径（前 length 段）是否删除，没有规则命中时保留
+     */
+    private boolean decide(String[] segments, int length, boolean directory) {
+        String name = segments[length - 1];
+        GlobPattern winner = null;
+        winner = lastMatch(byName.get(name), segments, length, directory, winner);
+        for (int dot = name.indexOf('.'); dot >= 0; dot = name.indexOf('.', dot + 1)) {
+            winner = lastMatch(bySuffix.get(name.substring(dot)), segments, length, directory, winner);
+        }
+        winner = lastMatch(generic, segments, length, directory, winner);
+        return winner != null && !winner.negated;
+    }
+
+    private static GlobPattern lastMatch(List<GlobPattern> candidates, String[] segments, int length,
+                                         boolean directory, GlobPattern winner) {
+        if (candidates == null) {
+            return winner;
+        }
+        for (int i = candidates.size() - 1; i >= 0; i--) {
+            GlobPattern pattern = candidates.get(i);
+            if (winner != null && pattern.order < winner.order) {
+                break;
+            }
+            if (pattern.matches(segments, length, directory)) {
+                return pattern;
+            }
+        }
+        return winner;
+    }
+
+    private static String[] splitPath(String path) {
+        return Arrays.stream(path.split("/")).filter(s -> !s.isEmpty()).toArray(String[]::new);
+    }
+
+    /**
+     * 从 .gitignore / .dockerignore 文件读取规则
+     * <p>与 git 相同只去掉未转义的行尾空格，{@code foo\ } 保留转义原样写入规则；
+     * .dockerignore 的规则总是相对根目录，读取时去掉行首空白并统一加上开头的 /</p>
+     */
+    public static List<CleanRule> load(Path file) throws IOException {
+        boolean docker = file.getFileName().toString().equalsIgnoreCase(".dockerignore");
+        List<CleanRule> rules = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String trimmed = trimTrailingSpaces(docker ? line.stripLeading() : line);
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            if (docker) {
+                boolean negated = trimmed.startsWith("!");
+                String body = negated ? trimmed.substring(1) : trimmed;
+                trimmed = (negated ? "!" : "") + (body.startsWith("/") ? body : "/" + body);
+            }
+            rules.add(new CleanRule(trimmed, RuleType.GLOB, true));
+        }
+        return rules;
+    }
+
+    /**
+     * 去掉行尾未被 \ 转义的空格，保留转义
+     */
+    private static String trimTrailingSpaces(String line) {
+        int end = line.length();
+        while (end > 0 && line.charAt(end - 1) == ' ' && (end < 2 || line.charAt(end - 2) != '\\')) {
+            end--;
+        }
+        return line.substring(0, end);
+    }
+
+    private static class DirNode {
+        final boolean ignored;
+        final Map<String, DirNode> children = new HashMap<>();
+
+        DirNode(boolean ignored) {
+            this.ignored = ignored;
+        }
+    }
+
+    /**
+     * 编译后的单条规则：按 / 拆分为段，纯文本段直接比较，含通配符的段编译为正则
+     */
+    private static class GlobPattern {
+        private static final Object ANY_DEPTH = new Object();
+
+        final int order;
+        final boolean negated;
+        final boolean directoryOnly;
+        /** 每段为 String（纯文本）、Pattern（通配）或 ANY_DEPTH（**） */
+        final Object[] segments;
+        final String literalName;
+        final String suffix;
+
+        private GlobPattern(int order, boolean negated, boolean directoryOnly, Object[] segments, String suffix) {
+            this.order = order;
+            this.negated = negated;
+            this.directoryOnly = directoryOnly;
+            this.segments = segments;
+            this.literalName = segments.length == 2 && segments[0] == ANY_DEPTH && segments[1] instanceof String name
+                    ? name : null;
+            this.suffix = suffix;
+        }
+
+        static GlobPattern parse(String line, int order) {
+            String text = stripTrailingSpaces(line);
+            if (text.isEmpty() || text.startsWith("#")) {
+                return null;
+            }
+            boolean negated = false;
+            if (text.startsWith("!")) {
+                negated = true;
+                text = text.substring(1);
+            } else if (text.startsWith("\\!") || text.startsWith("\\#")) {
+                text = text.substring(1);
+            }
+            boolean directoryOnly = text.endsWith("/");
+            while (text.endsWith("/")) {
+                text = text.substring(0, text.length() - 1);
+            }
+            if (text.isEmpty()) {
+                return null;
+            }
+            boolean anchored = text.indexOf('/') >= 0;
+            String[] parts = text.split("/");
+
+            List<Object> segments = new ArrayList<>();
+            if (!anchored) {
+                segments.add(ANY_DEPTH);
+            }
+            for (String part : parts) {
+                if (part.isEmpty()) {
+                    continue;
+                }
+                if (part.equals("**")) {
+                    if (segments.isEmpty() || segments.get(segments.size() - 1) != ANY_DEPTH) {
+                        segments.add(ANY_DEPTH);
+                    }
+                } else if (hasWildcard(part)) {
+                    segments.add(Pattern.compile(toRegex(part)));
+                } else {
+                    segments.add(part.replace("\\", ""));
+                }
+            }
+            // 形如 *.map 的规则按后缀索引
+            String suffix = !anchored && parts.length == 1 && text.startsWith("*.") && !hasWildcard(text.substring(1))
+                    ? text.substring(1).replace("\\", "") : null;
+            return new GlobPattern(order, negated, directoryOnly, segments.toArray(), suffix);
+        }
+
+        boolean matches(String[] path, int length, boolean directory) {
+            if (directoryOnly && !directory) {
+                return false;
+            }
+            return match(0, path, 0, length);
+        }
+
+        private boolean match(int p, String[] path, int s, int length) {
+            if (p == segments.length) {
+                return s == length;
+            }
+            Object segment = segments[p];
+            if (segment == ANY_DEPTH) {
+                // 末尾的 ** 至少匹配一层：a/** 匹配 a 下的内容，不匹配 a 本身
+                int min = p == segments.length - 1 ? 1 : 0;
+                for (int skip = min; s + skip <= length; skip++) {
+                    if (match(p + 1, path, s + skip, length)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (s == length) {
+                return false;
+            }
+            boolean hit = segment instanceof String literal
+                    ? literal.equals(path[s])
+                    : ((Pattern) segment).matcher(path[s]).matches();
+            return hit && match(p + 1, path, s + 1, length);
+        }
+
+        private static boolean hasWildcard(String part) {
+            for (int i = 0; i < part.length(); i++) {
+                char c = part.charAt(i);
+                if (c == '\\') {
+                    i++;
+                } else if (c == '*' || c == '?' || c == '[') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 把单段通配符转换为正则，* 和 ? 不匹配 /
+         */
+        private static String toRegex(String part) {
+            StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < part.length(); i++) {
+                char c = part.charAt(i);
+                switch (c) {
+                    case '*' -> {
+                        regex.append("[^/]*");
+                        while (i + 1 < part.length() && part.charAt(i + 1) == '*') {
+                            i++;
+                        }
+                    }
+                    case '?' -> regex.append("[^/]");
+                    case '[' -> {
+                        int close = part.indexOf(']', i + 2);
+                        if (close < 0) {
+                            regex.append("\\[");
+                        } else {
+                            String set = part.substring(i + 1, close);
+                            if (set.startsWith("!")) {
+                                set = "^" + set.substring(1);
+                            }
+                            regex.append('[').append(set.replace("\\", "\\\\").replace("[", "\\[")).append(']');
+                            i = close;
+                        }
+                    }
+                    case '\\' -> {
+                        if (i + 1 < part.length()) {
+                            regex.append(Pattern.quote(String.valueOf(part.charAt(++i))));
+                        }
+                    }
+                    default -> regex.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            return regex.toString();
+        }
+
+        private static String stripTrailingSpaces(String line) {
+            return trimTrailingSpaces(line).replace("\\ ", " ");
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package io.github.lemostic.toolsuite.modules.file.zipclean.service;
+
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.CleanOptions;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.CleanResult;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.CleanRule;
+import org.apache.commons.compress.archivers.zip.GeneralPurposeBit;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.archivers.zip.ZipShort;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * 嵌套压缩包清理（zip 中的 jar、ear 中的 war 等）
+ * <p>内层压缩包在内存中处理，不落盘：读出内层压缩包的内容后按中央目录筛选条目，
+ * 保留的条目原样复制到新的内层压缩包，再整体写回外层。内层再嵌套的压缩包按同样方式递归处理</p>
+ * <ul>
+ *     <li>超过层数上限的内层压缩包不再展开</li>
+ *     <li>解压后超过大小上限的内层压缩包按普通文件原样保留</li>
+ *     <li>内层没有任何条目被删除时，外层条目直接复制原始压缩数据，不重新压缩</li>
+ * </ul>
+ * <p>规则按内层压缩包内的路径匹配（如同单独清理该压缩包），删除列表中记为 {@code 外层路径!/内层路径}</p>
+ */
+class NestedArchiveCleaner {
+
+    private static final Logger logger = LoggerFactory.getLogger(NestedArchiveCleaner.class);
+
+    private static final List<String> EXTENSIONS = List.of(".zip", ".jar", ".war", ".ear");
+    private static final ZipShort ZIP64_EXTRA = new ZipShort(0x0001);
+
+    private final List<CleanRule> rules;
+    private final int maxDepth;
+    private final long maxSize;
+    private final CleanResult result;
+
+    NestedArchiveCleaner(List<CleanRule> rules, CleanOptions options, CleanResult result) {
+        this.rules = rules;
+        this.maxDepth = options.getNestedDepth();
+        this.maxSize = Math.min(options.getMaxNestedSize(), Integer.MAX_VALUE - 8);
+        this.result = result;
+    }
+
+    static boolean isArchive(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        for (String extension : EXTENSIONS) {
+            if (lower.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 把保留的条目复制到输出，嵌套压缩包替换为清理后的内容
+     * @param depth 这些条目所在的层数，外层压缩包为 1
+     * @param progress 每写完一个条目回调其原始压缩大小，可为 null
+     * @return 是否有嵌套压缩包被替换
+     */
+    boolean copy(ZipFile source, List<ZipArchiveEntry> kept, ZipArchiveOutputStream out, String prefix,
+                 int depth, LongConsumer progress) throws IOException {
+        boolean replaced = false;
+        for (ZipArchiveEntry entry : kept) {
+            byte[] cleaned = clean(source, entry, prefix, depth);
+            if (cleaned != null) {
+                writeReplaced(out, entry, cleaned);
+                replaced = true;
+            } else {
+                try (InputStream raw = source.getRawInputStream(entry)) {
+                    out.addRawArchiveEntry(entry, raw);
+                }
+            }
+            if (progress != null) {
+                progress.accept(entry.getCompressedSize());
+            }
+        }
+        return replaced;
+    }
+
+    /**
+     * 清理一个嵌套压缩包
+     * @return 清理后的压缩包内容；不是压缩包、超出限制或没有条目被删除时返回 null
+     */
+    byte[] clean(ZipFile source, ZipArchiveEntry entry, String prefix, int depth) throws IOException {
+        if (depth > maxDepth || entry.isDirectory() || !isArchive(entry.getName())) {
+            return null;
+        }
+        String path = prefix + ZipCleanService.normalizeName(entry.getName());
+        if (entry.getSize() > maxSize) {
+            logger.info("嵌套压缩包超过大小上限，按普通文件保留: {} ({} 字节)", path, entry.getSize());
+            return null;
+        }
+
+        byte[] bytes;
+        try (InputStream in = source.getInputStream(entry)) {
+            bytes = in.readNBytes((int) maxSize + 1);
+        }
+        if (bytes.length > maxSize) {
+            logger.info("嵌套压缩包超过大小上限，按普通文件保留: {}", path);
+            return null;
+        }
+
+        String innerPrefix = path + "!/";
+        CleanResult inner = new CleanResult();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length);
+        boolean changed;
+        try (ZipFile innerZip = ZipFile.builder().setSeekableByteChannel(new SeekableInMemoryByteChannel(bytes)).get()) {
+            List<ZipArchiveEntry> kept = ZipCleanService.selectEntries(innerZip, rules, inner, innerPrefix);
+            try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(buffer)) {
+                changed = copy(innerZip, kept, out, innerPrefix, depth + 1, null) | inner.getDeletedFiles() > 0;
+            }
+        } catch (IOException e) {
+            // 扩展名是压缩包但内容不是（或已损坏），按普通文件保留
+            logger.warn("无法读取嵌套压缩包，按普通文件保留: {} - {}", path, e.getMessage());
+            return null;
+        }
+
+        // 解压时多个线程同时清理不同的嵌套压缩包
+        synchronized (result) {
+            result.setNestedArchives(result.getNestedArchives() + 1);
+            result.setTotalFiles(result.getTotalFiles() + inner.getTotalFiles());
+            result.setDeletedFiles(result.getDeletedFiles() + inner.getDeletedFiles());
+            result.setKeptFiles(result.getKeptFiles() + inner.getKeptFiles());
+            for (String deleted : inner.getDeletedPaths()) {
+                result.addDeletedPath(deleted);
+            }
+        }
+        return changed ? buffer.toByteArray() : null;
+    }
+
+    /**
+     * 用新内容写入条目，名称、时间、注释等沿用原条目，压缩方式不变
+     */
+    private static void writeReplaced(ZipArchiveOutputStream out, ZipArchiveEntry original, byte[] data)
+            throws IOException {
+        ZipArchiveEntry entry = new ZipArchiveEntry(original);
+        GeneralPurposeBit bit = new GeneralPurposeBit();
+        bit.useUTF8ForNames(original.getGeneralPurposeBit().usesUTF8ForNames());
+        entry.setGeneralPurposeBit(bit);
+        // 大小变了，原来的 Zip64 扩展字段由输出流按需重新生成
+        if (entry.getExtraField(ZIP64_EXTRA) != null) {
+            entry.removeExtraField(ZIP64_EXTRA);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        entry.setCrc(crc.getValue());
+        entry.setSize(data.length);
+        if (entry.getMethod() != ZipArchiveEntry.STORED) {
+            entry.setMethod(ZipArchiveEntry.DEFLATED);
+            entry.setCompressedSize(ZipArchiveEntry.SIZE_UNKNOWN);
+        } else {
+            entry.setCompressedSize(data.length);
+        }
+        out.putArchiveEntry(entry);
+        out.write(data);
+        out.closeArchiveEntry();
+    }
+}
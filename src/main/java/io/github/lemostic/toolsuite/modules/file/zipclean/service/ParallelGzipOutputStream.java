@@ -0,0 +1,152 @@
+package io.github.lemostic.toolsuite.modules.file.zipclean.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 多线程 gzip 输出流
+ * <p>数据按块切分，每块在线程池中独立压缩为一个完整的 gzip 成员，按顺序拼接输出。
+ * 多成员 gzip 是标准格式，gzip、tar 以及 {@link java.util.zip.GZIPInputStream} 都能直接读取；
+ * 块之间不共享字典，压缩率比单线程略低</p>
+ * <p>同时在压缩和等待写出的块不超过线程数的两倍，内存占用与数据总量无关</p>
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    private final OutputStream out;
+    private final int level;
+    private final int maxPending;
+    private final ExecutorService executor;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private byte[] block;
+    private int blockLength;
+    private boolean closed;
+
+    /**
+     * @param level 压缩级别 0-9，-1 为默认级别
+     */
+    public ParallelGzipOutputStream(OutputStream out, int level, int threads) {
+        this(out, level, threads, DEFAULT_BLOCK_SIZE);
+    }
+
+    public ParallelGzipOutputStream(OutputStream out, int level, int threads, int blockSize) {
+        this.out = out;
+        this.level = level;
+        int threadCount = Math.max(1, threads);
+        this.maxPending = threadCount * 2;
+        this.block = new byte[blockSize];
+        this.executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "gzip-deflate");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            int count = Math.min(length, block.length - blockLength);
+            System.arraycopy(data, offset, block, blockLength, count);
+            blockLength += count;
+            offset += count;
+            length -= count;
+            if (blockLength == block.length) {
+                submitBlock();
+            }
+        }
+    }
+
+    /**
+     * 提交当前未满的块并等待所有块写出
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (blockLength > 0) {
+            submitBlock();
+        }
+        while (!pending.isEmpty()) {
+            writeHead();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+            out.close();
+        } finally {
+            closed = true;
+            executor.shutdownNow();
+            pending.clear();
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        while (pending.size() >= maxPending) {
+            writeHead();
+        }
+        byte[] data = block.length == blockLength ? block : Arrays.copyOf(block, blockLength);
+        int length = blockLength;
+        pending.add(executor.submit(() -> compress(data, length)));
+        block = new byte[block.length];
+        blockLength = 0;
+        while (!pending.isEmpty() && pending.peekFirst().isDone()) {
+            writeHead();
+        }
+    }
+
+    private void writeHead() throws IOException {
+        try {
+            out.write(pending.pollFirst().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("压缩被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException io ? io : new IOException("压缩失败: " + cause.getMessage(), cause);
+        }
+    }
+
+    private byte[] compress(byte[] data, int length) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(length / 2 + 64);
+        try (GZIPOutputStream gzip = new LevelGzipOutputStream(buffer, level)) {
+            gzip.write(data, 0, length);
+        }
+        return buffer.toByteArray();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("输出流已关闭");
+        }
+    }
+
+    /**
+     * 可指定压缩级别的 gzip 输出流
+     */
+    static class LevelGzipOutputStream extends GZIPOutputStream {
+        LevelGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out, 64 * 1024);
+            def.setLevel(level);
+        }
+    }
+}
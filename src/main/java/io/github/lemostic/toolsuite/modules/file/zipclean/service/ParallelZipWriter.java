@@ -0,0 +1,240 @@
+package io.github.lemostic.toolsuite.modules.file.zipclean.service;
+
+import org.apache.commons.compress.archivers.zip.GeneralPurposeBit;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * 并行压缩写入器
+ * <p>类似 pigz 的做法：多个线程同时压缩不同的条目，压缩结果按提交顺序依次写入输出压缩包，
+ * 条目顺序与单线程写入完全相同</p>
+ * <ul>
+ *     <li>较小的条目压缩到内存中，较大或大小未知的条目压缩到临时文件</li>
+ *     <li>压缩中和等待写出的数据总量不超过内存预算，超出时先写出最早提交的条目</li>
+ * </ul>
+ * <p>除线程池外，所有方法都只应在同一个线程中调用</p>
+ */
+public class ParallelZipWriter implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelZipWriter.class);
+
+    public static final long DEFAULT_MEMORY_BUDGET = 256L * 1024 * 1024;
+    /** 压缩到临时文件的条目在内存中只占用缓冲区 */
+    private static final int SPILL_RESERVE = 64 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 条目数据来源，在压缩线程中调用
+     */
+    @FunctionalInterface
+    public interface EntrySource {
+        InputStream open() throws IOException;
+    }
+
+    private final ZipArchiveOutputStream out;
+    private final int level;
+    private final ExecutorService executor;
+    /** 内存预算，单位 KB */
+    private final Semaphore budget;
+    private final int budgetKb;
+    /** 超过该大小的条目压缩到临时文件 */
+    private final long spillThreshold;
+    private final Deque<Future<Chunk>> pending = new ArrayDeque<>();
+    private Consumer<ZipArchiveEntry> listener;
+
+    /**
+     * @param level 压缩级别 0-9，0 表示只存储不压缩
+     * @param threads 压缩线程数
+     * @param memoryBudget 内存预算（字节）
+     */
+    public ParallelZipWriter(ZipArchiveOutputStream out, int level, int threads, long memoryBudget) {
+        this.out = out;
+        this.level = level;
+        int threadCount = Math.max(1, threads);
+        this.budgetKb = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget / 1024));
+        this.budget = new Semaphore(budgetKb);
+        this.spillThreshold = Math.max(SPILL_RESERVE, memoryBudget / (threadCount * 2L));
+        this.executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "zip-deflate");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 每写出一个条目回调一次（在调用 {@link #write} / {@link #finish} 的线程中）
+     */
+    public void setListener(Consumer<ZipArchiveEntry> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 提交一个条目，可能会先写出已压缩完成的条目
+     * @param entry 条目的名称、时间、注释等沿用该条目，压缩方式和大小重新计算
+     */
+    public void write(ZipArchiveEntry entry, EntrySource source) throws IOException {
+        boolean spill = !entry.isDirectory() && (entry.getSize() < 0 || entry.getSize() > spillThreshold);
+        long reserve = entry.isDirectory() ? 0 : spill ? SPILL_RESERVE : entry.getSize() + 1024;
+        int permits = (int) Math.min(budgetKb, (reserve + 1023) / 1024);
+
+        while (!budget.tryAcquire(permits)) {
+            if (pending.isEmpty()) {
+                budget.acquireUninterruptibly(permits);
+                break;
+            }
+            writeHead();
+        }
+        try {
+            pending.add(executor.submit(() -> compress(entry, source, spill, permits)));
+        } catch (RejectedExecutionException e) {
+            budget.release(permits);
+            throw new IOException("压缩线程池已关闭", e);
+        }
+        while (!pending.isEmpty() && pending.peekFirst().isDone()) {
+            writeHead();
+        }
+    }
+
+    /**
+     * 等待所有条目压缩完成并按顺序写出
+     */
+    public void finish() throws IOException {
+        while (!pending.isEmpty()) {
+            writeHead();
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * 停止压缩线程并删除未写出的临时文件，不关闭输出流
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        for (Future<Chunk> future : pending) {
+            if (!future.cancel(true) && future.isDone()) {
+                try {
+                    future.get().discard();
+                } catch (Exception ignored) {
+                    // 压缩失败的条目没有临时文件
+                }
+            }
+        }
+        pending.clear();
+    }
+
+    private void writeHead() throws IOException {
+        Chunk chunk;
+        try {
+            chunk = pending.pollFirst().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("压缩被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException io ? io : new IOException("压缩失败: " + cause.getMessage(), cause);
+        }
+        try (InputStream data = chunk.open()) {
+            out.addRawArchiveEntry(chunk.entry, data);
+        } finally {
+            chunk.discard();
+            budget.release(chunk.permits);
+        }
+        if (listener != null) {
+            listener.accept(chunk.entry);
+        }
+    }
+
+    private Chunk compress(ZipArchiveEntry template, EntrySource source, boolean spill, int permits) throws IOException {
+        ZipArchiveEntry entry = new ZipArchiveEntry(template);
+        GeneralPurposeBit bit = new GeneralPurposeBit();
+        bit.useUTF8ForNames(template.getGeneralPurposeBit().usesUTF8ForNames());
+        entry.setGeneralPurposeBit(bit);
+        entry.setMethod(level == 0 || entry.isDirectory() ? ZipArchiveEntry.STORED : ZipArchiveEntry.DEFLATED);
+
+        if (entry.isDirectory()) {
+            entry.setSize(0);
+            entry.setCompressedSize(0);
+            entry.setCrc(new CRC32().getValue());
+            return new Chunk(entry, new byte[0], null, permits);
+        }
+
+        Path tempFile = spill ? Files.createTempFile("zipclean-", ".part") : null;
+        ByteArrayOutputStream memory = spill ? null
+                : new ByteArrayOutputStream((int) Math.max(32, Math.min(entry.getSize(), Integer.MAX_VALUE - 8)));
+        CRC32 crc = new CRC32();
+        long size = 0;
+        Deflater deflater = level == 0 ? null : new Deflater(level, true);
+        try (InputStream in = source.open();
+             OutputStream target = spill ? new BufferedOutputStream(Files.newOutputStream(tempFile), BUFFER_SIZE) : memory;
+             OutputStream sink = deflater == null ? target : new DeflaterOutputStream(target, deflater, BUFFER_SIZE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+                sink.write(buffer, 0, read);
+                size += read;
+            }
+        } catch (IOException | RuntimeException e) {
+            if (tempFile != null) {
+                Files.deleteIfExists(tempFile);
+            }
+            throw e;
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+
+        entry.setSize(size);
+        entry.setCrc(crc.getValue());
+        entry.setCompressedSize(spill ? Files.size(tempFile) : memory.size());
+        return new Chunk(entry, spill ? null : memory.toByteArray(), tempFile, permits);
+    }
+
+    /**
+     * 一个已压缩的条目
+     */
+    private static class Chunk {
+        final ZipArchiveEntry entry;
+        final byte[] data;
+        final Path tempFile;
+        final int permits;
+
+        Chunk(ZipArchiveEntry entry, byte[] data, Path tempFile, int permits) {
+            this.entry = entry;
+            this.data = data;
+            this.tempFile = tempFile;
+            this.permits = permits;
+        }
+
+        InputStream open() throws IOException {
+            return tempFile != null
+                    ? new BufferedInputStream(Files.newInputStream(tempFile), BUFFER_SIZE)
+                    : new ByteArrayInputStream(data);
+        }
+
+        void discard() {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    logger.warn("删除临时文件失败: {}", tempFile, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package io.github.lemostic.toolsuite.modules.file.zipclean.service;
+
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.CleanOptions;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.CleanResult;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.CleanRule;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * tar 包清理（.tar、.tar.gz、.tar.zst 等）
+ * <p>tar 没有中央目录，只能顺序读取：边解压边按规则判断每个条目，保留条目的文件头和数据直接写入新的 tar 流，
+ * 删除的条目跳过。内存占用只与缓冲区有关，与压缩包大小无关</p>
+ * <p>筛选规则与 zip 相同：规则只匹配文件，目录条目只在其下还有保留的文件时保留
+ * （目录条目先暂存，遇到其下第一个保留的文件时再写出）</p>
+ */
+class TarCleaner {
+
+    private static final Logger logger = LoggerFactory.getLogger(TarCleaner.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 预览时逐个条目回调
+     */
+    @FunctionalInterface
+    interface EntryVisitor {
+        void visit(TarArchiveEntry entry, String path, boolean deleted);
+    }
+
+    private final TarCodec codec;
+    private final CleanRuleMatcher matcher;
+
+    TarCleaner(TarCodec codec, List<CleanRule> rules) {
+        this.codec = codec;
+        this.matcher = CleanRuleMatcher.compile(rules);
+    }
+
+    /**
+     * 过滤 tar 包，输出与源文件相同的压缩格式
+     * @param progress 回调新读取的源文件字节数
+     * @return 写出的条目数
+     */
+    int write(File source, File target, CleanOptions options, CleanResult result, LongConsumer progress)
+            throws IOException {
+        try (CountingInputStream counter = new CountingInputStream(Files.newInputStream(source.toPath()));
+             TarArchiveInputStream in = openTar(counter);
+             OutputStream file = new BufferedOutputStream(Files.newOutputStream(target.toPath()), BUFFER_SIZE);
+             TarArchiveOutputStream out = new TarArchiveOutputStream(
+                     codec.compress(file, options.getCompressionLevel(), options.getThreads()),
+                     StandardCharsets.UTF_8.name())) {
+            out.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            out.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+            out.setAddPaxHeadersForNonAsciiNames(true);
+
+            Map<String, TarArchiveEntry> pendingDirs = new LinkedHashMap<>();
+            int written = 0;
+            long reported = 0;
+            for (TarArchiveEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                String path = normalizeName(entry.getName());
+                if (entry.isDirectory() && path.isEmpty()) {
+                    // 根目录条目（./）总是保留
+                    out.putArchiveEntry(entry);
+                    out.closeArchiveEntry();
+                    written++;
+                } else if (entry.isDirectory()) {
+                    pendingDirs.put(path.endsWith("/") ? path : path + "/", entry);
+                } else if (select(path, result)) {
+                    written += writeParents(path, pendingDirs, out);
+                    out.putArchiveEntry(entry);
+                    in.transferTo(out);
+                    out.closeArchiveEntry();
+                    written++;
+                }
+                reported = report(counter, reported, progress);
+            }
+            out.finish();
+            return written;
+        }
+    }
+    
+    /**
+     * 完整读取一遍写出的 tar 包（包括全部数据，压缩格式自带的校验和在读取时检查）
+     * @return 读出的条目数
+     */
+    int verify(File target) throws IOException {
+        int count = 0;
+        try (TarArchiveInputStream in = openTar(Files.newInputStream(target.toPath()))) {
+            for (TarArchiveEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                in.transferTo(OutputStream.nullOutputStream());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 把保留的文件解压到输出目录，只创建有保留文件的目录；链接等特殊条目不解压
+     * @return 解压出的文件总大小
+     */
+    long extract(File source, File outputDir, CleanResult result, LongConsumer progress) throws IOException {
+        Path root = outputDir.toPath().toAbsolutePath().normalize();
+        Files.createDirectories(root);
+
+        long written = 0;
+        try (CountingInputStream counter = new CountingInputStream(Files.newInputStream(source.toPath()));
+             TarArchiveInputStream in = openTar(counter)) {
+            long reported = 0;
+            for (TarArchiveEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                String path = normalizeName(entry.getName());
+                if (!entry.isDirectory() && select(path, result)) {
+                    Path target = root.resolve(path).normalize();
+                    if (!target.startsWith(root)) {
+                        throw new IOException("压缩包中包含非法路径: " + entry.getName());
+                    }
+                    if (isRegularFile(entry)) {
+                        Files.createDirectories(target.getParent());
+                        written += Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+                    } else {
+                        logger.info("跳过链接或特殊文件: {}", path);
+                    }
+                }
+                reported = report(counter, reported, progress);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * 顺序读取全部条目（只读取文件头，跳过数据），用于预览
+     */
+    void scan(File source, EntryVisitor visitor) throws IOException {
+        try (TarArchiveInputStream in = openTar(Files.newInputStream(source.toPath()))) {
+            for (TarArchiveEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                String path = normalizeName(entry.getName());
+                visitor.visit(entry, path, !entry.isDirectory() && matcher.matches(path));
+            }
+        }
+    }
+
+    /**
+     * 在 zip 路径规范的基础上去掉 tar 常见的 ./ 和 / 前缀，使规则与 zip 中的写法一致
+     */
+    static String normalizeName(String name) {
+        String path = ZipCleanService.normalizeName(name);
+        while (path.startsWith("./") || path.startsWith("/")) {
+            path = path.substring(path.charAt(0) == '.' ? 2 : 1);
+        }
+        return path.equals(".") ? "" : path;
+    }
+
+    /**
+     * {@link TarArchiveEntry#isFile()} 对链接、设备文件也返回 true
+     */
+    private static boolean isRegularFile(TarArchiveEntry entry) {
+        return entry.isFile() && !entry.isSymbolicLink() && !entry.isLink() && !entry.isCharacterDevice()
+                && !entry.isBlockDevice() && !entry.isFIFO();
+    }
+
+    private TarArchiveInputStream openTar(InputStream raw) throws IOException {
+        InputStream decompressed = codec.decompress(new BufferedInputStream(raw, BUFFER_SIZE));
+        return new TarArchiveInputStream(new BufferedInputStream(decompressed, BUFFER_SIZE), StandardCharsets.UTF_8.name());
+    }
+
+    /**
+     * 判断文件是否保留并计数
+     */
+    private boolean select(String path, CleanResult result) {
+        result.setTotalFiles(result.getTotalFiles() + 1);
+        if (matcher.matches(path)) {
+            result.addDeletedPath(path);
+            result.setDeletedFiles(result.getDeletedFiles() + 1);
+            return false;
+        }
+        result.setKeptFiles(result.getKeptFiles() + 1);
+        return true;
+    }
+
+    /**
+     * 写出保留文件的各级父目录中还在暂存的目录条目
+     * @return 写出的目录条目数
+     */
+    private static int writeParents(String path, Map<String, TarArchiveEntry> pendingDirs, TarArchiveOutputStream out)
+            throws IOException {
+        int written = 0;
+        if (pendingDirs.isEmpty()) {
+            return written;
+        }
+        for (int slash = path.indexOf('/'); slash > 0; slash = path.indexOf('/', slash + 1)) {
+            TarArchiveEntry dir = pendingDirs.remove(path.substring(0, slash + 1));
+            if (dir != null) {
+                out.putArchiveEntry(dir);
+                out.closeArchiveEntry();
+                written++;
+            }
+        }
+        return written;
+    }
+
+    private static long report(CountingInputStream counter, long reported, LongConsumer progress) {
+        long count = counter.count;
+        if (progress != null && count > reported) {
+            progress.accept(count - reported);
+        }
+        return count;
+    }
+
+    /**
+     * 统计读取的源文件（压缩后）字节数，用于进度
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
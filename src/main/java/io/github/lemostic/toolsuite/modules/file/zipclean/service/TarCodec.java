@@ -0,0 +1,31 @@
+package io.github.lemostic.toolsuite.modules.file.zipclean.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * tar 包外层的压缩格式（gzip、zstd 等），在 {@link TarCodecs} 中按扩展名注册
+ */
+public interface TarCodec {
+
+    /** 显示名称 */
+    String getName();
+
+    /** 文件扩展名（含点号），如 .tar.gz、.tgz，第一个为输出时使用的扩展名 */
+    List<String> getExtensions();
+
+    /** 依赖的库不在 classpath 上时返回 false */
+    default boolean isAvailable() {
+        return true;
+    }
+
+    InputStream decompress(InputStream in) throws IOException;
+
+    /**
+     * @param level 压缩级别 0-9，{@link ZipCleanService.CleanOptions#KEEP_COMPRESSION} 表示使用该格式的默认级别
+     * @param threads 压缩线程数，不支持多线程的格式忽略该参数
+     */
+    OutputStream compress(OutputStream out, int level, int threads) throws IOException;
+}
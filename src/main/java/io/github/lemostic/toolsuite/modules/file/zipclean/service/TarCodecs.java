@@ -0,0 +1,153 @@
+package io.github.lemostic.toolsuite.modules.file.zipclean.service;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.apache.commons.compress.compressors.xz.XZUtils;
+import org.apache.commons.compress.compressors.zstandard.ZstdUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * tar 包压缩格式注册表
+ * <p>内置 .tar、.tar.gz、.tar.bz2、.tar.xz、.tar.zst，gzip 和 zstd 支持多线程压缩。
+ * 其他格式可通过 {@link #register} 加入，扩展名相同时后注册的优先</p>
+ */
+public final class TarCodecs {
+
+    private static final List<TarCodec> CODECS = new CopyOnWriteArrayList<>();
+
+    static {
+        register(new SimpleCodec("tar", List.of(".tar"), in -> in, (out, level, threads) -> out));
+        register(new SimpleCodec("gzip", List.of(".tar.gz", ".tgz"),
+                in -> new GzipCompressorInputStream(in, true),
+                (out, level, threads) -> threads > 1
+                        ? new ParallelGzipOutputStream(out, level, threads)
+                        : new ParallelGzipOutputStream.LevelGzipOutputStream(out, level)));
+        register(new SimpleCodec("bzip2", List.of(".tar.bz2", ".tbz2"),
+                in -> new BZip2CompressorInputStream(in, true),
+                (out, level, threads) -> new BZip2CompressorOutputStream(out, level < 1 ? 9 : level)));
+        register(new SimpleCodec("xz", List.of(".tar.xz", ".txz"),
+                in -> new XZCompressorInputStream(in, true),
+                (out, level, threads) -> new XZCompressorOutputStream(out, level < 0 ? 6 : level)) {
+            @Override
+            public boolean isAvailable() {
+                return XZUtils.isXZCompressionAvailable();
+            }
+        });
+        register(new SimpleCodec("zstd", List.of(".tar.zst", ".tzst"),
+                ZstdInputStream::new,
+                // zstd 自带多线程压缩，输出为单个标准帧
+                (out, level, threads) -> new ZstdOutputStream(out)
+                        .setLevel(level < 0 ? 3 : Math.max(1, level))
+                        .setWorkers(threads > 1 ? threads : 0)) {
+            @Override
+            public boolean isAvailable() {
+                return ZstdUtils.isZstdCompressionAvailable();
+            }
+        });
+    }
+
+    private TarCodecs() {
+    }
+
+    public static void register(TarCodec codec) {
+        CODECS.add(0, codec);
+    }
+
+    /**
+     * 按文件名选择压缩格式，不是 tar 包时返回 null
+     */
+    public static TarCodec forFile(String fileName) {
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        TarCodec best = null;
+        int bestLength = 0;
+        for (TarCodec codec : CODECS) {
+            for (String extension : codec.getExtensions()) {
+                if (lower.endsWith(extension) && extension.length() > bestLength) {
+                    best = codec;
+                    bestLength = extension.length();
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 文件的扩展名，tar 包返回完整的扩展名（如 .tar.gz），否则返回最后一个点号之后的部分
+     * @return 没有扩展名时返回空字符串
+     */
+    public static String extensionOf(String fileName) {
+        TarCodec codec = forFile(fileName);
+        if (codec != null) {
+            String lower = fileName.toLowerCase(Locale.ROOT);
+            for (String extension : codec.getExtensions()) {
+                if (lower.endsWith(extension)) {
+                    return fileName.substring(fileName.length() - extension.length());
+                }
+            }
+        }
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(dot) : "";
+    }
+
+    /**
+     * 所有已注册格式的扩展名，用于文件选择框
+     */
+    public static List<String> extensions() {
+        return CODECS.stream().flatMap(codec -> codec.getExtensions().stream()).distinct().toList();
+    }
+
+    @FunctionalInterface
+    private interface Decompressor {
+        InputStream open(InputStream in) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Compressor {
+        OutputStream open(OutputStream out, int level, int threads) throws IOException;
+    }
+
+    private static class SimpleCodec implements TarCodec {
+        private final String name;
+        private final List<String> extensions;
+        private final Decompressor decompressor;
+        private final Compressor compressor;
+
+        SimpleCodec(String name, List<String> extensions, Decompressor decompressor, Compressor compressor) {
+            this.name = name;
+            this.extensions = extensions;
+            this.decompressor = decompressor;
+            this.compressor = compressor;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public List<String> getExtensions() {
+            return extensions;
+        }
+
+        @Override
+        public InputStream decompress(InputStream in) throws IOException {
+            return decompressor.open(in);
+        }
+
+        @Override
+        public OutputStream compress(OutputStream out, int level, int threads) throws IOException {
+            return compressor.open(out, level, threads);
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package io.github.lemostic.toolsuite.modules.file.zipclean.service;
+
+import cn.hutool.core.text.csv.CsvWriter;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.CleanOptions;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.CleanResult;
+import io.github.lemostic.toolsuite.modules.file.zipclean.service.ZipCleanService.CleanRule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 批量清理
+ * <p>把目录下符合文件名模式的压缩包放到工作窃取线程池中清理：</p>
+ * <ul>
+ *     <li>按文件大小从大到小提交，最大的压缩包最先开始，避免最后剩一个大文件单独运行</li>
+ *     <li>同时清理的压缩包数是唯一的并发上限：清理时读写磁盘与（重新）压缩交织在同一个流中进行，
+ *     无法只在读写阶段单独限流。机械硬盘上应调小该值，每个压缩包内部的重新压缩线程和内存预算按它平分</li>
+ *     <li>进度按字节数汇总全部压缩包，完成后给出每个压缩包的结果和总共节省的空间</li>
+ * </ul>
+ */
+public class ZipBatchCleanService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ZipBatchCleanService.class);
+
+    public static final String DEFAULT_FILE_PATTERN = "*.{zip,jar,war,tar,tar.gz,tgz,tar.bz2,tbz2,tar.xz,txz,tar.zst,tzst}";
+    public static final String OUTPUT_SUFFIX = "_cleaned";
+
+    /**
+     * 批量清理选项
+     */
+    public static class BatchOptions {
+        private final File sourceDir;
+        private String filePattern = DEFAULT_FILE_PATTERN;
+        private boolean recursive = true;
+        private File outputDir;
+        private CleanOptions cleanOptions = new CleanOptions();
+        private int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        public BatchOptions(File sourceDir) {
+            this.sourceDir = sourceDir;
+        }
+
+        public File getSourceDir() { return sourceDir; }
+
+        /** 文件名模式（glob 语法），含 / 时匹配相对源目录的路径 */
+        public String getFilePattern() { return filePattern; }
+        public void setFilePattern(String filePattern) {
+            this.filePattern = filePattern == null || filePattern.isBlank() ? DEFAULT_FILE_PATTERN : filePattern.trim();
+        }
+
+        public boolean isRecursive() { return recursive; }
+        public void setRecursive(boolean recursive) { this.recursive = recursive; }
+
+        /** 输出目录，为 null 时输出到源文件所在目录；递归时保留子目录结构 */
+        public File getOutputDir() { return outputDir; }
+        public void setOutputDir(File outputDir) { this.outputDir = outputDir; }
+
+        public CleanOptions getCleanOptions() { return cleanOptions; }
+        public void setCleanOptions(CleanOptions cleanOptions) { this.cleanOptions = cleanOptions; }
+
+        /** 同时清理的压缩包数，也就是同时读写磁盘的压缩包数 */
+        public int getParallelism() { return parallelism; }
+        public void setParallelism(int parallelism) { this.parallelism = Math.max(1, parallelism); }
+    }
+
+    public enum ArchiveStatus {
+        PENDING("等待"), RUNNING("清理中"), SUCCESS("完成"), FAILED("失败"), SKIPPED("已跳过");
+
+        private final String label;
+
+        ArchiveStatus(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * 单个压缩包的清理结果
+     */
+    public static class ArchiveReport {
+        private final File source;
+        private final File output;
+        private final long originalSize;
+        private volatile ArchiveStatus status = ArchiveStatus.PENDING;
+        private volatile double progress;
+        private volatile CleanResult result;
+        private volatile String error;
+        private volatile Duration elapsed = Duration.ZERO;
+
+        ArchiveReport(File source, File output) {
+            this.source = source;
+            this.output = output;
+            this.originalSize = source.length();
+        }
+
+        public File getSource() { return source; }
+        public File getOutput() { return output; }
+        public long getOriginalSize() { return originalSize; }
+        public ArchiveStatus getStatus() { return status; }
+        /** 当前压缩包的进度 0-1 */
+        public double getProgress() { return progress; }
+        /** 清理结果，未完成或失败时为 null */
+        public CleanResult getResult() { return result; }
+        public String getError() { return error; }
+        public Duration getElapsed() { return elapsed; }
+
+        public long getSavedBytes() {
+            CleanResult r = result;
+            return r == null ? 0 : r.getOriginalSize() - r.getCleanedSize();
+        }
+    }
+
+    /**
+     * 批量清理的汇总结果，清理过程中也可读取
+     */
+    public static class BatchResult {
+        private final List<ArchiveReport> reports;
+        private final long totalBytes;
+        private final AtomicLong finishedBytes = new AtomicLong();
+        private final long startNanos = System.nanoTime();
+        private volatile long endNanos;
+
+        BatchResult(List<ArchiveReport> reports) {
+            this.reports = Collections.unmodifiableList(reports);
+            this.totalBytes = reports.stream().mapToLong(ArchiveReport::getOriginalSize).sum();
+        }
+
+        /** 按文件大小从大到小排列 */
+        public List<ArchiveReport> getReports() { return reports; }
+        public int getTotal() { return reports.size(); }
+        public long getTotalBytes() { return totalBytes; }
+
+        public int getCompleted() { return count(ArchiveStatus.SUCCESS) + count(ArchiveStatus.FAILED) + count(ArchiveStatus.SKIPPED); }
+        public int getSucceeded() { return count(ArchiveStatus.SUCCESS); }
+        public int getFailed() { return count(ArchiveStatus.FAILED); }
+
+        /** 按字节数加权的总进度 0-1 */
+        public double getProgress() {
+            if (totalBytes == 0) {
+                return reports.isEmpty() ? 1 : (double) getCompleted() / reports.size();
+            }
+            double running = 0;
+            for (ArchiveReport report : reports) {
+                if (report.status == ArchiveStatus.RUNNING) {
+                    running += report.progress * report.originalSize;
+                }
+            }
+            return Math.min(1, (finishedBytes.get() + running) / totalBytes);
+        }
+
+        public long getOriginalBytes() {
+            return sum(r -> r.getResult().getOriginalSize());
+        }
+
+        public long getCleanedBytes() {
+            return sum(r -> r.getResult().getCleanedSize());
+        }
+
+        public long getSavedBytes() {
+            return getOriginalBytes() - getCleanedBytes();
+        }
+
+        public int getDeletedFiles() {
+            return (int) sum(r -> r.getResult().getDeletedFiles());
+        }
+
+        public Duration getElapsed() {
+            long end = endNanos == 0 ? System.nanoTime() : endNanos;
+            return Duration.ofNanos(end - startNanos);
+        }
+
+        /**
+         * 把每个压缩包的结果写成 CSV
+         */
+        public void writeReport(File file) throws IOException {
+            try (CsvWriter writer = new CsvWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+                writer.writeHeaderLine("源文件", "输出", "状态", "文件数", "删除文件数", "原始大小", "清理后大小", "节省", "耗时(ms)", "错误");
+                for (ArchiveReport report : reports) {
+                    CleanResult r = report.getResult();
+                    writer.writeLine(report.getSource().getAbsolutePath(),
+                            report.getOutput().getAbsolutePath(),
+                            report.getStatus().toString(),
+                            r == null ? "" : String.valueOf(r.getTotalFiles()),
+                            r == null ? "" : String.valueOf(r.getDeletedFiles()),
+                            String.valueOf(report.getOriginalSize()),
+                            r == null ? "" : String.valueOf(r.getCleanedSize()),
+                            String.valueOf(report.getSavedBytes()),
+                            String.valueOf(report.getElapsed().toMillis()),
+                            report.getError() == null ? "" : report.getError());
+                }
+                writer.writeLine("合计", "", "", "", String.valueOf(getDeletedFiles()),
+                        String.valueOf(getOriginalBytes()), String.valueOf(getCleanedBytes()),
+                        String.valueOf(getSavedBytes()), String.valueOf(getElapsed().toMillis()), "");
+            }
+        }
+
+        private int count(ArchiveStatus status) {
+            int count = 0;
+            for (ArchiveReport report : reports) {
+                if (report.status == status) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private long sum(java.util.function.ToLongFunction<ArchiveReport> getter) {
+            long sum = 0;
+            for (ArchiveReport report : reports) {
+                if (report.status == ArchiveStatus.SUCCESS && report.result != null) {
+                    sum += getter.applyAsLong(report);
+                }
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * 查找源目录下要清理的压缩包，按大小从大到小排列
+     */
+    public List<File> findArchives(BatchOptions options) throws IOException {
+        Path root = options.getSourceDir().toPath();
+        String pattern = options.getFilePattern();
+        boolean byPath = pattern.contains("/");
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        try (Stream<Path> paths = options.isRecursive() ? Files.walk(root) : Files.list(root)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(byPath ? root.relativize(path) : path.getFileName()))
+                    .map(Path::toFile)
+                    .sorted(Comparator.comparingLong(File::length).reversed())
+                    .toList();
+        }
+    }
+
+    /**
+     * 开始批量清理
+     * <p>返回的 future 被取消时不再开始新的压缩包，正在清理的压缩包会完成</p>
+     * @param listener 有压缩包状态或进度变化时回调（在清理线程中调用），可为 null
+     */
+    public CompletableFuture<BatchResult> cleanAll(BatchOptions options, List<CleanRule> rules,
+                                                   Consumer<BatchResult> listener) throws IOException {
+        List<File> archives = findArchives(options);
+        List<ArchiveReport> reports = new ArrayList<>(archives.size());
+        Set<File> outputs = new HashSet<>();
+        for (File archive : archives) {
+            reports.add(new ArchiveReport(archive, outputFor(archive, options, outputs)));
+        }
+        BatchResult result = new BatchResult(reports);
+        CompletableFuture<BatchResult> future = new CompletableFuture<>();
+        if (reports.isEmpty()) {
+            result.endNanos = System.nanoTime();
+            future.complete(result);
+            return future;
+        }
+
+        // 重新压缩的线程和内存预算在同时运行的压缩包之间平分
+        CleanOptions shared = options.getCleanOptions();
+        int deflateThreads = Math.max(1, shared.getThreads() / options.getParallelism());
+        long memoryBudget = Math.max(1, shared.getMemoryBudget() / options.getParallelism());
+        ForkJoinPool pool = new ForkJoinPool(options.getParallelism(), workerFactory(), null, true);
+        CountDownLatch remaining = new CountDownLatch(reports.size());
+
+        // 已按大小降序排列，先提交的先被工作线程取走
+        for (ArchiveReport report : reports) {
+            pool.execute(() -> {
+                try {
+                    cleanOne(report, shared, deflateThreads, memoryBudget, rules, future, result, listener);
+                } finally {
+                    remaining.countDown();
+                }
+            });
+        }
+
+        // 取消后排队中的任务会很快以“已跳过”结束
+        future.whenComplete((value, error) -> {
+            if (error instanceof CancellationException) {
+                for (ArchiveReport report : reports) {
+                    if (report.status == ArchiveStatus.PENDING) {
+                        report.status = ArchiveStatus.SKIPPED;
+                    }
+                }
+                result.endNanos = System.nanoTime();
+            }
+            pool.shutdown();
+        });
+
+        Thread waiter = new Thread(() -> {
+            try {
+                remaining.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            result.endNanos = System.nanoTime();
+            logger.info("批量清理完成: {} 个压缩包，成功 {}，失败 {}，节省 {} 字节，耗时 {} ms",
+                    result.getTotal(), result.getSucceeded(), result.getFailed(), result.getSavedBytes(),
+                    result.getElapsed().toMillis());
+            future.complete(result);
+        }, "zip-batch-wait");
+        waiter.setDaemon(true);
+        waiter.start();
+        return future;
+    }
+
+    private void cleanOne(ArchiveReport report, CleanOptions shared, int deflateThreads, long memoryBudget,
+                          List<CleanRule> rules, CompletableFuture<BatchResult> future, BatchResult result,
+                          Consumer<BatchResult> listener) {
+        long start = System.nanoTime();
+        try {
+            if (future.isDone()) {
+                report.status = ArchiveStatus.SKIPPED;
+                return;
+            }
+            report.status = ArchiveStatus.RUNNING;
+            fireProgress(listener, result);
+
+            CleanOptions options = new CleanOptions(shared);
+            options.setThreads(deflateThreads);
+            options.setMemoryBudget(memoryBudget);
+
+            ZipCleanService service = new ZipCleanService((message, progress) -> {
+                report.progress = progress;
+                fireProgress(listener, result);
+            });
+            File parent = report.getOutput().getParentFile();
+            if (parent != null) {
+                Files.createDirectories(parent.toPath());
+            }
+            CleanResult cleaned = service.cleanZip(report.getSource(), rules, report.getOutput(), options);
+            report.result = cleaned;
+            report.status = cleaned.isSuccess() ? ArchiveStatus.SUCCESS : ArchiveStatus.FAILED;
+            if (!cleaned.isSuccess()) {
+                report.error = cleaned.getMessage();
+            }
+        } catch (Exception e) {
+            logger.warn("清理失败: {}", report.getSource(), e);
+            report.error = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            report.status = ArchiveStatus.FAILED;
+        } finally {
+            report.elapsed = Duration.ofNanos(System.nanoTime() - start);
+            report.progress = 1;
+            result.finishedBytes.addAndGet(report.getOriginalSize());
+            fireProgress(listener, result);
+        }
+    }
+
+    /**
+     * 输出到源文件旁（或输出目录中保持相对路径），文件名加 _cleaned 后缀；直接替换时为源文件本身。
+     * 解压时输出为同名文件夹，同一批中已被占用（如 a.zip 和 a.tar.gz）时文件夹名保留扩展名，如 a_tar_gz_cleaned
+     * @param outputs 本批已分配的输出，用于避免解压到同一文件夹
+     */
+    private static File outputFor(File archive, BatchOptions options, Set<File> outputs) {
+        if (options.getCleanOptions().isInPlace() && !options.getCleanOptions().isExtractAfterClean()) {
+            return archive;
+        }
+        String name = archive.getName();
+        String extension = TarCodecs.extensionOf(name);
+        String stem = name.substring(0, name.length() - extension.length());
+        if (!options.getCleanOptions().isExtractAfterClean()) {
+            return resolveOutput(archive, options, stem + OUTPUT_SUFFIX + (extension.isEmpty() ? ".zip" : extension));
+        }
+        File output = resolveOutput(archive, options, stem + OUTPUT_SUFFIX);
+        if (!outputs.add(output)) {
+            String withExtension = stem + extension.replace('.', '_');
+            output = resolveOutput(archive, options, withExtension + OUTPUT_SUFFIX);
+            for (int i = 2; !outputs.add(output); i++) {
+                output = resolveOutput(archive, options, withExtension + OUTPUT_SUFFIX + "_" + i);
+            }
+        }
+        return output;
+    }
+
+    private static File resolveOutput(File archive, BatchOptions options, String outputName) {
+        if (options.getOutputDir() == null) {
+            return new File(archive.getParentFile(), outputName);
+        }
+        Path relative = options.getSourceDir().toPath().relativize(archive.toPath()).getParent();
+        Path dir = relative == null ? options.getOutputDir().toPath() : options.getOutputDir().toPath().resolve(relative);
+        return dir.resolve(outputName).toFile();
+    }
+
+    private static void fireProgress(Consumer<BatchResult> listener, BatchResult result) {
+        if (listener != null) {
+            listener.accept(result);
+        }
+    }
+
+    private static ForkJoinPool.ForkJoinWorkerThreadFactory workerFactory() {
+        return pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("zip-batch-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
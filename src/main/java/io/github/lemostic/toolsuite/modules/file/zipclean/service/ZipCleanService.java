@@ -8,13 +8,16 @@ import javafx.beans.property.StringProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.regex.Pattern;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
-import java.util.zip.ZipOutputStream;
+import java.util.zip.CRC32;
 
 /**
  * 压缩包清理服务
@@ -23,20 +26,54 @@ public class ZipCleanService {
     
     private static final Logger logger = LoggerFactory.getLogger(ZipCleanService.class);
     
+    /** 数据描述符长度（签名 + CRC + 压缩前后大小） */
+    private static final int DATA_DESCRIPTOR_LENGTH = 16;
+    
     private final DoubleProperty progress = new SimpleDoubleProperty(0);
     private final StringProperty statusMessage = new SimpleStringProperty("");
+    private final BiConsumer<String, Double> progressListener;
+    
+    public ZipCleanService() {
+        this(null);
+    }
+    
+    /**
+     * @param progressListener 不为 null 时进度只回调给它（在清理线程中调用），不更新界面属性，用于批量清理
+     */
+    public ZipCleanService(BiConsumer<String, Double> progressListener) {
+        this.progressListener = progressListener;
+    }
+    
+    /**
+     * 规则类型
+     */
+    public enum RuleType {
+        /** 路径包含指定文本 */
+        CONTAINS,
+        /** 正则表达式完整匹配路径 */
+        REGEX,
+        /** gitignore 语法，见 {@link GlobRuleSet} */
+        GLOB
+    }
     
     /**
      * 清理规则
      */
     public static class CleanRule {
         private String pattern;
-        private boolean isRegex;
+        private RuleType type;
         private boolean enabled;
+        private Pattern compiled;
+        private GlobRuleSet glob;
+        private boolean invalid;
         
         public CleanRule(String pattern, boolean isRegex, boolean enabled) {
+            this(pattern, isRegex ? RuleType.REGEX : RuleType.CONTAINS, enabled);
+        }
+        
+        public CleanRule(String pattern, RuleType type, boolean enabled) {
             this.pattern = pattern;
-            this.isRegex = isRegex;
+            this.type = type;
             this.enabled = enabled;
         }
         
@@ -44,30 +81,61 @@ public class ZipCleanService {
             return pattern;
         }
         
+        public RuleType getType() {
+            return type;
+        }
+        
         public boolean isRegex() {
-            return isRegex;
+            return type == RuleType.REGEX;
+        }
+        
+        public boolean isGlob() {
+            return type == RuleType.GLOB;
         }
         
         public boolean isEnabled() {
             return enabled;
         }
         
+        /**
+         * 单独判断这一条规则；多条 Glob 规则之间的取反（!）只有放在一起编译（{@link CleanRuleMatcher}）时才生效
+         */
         public boolean matches(String path) {
             if (!enabled) {
                 return false;
             }
             
-            if (isRegex) {
+            switch (type) {
+                case REGEX -> {
+                    Pattern regex = compiled();
+                    return regex != null && regex.matcher(path).matches();
+                }
+                case GLOB -> {
+                    if (glob == null) {
+                        glob = new GlobRuleSet(List.of(pattern));
+                    }
+                    return glob.isIgnored(path);
+                }
+                default -> {
+                    // 简单模式匹配
+                    return path.contains(pattern);
+                }
+            }
+        }
+        
+        /**
+         * 正则只编译一次，无效时返回 null
+         */
+        private Pattern compiled() {
+            if (compiled == null && !invalid) {
                 try {
-                    return Pattern.matches(pattern, path);
+                    compiled = Pattern.compile(pattern);
                 } catch (Exception e) {
-                    logger.warn("正则表达式匹配失败: {}", pattern, e);
-                    return false;
+                    logger.warn("正则表达式编译失败: {}", pattern, e);
+                    invalid = true;
                 }
-            } else {
-                // 简单模式匹配
-                return path.contains(pattern);
             }
+            return compiled;
         }
     }
     
@@ -81,6 +149,7 @@ public class ZipCleanService {
         private long originalSize;
         private long cleanedSize;
         private List<String> deletedPaths;
+        private int nestedArchives;
         private boolean success;
         private String message;
         
@@ -107,6 +176,10 @@ public class ZipCleanService {
         public List<String> getDeletedPaths() { return deletedPaths; }
         public void addDeletedPath(String path) { this.deletedPaths.add(path); }
         
+        /** 展开处理过的嵌套压缩包数量 */
+        public int getNestedArchives() { return nestedArchives; }
+        public void setNestedArchives(int nestedArchives) { this.nestedArchives = nestedArchives; }
+        
         public boolean isSuccess() { return success; }
         public void setSuccess(boolean success) { this.success = success; }
         
@@ -114,6 +187,137 @@ public class ZipCleanService {
         public void setMessage(String message) { this.message = message; }
     }
     
+    /**
+     * 预览中将被删除的条目
+     */
+    public static class PreviewEntry {
+        private final String path;
+        private final long compressedSize;
+        private final long size;
+        
+        public PreviewEntry(String path, long compressedSize, long size) {
+            this.path = path;
+            this.compressedSize = compressedSize;
+            this.size = size;
+        }
+        
+        public String getPath() { return path; }
+        public long getCompressedSize() { return compressedSize; }
+        public long getSize() { return size; }
+    }
+    
+    /**
+     * 预览结果
+     */
+    public static class PreviewResult {
+        private final long archiveSize;
+        private final List<PreviewEntry> deletedEntries = new ArrayList<>();
+        private int totalFiles;
+        private long totalCompressedSize;
+        private long totalSize;
+        private long deletedCompressedSize;
+        private long deletedSize;
+        private long savedBytes;
+        private long elapsedMillis;
+        
+        PreviewResult(long archiveSize) {
+            this.archiveSize = archiveSize;
+        }
+        
+        /** 压缩包文件大小 */
+        public long getArchiveSize() { return archiveSize; }
+        /** 将被删除的文件（不含目录条目），按在压缩包中的顺序 */
+        public List<PreviewEntry> getDeletedEntries() { return deletedEntries; }
+        public int getTotalFiles() { return totalFiles; }
+        public int getDeletedFiles() { return deletedEntries.size(); }
+        /** 全部文件压缩后的大小 */
+        public long getTotalCompressedSize() { return totalCompressedSize; }
+        /** 全部文件解压后的大小 */
+        public long getTotalSize() { return totalSize; }
+        public long getDeletedCompressedSize() { return deletedCompressedSize; }
+        public long getDeletedSize() { return deletedSize; }
+        /** 预计节省的字节数（压缩数据加上文件头、中央目录记录） */
+        public long getSavedBytes() { return savedBytes; }
+        /** 预计清理后的压缩包大小 */
+        public long getProjectedSize() { return Math.max(0, archiveSize - savedBytes); }
+        public double getSavedPercent() { return archiveSize == 0 ? 0 : 100.0 * savedBytes / archiveSize; }
+        /** 读取中央目录和匹配规则的耗时 */
+        public long getElapsedMillis() { return elapsedMillis; }
+    }
+    
+    /**
+     * 清理选项
+     */
+    public static class CleanOptions {
+        /** 保持原有压缩数据，不重新压缩 */
+        public static final int KEEP_COMPRESSION = -1;
+        public static final long DEFAULT_MAX_NESTED_SIZE = 64L * 1024 * 1024;
+        
+        private boolean extractAfterClean;
+        private boolean deleteOriginal;
+        private int compressionLevel = KEEP_COMPRESSION;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private long memoryBudget = ParallelZipWriter.DEFAULT_MEMORY_BUDGET;
+        private int nestedDepth;
+        private long maxNestedSize = DEFAULT_MAX_NESTED_SIZE;
+        private boolean removeDuplicates;
+        private boolean inPlace;
+        
+        public CleanOptions() {
+        }
+        
+        /**
+         * 复制全部选项，新增选项时需同步加入
+         */
+        public CleanOptions(CleanOptions other) {
+            this.extractAfterClean = other.extractAfterClean;
+            this.deleteOriginal = other.deleteOriginal;
+            this.compressionLevel = other.compressionLevel;
+            this.threads = other.threads;
+            this.memoryBudget = other.memoryBudget;
+            this.nestedDepth = other.nestedDepth;
+            this.maxNestedSize = other.maxNestedSize;
+            this.removeDuplicates = other.removeDuplicates;
+            this.inPlace = other.inPlace;
+        }
+        
+        public boolean isExtractAfterClean() { return extractAfterClean; }
+        public void setExtractAfterClean(boolean extractAfterClean) { this.extractAfterClean = extractAfterClean; }
+        
+        public boolean isDeleteOriginal() { return deleteOriginal; }
+        public void setDeleteOriginal(boolean deleteOriginal) { this.deleteOriginal = deleteOriginal; }
+        
+        /** 输出压缩包的压缩级别 0-9，{@link #KEEP_COMPRESSION} 表示直接复制原有压缩数据 */
+        public int getCompressionLevel() { return compressionLevel; }
+        public void setCompressionLevel(int compressionLevel) { this.compressionLevel = compressionLevel; }
+        
+        public boolean isRecompress() { return compressionLevel != KEEP_COMPRESSION; }
+        
+        /** 重新压缩和解压时的线程数 */
+        public int getThreads() { return threads; }
+        public void setThreads(int threads) { this.threads = Math.max(1, threads); }
+        
+        /** 重新压缩时压缩中和等待写出的数据最多占用的内存（字节） */
+        public long getMemoryBudget() { return memoryBudget; }
+        public void setMemoryBudget(long memoryBudget) { this.memoryBudget = memoryBudget; }
+        
+        /** 展开嵌套压缩包（jar、war 等）清理的最大层数，0 表示不处理嵌套压缩包 */
+        public int getNestedDepth() { return nestedDepth; }
+        public void setNestedDepth(int nestedDepth) { this.nestedDepth = Math.max(0, nestedDepth); }
+        
+        /** 单个嵌套压缩包在内存中处理的大小上限（字节），超过时按普通文件保留 */
+        public long getMaxNestedSize() { return maxNestedSize; }
+        public void setMaxNestedSize(long maxNestedSize) { this.maxNestedSize = maxNestedSize; }
+        
+        /** 内容相同的文件只保留一份（按在压缩包中的顺序保留第一份），只对 zip 格式有效 */
+        public boolean isRemoveDuplicates() { return removeDuplicates; }
+        public void setRemoveDuplicates(boolean removeDuplicates) { this.removeDuplicates = removeDuplicates; }
+        
+        /** 直接替换源文件：清理结果校验通过后才替换，忽略输出路径，解压时无效 */
+        public boolean isInPlace() { return inPlace; }
+        public void setInPlace(boolean inPlace) { this.inPlace = inPlace; }
+    }
+    
     public DoubleProperty progressProperty() {
         return progress;
     }
@@ -124,6 +328,12 @@ public class ZipCleanService {
     
     /**
      * 清理压缩包
+     * <p>只读取中央目录判断每个条目是否保留，不经过临时目录：</p>
+     * <ul>
+     *     <li>输出压缩包时，保留条目的原始压缩数据被直接复制到新压缩包，不解压也不重新压缩，
+     *     耗时与复制文件相当</li>
+     *     <li>输出文件夹时，只把保留的条目多线程解压到目标文件夹</li>
+     * </ul>
      * @param zipFile 源压缩包
      * @param rules 清理规则列表
      * @param outputFile 输出文件/目录路径
@@ -132,6 +342,22 @@ public class ZipCleanService {
      */
     public CleanResult cleanZip(File zipFile, List<CleanRule> rules, File outputFile, 
                                 boolean extractAfterClean, boolean deleteOriginal) throws IOException {
+        CleanOptions options = new CleanOptions();
+        options.setExtractAfterClean(extractAfterClean);
+        options.setDeleteOriginal(deleteOriginal);
+        return cleanZip(zipFile, rules, outputFile, options);
+    }
+    
+    /**
+     * 清理压缩包
+     * <p>指定了压缩级别时，保留的条目用多个线程重新压缩（见 {@link ParallelZipWriter}），否则直接复制原有压缩数据</p>
+     * <p>输出先写到同目录的临时文件（解压时为临时目录），完成后再改名为输出路径（压缩包先落盘；解压的文件只在要删除原文件时落盘），
+     * 中途失败不会留下不完整的输出，也不会破坏已有的同名输出；替换源文件时先校验临时文件。原文件只在输出成功后才删除</p>
+     */
+    public CleanResult cleanZip(File zipFile, List<CleanRule> rules, File outputFile, 
+                                CleanOptions options) throws IOException {
+        boolean extractAfterClean = options.isExtractAfterClean();
+        boolean deleteOriginal = options.isDeleteOriginal();
         CleanResult result = new CleanResult();
         
         if (!zipFile.exists()) {
@@ -141,97 +367,54 @@ public class ZipCleanService {
         }
         
         result.setOriginalSize(zipFile.length());
+        if (options.isInPlace() && !extractAfterClean) {
+            outputFile = zipFile;
+        }
+        boolean sameFile = !extractAfterClean && outputFile.exists() 
+                && Files.isSameFile(zipFile.toPath(), outputFile.toPath());
         
-        // 临时目录
-        Path tempDir = Files.createTempDirectory("zipclean_");
+        TarCodec codec = TarCodecs.forFile(zipFile.getName());
+        if (codec != null && !codec.isAvailable()) {
+            result.setSuccess(false);
+            result.setMessage("缺少 " + codec.getName() + " 压缩库，无法处理该格式");
+            return result;
+        }
         
-        try {
-            updateStatus("正在解压文件...", 0.1);
-            
-            // 解压到临时目录
-            unzip(zipFile, tempDir.toFile());
-            
-            updateStatus("正在分析文件...", 0.3);
-            
-            // 统计和删除文件
-            List<Path> allFiles = listAllFiles(tempDir);
-            result.setTotalFiles(allFiles.size());
-            
-            int processed = 0;
-            for (Path file : allFiles) {
-                String relativePath = tempDir.relativize(file).toString().replace("\\", "/");
-                
-                boolean shouldDelete = false;
-                for (CleanRule rule : rules) {
-                    if (rule.matches(relativePath)) {
-                        shouldDelete = true;
-                        break;
-                    }
+        updateStatus("正在读取压缩包目录...", 0);
+        if (codec != null) {
+            cleanTar(zipFile, new TarCleaner(codec, rules), outputFile, sameFile, options, result);
+        } else {
+            try (ZipFile source = openZip(zipFile)) {
+                List<ZipArchiveEntry> kept = selectEntries(source, rules, result, "");
+                if (options.isRemoveDuplicates()) {
+                    updateStatus("正在查找重复文件...", 0.02);
+                    kept = removeDuplicates(source, kept, result);
                 }
+                NestedArchiveCleaner nested = new NestedArchiveCleaner(rules, options, result);
                 
-                if (shouldDelete) {
-                    Files.deleteIfExists(file);
-                    result.addDeletedPath(relativePath);
-                    result.setDeletedFiles(result.getDeletedFiles() + 1);
+                if (extractAfterClean) {
+                    updateStatus("正在解压保留的文件...", 0.05);
+                    result.setCleanedSize(extractEntries(zipFile, kept, outputFile, options, nested));
+                    result.setMessage("清理完成（已解压）");
+                    updateStatus("清理完成（已解压到文件夹）！", 1.0);
                 } else {
-                    result.setKeptFiles(result.getKeptFiles() + 1);
-                }
-                
-                processed++;
-                updateStatus("正在处理文件... (" + processed + "/" + allFiles.size() + ")", 
-                    0.3 + (processed * 0.4 / allFiles.size()));
-            }
-            
-            // 删除空目录
-            deleteEmptyDirectories(tempDir);
-            
-            if (extractAfterClean) {
-                // 直接将临时目录移动到目标位置
-                updateStatus("正在生成文件夹...", 0.8);
-                
-                if (outputFile.exists()) {
-                    deleteDirectory(outputFile.toPath());
+                    updateStatus(options.isRecompress() ? "正在重新压缩保留的文件..." : "正在复制保留的文件...", 0.05);
+                    writeEntries(source, kept, outputFile, sameFile, options, nested);
+                    result.setCleanedSize(outputFile.length());
+                    result.setMessage("清理完成");
+                    updateStatus("清理完成！", 1.0);
                 }
-                
-                // 将临时目录内容移动到输出目录
-                Files.move(tempDir, outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                
-                // 计算文件夹大小
-                result.setCleanedSize(calculateDirectorySize(outputFile.toPath()));
-                result.setSuccess(true);
-                result.setMessage("清理完成（已解压）");
-                
-                updateStatus("清理完成（已解压到文件夹）！", 1.0);
-                
-                // 标记为不删除临时目录（因为已经移动）
-                tempDir = null;
-            } else {
-                // 重新打包为压缩文件
-                updateStatus("正在打包文件...", 0.8);
-                
-                zip(tempDir.toFile(), outputFile);
-                
-                result.setCleanedSize(outputFile.length());
                 result.setSuccess(true);
-                result.setMessage("清理完成");
-                
-                updateStatus("清理完成！", 1.0);
             }
-            
-            // 删除原文件（如果需要）
-            if (deleteOriginal && zipFile.exists()) {
-                boolean deleted = zipFile.delete();
-                if (deleted) {
-                    logger.info("已删除原文件: {}", zipFile.getAbsolutePath());
-                } else {
-                    logger.warn("无法删除原文件: {}", zipFile.getAbsolutePath());
-                }
-            }
-            
-        } finally {
-            // 清理临时目录（如果未被移动）
-            if (tempDir != null) {
-                deleteDirectory(tempDir);
+        }
+        
+        // 删除原文件（如果需要），输出覆盖了原文件时不删除
+        if (deleteOriginal && !sameFile && zipFile.exists()) {
+            boolean deleted = zipFile.delete();
+            if (deleted) {
+                logger.info("已删除原文件: {}", zipFile.getAbsolutePath());
+            } else {
+                logger.warn("无法删除原文件: {}", zipFile.getAbsolutePath());
             }
         }
         
@@ -239,151 +422,427 @@ public class ZipCleanService {
     }
     
     /**
-     * 预览将要删除的文件
+     * 清理 tar 包：顺序读取并过滤，输出与源文件相同的压缩格式
+     * <p>tar 包外层的压缩是整体的流式压缩，无法原样复制，"保持原有压缩"时按该格式的默认级别重新压缩</p>
      */
-    public List<String> previewDeletion(File zipFile, List<CleanRule> rules) throws IOException {
-        List<String> toDelete = new ArrayList<>();
-        
-        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(zipFile))) {
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                if (!entry.isDirectory()) {
-                    String path = entry.getName();
-                    
-                    for (CleanRule rule : rules) {
-                        if (rule.matches(path)) {
-                            toDelete.add(path);
-                            break;
-                        }
+    private void cleanTar(File tarFile, TarCleaner cleaner, File outputFile, boolean sameFile, 
+                          CleanOptions options, CleanResult result) throws IOException {
+        if (options.isExtractAfterClean()) {
+            Path tempDir = AtomicOutput.tempSibling(outputFile.toPath(), ".extracting");
+            ProgressTracker tracker = new ProgressTracker("正在解压保留的文件... ", tarFile.length());
+            try {
+                result.setCleanedSize(cleaner.extract(tarFile, tempDir.toFile(), result, tracker::advance));
+                if (options.isDeleteOriginal()) {
+                    // 源文件随后会被删除，解压结果成为唯一的副本
+                    AtomicOutput.fsyncTree(tempDir);
+                }
+                AtomicOutput.commitDirectory(tempDir, outputFile.toPath());
+            } catch (IOException | RuntimeException e) {
+                AtomicOutput.deleteRecursively(tempDir);
+                throw e;
+            }
+            result.setMessage("清理完成（已解压）");
+            updateStatus("清理完成（已解压到文件夹）！", 1.0);
+        } else {
+            Path temp = AtomicOutput.tempSibling(outputFile.toPath(), ".cleaning");
+            ProgressTracker tracker = new ProgressTracker("正在过滤保留的文件... ", tarFile.length());
+            try {
+                int written = cleaner.write(tarFile, temp.toFile(), options, result, tracker::advance);
+                if (sameFile) {
+                    updateStatus("正在校验输出文件...", 1.0);
+                    int verified = cleaner.verify(temp.toFile());
+                    if (verified != written) {
+                        throw new IOException("校验失败: 写入 " + written + " 个条目，读出 " + verified + " 个");
                     }
                 }
-                zis.closeEntry();
+                AtomicOutput.commitFile(temp, outputFile.toPath());
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            result.setCleanedSize(outputFile.length());
+            result.setMessage("清理完成");
+            updateStatus("清理完成！", 1.0);
+        }
+        result.setSuccess(true);
+    }
+    
+    /**
+     * 按规则筛选要保留的条目（按在文件中的物理顺序，复制时顺序读取）
+     * <p>目录条目只在其下还有保留的文件时保留</p>
+     * @param prefix 记录删除路径时加的前缀，嵌套压缩包为 {@code 外层路径!/}
+     */
+    static List<ZipArchiveEntry> selectEntries(ZipFile source, List<CleanRule> rules, CleanResult result, 
+                                               String prefix) {
+        List<ZipArchiveEntry> entries = Collections.list(source.getEntriesInPhysicalOrder());
+        Set<ZipArchiveEntry> keptFiles = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<String> keptDirs = new HashSet<>();
+        CleanRuleMatcher matcher = CleanRuleMatcher.compile(rules);
+        
+        for (ZipArchiveEntry entry : entries) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            String path = normalizeName(entry.getName());
+            result.setTotalFiles(result.getTotalFiles() + 1);
+            if (matcher.matches(path)) {
+                result.addDeletedPath(prefix + path);
+                result.setDeletedFiles(result.getDeletedFiles() + 1);
+            } else {
+                keptFiles.add(entry);
+                result.setKeptFiles(result.getKeptFiles() + 1);
+                addParentDirs(path, keptDirs);
             }
         }
         
-        return toDelete;
+        List<ZipArchiveEntry> kept = new ArrayList<>(keptFiles.size());
+        for (ZipArchiveEntry entry : entries) {
+            if (entry.isDirectory() ? keptDirs.contains(normalizeName(entry.getName())) : keptFiles.contains(entry)) {
+                kept.add(entry);
+            }
+        }
+        return kept;
     }
     
-    private void updateStatus(String message, double progress) {
-        Platform.runLater(() -> {
-            this.statusMessage.set(message);
-            this.progress.set(progress);
-        });
-        logger.info("{} - {}", message, String.format("%.0f%%", progress * 100));
+    /**
+     * 从保留的条目中去掉内容重复的文件，每组只留第一份；去掉后没有文件的目录条目也一并去掉
+     */
+    private static List<ZipArchiveEntry> removeDuplicates(ZipFile source, List<ZipArchiveEntry> kept, 
+                                                          CleanResult result) throws IOException {
+        List<ZipArchiveEntry> files = new ArrayList<>();
+        for (ZipArchiveEntry entry : kept) {
+            if (!entry.isDirectory()) {
+                files.add(entry);
+            }
+        }
+        Set<ZipArchiveEntry> redundant = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (DuplicateFinder.DuplicateGroup group : new DuplicateFinder(source).find(files)) {
+            redundant.addAll(group.getRedundantEntries());
+        }
+        if (redundant.isEmpty()) {
+            return kept;
+        }
+        
+        Set<String> keptDirs = new HashSet<>();
+        for (ZipArchiveEntry entry : files) {
+            String path = normalizeName(entry.getName());
+            if (redundant.contains(entry)) {
+                result.addDeletedPath(path);
+                result.setDeletedFiles(result.getDeletedFiles() + 1);
+                result.setKeptFiles(result.getKeptFiles() - 1);
+            } else {
+                addParentDirs(path, keptDirs);
+            }
+        }
+        List<ZipArchiveEntry> remaining = new ArrayList<>(kept.size() - redundant.size());
+        for (ZipArchiveEntry entry : kept) {
+            if (entry.isDirectory() ? keptDirs.contains(normalizeName(entry.getName())) : !redundant.contains(entry)) {
+                remaining.add(entry);
+            }
+        }
+        logger.info("删除 {} 个重复文件", redundant.size());
+        return remaining;
     }
     
-    private void unzip(File zipFile, File destDir) throws IOException {
-        byte[] buffer = new byte[8192];
+    private static void addParentDirs(String path, Set<String> dirs) {
+        for (int slash = path.indexOf('/'); slash > 0; slash = path.indexOf('/', slash + 1)) {
+            dirs.add(path.substring(0, slash + 1));
+        }
+    }
+    
+    /**
+     * 将保留的条目写入新压缩包：默认直接复制原始压缩数据，指定压缩级别时并行重新压缩
+     * @param sameFile 输出与源文件相同，替换前先校验输出
+     */
+    private void writeEntries(ZipFile source, List<ZipArchiveEntry> kept, File outputFile, 
+                              boolean sameFile, CleanOptions options, NestedArchiveCleaner nested) throws IOException {
+        Path temp = AtomicOutput.tempSibling(outputFile.toPath(), ".cleaning");
+        // 重新压缩时按解压后大小计算进度，直接复制时按压缩后大小
+        boolean recompress = options.isRecompress();
+        long total = 0;
+        for (ZipArchiveEntry entry : kept) {
+            total += Math.max(0, recompress ? entry.getSize() : entry.getCompressedSize());
+        }
+        ProgressTracker tracker = new ProgressTracker(
+            recompress ? "正在重新压缩保留的文件... " : "正在复制保留的文件... ", total);
         
-        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(zipFile))) {
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                File newFile = new File(destDir, entry.getName());
-                
-                if (entry.isDirectory()) {
-                    newFile.mkdirs();
-                } else {
-                    newFile.getParentFile().mkdirs();
-                    try (FileOutputStream fos = new FileOutputStream(newFile)) {
-                        int len;
-                        while ((len = zis.read(buffer)) > 0) {
-                            fos.write(buffer, 0, len);
+        try {
+            try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(temp.toFile())) {
+                if (recompress) {
+                    try (ParallelZipWriter writer = new ParallelZipWriter(out, options.getCompressionLevel(), 
+                            options.getThreads(), options.getMemoryBudget())) {
+                        writer.setListener(written -> tracker.advance(written.getSize()));
+                        for (ZipArchiveEntry entry : kept) {
+                            byte[] cleaned = nested.clean(source, entry, "", 1);
+                            writer.write(entry, cleaned == null 
+                                ? () -> source.getInputStream(entry) : () -> new ByteArrayInputStream(cleaned));
                         }
+                        writer.finish();
+                    }
+                } else {
+                    nested.copy(source, kept, out, "", 1, tracker::advance);
+                }
+            }
+            if (sameFile) {
+                updateStatus("正在校验输出文件...", 1.0);
+                verifyOutput(temp, kept);
+                // Windows 上源文件打开时无法被替换
+                source.close();
+            }
+            AtomicOutput.commitFile(temp, outputFile.toPath());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+    
+    /**
+     * 替换源文件前校验输出：条目与应保留的条目一一对应，且每个文件解压后的 CRC 与记录的一致
+     */
+    private static void verifyOutput(Path output, List<ZipArchiveEntry> kept) throws IOException {
+        try (ZipFile written = ZipFile.builder().setFile(output.toFile()).get()) {
+            List<ZipArchiveEntry> entries = Collections.list(written.getEntriesInPhysicalOrder());
+            if (entries.size() != kept.size()) {
+                throw new IOException("校验失败: 应有 " + kept.size() + " 个条目，实际 " + entries.size() + " 个");
+            }
+            CRC32 crc = new CRC32();
+            byte[] buffer = new byte[64 * 1024];
+            for (int i = 0; i < entries.size(); i++) {
+                ZipArchiveEntry entry = entries.get(i);
+                if (!entry.getName().equals(kept.get(i).getName())) {
+                    throw new IOException("校验失败: 条目不一致 " + entry.getName());
+                }
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                crc.reset();
+                try (InputStream in = written.getInputStream(entry)) {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        crc.update(buffer, 0, read);
                     }
                 }
-                zis.closeEntry();
+                if (crc.getValue() != entry.getCrc()) {
+                    throw new IOException("校验失败: CRC 不一致 " + entry.getName());
+                }
             }
         }
     }
     
-    private void zip(File sourceDir, File zipFile) throws IOException {
-        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zipFile))) {
-            zipDirectory(sourceDir, sourceDir, zos);
+    /**
+     * 把保留的条目解压到输出目录旁的临时目录，完成后改名为输出目录
+     * <p>文件由 {@link ZipExtractor} 多线程解压</p>
+     * @return 解压出的文件总大小
+     */
+    private long extractEntries(File zipFile, List<ZipArchiveEntry> kept, File outputDir, 
+                                CleanOptions options, NestedArchiveCleaner nested) throws IOException {
+        Path root = AtomicOutput.tempSibling(outputDir.toPath(), ".extracting").normalize();
+        try {
+            long written = extractEntries(zipFile, kept, root, options, nested);
+            if (options.isDeleteOriginal()) {
+                // 源文件随后会被删除，解压结果成为唯一的副本
+                AtomicOutput.fsyncTree(root);
+            }
+            AtomicOutput.commitDirectory(root, outputDir.toPath());
+            return written;
+        } catch (IOException | RuntimeException e) {
+            AtomicOutput.deleteRecursively(root);
+            throw e;
         }
     }
     
-    private void zipDirectory(File rootDir, File sourceDir, ZipOutputStream zos) throws IOException {
-        File[] files = sourceDir.listFiles();
-        if (files == null) return;
-        
-        byte[] buffer = new byte[8192];
+    private long extractEntries(File zipFile, List<ZipArchiveEntry> kept, Path root, CleanOptions options,
+                                NestedArchiveCleaner nested) throws IOException {
+        ZipExtractor extractor = new ZipExtractor(zipFile, root, options.getThreads());
+        extractor.setTransformer((zip, entry) -> nested.clean(zip, entry, "", 1));
+        int[] processed = {0};
+        int[] lastPercent = {-1};
+        extractor.setListener(entry -> {
+            processed[0]++;
+            int percent = processed[0] * 100 / kept.size();
+            if (percent != lastPercent[0]) {
+                lastPercent[0] = percent;
+                updateStatus("正在解压保留的文件... (" + processed[0] + "/" + kept.size() + ")", 
+                    0.05 + 0.95 * percent / 100);
+            }
+        });
+        return extractor.extract(kept);
+    }
+    
+    private static ZipFile openZip(File zipFile) throws IOException {
+        return ZipFile.builder().setFile(zipFile).get();
+    }
+    
+    /**
+     * 统一使用 / 作为分隔符（部分Windows工具生成的压缩包使用 \）
+     */
+    static String normalizeName(String name) {
+        return name.replace('\\', '/');
+    }
+    
+    /**
+     * 预览将要删除的文件
+     * <p>只读取压缩包末尾的中央目录，不读取各条目的本地文件头，也不解压任何数据，
+     * 耗时只与条目数量有关，与压缩包大小无关。筛选逻辑与 {@link #cleanZip} 相同</p>
+     */
+    public PreviewResult previewDeletion(File zipFile, List<CleanRule> rules) throws IOException {
+        long start = System.nanoTime();
+        PreviewResult preview = new PreviewResult(zipFile.length());
         
-        for (File file : files) {
-            if (file.isDirectory()) {
-                zipDirectory(rootDir, file, zos);
-            } else {
-                String relativePath = rootDir.toPath().relativize(file.toPath()).toString().replace("\\", "/");
-                ZipEntry entry = new ZipEntry(relativePath);
-                zos.putNextEntry(entry);
+        TarCodec codec = TarCodecs.forFile(zipFile.getName());
+        if (codec != null) {
+            if (!codec.isAvailable()) {
+                throw new IOException("缺少 " + codec.getName() + " 压缩库，无法处理该格式");
+            }
+            previewTar(zipFile, new TarCleaner(codec, rules), preview);
+        } else {
+            try (ZipFile source = ZipFile.builder().setFile(zipFile).setIgnoreLocalFileHeader(true).get()) {
+                List<ZipArchiveEntry> kept = selectEntries(source, rules, new CleanResult(), "");
+                Set<ZipArchiveEntry> keptSet = Collections.newSetFromMap(new IdentityHashMap<>());
+                keptSet.addAll(kept);
                 
-                try (FileInputStream fis = new FileInputStream(file)) {
-                    int len;
-                    while ((len = fis.read(buffer)) > 0) {
-                        zos.write(buffer, 0, len);
+                for (ZipArchiveEntry entry : Collections.list(source.getEntriesInPhysicalOrder())) {
+                    long compressed = Math.max(0, entry.getCompressedSize());
+                    long size = Math.max(0, entry.getSize());
+                    if (!entry.isDirectory()) {
+                        preview.totalFiles++;
+                        preview.totalCompressedSize += compressed;
+                        preview.totalSize += size;
+                    }
+                    if (keptSet.contains(entry)) {
+                        // 写入可随机访问的输出文件时不再需要数据描述符
+                        if (entry.getGeneralPurposeBit().usesDataDescriptor()) {
+                            preview.savedBytes += DATA_DESCRIPTOR_LENGTH;
+                        }
+                        continue;
+                    }
+                    preview.savedBytes += compressed + recordOverhead(entry);
+                    if (!entry.isDirectory()) {
+                        preview.deletedEntries.add(new PreviewEntry(normalizeName(entry.getName()), compressed, size));
+                        preview.deletedCompressedSize += compressed;
+                        preview.deletedSize += size;
                     }
                 }
-                zos.closeEntry();
             }
         }
+        
+        preview.elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        logger.info("预览完成: {} 个文件中将删除 {} 个，预计节省 {} 字节，耗时 {} ms", 
+            preview.getTotalFiles(), preview.getDeletedFiles(), preview.getSavedBytes(), preview.getElapsedMillis());
+        return preview;
     }
     
-    private List<Path> listAllFiles(Path dir) throws IOException {
-        List<Path> files = new ArrayList<>();
-        Files.walk(dir)
-            .filter(Files::isRegularFile)
-            .forEach(files::add);
-        return files;
+    /**
+     * 查找压缩包中内容相同的文件，只解压 CRC 和大小都相同的候选文件（见 {@link DuplicateFinder}）
+     */
+    public DuplicateFinder.DuplicateReport findDuplicates(File zipFile) throws IOException {
+        if (TarCodecs.forFile(zipFile.getName()) != null) {
+            throw new IOException("tar 包没有记录文件的 CRC，不支持查找重复文件");
+        }
+        try (ZipFile source = openZip(zipFile)) {
+            DuplicateFinder.DuplicateReport report = DuplicateFinder.analyze(source);
+            logger.info("查找重复完成: {} 个文件中有 {} 组重复，可删除 {} 个，节省 {} 字节，解压确认 {} 个文件，耗时 {} ms",
+                report.getTotalFiles(), report.getGroups().size(), report.getDuplicateFiles(), 
+                report.getSavedBytes(), report.getHashedFiles(), report.getElapsedMillis());
+            return report;
+        }
     }
     
-    private void deleteEmptyDirectories(Path dir) throws IOException {
-        Files.walk(dir)
-            .sorted(Comparator.reverseOrder())
-            .forEach(path -> {
-                try {
-                    if (Files.isDirectory(path) && !path.equals(dir)) {
-                        File[] files = path.toFile().listFiles();
-                        if (files == null || files.length == 0) {
-                            Files.deleteIfExists(path);
-                        }
-                    }
-                } catch (IOException e) {
-                    logger.warn("删除空目录失败: {}", path, e);
-                }
-            });
+    /**
+     * 按目录和扩展名统计压缩包的空间占用，只读取中央目录（见 {@link ZipSpaceAnalyzer}）
+     */
+    public ZipSpaceAnalyzer.SpaceReport analyzeSpace(File zipFile) throws IOException {
+        if (TarCodecs.forFile(zipFile.getName()) != null) {
+            throw new IOException("tar 包没有目录，不支持空间分析，请使用预览");
+        }
+        try (ZipFile source = ZipFile.builder().setFile(zipFile).setIgnoreLocalFileHeader(true).get()) {
+            ZipSpaceAnalyzer.SpaceReport report = ZipSpaceAnalyzer.analyze(source);
+            logger.info("空间分析完成: {} 个文件，{} 种扩展名，耗时 {} ms",
+                report.getTotalFiles(), report.getExtensions().size(), report.getElapsedMillis());
+            return report;
+        }
     }
     
-    private void deleteDirectory(Path dir) {
-        if (dir == null || !Files.exists(dir)) {
-            return;
+    /**
+     * tar 包没有目录，需要顺序读取全部文件头；外层有压缩时要完整解压一遍（不保存数据）
+     * <p>tar 中每个条目占 512 字节文件头加按 512 对齐的数据，条目的压缩后大小按整体压缩率折算</p>
+     */
+    private void previewTar(File tarFile, TarCleaner cleaner, PreviewResult preview) throws IOException {
+        long[] tarBytes = {0};
+        cleaner.scan(tarFile, (entry, path, deleted) -> {
+            long size = Math.max(0, entry.getSize());
+            long record = 512 + (size + 511) / 512 * 512;
+            tarBytes[0] += record;
+            if (entry.isDirectory()) {
+                return;
+            }
+            preview.totalFiles++;
+            preview.totalSize += size;
+            if (deleted) {
+                preview.deletedEntries.add(new PreviewEntry(path, record, size));
+                preview.deletedSize += size;
+            }
+        });
+        
+        // 按 tar 流大小与文件大小之比折算为压缩后大小
+        double ratio = tarBytes[0] == 0 ? 1 : (double) tarFile.length() / tarBytes[0];
+        preview.totalCompressedSize = tarFile.length();
+        for (int i = 0; i < preview.deletedEntries.size(); i++) {
+            PreviewEntry entry = preview.deletedEntries.get(i);
+            long compressed = Math.round(entry.getCompressedSize() * ratio);
+            preview.deletedEntries.set(i, new PreviewEntry(entry.getPath(), compressed, entry.getSize()));
+            preview.deletedCompressedSize += compressed;
         }
-        try {
-            Files.walk(dir)
-                .sorted(Comparator.reverseOrder())
-                .forEach(path -> {
-                    try {
-                        Files.deleteIfExists(path);
-                    } catch (IOException e) {
-                        logger.warn("删除临时文件失败: {}", path, e);
-                    }
-                });
-        } catch (IOException e) {
-            logger.error("删除临时目录失败", e);
+        preview.savedBytes = preview.deletedCompressedSize;
+    }
+    
+    /**
+     * 条目在压缩包中除压缩数据外占用的字节数：本地文件头(30) + 中央目录记录(46) + 两处的文件名和扩展字段，
+     * 以及可能的数据描述符。本地扩展字段未读取，按中央目录中的长度估算
+     */
+    private static long recordOverhead(ZipArchiveEntry entry) {
+        long nameLength = entry.getRawName() != null ? entry.getRawName().length : entry.getName().length();
+        long extraLength = entry.getCentralDirectoryExtra().length;
+        long overhead = 30 + 46 + 2 * (nameLength + extraLength);
+        if (entry.getGeneralPurposeBit().usesDataDescriptor()) {
+            overhead += DATA_DESCRIPTOR_LENGTH;
         }
+        return overhead;
     }
     
     /**
-     * 计算目录大小
+     * 按字节数汇报写入进度，百分比变化时才更新界面
      */
-    private long calculateDirectorySize(Path dir) throws IOException {
-        return Files.walk(dir)
-            .filter(Files::isRegularFile)
-            .mapToLong(path -> {
-                try {
-                    return Files.size(path);
-                } catch (IOException e) {
-                    return 0L;
-                }
-            })
-            .sum();
+    private class ProgressTracker {
+        private final String message;
+        private final long total;
+        private long done;
+        private int lastPercent = -1;
+        
+        ProgressTracker(String message, long total) {
+            this.message = message;
+            this.total = total;
+        }
+        
+        void advance(long bytes) {
+            done += Math.max(0, bytes);
+            int percent = total == 0 ? 100 : (int) Math.min(100, done * 100 / total);
+            if (percent != lastPercent) {
+                lastPercent = percent;
+                updateStatus(message + percent + "%", 0.05 + 0.95 * percent / 100);
+            }
+        }
+    }
+    
+    private void updateStatus(String message, double progress) {
+        if (progressListener != null) {
+            progressListener.accept(message, progress);
+            return;
+        }
+        Platform.runLater(() -> {
+            this.statusMessage.set(message);
+            this.progress.set(progress);
+        });
+        logger.info("{} - {}", message, String.format("%.0f%%", progress * 100));
     }
 }
@@ -0,0 +1,270 @@
+package io.github.lemostic.toolsuite.modules.file.zipclean.service;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 并行解压器
+ * <p>按中央目录中的条目分两步解压：</p>
+ * <ol>
+ *     <li>在调用线程中校验所有条目的路径（拒绝 {@code ../}、绝对路径等指向输出目录之外的条目），
+ *     并一次性按层级顺序创建所有需要的目录</li>
+ *     <li>文件分发到线程池解压，每个线程打开自己的 {@link ZipFile}（独立的文件通道），互不加锁，
+ *     大量小文件时瓶颈在磁盘而不是单个线程的解压</li>
+ * </ol>
+ * <p>同一路径出现多次时以最后一个条目为准。除线程池外，所有方法都只应在同一个线程中调用</p>
+ */
+public class ZipExtractor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ZipExtractor.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 替换条目内容（如清理嵌套压缩包），在解压线程中调用
+     */
+    @FunctionalInterface
+    public interface EntryTransformer {
+        /**
+         * @param zip 当前线程的压缩包，条目应从它读取
+         * @return 替换后的内容，不需要替换时返回 null
+         */
+        byte[] transform(ZipFile zip, ZipArchiveEntry entry) throws IOException;
+    }
+
+    private final File archive;
+    private final Path root;
+    private final int threads;
+    private EntryTransformer transformer;
+    private Consumer<ZipArchiveEntry> listener;
+
+    /**
+     * @param archive 源压缩包
+     * @param root 输出目录，不存在时创建
+     * @param threads 解压线程数
+     */
+    public ZipExtractor(File archive, Path root, int threads) {
+        this.archive = archive;
+        this.root = root.toAbsolutePath().normalize();
+        this.threads = Math.max(1, threads);
+    }
+
+    public void setTransformer(EntryTransformer transformer) {
+        this.transformer = transformer;
+    }
+
+    /**
+     * 每解压完一个条目回调一次（在调用 {@link #extract} 的线程中）
+     */
+    public void setListener(Consumer<ZipArchiveEntry> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 解压给定的条目
+     * @param entries 要解压的条目，可以来自另一个打开同一文件的 {@link ZipFile}
+     * @return 写出的文件总大小
+     */
+    public long extract(List<ZipArchiveEntry> entries) throws IOException {
+        Map<Path, ZipArchiveEntry> files = new LinkedHashMap<>();
+        createDirectories(entries, files);
+        for (ZipArchiveEntry entry : entries) {
+            if (entry.isDirectory() && listener != null) {
+                listener.accept(entry);
+            }
+        }
+        if (files.isEmpty()) {
+            return 0;
+        }
+
+        int threadCount = Math.min(threads, files.size());
+        Queue<Worker> workers = new ConcurrentLinkedQueue<>();
+        ThreadLocal<Worker> current = new ThreadLocal<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "zip-extract");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CompletionService<ZipArchiveEntry> completion = new ExecutorCompletionService<>(executor);
+            LongAdder written = new LongAdder();
+            for (Map.Entry<Path, ZipArchiveEntry> file : files.entrySet()) {
+                completion.submit(() -> {
+                    Worker worker = current.get();
+                    if (worker == null) {
+                        worker = new Worker(openZip());
+                        workers.add(worker);
+                        current.set(worker);
+                    }
+                    written.add(worker.extract(file.getValue(), file.getKey()));
+                    return file.getValue();
+                });
+            }
+            for (int i = 0; i < files.size(); i++) {
+                ZipArchiveEntry done = take(completion);
+                if (listener != null) {
+                    listener.accept(done);
+                }
+            }
+            return written.sum();
+        } finally {
+            // 出错时中断其余任务，等线程退出后再关闭各线程的压缩包
+            executor.shutdownNow();
+            awaitTermination(executor);
+            for (Worker worker : workers) {
+                closeQuietly(worker.zip);
+            }
+        }
+    }
+
+    /**
+     * 校验路径并按层级顺序创建所有目录（父目录总是排在子目录之前）
+     * @param files 收集要解压的文件：目标路径 -> 条目
+     */
+    private void createDirectories(List<ZipArchiveEntry> entries, Map<Path, ZipArchiveEntry> files) throws IOException {
+        SortedSet<Path> dirs = new TreeSet<>();
+        for (ZipArchiveEntry entry : entries) {
+            Path target = resolve(entry);
+            if (!entry.isDirectory()) {
+                // 重复的路径只写最后一个条目，避免两个线程同时写同一个文件
+                files.remove(target);
+                files.put(target, entry);
+            }
+            // 逐级加入父目录，遇到已加入的目录时其上级也都已加入
+            Path dir = entry.isDirectory() ? target : target.getParent();
+            while (dir != null && !dir.equals(root) && dirs.add(dir)) {
+                dir = dir.getParent();
+            }
+        }
+        Files.createDirectories(root);
+        for (Path dir : dirs) {
+            try {
+                Files.createDirectory(dir);
+            } catch (FileAlreadyExistsException e) {
+                if (!Files.isDirectory(dir)) {
+                    throw new IOException("无法创建目录，已存在同名文件: " + root.relativize(dir), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 条目在输出目录中的路径，指向输出目录之外时拒绝
+     */
+    private Path resolve(ZipArchiveEntry entry) throws IOException {
+        String name = ZipCleanService.normalizeName(entry.getName());
+        Path target;
+        try {
+            target = root.resolve(name).normalize();
+        } catch (InvalidPathException e) {
+            throw new IOException("压缩包中包含非法路径: " + entry.getName(), e);
+        }
+        if (!target.startsWith(root) || (!entry.isDirectory() && target.equals(root))) {
+            throw new IOException("压缩包中包含非法路径: " + entry.getName());
+        }
+        return target;
+    }
+
+    private ZipFile openZip() throws IOException {
+        return ZipFile.builder().setFile(archive).get();
+    }
+
+    private static ZipArchiveEntry take(CompletionService<ZipArchiveEntry> completion) throws IOException {
+        try {
+            return completion.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("解压被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException io ? io : new IOException("解压失败: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.warn("解压线程未能及时退出");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long write(FileChannel channel, ByteBuffer data) throws IOException {
+        long written = 0;
+        while (data.hasRemaining()) {
+            written += channel.write(data);
+        }
+        return written;
+    }
+
+    private static void closeQuietly(ZipFile zip) {
+        try {
+            zip.close();
+        } catch (IOException e) {
+            logger.warn("关闭压缩包失败", e);
+        }
+    }
+
+    /**
+     * 解压线程的状态：自己的压缩包句柄和缓冲区
+     */
+    private class Worker {
+        final ZipFile zip;
+        final byte[] buffer = new byte[BUFFER_SIZE];
+
+        Worker(ZipFile zip) {
+            this.zip = zip;
+        }
+
+        /**
+         * 写出一个文件，不逐个落盘（需要时由调用方在全部解压后统一刷新，见 {@link AtomicOutput#fsyncTree}）
+         */
+        long extract(ZipArchiveEntry entry, Path target) throws IOException {
+            ZipArchiveEntry own = lookup(entry);
+            byte[] replaced = transformer == null ? null : transformer.transform(zip, own);
+            try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                long written = 0;
+                if (replaced != null) {
+                    written = write(channel, ByteBuffer.wrap(replaced));
+                } else {
+                    try (InputStream in = zip.getInputStream(own)) {
+                        int read;
+                        while ((read = in.read(buffer)) != -1) {
+                            written += write(channel, ByteBuffer.wrap(buffer, 0, read));
+                        }
+                    }
+                }
+                return written;
+            }
+        }
+
+        /**
+         * 在当前线程的压缩包中找到同一个条目（按名称和本地文件头位置，同名条目也能区分）
+         */
+        private ZipArchiveEntry lookup(ZipArchiveEntry entry) throws IOException {
+            for (ZipArchiveEntry candidate : zip.getEntries(entry.getName())) {
+                if (candidate.getLocalHeaderOffset() == entry.getLocalHeaderOffset()) {
+                    return candidate;
+                }
+            }
+            throw new IOException("压缩包在解压过程中被修改: " + entry.getName());
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package io.github.lemostic.toolsuite.modules.file.zipclean.service;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import java.util.*;
+
+/**
+ * 压缩包空间分析
+ * <p>只读取中央目录，把每个文件的压缩后大小和原始大小按路径逐级累加到目录树（路径前缀树）的各级目录上，
+ * 同时按扩展名汇总。耗时与条目数和目录深度成正比</p>
+ */
+public class ZipSpaceAnalyzer {
+
+    /** 没有扩展名的文件 */
+    public static final String NO_EXTENSION = "";
+
+    private final Node root = new Node(null, "", true);
+    private final Map<String, ExtensionStat> extensions = new HashMap<>();
+    /** 上一个条目所在的目录 */
+    private String lastPath;
+    private int lastEnd;
+    private Node lastDir;
+
+    /**
+     * 目录树的节点：目录或文件，目录的大小为其下所有文件之和
+     * <p>目录直接包含的文件只记录路径和大小，展开时才创建文件节点，百万级条目时常驻对象只有目录</p>
+     */
+    public static class Node {
+        private static final int INITIAL_FILES = 4;
+
+        private final Node parent;
+        private final String name;
+        private final boolean directory;
+        private Map<String, Node> directories;
+        private String[] filePaths;
+        private long[] fileCompressedSizes;
+        private long[] fileSizes;
+        private int fileCount;
+        private List<Node> children;
+        private long compressedSize;
+        private long size;
+        private int files;
+
+        Node(Node parent, String name, boolean directory) {
+            this.parent = parent;
+            this.name = name;
+            this.directory = directory;
+        }
+
+        public Node getParent() { return parent; }
+        public String getName() { return name; }
+        public boolean isDirectory() { return directory; }
+        public long getCompressedSize() { return compressedSize; }
+        public long getSize() { return size; }
+        /** 文件数，文件节点为 1 */
+        public int getFiles() { return files; }
+
+        /**
+         * 子目录和直接包含的文件，第一次调用时创建文件节点；分析完成后才能调用
+         */
+        public List<Node> getChildren() {
+            if (children == null) {
+                List<Node> list = new ArrayList<>((directories == null ? 0 : directories.size()) + fileCount);
+                if (directories != null) {
+                    list.addAll(directories.values());
+                }
+                for (int i = 0; i < fileCount; i++) {
+                    String path = filePaths[i];
+                    Node file = new Node(this, path.substring(path.lastIndexOf('/') + 1), false);
+                    addTo(file, fileCompressedSizes[i], fileSizes[i]);
+                    list.add(file);
+                }
+                children = list;
+            }
+            return children;
+        }
+
+        /**
+         * 在压缩包中的完整路径，目录以 / 结尾，根节点为空字符串
+         */
+        public String getPath() {
+            if (parent == null) {
+                return "";
+            }
+            StringBuilder path = new StringBuilder();
+            appendPath(path);
+            return path.toString();
+        }
+
+        /**
+         * 删除该节点的 Glob 规则：相对压缩包根目录，目录以 / 结尾
+         */
+        public String toGlobRule() {
+            return "/" + GlobRuleSet.escape(getPath());
+        }
+
+        private void appendPath(StringBuilder path) {
+            if (parent != null) {
+                parent.appendPath(path);
+                path.append(name);
+                if (directory) {
+                    path.append('/');
+                }
+            }
+        }
+
+        private Node directory(String childName) {
+            if (directories == null) {
+                directories = new HashMap<>();
+            }
+            Node child = directories.get(childName);
+            if (child == null) {
+                child = new Node(this, childName, true);
+                directories.put(childName, child);
+            }
+            return child;
+        }
+
+        private void addFile(String path, long fileCompressedSize, long fileSize) {
+            if (filePaths == null) {
+                filePaths = new String[INITIAL_FILES];
+                fileCompressedSizes = new long[INITIAL_FILES];
+                fileSizes = new long[INITIAL_FILES];
+            } else if (fileCount == filePaths.length) {
+                int capacity = fileCount * 2;
+                filePaths = Arrays.copyOf(filePaths, capacity);
+                fileCompressedSizes = Arrays.copyOf(fileCompressedSizes, capacity);
+                fileSizes = Arrays.copyOf(fileSizes, capacity);
+            }
+            filePaths[fileCount] = path;
+            fileCompressedSizes[fileCount] = fileCompressedSize;
+            fileSizes[fileCount] = fileSize;
+            fileCount++;
+        }
+    }
+
+    /**
+     * 一种扩展名的汇总
+     */
+    public static class ExtensionStat {
+        private final String extension;
+        private long compressedSize;
+        private long size;
+        private int files;
+
+        ExtensionStat(String extension) {
+            this.extension = extension;
+        }
+
+        /** 扩展名（不含点号，区分大小写，与规则匹配一致），没有扩展名时为 {@link #NO_EXTENSION} */
+        public String getExtension() { return extension; }
+        public long getCompressedSize() { return compressedSize; }
+        public long getSize() { return size; }
+        public int getFiles() { return files; }
+
+        /**
+         * 删除该扩展名所有文件的 Glob 规则，没有扩展名时返回 null
+         */
+        public String toGlobRule() {
+            return extension.isEmpty() ? null : "*." + GlobRuleSet.escape(extension);
+        }
+    }
+
+    /**
+     * 分析结果
+     */
+    public static class SpaceReport {
+        private final Node root;
+        private final List<ExtensionStat> extensions;
+        private final long elapsedMillis;
+
+        SpaceReport(Node root, List<ExtensionStat> extensions, long elapsedMillis) {
+            this.root = root;
+            this.extensions = extensions;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /** 目录树的根，大小为整个压缩包的合计 */
+        public Node getRoot() { return root; }
+        /** 按压缩后大小从大到小排列 */
+        public List<ExtensionStat> getExtensions() { return extensions; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        public int getTotalFiles() { return root.getFiles(); }
+    }
+
+    /**
+     * 分析压缩包的全部条目
+     */
+    public static SpaceReport analyze(ZipFile source) {
+        long start = System.nanoTime();
+        ZipSpaceAnalyzer analyzer = new ZipSpaceAnalyzer();
+        Enumeration<ZipArchiveEntry> entries = source.getEntries();
+        while (entries.hasMoreElements()) {
+            ZipArchiveEntry entry = entries.nextElement();
+            analyzer.add(ZipCleanService.normalizeName(entry.getName()), entry.isDirectory(),
+                    Math.max(0, entry.getCompressedSize()), Math.max(0, entry.getSize()));
+        }
+        return analyzer.finish((System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 加入一个条目，目录条目只建立节点，不计大小
+     */
+    void add(String path, boolean directory, long compressedSize, long size) {
+        int length = path.length();
+        int end = directory ? (path.endsWith("/") ? length - 1 : length) : path.lastIndexOf('/');
+        Node dir = directoryOf(path, end);
+        if (directory || end == length - 1) {
+            return;
+        }
+        dir.addFile(path, compressedSize, size);
+        for (Node node = dir; node != null; node = node.parent) {
+            addTo(node, compressedSize, size);
+        }
+
+        int dot = path.lastIndexOf('.');
+        String extension = dot <= end + 1 || dot == length - 1 ? NO_EXTENSION : path.substring(dot + 1);
+        ExtensionStat stat = extensions.get(extension);
+        if (stat == null) {
+            stat = new ExtensionStat(extension);
+            extensions.put(extension, stat);
+        }
+        stat.files++;
+        stat.compressedSize += compressedSize;
+        stat.size += size;
+    }
+
+    /**
+     * 路径前 end 个字符所表示的目录节点
+     * <p>压缩包中同一目录的文件通常相邻，与上一个条目在同一目录时直接复用，不再逐级查找</p>
+     */
+    private Node directoryOf(String path, int end) {
+        if (end <= 0) {
+            return root;
+        }
+        if (lastDir != null && end == lastEnd && path.regionMatches(0, lastPath, 0, end)) {
+            return lastDir;
+        }
+        Node node = root;
+        int start = 0;
+        while (start < end) {
+            int slash = path.indexOf('/', start);
+            if (slash < 0 || slash > end) {
+                slash = end;
+            }
+            if (slash > start) {
+                node = node.directory(path.substring(start, slash));
+            }
+            start = slash + 1;
+        }
+        lastPath = path;
+        lastEnd = end;
+        lastDir = node;
+        return node;
+    }
+
+    SpaceReport finish(long elapsedMillis) {
+        List<ExtensionStat> sorted = new ArrayList<>(extensions.values());
+        sorted.sort(Comparator.comparingLong(ExtensionStat::getCompressedSize).reversed());
+        return new SpaceReport(root, sorted, elapsedMillis);
+    }
+
+    private static void addTo(Node node, long compressedSize, long size) {
+        node.files++;
+        node.compressedSize += compressedSize;
+        node.size += size;
+    }
+}
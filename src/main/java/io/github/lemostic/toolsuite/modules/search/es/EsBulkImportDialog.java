@@ -0,0 +1,214 @@
+package io.github.lemostic.toolsuite.modules.search.es;
+
+import io.github.lemostic.toolsuite.modules.search.es.service.EsBulkIndexService;
+import io.github.lemostic.toolsuite.modules.search.es.service.EsBulkIndexService.BulkOptions;
+import io.github.lemostic.toolsuite.modules.search.es.service.EsBulkIndexService.BulkResult;
+import io.github.lemostic.toolsuite.modules.search.es.service.EsBulkIndexService.ItemError;
+import io.github.lemostic.toolsuite.modules.search.es.service.EsBulkIndexService.SourceFormat;
+import io.github.lemostic.toolsuite.modules.search.es.service.EsQueryService.ConnectionInfo;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.scene.control.*;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.stage.Window;
+import org.kordamp.ikonli.javafx.FontIcon;
+import org.kordamp.ikonli.materialdesign.MaterialDesign;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 批量导入对话框：选择 NDJSON / CSV / Excel 文件写入指定索引
+ */
+public class EsBulkImportDialog extends Dialog<Void> {
+
+    private final EsBulkIndexService bulkService = new EsBulkIndexService();
+    private final ConnectionInfo connection;
+
+    private final TextField fileField = new TextField();
+    private final TextField indexField = new TextField();
+    private final ComboBox<SourceFormat> formatCombo = new ComboBox<>();
+    private final TextField idFieldField = new TextField();
+    private final TextField sheetField = new TextField();
+    private final CheckBox headerCheck = new CheckBox("首行为表头");
+    private final CheckBox compressCheck = new CheckBox("压缩请求(gzip)");
+    private final Spinner<Integer> batchSizeSpinner = new Spinner<>(1, 100, 5);
+    private final Spinner<Integer> concurrencySpinner = new Spinner<>(1, 16, BulkOptions.DEFAULT_MAX_CONCURRENCY);
+    private final ProgressBar progressBar = new ProgressBar(0);
+    private final Label progressLabel = new Label("等待开始");
+    private final TextArea errorArea = new TextArea();
+    private final Button startBtn = new Button("开始导入", new FontIcon(MaterialDesign.MDI_UPLOAD));
+    private final Button stopBtn = new Button("停止", new FontIcon(MaterialDesign.MDI_STOP));
+
+    private volatile CompletableFuture<BulkResult> running;
+    private final AtomicBoolean progressPending = new AtomicBoolean();
+
+    public EsBulkImportDialog(Window owner, ConnectionInfo connection, String defaultIndex) {
+        this.connection = connection;
+        initOwner(owner);
+        setTitle("批量导入");
+        setHeaderText("将 NDJSON / CSV / Excel 文件批量写入Elasticsearch");
+        setResizable(true);
+
+        indexField.setText(defaultIndex == null ? "" : defaultIndex);
+        formatCombo.getItems().addAll(SourceFormat.values());
+        formatCombo.setValue(SourceFormat.NDJSON);
+        headerCheck.setSelected(true);
+        compressCheck.setSelected(true);
+        idFieldField.setPromptText("可选，为空时由ES生成");
+        sheetField.setPromptText("可选，默认第一个工作表");
+        batchSizeSpinner.setEditable(true);
+        concurrencySpinner.setEditable(true);
+        progressBar.setMaxWidth(Double.MAX_VALUE);
+        errorArea.setEditable(false);
+        errorArea.setPrefRowCount(8);
+        errorArea.setPromptText("失败的文档会显示在这里");
+        stopBtn.setDisable(true);
+
+        Button browseBtn = new Button("浏览", new FontIcon(MaterialDesign.MDI_FOLDER));
+        browseBtn.setOnAction(e -> chooseFile());
+        startBtn.setOnAction(e -> startImport());
+        stopBtn.setOnAction(e -> stopImport());
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        HBox fileBox = new HBox(10, fileField, browseBtn);
+        HBox.setHgrow(fileField, Priority.ALWAYS);
+        grid.add(new Label("文件:"), 0, 0);
+        grid.add(fileBox, 1, 0, 3, 1);
+        grid.add(new Label("索引:"), 0, 1);
+        grid.add(indexField, 1, 1);
+        grid.add(new Label("格式:"), 2, 1);
+        grid.add(formatCombo, 3, 1);
+        grid.add(new Label("ID字段:"), 0, 2);
+        grid.add(idFieldField, 1, 2);
+        grid.add(new Label("工作表:"), 2, 2);
+        grid.add(sheetField, 3, 2);
+        grid.add(new Label("批次大小(MB):"), 0, 3);
+        grid.add(batchSizeSpinner, 1, 3);
+        grid.add(new Label("并发数:"), 2, 3);
+        grid.add(concurrencySpinner, 3, 3);
+        grid.add(headerCheck, 1, 4);
+        grid.add(compressCheck, 3, 4);
+
+        HBox buttons = new HBox(10, startBtn, stopBtn);
+        VBox content = new VBox(12, grid, buttons, progressBar, progressLabel, errorArea);
+        content.setPadding(new Insets(10));
+        content.setPrefWidth(640);
+        VBox.setVgrow(errorArea, Priority.ALWAYS);
+
+        getDialogPane().setContent(content);
+        getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+        setOnCloseRequest(e -> stopImport());
+    }
+
+    private void chooseFile() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("选择要导入的文件");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("支持的文件", "*.ndjson", "*.jsonl", "*.json", "*.csv", "*.xlsx", "*.xls"),
+                new FileChooser.ExtensionFilter("所有文件", "*.*")
+        );
+        File file = fileChooser.showOpenDialog(getOwner());
+        if (file != null) {
+            fileField.setText(file.getAbsolutePath());
+            formatCombo.setValue(SourceFormat.detect(file));
+        }
+    }
+
+    private void startImport() {
+        File file = new File(fileField.getText().trim());
+        String index = indexField.getText().trim();
+        if (!file.isFile()) {
+            showError("请选择要导入的文件");
+            return;
+        }
+        if (index.isEmpty()) {
+            showError("请输入索引名称");
+            return;
+        }
+
+        BulkOptions options = new BulkOptions(file, index);
+        options.setFormat(formatCombo.getValue());
+        options.setIdField(idFieldField.getText());
+        options.setSheetName(sheetField.getText().isBlank() ? null : sheetField.getText().trim());
+        options.setHasHeaderRow(headerCheck.isSelected());
+        options.setMaxBatchBytes(batchSizeSpinner.getValue() * 1024L * 1024L);
+        options.setMaxConcurrency(concurrencySpinner.getValue());
+        options.setCompressRequests(compressCheck.isSelected());
+
+        startBtn.setDisable(true);
+        stopBtn.setDisable(false);
+        errorArea.clear();
+        progressBar.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+        progressLabel.setText("正在导入...");
+
+        CompletableFuture<BulkResult> future = bulkService.importFile(connection, options, this::scheduleProgress);
+        running = future;
+        future.whenComplete((result, error) -> Platform.runLater(() -> {
+            running = null;
+            startBtn.setDisable(false);
+            stopBtn.setDisable(true);
+            progressBar.setProgress(error == null ? 1 : 0);
+            if (error != null) {
+                progressLabel.setText(future.isCancelled() ? "已停止" : "导入失败: " + EsQueryView.rootMessage(error));
+                return;
+            }
+            showProgress(result);
+            progressLabel.setText(String.format("导入完成：成功 %d，失败 %d，重试 %d 次，耗时 %.1f 秒",
+                    result.getIndexed(), result.getFailed(), result.getRetries(),
+                    result.getElapsed().toMillis() / 1000.0));
+        }));
+    }
+
+    private void stopImport() {
+        CompletableFuture<BulkResult> future = running;
+        if (future != null) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * 合并进度回调，避免每个批次都向界面线程提交任务
+     */
+    private void scheduleProgress(BulkResult result) {
+        if (progressPending.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                progressPending.set(false);
+                if (running != null) {
+                    showProgress(result);
+                }
+            });
+        }
+    }
+
+    private void showProgress(BulkResult result) {
+        progressLabel.setText(String.format("已读取 %d，已完成 %d（失败 %d），%.0f 条/秒",
+                result.getTotal(), result.getCompleted(), result.getFailed(), result.getDocsPerSecond()));
+        if (result.getFailed() > 0) {
+            StringBuilder sb = new StringBuilder();
+            for (ItemError error : result.getErrors()) {
+                sb.append(error).append('\n');
+            }
+            if (result.getFailed() > result.getErrors().size()) {
+                sb.append(String.format("... 共 %d 条失败，仅显示前 %d 条", result.getFailed(), result.getErrors().size()));
+            }
+            errorArea.setText(sb.toString());
+        }
+    }
+
+    private void showError(String message) {
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.initOwner(getOwner());
+        alert.setTitle("错误");
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+}
@@ -0,0 +1,243 @@
+package io.github.lemostic.toolsuite.modules.search.es;
+
+import io.github.lemostic.toolsuite.modules.search.es.service.EsIndexDiffService;
+import io.github.lemostic.toolsuite.modules.search.es.service.EsIndexDiffService.DiffEntry;
+import io.github.lemostic.toolsuite.modules.search.es.service.EsIndexDiffService.DiffOptions;
+import io.github.lemostic.toolsuite.modules.search.es.service.EsIndexDiffService.DiffResult;
+import io.github.lemostic.toolsuite.modules.search.es.service.EsQueryService.ConnectionInfo;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.scene.control.*;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.stage.Window;
+import org.kordamp.ikonli.javafx.FontIcon;
+import org.kordamp.ikonli.materialdesign.MaterialDesign;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 索引比对对话框：比较两个索引（可在不同集群）的新增、删除和变化文档
+ */
+public class EsIndexDiffDialog extends Dialog<Void> {
+
+    private final EsIndexDiffService diffService = new EsIndexDiffService();
+    private final ConnectionInfo connection;
+    private final String queryJson;
+
+    private final TextField sourceIndexField = new TextField();
+    private final TextField targetIndexField = new TextField();
+    private final TextField targetHostField = new TextField();
+    private final TextField targetPortField = new TextField();
+    private final TextField keyFieldField = new TextField("_id");
+    private final TextField excludedField = new TextField();
+    private final TextField deltaFileField = new TextField();
+    private final CheckBox useQueryCheck = new CheckBox("只比较当前查询条件命中的文档");
+    private final Spinner<Integer> pageSizeSpinner = new Spinner<>(100, 10_000, DiffOptions.DEFAULT_PAGE_SIZE, 100);
+    private final ProgressBar progressBar = new ProgressBar(0);
+    private final Label progressLabel = new Label("等待开始");
+    private final TextArea diffArea = new TextArea();
+    private final Button startBtn = new Button("开始比对", new FontIcon(MaterialDesign.MDI_PLAY));
+    private final Button stopBtn = new Button("停止", new FontIcon(MaterialDesign.MDI_STOP));
+
+    private volatile CompletableFuture<DiffResult> running;
+    private final AtomicBoolean progressPending = new AtomicBoolean();
+
+    /**
+     * @param queryJson 当前查询，勾选“只比较当前查询条件命中的文档”时使用其中的 query
+     */
+    public EsIndexDiffDialog(Window owner, ConnectionInfo connection, String defaultIndex, String queryJson) {
+        this.connection = connection;
+        this.queryJson = queryJson;
+        initOwner(owner);
+        setTitle("索引比对");
+        setHeaderText("按键字段同时遍历两个索引，找出新增、删除和内容变化的文档");
+        setResizable(true);
+
+        sourceIndexField.setText(defaultIndex == null ? "" : defaultIndex);
+        targetHostField.setPromptText("为空时与当前连接相同");
+        targetPortField.setPromptText(String.valueOf(connection.getPort()));
+        targetPortField.setPrefColumnCount(6);
+        keyFieldField.setPromptText("ES 8 需使用与 _id 相同的 keyword 字段");
+        excludedField.setPromptText("可选，逗号分隔，如 updated_at,meta.version");
+        deltaFileField.setPromptText("可选，输出使源索引与目标一致的 _bulk NDJSON");
+        pageSizeSpinner.setEditable(true);
+        progressBar.setMaxWidth(Double.MAX_VALUE);
+        diffArea.setEditable(false);
+        diffArea.setPrefRowCount(10);
+        diffArea.setPromptText("差异明细会显示在这里");
+        stopBtn.setDisable(true);
+
+        Button browseBtn = new Button("浏览", new FontIcon(MaterialDesign.MDI_FOLDER));
+        browseBtn.setOnAction(e -> chooseDeltaFile());
+        startBtn.setOnAction(e -> startDiff());
+        stopBtn.setOnAction(e -> stopDiff());
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.add(new Label("源索引:"), 0, 0);
+        grid.add(sourceIndexField, 1, 0);
+        grid.add(new Label("目标索引:"), 2, 0);
+        grid.add(targetIndexField, 3, 0);
+        HBox targetBox = new HBox(10, targetHostField, new Label("端口:"), targetPortField);
+        HBox.setHgrow(targetHostField, Priority.ALWAYS);
+        grid.add(new Label("目标集群:"), 0, 1);
+        grid.add(targetBox, 1, 1, 3, 1);
+        grid.add(new Label("键字段:"), 0, 2);
+        grid.add(keyFieldField, 1, 2);
+        grid.add(new Label("每页条数:"), 2, 2);
+        grid.add(pageSizeSpinner, 3, 2);
+        grid.add(new Label("忽略字段:"), 0, 3);
+        grid.add(excludedField, 1, 3, 3, 1);
+        HBox deltaBox = new HBox(10, deltaFileField, browseBtn);
+        HBox.setHgrow(deltaFileField, Priority.ALWAYS);
+        grid.add(new Label("差异文件:"), 0, 4);
+        grid.add(deltaBox, 1, 4, 3, 1);
+        grid.add(useQueryCheck, 1, 5, 3, 1);
+
+        HBox buttons = new HBox(10, startBtn, stopBtn);
+        VBox content = new VBox(12, grid, buttons, progressBar, progressLabel, diffArea);
+        content.setPadding(new Insets(10));
+        content.setPrefWidth(680);
+        VBox.setVgrow(diffArea, Priority.ALWAYS);
+
+        getDialogPane().setContent(content);
+        getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+        setOnCloseRequest(e -> stopDiff());
+    }
+
+    private void chooseDeltaFile() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("保存差异文件");
+        fileChooser.setInitialFileName("delta.ndjson");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("NDJSON文件", "*.ndjson"));
+        File file = fileChooser.showSaveDialog(getOwner());
+        if (file != null) {
+            deltaFileField.setText(file.getAbsolutePath());
+        }
+    }
+
+    private void startDiff() {
+        String sourceIndex = sourceIndexField.getText().trim();
+        String targetIndex = targetIndexField.getText().trim();
+        if (sourceIndex.isEmpty() || targetIndex.isEmpty()) {
+            showError("请输入源索引和目标索引");
+            return;
+        }
+        ConnectionInfo target;
+        try {
+            target = targetConnection();
+        } catch (NumberFormatException e) {
+            showError("端口必须是数字");
+            return;
+        }
+
+        DiffOptions options = new DiffOptions(connection, sourceIndex, target, targetIndex);
+        options.setKeyField(keyFieldField.getText());
+        options.setPageSize(pageSizeSpinner.getValue());
+        if (!excludedField.getText().isBlank()) {
+            options.setExcludedFields(Arrays.stream(excludedField.getText().split(","))
+                    .map(String::trim).filter(s -> !s.isEmpty()).toList());
+        }
+        if (!deltaFileField.getText().isBlank()) {
+            options.setDeltaFile(new File(deltaFileField.getText().trim()));
+        }
+        if (useQueryCheck.isSelected()) {
+            options.setQueryJson(queryJson);
+        }
+
+        startBtn.setDisable(true);
+        stopBtn.setDisable(false);
+        diffArea.clear();
+        progressBar.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+        progressLabel.setText("正在比对...");
+
+        CompletableFuture<DiffResult> future = diffService.compare(options, this::scheduleProgress);
+        running = future;
+        future.whenComplete((result, error) -> Platform.runLater(() -> {
+            running = null;
+            startBtn.setDisable(false);
+            stopBtn.setDisable(true);
+            progressBar.setProgress(error == null ? 1 : 0);
+            if (error != null) {
+                progressLabel.setText(future.isCancelled() ? "已停止" : "比对失败: " + EsQueryView.rootMessage(error));
+                return;
+            }
+            showProgress(result);
+            progressLabel.setText(String.format("比对完成：新增 %d，删除 %d，变化 %d，相同 %d，耗时 %.1f 秒",
+                    result.getAdded(), result.getRemoved(), result.getChanged(), result.getUnchanged(),
+                    result.getElapsed().toMillis() / 1000.0));
+        }));
+    }
+
+    /**
+     * 目标集群沿用当前连接的协议和认证信息
+     */
+    private ConnectionInfo targetConnection() {
+        String host = targetHostField.getText().trim();
+        String port = targetPortField.getText().trim();
+        if (host.isEmpty() && port.isEmpty()) {
+            return connection;
+        }
+        return new ConnectionInfo(host.isEmpty() ? connection.getHost() : host,
+                port.isEmpty() ? connection.getPort() : Integer.parseInt(port),
+                connection.getUsername(), connection.getPassword(), connection.isUseHttps(), connection.isUseHttp2());
+    }
+
+    private void stopDiff() {
+        CompletableFuture<DiffResult> future = running;
+        if (future != null) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * 合并进度回调，避免每页都向界面线程提交任务
+     */
+    private void scheduleProgress(DiffResult result) {
+        if (progressPending.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                progressPending.set(false);
+                if (running != null) {
+                    showProgress(result);
+                }
+            });
+        }
+    }
+
+    private void showProgress(DiffResult result) {
+        progressLabel.setText(String.format("源 %d 条，目标 %d 条，差异 %d 条，%.0f 条/秒",
+                result.getSourceDocs(), result.getTargetDocs(), result.getDifferences(), result.getDocsPerSecond()));
+        List<DiffEntry> entries = result.getEntries();
+        if (!entries.isEmpty()) {
+            StringBuilder sb = new StringBuilder();
+            for (DiffEntry entry : entries) {
+                sb.append(entry).append('\n');
+            }
+            if (result.getDifferences() > entries.size()) {
+                sb.append(String.format("... 共 %d 条差异，仅显示前 %d 条", result.getDifferences(), entries.size()));
+            }
+            if (result.getSkipped() > 0) {
+                sb.append(String.format("%n%d 条文档缺少键字段，未参与比较", result.getSkipped()));
+            }
+            diffArea.setText(sb.toString());
+        }
+    }
+
+    private void showError(String message) {
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.initOwner(getOwner());
+        alert.setTitle("错误");
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+}
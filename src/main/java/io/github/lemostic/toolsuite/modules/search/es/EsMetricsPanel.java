@@ -0,0 +1,140 @@
+package io.github.lemostic.toolsuite.modules.search.es;
+
+import io.github.lemostic.toolsuite.modules.search.es.service.EsLatencyHistogram.Stats;
+import io.github.lemostic.toolsuite.modules.search.es.service.EsMetricsRegistry;
+import io.github.lemostic.toolsuite.modules.search.es.service.EsMetricsRegistry.Snapshot;
+import io.github.lemostic.toolsuite.modules.search.es.service.EsRequestMetrics;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import org.kordamp.ikonli.javafx.FontIcon;
+import org.kordamp.ikonli.materialdesign.MaterialDesign;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 请求性能面板
+ * <p>按 集群/索引 显示最近一段时间内请求的延迟分位数和各阶段平均耗时，
+ * TTFB 与服务端 took 的差值可近似看作网络和排队开销</p>
+ * <p>只在显示于场景中时订阅指标，离开场景后取消订阅，模块重新创建视图时旧面板可以被回收</p>
+ */
+public class EsMetricsPanel extends VBox {
+
+    private final EsMetricsRegistry registry;
+    private final ObservableList<Snapshot> rows = FXCollections.observableArrayList();
+    private final TableView<Snapshot> table = new TableView<>(rows);
+    private final Label lastRequestLabel = new Label("暂无请求");
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+    private final Consumer<EsRequestMetrics> requestListener = this::onRequest;
+
+    public EsMetricsPanel(EsMetricsRegistry registry) {
+        super(8);
+        this.registry = registry;
+
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+        table.setPrefHeight(180);
+        table.setPlaceholder(new Label("最近 " + registry.getWindow().toMinutes() + " 分钟内没有请求"));
+        table.getColumns().add(textColumn("集群", Snapshot::getCluster));
+        table.getColumns().add(textColumn("索引", Snapshot::getIndex));
+        table.getColumns().add(statColumn("请求数", stats -> String.valueOf(stats.getCount())));
+        table.getColumns().add(statColumn("失败", stats -> String.valueOf(stats.getFailed())));
+        table.getColumns().add(statColumn("P50", stats -> millis(stats.getP50())));
+        table.getColumns().add(statColumn("P90", stats -> millis(stats.getP90())));
+        table.getColumns().add(statColumn("P99", stats -> millis(stats.getP99())));
+        table.getColumns().add(statColumn("最大", stats -> millis(stats.getMaxMillis())));
+        table.getColumns().add(statColumn("排队", stats -> millis(stats.getAvgQueueMillis())));
+        table.getColumns().add(statColumn("TTFB", stats -> millis(stats.getAvgTtfbMillis())));
+        table.getColumns().add(statColumn("下载", stats -> millis(stats.getAvgDownloadMillis())));
+        table.getColumns().add(statColumn("解析", stats -> millis(stats.getAvgParseMillis())));
+        table.getColumns().add(statColumn("took", stats -> stats.getAvgTookMillis() < 0 ? "-" : millis(stats.getAvgTookMillis())));
+        table.getColumns().add(statColumn("传输", stats -> formatBytes(stats.getWireBytes())));
+        table.getColumns().add(statColumn("命中", stats -> String.valueOf(stats.getHits())));
+
+        Button refreshBtn = new Button("刷新", new FontIcon(MaterialDesign.MDI_REFRESH));
+        refreshBtn.setOnAction(e -> refresh());
+        Button clearBtn = new Button("清空", new FontIcon(MaterialDesign.MDI_DELETE));
+        clearBtn.setOnAction(e -> {
+            registry.clear();
+            lastRequestLabel.setText("暂无请求");
+            refresh();
+        });
+
+        lastRequestLabel.setStyle("-fx-text-fill: #666;");
+        lastRequestLabel.setMaxWidth(Double.MAX_VALUE);
+        HBox.setHgrow(lastRequestLabel, Priority.ALWAYS);
+        HBox bar = new HBox(10, lastRequestLabel, refreshBtn, clearBtn);
+        bar.setAlignment(Pos.CENTER_LEFT);
+
+        VBox.setVgrow(table, Priority.ALWAYS);
+        getChildren().addAll(table, bar);
+
+        sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene == null) {
+                registry.removeListener(requestListener);
+            } else if (oldScene == null) {
+                registry.addListener(requestListener);
+                refresh();
+            }
+        });
+        refresh();
+    }
+
+    /**
+     * 重新读取窗口统计
+     */
+    public void refresh() {
+        rows.setAll(registry.snapshot());
+    }
+
+    /**
+     * 合并请求回调，高并发（如批量导入）时每一帧最多刷新一次
+     */
+    private void onRequest(EsRequestMetrics metrics) {
+        if (refreshPending.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                refreshPending.set(false);
+                lastRequestLabel.setText("最近请求: " + metrics);
+                refresh();
+            });
+        }
+    }
+
+    private static TableColumn<Snapshot, String> textColumn(String title, Function<Snapshot, String> getter) {
+        TableColumn<Snapshot, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> new ReadOnlyStringWrapper(getter.apply(cell.getValue())));
+        return column;
+    }
+
+    private static TableColumn<Snapshot, String> statColumn(String title, Function<Stats, String> getter) {
+        TableColumn<Snapshot, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(getter.apply(cell.getValue().getStats())));
+        column.setStyle("-fx-alignment: CENTER-RIGHT;");
+        return column;
+    }
+
+    private static String millis(double value) {
+        return value >= 100 ? String.format("%.0fms", value) : String.format("%.1fms", value);
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + "B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1fKB", bytes / 1024.0);
+        }
+        return String.format("%.1fMB", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,146 @@
+package io.github.lemostic.toolsuite.modules.search.es;
+
+import io.github.lemostic.toolsuite.modules.search.es.service.EsPagedSearch;
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 虚拟化的查询结果列表
+ * <p>列表长度等于命中总数，但只在内存中保留最近访问的若干页（滑动窗口），其余页被淘汰；
+ * TableView 访问到未加载的行时返回占位行，并异步读取所在页，读取完成后通知表格刷新。</p>
+ * <p>只能在JavaFX线程中使用</p>
+ */
+public class EsPagedResultList extends ObservableListBase<Map<String, Object>> {
+
+    public static final int DEFAULT_WINDOW_PAGES = 20;
+
+    /** 未加载行的占位 */
+    static final Map<String, Object> LOADING = Collections.emptyMap();
+
+    private final EsPagedSearch search;
+    private final int pageSize;
+    private final int size;
+    private final int windowPages;
+    private final Map<Integer, List<Map<String, Object>>> pages;
+    private final Set<Integer> pending = new HashSet<>();
+    /** 读取失败的页不再自动重试，避免表格每次重绘都重新请求 */
+    private final Set<Integer> failed = new HashSet<>();
+    private final Consumer<Throwable> errorHandler;
+    private volatile int lastRequestedPage;
+
+    /**
+     * @param search 已打开的分页查询，第一页会直接放入窗口
+     * @param windowPages 内存中最多保留的页数
+     * @param errorHandler 读取失败时的回调（JavaFX线程），可为null
+     */
+    public EsPagedResultList(EsPagedSearch search, int windowPages, Consumer<Throwable> errorHandler) {
+        this.search = search;
+        this.pageSize = search.getPageSize();
+        this.size = (int) Math.min(Integer.MAX_VALUE, search.getTotal());
+        this.windowPages = Math.max(2, windowPages);
+        this.errorHandler = errorHandler;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Map<String, Object>>> eldest) {
+                return size() > EsPagedResultList.this.windowPages;
+            }
+        };
+        pages.put(0, search.getFirstPage());
+    }
+
+    public EsPagedSearch getSearch() {
+        return search;
+    }
+
+    /**
+     * 当前内存中保留的页数
+     */
+    public int getLoadedPageCount() {
+        return pages.size();
+    }
+
+    /**
+     * 判断某行是否为尚未加载的占位行
+     */
+    public static boolean isPlaceholder(Map<String, Object> row) {
+        return row == LOADING;
+    }
+
+    @Override
+    public Map<String, Object> get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        int page = index / pageSize;
+        List<Map<String, Object>> docs = pages.get(page);
+        if (docs == null) {
+            if (!failed.contains(page)) {
+                request(page);
+            }
+            return LOADING;
+        }
+        int offset = index % pageSize;
+        return offset < docs.size() ? docs.get(offset) : LOADING;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 关闭底层的分页查询
+     */
+    public void close() {
+        search.close();
+    }
+
+    private void request(int page) {
+        lastRequestedPage = page;
+        if (!pending.add(page)) {
+            return;
+        }
+        search.fetchPage(page, () -> isWanted(page)).whenComplete((docs, error) -> Platform.runLater(() -> {
+            pending.remove(page);
+            if (error != null) {
+                failed.add(page);
+                if (errorHandler != null) {
+                    errorHandler.accept(error);
+                }
+                return;
+            }
+            if (docs == null) {
+                // 页面已滚出窗口，跳过
+                return;
+            }
+            pages.put(page, docs);
+            fireLoaded(page);
+        }));
+    }
+
+    /**
+     * 真正发请求前判断该页是否仍在最近访问页的附近，快速滚动时跳过中间页
+     */
+    private boolean isWanted(int page) {
+        return Math.abs(page - lastRequestedPage) < windowPages / 2;
+    }
+
+    private void fireLoaded(int page) {
+        int from = page * pageSize;
+        int to = Math.min(size, from + pageSize);
+        if (from >= to) {
+            return;
+        }
+        beginChange();
+        nextReplace(from, to, Collections.nCopies(to - from, LOADING));
+        endChange();
+    }
+}
@@ -1,5 +1,7 @@
 package io.github.lemostic.toolsuite.modules.search.es;
 
+import io.github.lemostic.toolsuite.modules.search.es.service.EsConnectionManager;
+import io.github.lemostic.toolsuite.modules.search.es.service.EsPagedSearch;
 import io.github.lemostic.toolsuite.modules.search.es.service.EsQueryService;
 import io.github.lemostic.toolsuite.modules.search.es.service.EsQueryService.ConnectionInfo;
 import io.github.lemostic.toolsuite.modules.search.es.service.EsQueryService.QueryResult;
@@ -20,7 +22,13 @@ import org.kordamp.ikonli.javafx.FontIcon;
 import org.kordamp.ikonli.materialdesign.MaterialDesign;
 
 import java.io.File;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
@@ -36,6 +44,7 @@ public class EsQueryView extends BorderPane {
     private TextField usernameField;
     private PasswordField passwordField;
     private CheckBox httpsCheck;
+    private CheckBox http2Check;
     private Button connectBtn;
     private Label connectionStatusLabel;
     
@@ -43,7 +52,13 @@ public class EsQueryView extends BorderPane {
     private ComboBox<String> indexCombo;
     private TextArea queryArea;
     private Button executeBtn;
+    private Button cancelQueryBtn;
+    private CheckBox forceRefreshCheck;
+    private CheckBox pagedBrowseCheck;
+    private CheckBox aggregationViewCheck;
+    private CheckBox diskCacheCheck;
     private Button loadFieldsBtn;
+    private Button refreshMetadataBtn;
     
     // 结果显示
     private TableView<Map<String, Object>> resultTable;
@@ -59,6 +74,12 @@ public class EsQueryView extends BorderPane {
     private Label statusLabel;
     
     private ConnectionInfo currentConnection;
+    private volatile CompletableFuture<?> runningQuery;
+    private EsPagedResultList pagedResults;
+    private QueryResult lastResult;
+    private boolean showingAggregations;
+    private String lastQueryIndex;
+    private String lastQueryJson;
     private List<String> availableFields = new ArrayList<>();
     
     public EsQueryView() {
@@ -91,7 +112,13 @@ public class EsQueryView extends BorderPane {
         Button aboutBtn = new Button("关于", new FontIcon(MaterialDesign.MDI_INFORMATION));
         aboutBtn.setOnAction(e -> showAbout());
         
-        toolbar.getItems().addAll(helpBtn, aboutBtn);
+        Button bulkImportBtn = new Button("批量导入", new FontIcon(MaterialDesign.MDI_UPLOAD));
+        bulkImportBtn.setOnAction(e -> showBulkImport());
+        
+        Button diffBtn = new Button("索引比对", new FontIcon(MaterialDesign.MDI_COMPARE));
+        diffBtn.setOnAction(e -> showIndexDiff());
+        
+        toolbar.getItems().addAll(bulkImportBtn, diffBtn, new Separator(), helpBtn, aboutBtn);
         
         return toolbar;
     }
@@ -163,6 +190,10 @@ public class EsQueryView extends BorderPane {
         // HTTPS
         httpsCheck = new CheckBox("使用HTTPS");
         
+        // HTTP/2
+        http2Check = new CheckBox("HTTP/2");
+        http2Check.setTooltip(new Tooltip("使用HTTP/2多路复用连接（需集群支持）"));
+        
         // Username
         Label userLabel = new Label("用户名:");
         userLabel.setStyle("-fx-font-weight: bold;");
@@ -193,6 +224,7 @@ public class EsQueryView extends BorderPane {
         grid.add(usernameField, 1, 1);
         grid.add(passLabel, 2, 1);
         grid.add(passwordField, 3, 1);
+        grid.add(http2Check, 4, 1);
         
         HBox buttonBox = new HBox(10);
         buttonBox.setAlignment(Pos.CENTER_LEFT);
@@ -223,9 +255,20 @@ public class EsQueryView extends BorderPane {
         loadFieldsBtn.setOnAction(e -> loadIndexFields());
         loadFieldsBtn.setDisable(true);
         
+        refreshMetadataBtn = new Button("刷新", new FontIcon(MaterialDesign.MDI_REFRESH));
+        refreshMetadataBtn.setTooltip(new Tooltip("清除缓存并重新加载索引、别名和字段映射"));
+        refreshMetadataBtn.setOnAction(e -> refreshMetadata());
+        refreshMetadataBtn.setDisable(true);
+        
+        // 切换索引时在后台预热字段映射缓存
+        indexCombo.valueProperty().addListener((obs, oldVal, newVal) -> prefetchIndexFields(newVal));
+        
+        HBox indexButtons = new HBox(10, loadFieldsBtn, refreshMetadataBtn);
+        indexButtons.setAlignment(Pos.CENTER_LEFT);
+        
         grid.add(indexLabel, 0, 0);
         grid.add(indexCombo, 1, 0);
-        grid.add(loadFieldsBtn, 2, 0);
+        grid.add(indexButtons, 2, 0);
         
         // Query JSON
         Label queryLabel = new Label("查询JSON:");
@@ -245,13 +288,37 @@ public class EsQueryView extends BorderPane {
         executeBtn.setOnAction(e -> executeQuery());
         executeBtn.setDisable(true);
         
+        cancelQueryBtn = new Button("取消", new FontIcon(MaterialDesign.MDI_STOP));
+        cancelQueryBtn.setOnAction(e -> cancelQuery());
+        cancelQueryBtn.setDisable(true);
+        
+        forceRefreshCheck = new CheckBox("强制刷新");
+        forceRefreshCheck.setTooltip(new Tooltip("跳过查询结果缓存，直接从集群查询"));
+        
+        pagedBrowseCheck = new CheckBox("分页浏览");
+        pagedBrowseCheck.setTooltip(new Tooltip("按需逐页读取全部命中结果（PIT + search_after），滚动时自动加载，只在内存中保留最近的若干页"));
+        
+        aggregationViewCheck = new CheckBox("显示聚合");
+        aggregationViewCheck.setTooltip(new Tooltip("以表格显示 aggregations（嵌套桶展开为行），可直接导出"));
+        aggregationViewCheck.setSelected(true);
+        aggregationViewCheck.setOnAction(e -> {
+            if (lastResult != null) {
+                displayResults(lastResult);
+            }
+        });
+        
+        diskCacheCheck = new CheckBox("磁盘缓存");
+        diskCacheCheck.setTooltip(new Tooltip("内存缓存满时将查询结果保存到本地H2数据库"));
+        diskCacheCheck.setSelected(EsConnectionManager.getInstance().getResultCache().isDiskStoreEnabled());
+        diskCacheCheck.setOnAction(e -> toggleDiskCache());
+        
         resultCountLabel = new Label("");
         resultCountLabel.setStyle("-fx-text-fill: #666;");
         
         HBox buttonBox = new HBox(15);
         buttonBox.setAlignment(Pos.CENTER_LEFT);
         buttonBox.setPadding(new Insets(10, 0, 0, 0));
-        buttonBox.getChildren().addAll(executeBtn, resultCountLabel);
+        buttonBox.getChildren().addAll(executeBtn, cancelQueryBtn, forceRefreshCheck, pagedBrowseCheck, aggregationViewCheck, diskCacheCheck, resultCountLabel);
         grid.add(buttonBox, 0, 2, 3, 1);
         
         ColumnConstraints col1 = new ColumnConstraints();
@@ -368,7 +435,13 @@ public class EsQueryView extends BorderPane {
         statusLabel = new Label("就绪");
         statusLabel.setStyle("-fx-text-fill: #666;");
         
-        statusBox.getChildren().addAll(progressBar, statusLabel);
+        // 请求性能指标，默认折叠
+        TitledPane metricsPane = new TitledPane("性能指标",
+                new EsMetricsPanel(EsConnectionManager.getInstance().getMetrics()));
+        metricsPane.setGraphic(new FontIcon(MaterialDesign.MDI_SPEEDOMETER));
+        metricsPane.setExpanded(false);
+        
+        statusBox.getChildren().addAll(metricsPane, progressBar, statusLabel);
         
         return statusBox;
     }
@@ -405,52 +478,106 @@ public class EsQueryView extends BorderPane {
             String password = passwordField.getText();
             boolean useHttps = httpsCheck.isSelected();
             
-            currentConnection = new ConnectionInfo(host, port, 
+            ConnectionInfo connection = new ConnectionInfo(host, port, 
                     username.isEmpty() ? null : username,
                     password.isEmpty() ? null : password,
-                    useHttps);
+                    useHttps, http2Check.isSelected());
+            // 换了连接参数（包括密码）时释放旧客户端，不再保留旧的认证头
+            if (currentConnection != null && !currentConnection.getKey().equals(connection.getKey())) {
+                EsConnectionManager.getInstance().release(currentConnection);
+            }
+            currentConnection = connection;
             
             connectBtn.setDisable(true);
             connectionStatusLabel.setText("连接中...");
             connectionStatusLabel.setStyle("-fx-text-fill: #FFC107;");
             
-            new Thread(() -> {
-                try {
-                    boolean success = service.testConnection(currentConnection);
-                    
-                    if (success) {
-                        List<String> indices = service.getIndices(currentConnection);
-                        
-                        Platform.runLater(() -> {
+            service.testConnectionAsync(currentConnection)
+                    .thenCompose(success -> success 
+                            ? loadIndexTargets() 
+                            : CompletableFuture.<List<String>>completedFuture(null))
+                    .whenComplete((targets, error) -> Platform.runLater(() -> {
+                        connectBtn.setDisable(false);
+                        if (error != null) {
+                            String message = rootMessage(error);
+                            connectionStatusLabel.setText("连接失败: " + message);
+                            connectionStatusLabel.setStyle("-fx-text-fill: #f44336;");
+                            showAlert("连接失败", message, Alert.AlertType.ERROR);
+                        } else if (targets == null) {
+                            connectionStatusLabel.setText("连接失败");
+                            connectionStatusLabel.setStyle("-fx-text-fill: #f44336;");
+                        } else {
                             connectionStatusLabel.setText("已连接");
                             connectionStatusLabel.setStyle("-fx-text-fill: #4CAF50;");
-                            indexCombo.setItems(FXCollections.observableArrayList(indices));
+                            updateIndexCombo(targets);
                             loadFieldsBtn.setDisable(false);
+                            refreshMetadataBtn.setDisable(false);
                             executeBtn.setDisable(false);
-                            connectBtn.setDisable(false);
-                        });
-                    } else {
-                        Platform.runLater(() -> {
-                            connectionStatusLabel.setText("连接失败");
-                            connectionStatusLabel.setStyle("-fx-text-fill: #f44336;");
-                            connectBtn.setDisable(false);
-                        });
-                    }
-                } catch (Exception e) {
-                    Platform.runLater(() -> {
-                        connectionStatusLabel.setText("连接失败: " + e.getMessage());
-                        connectionStatusLabel.setStyle("-fx-text-fill: #f44336;");
-                        showAlert("连接失败", e.getMessage(), Alert.AlertType.ERROR);
-                        connectBtn.setDisable(false);
-                    });
-                }
-            }).start();
+                        }
+                    }));
             
         } catch (NumberFormatException e) {
             showAlert("错误", "端口必须是数字", Alert.AlertType.ERROR);
         }
     }
     
+    /**
+     * 读取可查询的目标（索引 + 别名），缓存过期时在后台刷新下拉框
+     */
+    private CompletableFuture<List<String>> loadIndexTargets() {
+        ConnectionInfo conn = currentConnection;
+        CompletableFuture<List<String>> indices = service.getIndicesAsync(conn, refreshed -> 
+                service.getAliasesAsync(conn).whenComplete((aliases, error) -> {
+                    List<String> targets = error != null ? refreshed : mergeIndexTargets(refreshed, aliases);
+                    Platform.runLater(() -> updateIndexCombo(targets));
+                }));
+        return indices.thenCombine(service.getAliasesAsync(conn), this::mergeIndexTargets);
+    }
+    
+    private List<String> mergeIndexTargets(List<String> indices, Map<String, List<String>> aliases) {
+        List<String> targets = new ArrayList<>(indices);
+        for (String alias : aliases.keySet()) {
+            if (!indices.contains(alias)) {
+                targets.add(alias);
+            }
+        }
+        return targets;
+    }
+    
+    private void updateIndexCombo(List<String> targets) {
+        String selected = indexCombo.getValue();
+        indexCombo.setItems(FXCollections.observableArrayList(targets));
+        if (selected != null && targets.contains(selected)) {
+            indexCombo.setValue(selected);
+        }
+    }
+    
+    private void prefetchIndexFields(String index) {
+        if (index == null || index.isEmpty() || currentConnection == null) {
+            return;
+        }
+        // 预热失败不提示，点击“加载字段”时再报告错误
+        service.getIndexFieldsAsync(currentConnection, index)
+                .thenAccept(fields -> availableFields = fields);
+    }
+    
+    private void refreshMetadata() {
+        if (currentConnection == null) {
+            return;
+        }
+        service.invalidateMetadata(currentConnection);
+        refreshMetadataBtn.setDisable(true);
+        
+        loadIndexTargets().whenComplete((targets, error) -> Platform.runLater(() -> {
+            refreshMetadataBtn.setDisable(false);
+            if (error != null) {
+                showAlert("刷新失败", rootMessage(error), Alert.AlertType.ERROR);
+            } else {
+                updateIndexCombo(targets);
+            }
+        }));
+    }
+    
     private void loadIndexFields() {
         String index = indexCombo.getValue();
         if (index == null || index.isEmpty()) {
@@ -458,19 +585,15 @@ public class EsQueryView extends BorderPane {
             return;
         }
         
-        new Thread(() -> {
-            try {
-                availableFields = service.getIndexFields(currentConnection, index);
-                Platform.runLater(() -> {
-                    showAlert("成功", String.format("加载了 %d 个字段", availableFields.size()), 
-                             Alert.AlertType.INFORMATION);
-                });
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    showAlert("加载失败", e.getMessage(), Alert.AlertType.ERROR);
-                });
+        service.getIndexFieldsAsync(currentConnection, index).whenComplete((fields, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                showAlert("加载失败", rootMessage(error), Alert.AlertType.ERROR);
+            } else {
+                availableFields = fields;
+                showAlert("成功", String.format("加载了 %d 个字段", fields.size()), 
+                         Alert.AlertType.INFORMATION);
             }
-        }).start();
+        }));
     }
     
     private void executeQuery() {
@@ -487,43 +610,166 @@ public class EsQueryView extends BorderPane {
         }
         
         executeBtn.setDisable(true);
+        cancelQueryBtn.setDisable(false);
         resultCountLabel.setText("查询中...");
         
-        new Thread(() -> {
-            try {
-                QueryResult result = service.executeQuery(currentConnection, index, queryJson);
-                
-                Platform.runLater(() -> {
-                    displayResults(result);
-                    resultCountLabel.setText(String.format("总计: %d 条记录, 当前显示: %d 条", 
-                            result.getTotal(), result.getDocuments().size()));
-                    executeBtn.setDisable(false);
-                });
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    showAlert("查询失败", e.getMessage(), Alert.AlertType.ERROR);
-                    executeBtn.setDisable(false);
-                });
+        lastQueryIndex = index;
+        lastQueryJson = queryJson;
+        
+        if (pagedBrowseCheck.isSelected()) {
+            executePagedQuery(index, queryJson);
+            return;
+        }
+        
+        CompletableFuture<QueryResult> query = service.executeQueryAsync(currentConnection, index, queryJson, null,
+                forceRefreshCheck.isSelected());
+        runningQuery = query;
+        query.whenComplete((result, error) -> Platform.runLater(() -> {
+            if (runningQuery == query) {
+                runningQuery = null;
+                executeBtn.setDisable(false);
+                cancelQueryBtn.setDisable(true);
+            }
+            if (query.isCancelled()) {
+                resultCountLabel.setText("查询已取消");
+            } else if (error != null) {
+                resultCountLabel.setText("");
+                showAlert("查询失败", rootMessage(error), Alert.AlertType.ERROR);
+            } else {
+                displayResults(result);
+                String shown = result.hasAggregations()
+                        ? String.format("聚合: %d 行, 文档: %d 条", result.getAggregations().getRows().size(), 
+                                result.getDocuments().size())
+                        : String.format("当前显示: %d 条", result.getDocuments().size());
+                resultCountLabel.setText(String.format("总计: %d 条记录, %s%s", 
+                        result.getTotal(), shown, result.isFromCache() ? "（来自缓存）" : ""));
+            }
+        }));
+    }
+    
+    private void executePagedQuery(String index, String queryJson) {
+        CompletableFuture<EsPagedSearch> query = service.openPagedSearchAsync(currentConnection, index, queryJson,
+                null, EsPagedSearch.DEFAULT_PAGE_SIZE);
+        runningQuery = query;
+        query.whenComplete((search, error) -> Platform.runLater(() -> {
+            if (runningQuery == query) {
+                runningQuery = null;
+                executeBtn.setDisable(false);
+                cancelQueryBtn.setDisable(true);
             }
-        }).start();
+            if (query.isCancelled()) {
+                resultCountLabel.setText("查询已取消");
+            } else if (error != null) {
+                resultCountLabel.setText("");
+                showAlert("查询失败", rootMessage(error), Alert.AlertType.ERROR);
+            } else {
+                displayPagedResults(search);
+                resultCountLabel.setText(String.format("总计: %d 条记录（分页浏览，每页 %d 条）", 
+                        search.getTotal(), search.getPageSize()));
+            }
+        }));
+    }
+    
+    private void toggleDiskCache() {
+        try {
+            EsConnectionManager.getInstance().setResultDiskCacheEnabled(diskCacheCheck.isSelected());
+        } catch (Exception e) {
+            diskCacheCheck.setSelected(false);
+            showAlert("错误", "无法打开磁盘缓存: " + e.getMessage(), Alert.AlertType.ERROR);
+        }
+    }
+    
+    private void cancelQuery() {
+        CompletableFuture<?> query = runningQuery;
+        if (query != null) {
+            query.cancel(true);
+        }
+    }
+    
+    /**
+     * 取出异步异常的根本原因信息
+     */
+    static String rootMessage(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) 
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof TimeoutException) {
+            return "请求超时";
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
     }
     
     private void displayResults(QueryResult result) {
+        closePagedResults();
+        lastResult = result;
+        resultTable.setItems(resultData);
         resultData.clear();
         resultTable.getColumns().clear();
         columnItems.clear();
         
+        // 有聚合结果时优先显示聚合表（没有命中文档时总是显示聚合）
+        showingAggregations = result.hasAggregations() 
+                && (aggregationViewCheck.isSelected() || result.getDocuments().isEmpty());
+        if (showingAggregations) {
+            createResultColumns(result.getAggregations().getColumns());
+            resultData.addAll(result.getAggregations().getRows());
+            return;
+        }
+        
         if (result.getDocuments().isEmpty()) {
             showAlert("提示", "没有查询到数据", Alert.AlertType.INFORMATION);
             return;
         }
         
+        createResultColumns(collectColumns(result.getDocuments()));
+        
+        // 填充数据
+        resultData.addAll(result.getDocuments());
+    }
+    
+    /**
+     * 显示分页浏览结果，表格按需读取滚动到的页
+     */
+    private void displayPagedResults(EsPagedSearch search) {
+        closePagedResults();
+        lastResult = null;
+        resultData.clear();
+        resultTable.getColumns().clear();
+        columnItems.clear();
+        
+        if (search.getTotal() == 0) {
+            search.close();
+            resultTable.setItems(resultData);
+            showAlert("提示", "没有查询到数据", Alert.AlertType.INFORMATION);
+            return;
+        }
+        
+        // 列以第一页出现的字段为准
+        createResultColumns(collectColumns(search.getFirstPage()));
+        pagedResults = new EsPagedResultList(search, EsPagedResultList.DEFAULT_WINDOW_PAGES,
+                error -> resultCountLabel.setText("读取分页失败: " + rootMessage(error)));
+        resultTable.setItems(pagedResults);
+    }
+    
+    private void closePagedResults() {
+        if (pagedResults != null) {
+            pagedResults.close();
+            pagedResults = null;
+        }
+    }
+    
+    private static Set<String> collectColumns(List<Map<String, Object>> documents) {
         // 获取所有列名
         Set<String> allColumns = new LinkedHashSet<>();
-        for (Map<String, Object> doc : result.getDocuments()) {
+        for (Map<String, Object> doc : documents) {
             allColumns.addAll(doc.keySet());
         }
-        
+        return allColumns;
+    }
+    
+    private void createResultColumns(Collection<String> allColumns) {
         // 创建表格列
         for (String columnName : allColumns) {
             TableColumn<Map<String, Object>, Object> column = new TableColumn<>(columnName);
@@ -537,6 +783,8 @@ public class EsQueryView extends BorderPane {
                     super.updateItem(item, empty);
                     if (empty || item == null) {
                         setText(null);
+                    } else if (item instanceof Collection<?> values) {
+                        setText(values.stream().map(String::valueOf).collect(Collectors.joining(", ")));
                     } else {
                         setText(item.toString());
                     }
@@ -548,9 +796,6 @@ public class EsQueryView extends BorderPane {
             // 添加到列选择器
             columnItems.add(new ColumnItem(columnName, true));
         }
-        
-        // 填充数据
-        resultData.addAll(result.getDocuments());
     }
     
     private void selectAllColumns(boolean selected) {
@@ -560,21 +805,145 @@ public class EsQueryView extends BorderPane {
     }
     
     private void exportToExcel() {
-        if (resultData.isEmpty()) {
-            showAlert("错误", "没有数据可导出", Alert.AlertType.WARNING);
-            return;
-        }
-        
         List<String> selectedColumns = columnItems.stream()
                 .filter(ColumnItem::isSelected)
                 .map(ColumnItem::getName)
                 .collect(Collectors.toList());
         
+        // 表格中只有部分命中（分页浏览或受 size 限制）时，先预估规模，大导出直接写入文件
+        boolean partial = pagedResults != null || (lastResult != null && !showingAggregations
+                && lastResult.getTotal() > lastResult.getDocuments().size());
+        if (partial && lastQueryIndex != null && currentConnection != null) {
+            estimateAndExport(selectedColumns);
+            return;
+        }
+        
+        if (resultData.isEmpty()) {
+            showAlert("错误", "没有数据可导出", Alert.AlertType.WARNING);
+            return;
+        }
         if (selectedColumns.isEmpty()) {
             showAlert("错误", "请至少选择一列", Alert.AlertType.WARNING);
             return;
         }
-        
+        exportTable(selectedColumns);
+    }
+    
+    /**
+     * 导出结果表格中已有的数据
+     */
+    private void exportTable(List<String> selectedColumns) {
+        File file = chooseExportFile(false);
+        if (file != null) {
+            int rowCount = resultData.size();
+            service.exportToExcelAsync(new ArrayList<>(resultData), selectedColumns, file)
+                    .whenComplete((ignored, error) -> Platform.runLater(() -> {
+                        if (error != null) {
+                            showAlert("导出失败", rootMessage(error), Alert.AlertType.ERROR);
+                            return;
+                        }
+                        showExportDone(file, rowCount, selectedColumns.size());
+                    }));
+        }
+    }
+    
+    /**
+     * 先用 _count 和随机抽样预估导出规模，再由用户选择导出方式
+     */
+    private void estimateAndExport(List<String> selectedColumns) {
+        String index = lastQueryIndex;
+        String queryJson = lastQueryJson;
+        resultCountLabel.setText("正在预估导出规模...");
+        service.estimateExportAsync(currentConnection, index, queryJson, selectedColumns)
+                .whenComplete((estimate, error) -> Platform.runLater(() -> {
+                    resultCountLabel.setText("");
+                    if (error != null) {
+                        showAlert("预估失败", rootMessage(error), Alert.AlertType.ERROR);
+                        return;
+                    }
+                    if (estimate.getTotal() == 0) {
+                        showAlert("提示", "没有数据可导出", Alert.AlertType.INFORMATION);
+                        return;
+                    }
+                    List<String> columns = selectedColumns.isEmpty() ? estimate.getColumns() : selectedColumns;
+                    
+                    Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+                    alert.setTitle("导出预估");
+                    Duration duration = estimate.getEstimatedDuration();
+                    alert.setContentText(String.format(
+                            "命中文档: %d 条\n估算数据量: %s（%d 条随机样本，平均 %.0f 字节/条）\n预计耗时: %s（%.0f 条/秒，%s）",
+                            estimate.getTotal(), formatBytes(estimate.getEstimatedBytes()), estimate.getSampleSize(),
+                            estimate.getAvgDocBytes(), duration == null ? "未知" : formatDuration(duration),
+                            estimate.getDocsPerSecond(), estimate.isMeasuredThroughput() ? "按近期读取速度" : "按抽样请求估算"));
+                    
+                    ButtonType streamBtn = new ButtonType("全部写入文件");
+                    ButtonType tableBtn = new ButtonType(String.format("仅导出表格（%d 条）", resultData.size()));
+                    alert.getButtonTypes().setAll(streamBtn, ButtonType.CANCEL);
+                    if (estimate.isStreamingRecommended() || pagedResults != null || resultData.isEmpty()) {
+                        alert.setHeaderText(estimate.isStreamingRecommended()
+                                ? "数据量超过阈值，将逐页直接写入文件，不加载到结果表格" 
+                                : "将逐页读取全部命中并直接写入文件");
+                    } else {
+                        alert.setHeaderText("结果表格只包含部分命中，可以导出全部命中或只导出表格");
+                        alert.getButtonTypes().add(1, tableBtn);
+                    }
+                    
+                    Optional<ButtonType> choice = alert.showAndWait();
+                    if (choice.isEmpty() || choice.get() == ButtonType.CANCEL) {
+                        return;
+                    }
+                    if (choice.get() == tableBtn) {
+                        exportTable(columns);
+                    } else {
+                        exportStreaming(index, queryJson, columns, estimate.getTotal());
+                    }
+                }));
+    }
+    
+    /**
+     * 流式导出全部命中，导出过程中可点击“取消”停止
+     */
+    private void exportStreaming(String index, String queryJson, List<String> columns, long total) {
+        if (columns.isEmpty()) {
+            showAlert("错误", "请至少选择一列", Alert.AlertType.WARNING);
+            return;
+        }
+        File file = chooseExportFile(true);
+        if (file == null) {
+            return;
+        }
+        AtomicBoolean progressPending = new AtomicBoolean();
+        CompletableFuture<Long> export = service.exportQueryToFileAsync(currentConnection, index, queryJson, columns, file,
+                written -> {
+                    if (progressPending.compareAndSet(false, true)) {
+                        Platform.runLater(() -> {
+                            progressPending.set(false);
+                            resultCountLabel.setText(String.format("导出中: %d/%d", written, total));
+                        });
+                    }
+                });
+        runningQuery = export;
+        executeBtn.setDisable(true);
+        cancelQueryBtn.setDisable(false);
+        export.whenComplete((written, error) -> Platform.runLater(() -> {
+            if (runningQuery == export) {
+                runningQuery = null;
+                executeBtn.setDisable(false);
+                cancelQueryBtn.setDisable(true);
+            }
+            if (export.isCancelled()) {
+                resultCountLabel.setText("导出已取消，已写出的部分保留在文件中");
+            } else if (error != null) {
+                resultCountLabel.setText("");
+                showAlert("导出失败", rootMessage(error), Alert.AlertType.ERROR);
+            } else {
+                resultCountLabel.setText(String.format("导出完成: %d 条", written));
+                showExportDone(file, written, columns.size());
+            }
+        }));
+    }
+    
+    private File chooseExportFile(boolean allowCsv) {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("导出Excel文件");
         
@@ -590,40 +959,69 @@ public class EsQueryView extends BorderPane {
         fileChooser.getExtensionFilters().add(
                 new FileChooser.ExtensionFilter("Excel Files", "*.xlsx")
         );
+        if (allowCsv) {
+            fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+        }
         
-        File file = fileChooser.showSaveDialog(getScene().getWindow());
-        if (file != null) {
-            new Thread(() -> {
-                try {
-                    service.exportToExcel(new ArrayList<>(resultData), selectedColumns, file);
-                    
-                    Platform.runLater(() -> {
-                        Alert alert = new Alert(Alert.AlertType.INFORMATION);
-                        alert.setTitle("导出成功");
-                        alert.setHeaderText("数据已导出");
-                        alert.setContentText(String.format("文件: %s\n\n总记录数: %d\n导出列数: %d",
-                                file.getAbsolutePath(), resultData.size(), selectedColumns.size()));
-                        
-                        ButtonType openBtn = new ButtonType("打开文件夹");
-                        alert.getButtonTypes().add(openBtn);
-                        
-                        Optional<ButtonType> response = alert.showAndWait();
-                        if (response.isPresent() && response.get() == openBtn) {
-                            try {
-                                java.awt.Desktop.getDesktop().open(file.getParentFile());
-                            } catch (Exception e) {
-                                showAlert("错误", "无法打开文件夹: " + e.getMessage(), 
-                                         Alert.AlertType.ERROR);
-                            }
-                        }
-                    });
-                } catch (Exception e) {
-                    Platform.runLater(() -> {
-                        showAlert("导出失败", e.getMessage(), Alert.AlertType.ERROR);
-                    });
-                }
-            }).start();
+        return fileChooser.showSaveDialog(getScene().getWindow());
+    }
+    
+    private void showExportDone(File file, long rowCount, int columnCount) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("导出成功");
+        alert.setHeaderText("数据已导出");
+        alert.setContentText(String.format("文件: %s\n\n总记录数: %d\n导出列数: %d",
+                file.getAbsolutePath(), rowCount, columnCount));
+        
+        ButtonType openBtn = new ButtonType("打开文件夹");
+        alert.getButtonTypes().add(openBtn);
+        
+        Optional<ButtonType> response = alert.showAndWait();
+        if (response.isPresent() && response.get() == openBtn) {
+            try {
+                java.awt.Desktop.getDesktop().open(file.getParentFile());
+            } catch (Exception e) {
+                showAlert("错误", "无法打开文件夹: " + e.getMessage(), 
+                         Alert.AlertType.ERROR);
+            }
+        }
+    }
+    
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        if (bytes < 1024L * 1024 * 1024) {
+            return String.format("%.1f MB", bytes / (1024.0 * 1024));
+        }
+        return String.format("%.2f GB", bytes / (1024.0 * 1024 * 1024));
+    }
+    
+    private static String formatDuration(Duration duration) {
+        long seconds = Math.max(1, duration.toSeconds());
+        if (seconds < 60) {
+            return seconds + " 秒";
+        }
+        if (seconds < 3600) {
+            return String.format("%d 分 %d 秒", seconds / 60, seconds % 60);
+        }
+        return String.format("%d 小时 %d 分", seconds / 3600, seconds % 3600 / 60);
+    }
+    
+    private void showBulkImport() {
+        if (currentConnection == null) {
+            showAlert("错误", "请先连接ES", Alert.AlertType.WARNING);
+            return;
+        }
+        new EsBulkImportDialog(getScene().getWindow(), currentConnection, indexCombo.getValue()).show();
+    }
+    
+    private void showIndexDiff() {
+        if (currentConnection == null) {
+            showAlert("错误", "请先连接ES", Alert.AlertType.WARNING);
+            return;
         }
+        new EsIndexDiffDialog(getScene().getWindow(), currentConnection, indexCombo.getValue(), queryArea.getText()).show();
     }
     
     private void showHelp() {
@@ -644,6 +1042,7 @@ public class EsQueryView extends BorderPane {
         6. 点击“执行查询”，结果将显示在下方表格中
         7. 在右侧列选择区选择要导出的列
         8. 点击“导出Excel”将数据导出为.xlsx文件
+        9. （可选）点击工具栏“批量导入”，将 NDJSON / CSV / Excel 文件写入索引
         
         📝 查询示例:
         基本查询：
@@ -681,6 +1080,13 @@ public class EsQueryView extends BorderPane {
         • 默认连接到本地ES（localhost:9200）
         • 如果需要认证，请输入用户名和密码
         • 查询结果数量由查询JSON中的 size 字段控制
+        • 查询包含 aggs 时，聚合结果（terms、date_histogram、指标等，嵌套桶展开为行）以表格显示并可导出；
+          "size": 0 的查询不会解析命中文档
+        • 勾选“分页浏览”可滚动浏览全部命中结果（需要 ES 7.12+）
+        • 表格只包含部分命中时，导出前会统计总数并抽样估算数据量和耗时；超过1万条或100MB时
+          逐页直接写入 .xlsx/.csv 文件，不加载到结果表格
+        • “索引比对”按 _id（或指定的唯一键字段）归并比较两个索引，可输出差异的 _bulk 文件
+        • 底部“性能指标”显示最近5分钟各索引请求的延迟分位数和排队、TTFB、下载、解析、took 等耗时
         • 大量数据导出可能需要较长时间，请耐心等待
         """;
         
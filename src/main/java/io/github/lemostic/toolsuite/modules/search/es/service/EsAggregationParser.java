@@ -0,0 +1,182 @@
+package io.github.lemostic.toolsuite.modules.search.es.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 聚合结果解析
+ * <p>把 _search 响应中的 aggregations 展开为 {@link EsAggregationTable}：</p>
+ * <ul>
+ *     <li>桶聚合（terms、date_histogram、histogram、range、filters、composite 等）：每个桶向下展开，
+ *     桶的键写入以聚合名命名的列，文档数写入 聚合名.doc_count 列</li>
+ *     <li>单桶聚合（filter、nested、global、missing 等）：文档数写入 聚合名.doc_count 列，继续展开子聚合</li>
+ *     <li>指标聚合：单值指标（avg、sum、cardinality 等）写入以聚合名命名的列，
+ *     多值指标（stats、percentiles 等）写入 聚合名.指标 列</li>
+ * </ul>
+ * <p>同一层的指标会重复到该层展开出的每一行；同一层有多个桶聚合时，各自展开为不同的行</p>
+ */
+public final class EsAggregationParser {
+
+    private EsAggregationParser() {
+    }
+
+    public static EsAggregationTable parse(JsonNode aggregations) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        if (aggregations != null && aggregations.isObject() && aggregations.size() > 0) {
+            expand(aggregations, new LinkedHashMap<>(), rows);
+        }
+        Set<String> columns = new LinkedHashSet<>();
+        for (Map<String, Object> row : rows) {
+            columns.addAll(row.keySet());
+        }
+        return new EsAggregationTable(new ArrayList<>(columns), rows);
+    }
+
+    /**
+     * 展开一层聚合（顶层 aggregations 对象或某个桶）
+     * @param context 上层桶的键、文档数和指标
+     */
+    private static void expand(JsonNode level, Map<String, Object> context, List<Map<String, Object>> rows) {
+        Map<String, Object> base = new LinkedHashMap<>(context);
+        List<Map.Entry<String, JsonNode>> children = new ArrayList<>();
+
+        Iterator<Map.Entry<String, JsonNode>> fields = level.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode child = field.getValue();
+            // composite 聚合桶的 key 是对象，不是子聚合
+            if (!child.isObject() || "key".equals(field.getKey())) {
+                continue;
+            }
+            if (child.has("buckets") || child.has("doc_count")) {
+                children.add(field);
+            } else {
+                addMetric(field.getKey(), child, base);
+            }
+        }
+
+        if (children.isEmpty()) {
+            rows.add(base);
+            return;
+        }
+
+        int before = rows.size();
+        for (Map.Entry<String, JsonNode> child : children) {
+            String name = child.getKey();
+            JsonNode agg = child.getValue();
+            JsonNode buckets = agg.get("buckets");
+            if (buckets == null) {
+                Map<String, Object> row = new LinkedHashMap<>(base);
+                row.put(name + ".doc_count", agg.path("doc_count").asLong());
+                expand(agg, row, rows);
+            } else if (buckets.isArray()) {
+                for (JsonNode bucket : buckets) {
+                    expandBucket(name, bucketKey(bucket, null), bucket, base, rows);
+                }
+            } else if (buckets.isObject()) {
+                // keyed: true 或 filters 聚合，桶以键名为字段名
+                Iterator<Map.Entry<String, JsonNode>> keyed = buckets.fields();
+                while (keyed.hasNext()) {
+                    Map.Entry<String, JsonNode> bucket = keyed.next();
+                    expandBucket(name, bucketKey(bucket.getValue(), bucket.getKey()), bucket.getValue(), base, rows);
+                }
+            }
+        }
+        if (rows.size() == before) {
+            // 子聚合没有任何桶，保留当前层这一行
+            rows.add(base);
+        }
+    }
+
+    private static void expandBucket(String name, Object key, JsonNode bucket, Map<String, Object> base,
+                                     List<Map<String, Object>> rows) {
+        Map<String, Object> row = new LinkedHashMap<>(base);
+        if (key instanceof Map<?, ?> compositeKey) {
+            for (Map.Entry<?, ?> entry : compositeKey.entrySet()) {
+                row.put(name + "." + entry.getKey(), entry.getValue());
+            }
+        } else {
+            row.put(name, key);
+        }
+        row.put(name + ".doc_count", bucket.path("doc_count").asLong());
+        expand(bucket, row, rows);
+    }
+
+    /**
+     * 桶的键：优先使用 key_as_string（如 date_histogram 的格式化日期）
+     */
+    private static Object bucketKey(JsonNode bucket, String keyedName) {
+        JsonNode keyAsString = bucket.get("key_as_string");
+        if (keyAsString != null) {
+            return keyAsString.asText();
+        }
+        JsonNode key = bucket.get("key");
+        if (key == null) {
+            return keyedName;
+        }
+        if (key.isObject()) {
+            Map<String, Object> composite = new LinkedHashMap<>();
+            key.fields().forEachRemaining(e -> composite.put(e.getKey(), scalar(e.getValue())));
+            return composite;
+        }
+        return scalar(key);
+    }
+
+    private static void addMetric(String name, JsonNode metric, Map<String, Object> row) {
+        if (metric.has("value")) {
+            JsonNode asString = metric.get("value_as_string");
+            row.put(name, asString != null ? asString.asText() : scalar(metric.get("value")));
+            return;
+        }
+        JsonNode values = metric.get("values");
+        if (values != null) {
+            // percentiles / percentile_ranks
+            if (values.isObject()) {
+                values.fields().forEachRemaining(e -> {
+                    if (!e.getKey().endsWith("_as_string")) {
+                        row.put(name + "." + e.getKey(), scalar(e.getValue()));
+                    }
+                });
+            } else if (values.isArray()) {
+                for (JsonNode value : values) {
+                    row.put(name + "." + value.path("key").asText(), scalar(value.get("value")));
+                }
+            }
+            return;
+        }
+        JsonNode hits = metric.get("hits");
+        if (hits != null) {
+            // top_hits 只记录命中数
+            row.put(name + ".hits", hits.path("total").path("value").asLong(hits.path("total").asLong()));
+            return;
+        }
+        // stats / extended_stats 等多值指标
+        Iterator<Map.Entry<String, JsonNode>> fields = metric.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getValue().isValueNode() && !field.getKey().endsWith("_as_string")) {
+                row.put(name + "." + field.getKey(), scalar(field.getValue()));
+            }
+        }
+    }
+
+    private static Object scalar(JsonNode node) {
+        if (node == null || node.isNull()) {
+            return null;
+        }
+        if (node.isNumber()) {
+            return node.numberValue();
+        }
+        if (node.isBoolean()) {
+            return node.booleanValue();
+        }
+        return node.isValueNode() ? node.asText() : node.toString();
+    }
+}
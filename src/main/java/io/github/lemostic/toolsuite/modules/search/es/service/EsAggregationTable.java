@@ -0,0 +1,36 @@
+package io.github.lemostic.toolsuite.modules.search.es.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 聚合结果表
+ * 嵌套的桶聚合被展开为一行一个叶子桶，列依次为各层桶的键、文档数和指标值
+ * （如 status、status.doc_count、by_day、by_day.doc_count、avg_price），可直接显示和导出
+ */
+public class EsAggregationTable {
+
+    private final List<String> columns;
+    private final List<Map<String, Object>> rows;
+
+    public EsAggregationTable(List<String> columns, List<Map<String, Object>> rows) {
+        this.columns = Collections.unmodifiableList(columns);
+        this.rows = Collections.unmodifiableList(rows);
+    }
+
+    /**
+     * 按出现顺序排列的列名
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public List<Map<String, Object>> getRows() {
+        return rows;
+    }
+
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+}
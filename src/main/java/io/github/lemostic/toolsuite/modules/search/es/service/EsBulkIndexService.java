@@ -0,0 +1,767 @@
+package io.github.lemostic.toolsuite.modules.search.es.service;
+
+import cn.hutool.core.text.csv.CsvReadConfig;
+import cn.hutool.core.text.csv.CsvReader;
+import cn.hutool.core.text.csv.CsvRow;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.lemostic.toolsuite.modules.excel.json.ExcelToJSONService;
+import io.github.lemostic.toolsuite.modules.search.es.service.EsQueryService.ConnectionInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 批量写入服务
+ * 将 NDJSON / CSV / Excel 文件逐条读取，按字节数拼装 _bulk 请求体并发发送到ES：
+ * <ul>
+ *     <li>读取线程在在途批次达到并发上限时阻塞，内存占用只与 批次大小 × 并发数 有关</li>
+ *     <li>遇到 429（整个请求或单条文档被拒绝）时按指数退避加随机抖动重试，并减半并发；
+ *     连续成功后再逐步恢复并发</li>
+ *     <li>其他单条失败记录行号、文档ID、状态码和原因，不影响同批其他文档</li>
+ * </ul>
+ */
+public class EsBulkIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EsBulkIndexService.class);
+
+    private static final Duration BULK_TIMEOUT = Duration.ofMinutes(2);
+    private static final long BASE_BACKOFF_MILLIS = 200;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    /** 只取回判断结果需要的字段，减小响应体 */
+    private static final String BULK_FILTER_PATH = "filter_path=took,errors,items.*.status,items.*.error";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final EsConnectionManager connectionManager;
+    private final ExcelToJSONService excelService = new ExcelToJSONService();
+
+    public EsBulkIndexService() {
+        this(EsConnectionManager.getInstance());
+    }
+
+    public EsBulkIndexService(EsConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
+    }
+
+    /**
+     * 源文件格式
+     */
+    public enum SourceFormat {
+        NDJSON, CSV, EXCEL;
+
+        /**
+         * 根据扩展名判断格式，无法识别时按 NDJSON 处理
+         */
+        public static SourceFormat detect(File file) {
+            String name = file.getName().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".xlsx") || name.endsWith(".xls")) {
+                return EXCEL;
+            }
+            return NDJSON;
+        }
+    }
+
+    /**
+     * 批量写入参数
+     */
+    public static class BulkOptions {
+        public static final long DEFAULT_MAX_BATCH_BYTES = 5L * 1024 * 1024;
+        public static final int DEFAULT_MAX_CONCURRENCY = 4;
+        public static final int DEFAULT_MAX_RETRIES = 6;
+        public static final int DEFAULT_MAX_RECORDED_ERRORS = 1000;
+
+        private final File file;
+        private final String index;
+        private SourceFormat format;
+        private String idField;
+        private String sheetName;
+        private boolean hasHeaderRow = true;
+        private long maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+        private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+        private int maxRetries = DEFAULT_MAX_RETRIES;
+        private int maxRecordedErrors = DEFAULT_MAX_RECORDED_ERRORS;
+        private boolean compressRequests = true;
+
+        public BulkOptions(File file, String index) {
+            this.file = file;
+            this.index = index;
+            this.format = SourceFormat.detect(file);
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public String getIndex() {
+            return index;
+        }
+
+        public SourceFormat getFormat() {
+            return format;
+        }
+
+        public void setFormat(SourceFormat format) {
+            this.format = format;
+        }
+
+        public String getIdField() {
+            return idField;
+        }
+
+        /**
+         * 作为文档 _id 的字段，为空时由ES生成ID
+         */
+        public void setIdField(String idField) {
+            this.idField = idField == null || idField.isBlank() ? null : idField.trim();
+        }
+
+        public String getSheetName() {
+            return sheetName;
+        }
+
+        public void setSheetName(String sheetName) {
+            this.sheetName = sheetName;
+        }
+
+        public boolean isHasHeaderRow() {
+            return hasHeaderRow;
+        }
+
+        public void setHasHeaderRow(boolean hasHeaderRow) {
+            this.hasHeaderRow = hasHeaderRow;
+        }
+
+        public long getMaxBatchBytes() {
+            return maxBatchBytes;
+        }
+
+        public void setMaxBatchBytes(long maxBatchBytes) {
+            if (maxBatchBytes < 1024) {
+                throw new IllegalArgumentException("批次大小不能小于1KB");
+            }
+            this.maxBatchBytes = maxBatchBytes;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(int maxConcurrency) {
+            if (maxConcurrency < 1) {
+                throw new IllegalArgumentException("并发数必须大于0");
+            }
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public int getMaxRetries() {
+            return maxRetries;
+        }
+
+        public void setMaxRetries(int maxRetries) {
+            this.maxRetries = Math.max(0, maxRetries);
+        }
+
+        public boolean isCompressRequests() {
+            return compressRequests;
+        }
+
+        /**
+         * 是否以 gzip 压缩 _bulk 请求体（默认开启）
+         */
+        public void setCompressRequests(boolean compressRequests) {
+            this.compressRequests = compressRequests;
+        }
+
+        public int getMaxRecordedErrors() {
+            return maxRecordedErrors;
+        }
+
+        public void setMaxRecordedErrors(int maxRecordedErrors) {
+            this.maxRecordedErrors = Math.max(0, maxRecordedErrors);
+        }
+    }
+
+    /**
+     * 开始批量写入
+     * <p>返回的 future 被取消时停止读取并中止在途请求，已写入的文档不会回滚</p>
+     * @param listener 每完成一个批次回调一次（在网络线程中调用），可为null
+     */
+    public CompletableFuture<BulkResult> importFile(ConnectionInfo conn, BulkOptions options,
+                                                    Consumer<BulkResult> listener) {
+        EsClient client = connectionManager.getClient(conn);
+        BulkJob job = new BulkJob(client, options, listener);
+        job.result.whenComplete((value, error) -> {
+            if (error instanceof CancellationException) {
+                job.cancel();
+            }
+        });
+        connectionManager.getWorkerExecutor().execute(job::run);
+        return job.result;
+    }
+
+    /**
+     * 单个批量写入任务：读取线程负责拼装批次，发送和重试在 HttpClient 的异步线程中完成
+     */
+    private class BulkJob {
+        private final EsClient client;
+        private final BulkOptions options;
+        private final Consumer<BulkResult> listener;
+        private final BulkResult stats;
+        private final AdaptiveConcurrencyGate gate;
+        private final CompletableFuture<BulkResult> result = new CompletableFuture<>();
+        private final List<CompletableFuture<?>> inFlight = Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean cancelled;
+
+        private List<BulkItem> batch = new ArrayList<>();
+        private long batchBytes;
+
+        BulkJob(EsClient client, BulkOptions options, Consumer<BulkResult> listener) {
+            this.client = client;
+            this.options = options;
+            this.listener = listener;
+            this.stats = new BulkResult(options.getMaxRecordedErrors());
+            this.gate = new AdaptiveConcurrencyGate(options.getMaxConcurrency());
+        }
+
+        void run() {
+            if (cancelled) {
+                // 排队期间已取消
+                return;
+            }
+            try {
+                switch (options.getFormat()) {
+                    case CSV -> readCsv();
+                    case EXCEL -> excelService.readRows(options.getFile(), options.getSheetName(),
+                            options.isHasHeaderRow(), (doc, row) -> addDocument(row, doc));
+                    default -> readNdjson();
+                }
+                flush();
+                gate.awaitIdle();
+                stats.finish();
+                result.complete(stats);
+            } catch (StopException e) {
+                // 已取消，result 已处于完成状态
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.cancel(false);
+            } catch (Throwable t) {
+                cancel();
+                result.completeExceptionally(t);
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            gate.close();
+            synchronized (inFlight) {
+                for (CompletableFuture<?> future : inFlight) {
+                    future.cancel(true);
+                }
+            }
+        }
+
+        private void readNdjson() throws IOException {
+            try (BufferedReader reader = Files.newBufferedReader(options.getFile().toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                long lineNo = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNo++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    String id = null;
+                    if (options.getIdField() != null) {
+                        id = objectMapper.readTree(line).path(options.getIdField()).asText(null);
+                    }
+                    addItem(new BulkItem(lineNo, id, actionLine(id), line.getBytes(StandardCharsets.UTF_8)));
+                }
+            }
+        }
+
+        private void readCsv() throws IOException {
+            CsvReadConfig config = CsvReadConfig.defaultConfig().setContainsHeader(options.isHasHeaderRow());
+            try (Reader reader = Files.newBufferedReader(options.getFile().toPath(), StandardCharsets.UTF_8);
+                 CsvReader csvReader = new CsvReader(reader, config)) {
+                for (CsvRow row : csvReader) {
+                    Map<String, Object> doc = new LinkedHashMap<>();
+                    if (options.isHasHeaderRow()) {
+                        doc.putAll(row.getFieldMap());
+                    } else {
+                        List<String> values = row.getRawList();
+                        for (int i = 0; i < values.size(); i++) {
+                            doc.put("Column" + (i + 1), values.get(i));
+                        }
+                    }
+                    addDocument(row.getOriginalLineNumber() + 1, doc);
+                }
+            }
+        }
+
+        private void addDocument(long row, Map<String, Object> doc) {
+            try {
+                String id = null;
+                if (options.getIdField() != null) {
+                    Object value = doc.get(options.getIdField());
+                    id = value == null ? null : String.valueOf(value);
+                }
+                addItem(new BulkItem(row, id, actionLine(id), objectMapper.writeValueAsBytes(doc)));
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }
+
+        private byte[] actionLine(String id) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(48);
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartObject();
+                generator.writeObjectFieldStart("index");
+                if (id != null) {
+                    generator.writeStringField("_id", id);
+                }
+                generator.writeEndObject();
+                generator.writeEndObject();
+            }
+            return out.toByteArray();
+        }
+
+        private void addItem(BulkItem item) {
+            if (cancelled) {
+                throw new StopException();
+            }
+            if (!batch.isEmpty() && batchBytes + item.size() > options.getMaxBatchBytes()) {
+                flush();
+            }
+            batch.add(item);
+            batchBytes += item.size();
+            stats.total.incrementAndGet();
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<BulkItem> items = batch;
+            batch = new ArrayList<>();
+            batchBytes = 0;
+            try {
+                gate.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new StopException();
+            }
+            if (cancelled) {
+                gate.release();
+                throw new StopException();
+            }
+            sendBatch(items, 0).whenComplete((ignored, error) -> {
+                if (error != null && !cancelled) {
+                    logger.warn("批次写入失败: {}", error.getMessage());
+                }
+                gate.release();
+                if (listener != null) {
+                    listener.accept(stats);
+                }
+            });
+        }
+
+        /**
+         * 发送一个批次，429 时整体或部分重试，所有文档都有结果后完成
+         */
+        private CompletableFuture<Void> sendBatch(List<BulkItem> items, int attempt) {
+            byte[] body = buildBody(items);
+            HttpRequest.Builder builder = client.newRequest("/" + options.getIndex() + "/_bulk?" + BULK_FILTER_PATH, 
+                            BULK_TIMEOUT)
+                    .header("Content-Type", "application/x-ndjson");
+            if (options.isCompressRequests() && body.length >= EsCompression.MIN_COMPRESS_BYTES) {
+                body = EsCompression.gzip(body);
+                builder.header("Content-Encoding", "gzip");
+            }
+            HttpRequest request = builder.POST(HttpRequest.BodyPublishers.ofByteArray(body)).build();
+
+            EsRequestTimer timer = client.startTimer("bulk", options.getIndex());
+            CompletableFuture<HttpResponse<EsResponseBody>> future = client.sendAsync(request, BULK_TIMEOUT, timer);
+            inFlight.add(future);
+            return future.handle((response, error) -> {
+                inFlight.remove(future);
+                if (cancelled) {
+                    return CompletableFuture.<Void>completedFuture(null);
+                }
+                if (error != null) {
+                    return retryOrFail(items, attempt, 0, rootMessage(error));
+                }
+                int status = response.statusCode();
+                if (status == 429) {
+                    gate.onThrottled();
+                    return retryOrFail(items, attempt, status, "请求被限流");
+                }
+                if (status >= 300) {
+                    stats.recordFailures(items, status, "bulk_failed", response.body().asString());
+                    return CompletableFuture.<Void>completedFuture(null);
+                }
+                List<BulkItem> rejected;
+                try {
+                    rejected = handleItems(items, response.body(), timer);
+                } catch (IOException e) {
+                    timer.fail(status);
+                    stats.recordFailures(items, status, "parse_error", "无法解析响应: " + e.getMessage());
+                    return CompletableFuture.<Void>completedFuture(null);
+                }
+                timer.complete(items.size(), -1);
+                if (rejected.isEmpty()) {
+                    gate.onSuccess();
+                    return CompletableFuture.<Void>completedFuture(null);
+                }
+                gate.onThrottled();
+                return retryOrFail(rejected, attempt, 429, "文档被限流");
+            }).thenCompose(next -> next);
+        }
+
+        private CompletableFuture<Void> retryOrFail(List<BulkItem> items, int attempt, int status, String reason) {
+            if (attempt >= options.getMaxRetries()) {
+                stats.recordFailures(items, status, "retries_exhausted", reason);
+                return CompletableFuture.completedFuture(null);
+            }
+            stats.retries.incrementAndGet();
+            long delay = backoffMillis(attempt);
+            logger.debug("{} 条文档 {}ms 后重试（第{}次）: {}", items.size(), delay, attempt + 1, reason);
+            return CompletableFuture.runAsync(() -> { },
+                            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                    .thenCompose(ignored -> cancelled
+                            ? CompletableFuture.completedFuture(null)
+                            : sendBatch(items, attempt + 1));
+        }
+
+        /**
+         * 逐条解析 _bulk 响应，返回被429拒绝、需要重试的文档
+         */
+        private List<BulkItem> handleItems(List<BulkItem> items, EsResponseBody body, 
+                                           EsRequestTimer timer) throws IOException {
+            List<BulkItem> rejected = new ArrayList<>();
+            try (JsonParser parser = objectMapper.getFactory().createParser(body.openStream())) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new IOException("响应不是JSON对象");
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken token = parser.nextToken();
+                    if ("took".equals(field)) {
+                        timer.setTookMillis(parser.getValueAsLong(-1));
+                        continue;
+                    }
+                    if ("errors".equals(field) && token == JsonToken.VALUE_FALSE) {
+                        // 全部成功，无需逐条检查
+                        stats.indexed.addAndGet(items.size());
+                        return rejected;
+                    }
+                    if (!"items".equals(field) || token != JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    int position = 0;
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        JsonNode item = objectMapper.<JsonNode>readTree(parser);
+                        JsonNode action = item.elements().hasNext() ? item.elements().next() : item;
+                        if (position >= items.size()) {
+                            break;
+                        }
+                        BulkItem source = items.get(position++);
+                        int status = action.path("status").asInt();
+                        if (status < 300) {
+                            stats.indexed.incrementAndGet();
+                        } else if (status == 429) {
+                            rejected.add(source);
+                        } else {
+                            JsonNode error = action.path("error");
+                            stats.recordFailure(source, status, error.path("type").asText("error"),
+                                    error.path("reason").asText(error.toString()));
+                        }
+                    }
+                }
+            }
+            return rejected;
+        }
+
+        private byte[] buildBody(List<BulkItem> items) {
+            long size = 0;
+            for (BulkItem item : items) {
+                size += item.size();
+            }
+            int capacity;
+            try {
+                capacity = Math.toIntExact(size);
+            } catch (ArithmeticException e) {
+                throw new IllegalStateException("批次请求体过大（" + size + " 字节），无法在一个请求中发送", e);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(capacity);
+            for (BulkItem item : items) {
+                out.writeBytes(item.action);
+                out.write('\n');
+                out.writeBytes(item.source);
+                out.write('\n');
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * 指数退避（含随机抖动，避免多个批次同时重试）
+     */
+    static long backoffMillis(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 16));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    private static String rootMessage(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+
+    /**
+     * 待写入的单条文档
+     */
+    private static class BulkItem {
+        private final long row;
+        private final String id;
+        private final byte[] action;
+        private final byte[] source;
+
+        BulkItem(long row, String id, byte[] action, byte[] source) {
+            this.row = row;
+            this.id = id;
+            this.action = action;
+            this.source = source;
+        }
+
+        long size() {
+            return action.length + source.length + 2L;
+        }
+    }
+
+    /**
+     * 自适应并发闸门（AIMD）
+     * 被限流时并发减半，每个批次成功后按 1/当前并发 缓慢增加，上限为配置的最大并发
+     */
+    static class AdaptiveConcurrencyGate {
+        private final int maxLimit;
+        private double limit;
+        private int inFlight;
+        private boolean closed;
+
+        AdaptiveConcurrencyGate(int maxLimit) {
+            this.maxLimit = maxLimit;
+            this.limit = maxLimit;
+        }
+
+        synchronized void acquire() throws InterruptedException {
+            while (!closed && inFlight >= (int) limit) {
+                wait();
+            }
+            inFlight++;
+        }
+
+        synchronized void release() {
+            inFlight--;
+            notifyAll();
+        }
+
+        synchronized void onSuccess() {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+            notifyAll();
+        }
+
+        synchronized void onThrottled() {
+            limit = Math.max(1.0, limit / 2);
+        }
+
+        /**
+         * 等待所有在途批次完成
+         */
+        synchronized void awaitIdle() throws InterruptedException {
+            while (!closed && inFlight > 0) {
+                wait();
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+
+        synchronized int getLimit() {
+            return (int) limit;
+        }
+    }
+
+    /**
+     * 读取线程在取消后用于跳出读取循环
+     */
+    private static class StopException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        StopException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * 批量写入结果（写入过程中也可读取，用于显示进度）
+     */
+    public static class BulkResult {
+        private final int maxRecordedErrors;
+        private final long startedAt = System.nanoTime();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong indexed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        private final List<ItemError> errors = new ArrayList<>();
+        private volatile long finishedAt;
+
+        BulkResult(int maxRecordedErrors) {
+            this.maxRecordedErrors = maxRecordedErrors;
+        }
+
+        void recordFailure(BulkItem item, int status, String type, String reason) {
+            failed.incrementAndGet();
+            synchronized (errors) {
+                if (errors.size() < maxRecordedErrors) {
+                    errors.add(new ItemError(item.row, item.id, status, type, reason));
+                }
+            }
+        }
+
+        void recordFailures(List<BulkItem> items, int status, String type, String reason) {
+            for (BulkItem item : items) {
+                recordFailure(item, status, type, reason);
+            }
+        }
+
+        void finish() {
+            finishedAt = System.nanoTime();
+        }
+
+        /**
+         * 已读取的文档数
+         */
+        public long getTotal() {
+            return total.get();
+        }
+
+        public long getIndexed() {
+            return indexed.get();
+        }
+
+        public long getFailed() {
+            return failed.get();
+        }
+
+        /**
+         * 已完成（成功或失败）的文档数
+         */
+        public long getCompleted() {
+            return indexed.get() + failed.get();
+        }
+
+        public long getRetries() {
+            return retries.get();
+        }
+
+        /**
+         * 记录的单条错误（最多 maxRecordedErrors 条，失败总数见 {@link #getFailed()}）
+         */
+        public List<ItemError> getErrors() {
+            synchronized (errors) {
+                return new ArrayList<>(errors);
+            }
+        }
+
+        public Duration getElapsed() {
+            long end = finishedAt != 0 ? finishedAt : System.nanoTime();
+            return Duration.ofNanos(end - startedAt);
+        }
+
+        public double getDocsPerSecond() {
+            long millis = Math.max(1, getElapsed().toMillis());
+            return getCompleted() * 1000.0 / millis;
+        }
+    }
+
+    /**
+     * 单条文档的写入错误
+     */
+    public static class ItemError {
+        private final long row;
+        private final String id;
+        private final int status;
+        private final String type;
+        private final String reason;
+
+        ItemError(long row, String id, int status, String type, String reason) {
+            this.row = row;
+            this.id = id;
+            this.status = status;
+            this.type = type;
+            this.reason = reason;
+        }
+
+        /**
+         * 源文件中的行号（从1开始）
+         */
+        public long getRow() {
+            return row;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("第%d行%s [%d %s] %s", row, id == null ? "" : "（_id=" + id + "）",
+                    status, type, reason);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package io.github.lemostic.toolsuite.modules.search.es.service;
+
+import io.github.lemostic.toolsuite.modules.search.es.service.EsQueryService.ConnectionInfo;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 单个ES集群的客户端
+ * 持有该集群共享的HttpClient、预先计算好的认证头、在途请求限流器、元数据缓存和指标登记处，
+ * 由 {@link EsConnectionManager} 统一创建和复用
+ */
+public class EsClient {
+
+    private final String key;
+    private final String baseUrl;
+    private final String authHeader;
+    private final HttpClient httpClient;
+    private final EsRequestLimiter limiter;
+    private final EsMetadataCache metadataCache;
+    private final EsMetricsRegistry metrics;
+
+    EsClient(ConnectionInfo conn, HttpClient httpClient, int maxInFlight, EsMetricsRegistry metrics) {
+        this.key = conn.getKey();
+        this.baseUrl = conn.getBaseUrl();
+        this.authHeader = conn.getAuthHeader();
+        this.httpClient = httpClient;
+        this.limiter = new EsRequestLimiter(maxInFlight);
+        this.metadataCache = new EsMetadataCache();
+        this.metrics = metrics;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    public EsMetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
+    public EsRequestLimiter getLimiter() {
+        return limiter;
+    }
+
+    public EsMetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 开始为一次请求计时，配合 {@link #sendAsync(HttpRequest, Duration, EsRequestTimer)} 使用
+     * @param operation 请求类型，如 search、bulk
+     * @param index 索引，集群级请求传null
+     */
+    public EsRequestTimer startTimer(String operation, String index) {
+        return new EsRequestTimer(metrics, baseUrl, index, operation);
+    }
+
+    /**
+     * 创建指向该集群的请求，已带上认证头，并声明接受压缩响应
+     * @param path 以 / 开头的请求路径（可包含查询参数）
+     * @param timeout 请求超时
+     */
+    public HttpRequest.Builder newRequest(String path, Duration timeout) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .header("Accept-Encoding", EsCompression.ACCEPT_ENCODING);
+        if (authHeader != null) {
+            builder.header("Authorization", authHeader);
+        }
+        return builder;
+    }
+
+    /**
+     * 异步发送请求，响应体按 Content-Encoding 解压后读取
+     * @see #sendAsync(HttpRequest, HttpResponse.BodyHandler, Duration)
+     */
+    public CompletableFuture<HttpResponse<EsResponseBody>> sendAsync(HttpRequest request, Duration timeout) {
+        return sendAsync(request, EsResponseBody.handler(), timeout);
+    }
+
+    /**
+     * 异步发送请求并记录各阶段耗时
+     * <p>请求失败（非2xx或异常）时自动提交失败指标；成功时由调用方解析后调用 {@link EsRequestTimer#complete}</p>
+     */
+    public CompletableFuture<HttpResponse<EsResponseBody>> sendAsync(HttpRequest request, Duration timeout,
+                                                                    EsRequestTimer timer) {
+        CompletableFuture<HttpResponse<EsResponseBody>> sent = limiter.submit(() -> {
+                    timer.markStarted();
+                    return httpClient.sendAsync(request, EsResponseBody.handler(timer));
+                })
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        return cancelling(sent.whenComplete((response, error) -> {
+            if (error != null) {
+                timer.fail(0);
+            } else if (response.statusCode() >= 300) {
+                timer.fail(response.statusCode());
+            }
+        }), sent);
+    }
+
+    /**
+     * 异步发送请求，受在途请求数限制
+     * <p>返回的 future 被取消或超过 timeout 时，底层请求会被中止并释放名额</p>
+     * @param timeout 整个请求（含排队和读取响应体）的超时
+     */
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+                                                           HttpResponse.BodyHandler<T> bodyHandler,
+                                                           Duration timeout) {
+        return limiter.submit(() -> httpClient.sendAsync(request, bodyHandler))
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 取消 dependent 时一并取消 source
+     * <p>CompletableFuture 的取消不会传给上游：取消 thenApply 等返回的 future 只会结束它自己，
+     * 底层请求仍在进行并占着限流名额。在请求 future 上追加处理后，用它把取消传回请求</p>
+     * @return dependent 本身
+     */
+    static <T> CompletableFuture<T> cancelling(CompletableFuture<T> dependent, CompletableFuture<?> source) {
+        return cancelling(dependent, () -> source);
+    }
+
+    /**
+     * 取消 dependent 时一并取消 source 当前返回的 future，用于 thenCompose 等上游会变化的链
+     */
+    static <T> CompletableFuture<T> cancelling(CompletableFuture<T> dependent,
+                                               Supplier<? extends CompletableFuture<?>> source) {
+        dependent.whenComplete((value, error) -> {
+            CompletableFuture<?> upstream = source.get();
+            if (dependent.isCancelled() && upstream != null) {
+                upstream.cancel(true);
+            }
+        });
+        return dependent;
+    }
+}
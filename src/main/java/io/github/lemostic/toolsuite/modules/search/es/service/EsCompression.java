@@ -0,0 +1,68 @@
+package io.github.lemostic.toolsuite.modules.search.es.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * HTTP传输压缩
+ * <p>请求时声明 Accept-Encoding: gzip, deflate，ES（http.compression 默认开启）会压缩响应；
+ * 响应按 Content-Encoding 流式解压后直接交给JSON解析器。较大的请求体（如 _bulk）以 gzip 压缩发送。</p>
+ * <p>ES的HTTP层只支持 gzip/deflate，因此不声明 zstd 等其他编码</p>
+ */
+public final class EsCompression {
+
+    public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    /** 小于该大小的请求体压缩收益不明显，直接发送 */
+    public static final int MIN_COMPRESS_BYTES = 1024;
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private EsCompression() {
+    }
+
+    /**
+     * 按 Content-Encoding 包装解压流，未压缩时原样返回
+     */
+    public static InputStream decode(String contentEncoding, InputStream in) throws IOException {
+        if (contentEncoding == null || contentEncoding.isBlank()) {
+            return in;
+        }
+        switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            case "deflate":
+                return new InflaterInputStream(in, new Inflater(), BUFFER_SIZE);
+            case "identity":
+                return in;
+            default:
+                throw new IOException("不支持的响应编码: " + contentEncoding);
+        }
+    }
+
+    /**
+     * gzip 压缩请求体；压缩级别取最快，换取更高的写入吞吐
+     */
+    public static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, BUFFER_SIZE) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        }) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
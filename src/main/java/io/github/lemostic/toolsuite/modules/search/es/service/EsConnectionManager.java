@@ -0,0 +1,151 @@
+package io.github.lemostic.toolsuite.modules.search.es.service;
+
+import io.github.lemostic.toolsuite.modules.search.es.service.EsQueryService.ConnectionInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.http.HttpClient;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ES连接管理器
+ * 每个集群只保留一个调优过的HttpClient（HTTP/1.1长连接池，可选HTTP/2），
+ * 在所有模块和标签页之间共享，避免重复建立连接
+ */
+public final class EsConnectionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(EsConnectionManager.class);
+
+    /** 空闲长连接保活时间（秒） */
+    private static final String KEEPALIVE_TIMEOUT = "300";
+
+    /** 每个HttpClient的连接池上限 */
+    private static final String CONNECTION_POOL_SIZE = "32";
+
+    /** 每个集群同时在途的请求上限 */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 8;
+
+    static {
+        // JDK HttpClient 的连接池参数只能通过系统属性配置，且需在首次创建客户端前设置
+        if (System.getProperty("jdk.httpclient.keepalive.timeout") == null) {
+            System.setProperty("jdk.httpclient.keepalive.timeout", KEEPALIVE_TIMEOUT);
+        }
+        if (System.getProperty("jdk.httpclient.connectionPoolSize") == null) {
+            System.setProperty("jdk.httpclient.connectionPoolSize", CONNECTION_POOL_SIZE);
+        }
+    }
+
+    private static final EsConnectionManager INSTANCE = new EsConnectionManager();
+
+    private final ConcurrentMap<String, EsClient> clients = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    private final ExecutorService workerExecutor;
+    private final ExecutorService diskExecutor;
+    private final EsQueryResultCache resultCache;
+    private final EsMetricsRegistry metrics;
+
+    private EsConnectionManager() {
+        int threads = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+        this.executor = Executors.newFixedThreadPool(threads, daemonThreadFactory("es-http-"));
+        // 导出、批量写入、索引比对等长任务使用独立的有界线程池，不占用HttpClient的执行线程，超出时排队
+        this.workerExecutor = Executors.newFixedThreadPool(4, daemonThreadFactory("es-worker-"));
+        // 结果缓存的磁盘读写很短，单独使用线程池，不会排在导出等长任务之后
+        this.diskExecutor = Executors.newFixedThreadPool(2, daemonThreadFactory("es-disk-"));
+        this.resultCache = new EsQueryResultCache(diskExecutor);
+        this.metrics = new EsMetricsRegistry();
+    }
+
+    public static EsConnectionManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 获取集群对应的客户端，不存在时创建
+     */
+    public EsClient getClient(ConnectionInfo conn) {
+        return clients.computeIfAbsent(conn.getKey(), key -> {
+            logger.info("创建ES客户端: {} (HTTP/{})", conn.getBaseUrl(), conn.isUseHttp2() ? "2" : "1.1");
+            return new EsClient(conn, createHttpClient(conn), DEFAULT_MAX_IN_FLIGHT, metrics);
+        });
+    }
+
+    /**
+     * 移除集群对应的客户端，后续调用会重新建立连接
+     */
+    public void release(ConnectionInfo conn) {
+        EsClient removed = clients.remove(conn.getKey());
+        if (removed != null) {
+            logger.info("已释放ES客户端: {}", removed.getBaseUrl());
+        }
+    }
+
+    /**
+     * 长任务（导出文件、批量写入、索引比对）使用的有界线程池
+     */
+    public ExecutorService getWorkerExecutor() {
+        return workerExecutor;
+    }
+
+    /**
+     * 结果缓存磁盘读写使用的线程池
+     */
+    public ExecutorService getDiskExecutor() {
+        return diskExecutor;
+    }
+
+    /**
+     * 所有集群共享的查询结果缓存
+     */
+    public EsQueryResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * 所有集群共享的请求指标登记处
+     */
+    public EsMetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 开启或关闭查询结果的磁盘溢出（使用默认位置的H2数据库）
+     */
+    public synchronized void setResultDiskCacheEnabled(boolean enabled) throws SQLException {
+        if (enabled == resultCache.isDiskStoreEnabled()) {
+            return;
+        }
+        resultCache.setDiskStore(enabled ? new EsResultDiskStore(EsResultDiskStore.defaultLocation()) : null);
+    }
+
+    /**
+     * 当前缓存的客户端数量
+     */
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    private HttpClient createHttpClient(ConnectionInfo conn) {
+        return HttpClient.newBuilder()
+                .version(conn.isUseHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+    }
+
+    static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,180 @@
+package io.github.lemostic.toolsuite.modules.search.es.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 文档展开工具
+ * 直接从JSON流中读取 _source，把嵌套对象展开为点号分隔的列（如 user.address.city），
+ * 只提取选中的字段路径，未选中的子树直接跳过，不构建中间对象树。
+ * 数组中的值会合并为一个 List
+ */
+public class EsHitFlattener {
+
+    private static final EsHitFlattener ALL = new EsHitFlattener(null);
+
+    /** 选中的字段路径，null 表示全部 */
+    private final Set<String> selectedPaths;
+
+    /** 选中路径的所有上级路径，用于决定是否继续深入 */
+    private final Set<String> ancestorPaths;
+
+    public EsHitFlattener(Collection<String> selectedPaths) {
+        if (selectedPaths == null || selectedPaths.isEmpty()) {
+            this.selectedPaths = null;
+            this.ancestorPaths = null;
+        } else {
+            this.selectedPaths = new HashSet<>(selectedPaths);
+            this.ancestorPaths = new HashSet<>();
+            for (String path : selectedPaths) {
+                int dot = path.lastIndexOf('.');
+                while (dot > 0) {
+                    path = path.substring(0, dot);
+                    ancestorPaths.add(path);
+                    dot = path.lastIndexOf('.');
+                }
+            }
+        }
+    }
+
+    /**
+     * 提取全部字段
+     */
+    public static EsHitFlattener all() {
+        return ALL;
+    }
+
+    /**
+     * 读取解析器当前所在的对象（当前 token 需为 START_OBJECT），结束时停在对应的 END_OBJECT 上
+     */
+    public void flatten(JsonParser parser, Map<String, Object> target) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        readObject(parser, "", target, false);
+    }
+
+    private void readObject(JsonParser parser, String prefix, Map<String, Object> target,
+                            boolean inArray) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            String path = prefix.isEmpty() ? name : prefix + "." + name;
+            JsonToken token = parser.nextToken();
+
+            if (!isWanted(path)) {
+                parser.skipChildren();
+                continue;
+            }
+
+            if (token == JsonToken.START_OBJECT) {
+                readObject(parser, path, target, inArray);
+            } else if (token == JsonToken.START_ARRAY) {
+                readArray(parser, path, target);
+            } else if (isSelected(path)) {
+                put(target, path, readScalar(parser), inArray);
+            }
+        }
+    }
+
+    private void readArray(JsonParser parser, String path, Map<String, Object> target) throws IOException {
+        if (!target.containsKey(path) && isSelected(path)) {
+            target.put(path, new ArrayList<>());
+        }
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT) {
+                readObject(parser, path, target, true);
+            } else if (token == JsonToken.START_ARRAY) {
+                readArray(parser, path, target);
+            } else if (isSelected(path)) {
+                put(target, path, readScalar(parser), true);
+            }
+        }
+        // 对象数组展开后，数组本身不作为一列
+        Object value = target.get(path);
+        if (value instanceof List<?> list && list.isEmpty() && hasChildColumn(target, path)) {
+            target.remove(path);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void put(Map<String, Object> target, String path, Object value, boolean inArray) {
+        if (!inArray) {
+            target.put(path, value);
+            return;
+        }
+        Object existing = target.get(path);
+        if (existing instanceof List) {
+            ((List<Object>) existing).add(value);
+        } else {
+            List<Object> list = new ArrayList<>();
+            if (existing != null || target.containsKey(path)) {
+                list.add(existing);
+            }
+            list.add(value);
+            target.put(path, list);
+        }
+    }
+
+    private Object readScalar(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                return parser.getText();
+        }
+    }
+
+    private boolean hasChildColumn(Map<String, Object> target, String path) {
+        String childPrefix = path + ".";
+        for (String key : target.keySet()) {
+            if (key.startsWith(childPrefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 路径本身、其上级或其下级被选中时需要读取
+     */
+    private boolean isWanted(String path) {
+        return selectedPaths == null || ancestorPaths.contains(path) || isSelected(path);
+    }
+
+    /**
+     * 路径本身或其上级被选中时输出该值
+     */
+    private boolean isSelected(String path) {
+        if (selectedPaths == null || selectedPaths.contains(path)) {
+            return true;
+        }
+        int dot = path.lastIndexOf('.');
+        while (dot > 0) {
+            path = path.substring(0, dot);
+            if (selectedPaths.contains(path)) {
+                return true;
+            }
+            dot = path.lastIndexOf('.');
+        }
+        return false;
+    }
+}
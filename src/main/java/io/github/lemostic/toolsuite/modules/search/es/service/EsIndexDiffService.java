@@ -0,0 +1,777 @@
+package io.github.lemostic.toolsuite.modules.search.es.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.github.lemostic.toolsuite.modules.search.es.service.EsQueryService.ConnectionInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 索引比对服务
+ * <p>用 PIT + search_after 按键字段（默认 _id）升序同时遍历两个索引（可以在不同集群），
+ * 归并比较得到新增、删除和内容有变化的文档：</p>
+ * <ul>
+ *     <li>每个文档的 _source 按字段名排序后计算 SHA-256，比较摘要而不保留文档内容</li>
+ *     <li>两侧各只在内存中保留当前页和预读的下一页，内存占用与索引大小无关</li>
+ *     <li>可选输出差异的 _bulk NDJSON：对源索引执行后即与目标索引一致</li>
+ * </ul>
+ * <p>ES 8 默认禁止按 _id 排序（indices.id_field_data.enabled），此时需要指定一个与 _id 取值相同的
+ * keyword 字段作为键。键必须唯一，缺少键的文档计入“跳过”。需要 ES 7.12 及以上版本（_shard_doc 排序）</p>
+ */
+public class EsIndexDiffService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EsIndexDiffService.class);
+
+    private static final String KEEP_ALIVE = "5m";
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final EsConnectionManager connectionManager;
+
+    public EsIndexDiffService() {
+        this(EsConnectionManager.getInstance());
+    }
+
+    public EsIndexDiffService(EsConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
+    }
+
+    /**
+     * 差异类型，以源索引为基准
+     */
+    public enum DiffType {
+        /** 只在目标索引中存在 */
+        ADDED,
+        /** 只在源索引中存在 */
+        REMOVED,
+        /** 两侧都存在但内容不同 */
+        CHANGED
+    }
+
+    /**
+     * 比对参数
+     */
+    public static class DiffOptions {
+        public static final int DEFAULT_PAGE_SIZE = 1000;
+        public static final int DEFAULT_MAX_RECORDED_DIFFS = 1000;
+
+        private final ConnectionInfo sourceConnection;
+        private final String sourceIndex;
+        private final ConnectionInfo targetConnection;
+        private final String targetIndex;
+        private String keyField = "_id";
+        private String queryJson;
+        private Set<String> excludedFields = Collections.emptySet();
+        private int pageSize = DEFAULT_PAGE_SIZE;
+        private File deltaFile;
+        private int maxRecordedDiffs = DEFAULT_MAX_RECORDED_DIFFS;
+
+        public DiffOptions(ConnectionInfo sourceConnection, String sourceIndex,
+                           ConnectionInfo targetConnection, String targetIndex) {
+            this.sourceConnection = sourceConnection;
+            this.sourceIndex = sourceIndex;
+            this.targetConnection = targetConnection == null ? sourceConnection : targetConnection;
+            this.targetIndex = targetIndex;
+        }
+
+        public ConnectionInfo getSourceConnection() {
+            return sourceConnection;
+        }
+
+        public String getSourceIndex() {
+            return sourceIndex;
+        }
+
+        public ConnectionInfo getTargetConnection() {
+            return targetConnection;
+        }
+
+        public String getTargetIndex() {
+            return targetIndex;
+        }
+
+        public String getKeyField() {
+            return keyField;
+        }
+
+        /**
+         * 排序和匹配使用的键字段，默认 _id；字段必须可排序（keyword、数值等）且在索引内唯一
+         */
+        public void setKeyField(String keyField) {
+            this.keyField = keyField == null || keyField.isBlank() ? "_id" : keyField.trim();
+        }
+
+        public String getQueryJson() {
+            return queryJson;
+        }
+
+        /**
+         * 两侧共用的过滤条件（只使用其中的 query），为空时比较全部文档
+         */
+        public void setQueryJson(String queryJson) {
+            this.queryJson = queryJson;
+        }
+
+        public Set<String> getExcludedFields() {
+            return excludedFields;
+        }
+
+        /**
+         * 计算摘要时忽略的字段（点号分隔的路径），如迁移时会变化的时间戳
+         */
+        public void setExcludedFields(Collection<String> excludedFields) {
+            this.excludedFields = excludedFields == null ? Collections.emptySet() : new HashSet<>(excludedFields);
+        }
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(int pageSize) {
+            this.pageSize = Math.max(1, Math.min(10_000, pageSize));
+        }
+
+        public File getDeltaFile() {
+            return deltaFile;
+        }
+
+        /**
+         * 差异输出文件，为null时不输出
+         */
+        public void setDeltaFile(File deltaFile) {
+            this.deltaFile = deltaFile;
+        }
+
+        public int getMaxRecordedDiffs() {
+            return maxRecordedDiffs;
+        }
+
+        public void setMaxRecordedDiffs(int maxRecordedDiffs) {
+            this.maxRecordedDiffs = Math.max(0, maxRecordedDiffs);
+        }
+    }
+
+    /**
+     * 开始比对
+     * <p>返回的 future 被取消时停止读取并关闭两侧的PIT</p>
+     * @param listener 每处理完一页回调一次（在比对线程中调用），可为null
+     */
+    public CompletableFuture<DiffResult> compare(DiffOptions options, Consumer<DiffResult> listener) {
+        DiffJob job;
+        try {
+            job = new DiffJob(options, listener);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        job.result.whenComplete((value, error) -> {
+            if (error instanceof CancellationException) {
+                job.cancel();
+            }
+        });
+        connectionManager.getWorkerExecutor().execute(job::run);
+        return job.result;
+    }
+
+    private class DiffJob {
+        private final DiffOptions options;
+        private final Consumer<DiffResult> listener;
+        private final DiffResult stats;
+        private final CompletableFuture<DiffResult> result = new CompletableFuture<>();
+        private final IndexCursor source;
+        private final IndexCursor target;
+        private volatile boolean cancelled;
+        private Writer delta;
+
+        DiffJob(DiffOptions options, Consumer<DiffResult> listener) {
+            this.options = options;
+            this.listener = listener;
+            this.stats = new DiffResult(options.getMaxRecordedDiffs());
+            boolean keepSource = options.getDeltaFile() != null;
+            this.source = new IndexCursor(connectionManager.getClient(options.getSourceConnection()),
+                    options.getSourceIndex(), options, false, stats.sourceDocs);
+            this.target = new IndexCursor(connectionManager.getClient(options.getTargetConnection()),
+                    options.getTargetIndex(), options, keepSource, stats.targetDocs);
+        }
+
+        void run() {
+            if (cancelled) {
+                // 排队期间已取消
+                return;
+            }
+            try {
+                CompletableFuture.allOf(source.open(), target.open()).join();
+                if (options.getDeltaFile() != null) {
+                    delta = Files.newBufferedWriter(options.getDeltaFile().toPath(), StandardCharsets.UTF_8);
+                }
+                merge();
+                if (delta != null) {
+                    delta.close();
+                    delta = null;
+                }
+                stats.finish();
+                result.complete(stats);
+            } catch (CancellationException e) {
+                // 已取消
+            } catch (Throwable t) {
+                if (!cancelled) {
+                    result.completeExceptionally(t instanceof CompletionException && t.getCause() != null
+                            ? t.getCause() : t);
+                }
+            } finally {
+                closeQuietly();
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            source.cancel();
+            target.cancel();
+        }
+
+        /**
+         * 两侧均按键升序，逐条归并
+         */
+        private void merge() throws IOException {
+            Doc left = nextDoc(source);
+            Doc right = nextDoc(target);
+            while (left != null || right != null) {
+                if (cancelled) {
+                    throw new CancellationException();
+                }
+                int c = left == null ? 1 : right == null ? -1 : compareKeys(left.key, right.key);
+                if (c < 0) {
+                    record(DiffType.REMOVED, left);
+                    left = nextDoc(source);
+                } else if (c > 0) {
+                    record(DiffType.ADDED, right);
+                    right = nextDoc(target);
+                } else {
+                    if (Arrays.equals(left.hash, right.hash)) {
+                        stats.unchanged.incrementAndGet();
+                    } else {
+                        record(DiffType.CHANGED, right);
+                    }
+                    left = nextDoc(source);
+                    right = nextDoc(target);
+                }
+            }
+        }
+
+        private Doc nextDoc(IndexCursor cursor) {
+            while (true) {
+                Doc doc = cursor.next();
+                if (doc == null) {
+                    return null;
+                }
+                if (cursor.isPageBoundary() && listener != null) {
+                    listener.accept(stats);
+                }
+                if (doc.key != null && !doc.key.isNull()) {
+                    return doc;
+                }
+                stats.skipped.incrementAndGet();
+            }
+        }
+
+        private void record(DiffType type, Doc doc) throws IOException {
+            switch (type) {
+                case ADDED -> stats.added.incrementAndGet();
+                case REMOVED -> stats.removed.incrementAndGet();
+                default -> stats.changed.incrementAndGet();
+            }
+            stats.addEntry(new DiffEntry(type, doc.key.asText(), doc.id));
+            if (delta == null) {
+                return;
+            }
+            // 不写索引名，文件可直接提交到 /{源索引}/_bulk
+            ObjectNode action = objectMapper.createObjectNode();
+            action.putObject(type == DiffType.REMOVED ? "delete" : "index").put("_id", doc.id);
+            delta.write(objectMapper.writeValueAsString(action));
+            delta.write('\n');
+            if (type != DiffType.REMOVED) {
+                delta.write(objectMapper.writeValueAsString(doc.source));
+                delta.write('\n');
+            }
+        }
+
+        private void closeQuietly() {
+            source.close();
+            target.close();
+            if (delta != null) {
+                try {
+                    delta.close();
+                } catch (IOException e) {
+                    logger.warn("关闭差异文件失败: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 按键顺序遍历一个索引，读取当前页的同时预读下一页
+     */
+    private class IndexCursor {
+        private final EsClient client;
+        private final String index;
+        private final DiffOptions options;
+        private final boolean keepSource;
+        private final AtomicLong counter;
+        private final ObjectNode baseQuery;
+        private volatile String pitId;
+        private volatile CompletableFuture<?> opening;
+        private volatile CompletableFuture<Page> pending;
+        private volatile boolean cancelled;
+        private Page page;
+        private int position;
+
+        IndexCursor(EsClient client, String index, DiffOptions options, boolean keepSource, AtomicLong counter) {
+            this.client = client;
+            this.index = index;
+            this.options = options;
+            this.keepSource = keepSource;
+            this.counter = counter;
+            this.baseQuery = buildQuery(options);
+        }
+
+        CompletableFuture<Void> open() {
+            HttpRequest request = client.newRequest("/" + index + "/_pit?keep_alive=" + KEEP_ALIVE, TIMEOUT)
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            CompletableFuture<HttpResponse<EsResponseBody>> sent = client.sendAsync(request, TIMEOUT);
+            CompletableFuture<Void> opened = EsClient.cancelling(sent.thenAccept(response -> {
+                if (response.statusCode() != 200) {
+                    throw new CompletionException(new IOException("无法在 " + index
+                            + " 上创建PIT（需要ES 7.12及以上版本）: " + response.statusCode()
+                            + " - " + response.body().asString()));
+                }
+                try {
+                    pitId = objectMapper.readTree(response.body().openStream()).path("id").asText();
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+                pending = fetch(null);
+            }), sent);
+            opening = opened;
+            if (cancelled) {
+                opened.cancel(true);
+            }
+            return opened;
+        }
+
+        /**
+         * 下一条文档，没有更多时返回null；只在比对线程中调用
+         */
+        Doc next() {
+            while (page == null || position >= page.docs.size()) {
+                if (page != null && page.last) {
+                    return null;
+                }
+                page = pending.join();
+                position = 0;
+                // 处理当前页的同时读取下一页
+                pending = page.last ? null : fetch(page.lastSort);
+                counter.addAndGet(page.docs.size());
+            }
+            return page.docs.get(position++);
+        }
+
+        /**
+         * 刚取出的文档是否为一页的第一条
+         */
+        boolean isPageBoundary() {
+            return position == 1;
+        }
+
+        /**
+         * 中止正在执行的请求（创建PIT或预读），释放占用的并发名额
+         */
+        void cancel() {
+            cancelled = true;
+            CompletableFuture<?> open = opening;
+            if (open != null) {
+                open.cancel(true);
+            }
+            CompletableFuture<Page> future = pending;
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+
+        void close() {
+            String id = pitId;
+            if (id == null) {
+                return;
+            }
+            pitId = null;
+            ObjectNode body = objectMapper.createObjectNode().put("id", id);
+            HttpRequest request = client.newRequest("/_pit", TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .method("DELETE", HttpRequest.BodyPublishers.ofString(body.toString()))
+                    .build();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding(), TIMEOUT)
+                    .whenComplete((response, error) -> {
+                        if (error != null) {
+                            logger.debug("关闭PIT失败: {}", error.getMessage());
+                        }
+                    });
+        }
+
+        private CompletableFuture<Page> fetch(JsonNode searchAfter) {
+            ObjectNode body = baseQuery.deepCopy();
+            body.putObject("pit").put("id", pitId).put("keep_alive", KEEP_ALIVE);
+            if (searchAfter != null) {
+                body.set("search_after", searchAfter);
+            }
+            HttpRequest request = client.newRequest("/_search?filter_path=took,pit_id,hits.hits._id,hits.hits._source,hits.hits.sort",
+                            TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                    .build();
+            EsRequestTimer timer = client.startTimer("diff", index);
+            CompletableFuture<HttpResponse<EsResponseBody>> sent = client.sendAsync(request, TIMEOUT, timer);
+            CompletableFuture<Page> fetched = EsClient.cancelling(sent.thenApply(response -> {
+                if (response.statusCode() != 200) {
+                    String error = response.body().asString();
+                    if (error.contains("id_field_data")) {
+                        throw new CompletionException(new IOException(
+                                "集群禁止按 _id 排序，请指定一个与 _id 相同的 keyword 字段作为键: " + index));
+                    }
+                    throw new CompletionException(new IOException(
+                            "读取 " + index + " 失败: " + response.statusCode() + " - " + error));
+                }
+                try (JsonParser parser = objectMapper.getFactory().createParser(response.body().openStream())) {
+                    Page result = parsePage(parser, timer);
+                    timer.complete(result.docs.size(), -1);
+                    return result;
+                } catch (IOException e) {
+                    timer.fail(response.statusCode());
+                    throw new CompletionException(e);
+                }
+            }), sent);
+            if (cancelled) {
+                fetched.cancel(true);
+            }
+            return fetched;
+        }
+
+        private Page parsePage(JsonParser parser, EsRequestTimer timer) throws IOException {
+            List<Doc> docs = new ArrayList<>(options.getPageSize());
+            JsonNode lastSort = null;
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("无法解析查询响应");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("took".equals(field)) {
+                    timer.setTookMillis(parser.getValueAsLong(-1));
+                } else if ("pit_id".equals(field)) {
+                    pitId = parser.getText();
+                } else if ("hits".equals(field) && token == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        token = parser.nextToken();
+                        if (!"hits".equals(parser.currentName()) || token != JsonToken.START_ARRAY) {
+                            parser.skipChildren();
+                            continue;
+                        }
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            String id = null;
+                            JsonNode sort = null;
+                            JsonNode source = null;
+                            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                                String hitField = parser.currentName();
+                                parser.nextToken();
+                                switch (hitField) {
+                                    case "_id" -> id = parser.getText();
+                                    case "sort" -> sort = objectMapper.readTree(parser);
+                                    case "_source" -> source = objectMapper.readTree(parser);
+                                    default -> parser.skipChildren();
+                                }
+                            }
+                            lastSort = sort;
+                            JsonNode key = sort != null && sort.size() > 0 ? sort.get(0) : null;
+                            docs.add(new Doc(key, id, hash(source), keepSource ? source : null));
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return new Page(docs, lastSort, docs.size() < options.getPageSize() || lastSort == null);
+        }
+
+        private byte[] hash(JsonNode source) {
+            MessageDigest digest = newDigest();
+            if (source != null) {
+                updateDigest(digest, source, "", options.getExcludedFields());
+            }
+            return digest.digest();
+        }
+    }
+
+    private ObjectNode buildQuery(DiffOptions options) {
+        ObjectNode body = objectMapper.createObjectNode();
+        JsonNode query = null;
+        if (options.getQueryJson() != null && !options.getQueryJson().isBlank()) {
+            try {
+                query = objectMapper.readTree(options.getQueryJson()).get("query");
+            } catch (IOException e) {
+                throw new IllegalArgumentException("查询JSON格式错误: " + e.getMessage(), e);
+            }
+        }
+        if (query != null) {
+            body.set("query", query);
+        } else {
+            body.putObject("query").putObject("match_all");
+        }
+        body.put("size", options.getPageSize());
+        body.put("track_total_hits", false);
+        ArrayNode sort = body.putArray("sort");
+        sort.addObject().put(options.getKeyField(), "asc");
+        sort.addObject().put("_shard_doc", "asc");
+        return body;
+    }
+
+    /**
+     * 比较两侧的键：数值按数值比较，其余按 Unicode 码点比较（与ES对 keyword 的排序一致）
+     */
+    static int compareKeys(JsonNode a, JsonNode b) {
+        if (a.isNumber() && b.isNumber()) {
+            return a.decimalValue().compareTo(b.decimalValue());
+        }
+        String x = a.asText();
+        String y = b.asText();
+        int i = 0;
+        int j = 0;
+        while (i < x.length() && j < y.length()) {
+            int cx = x.codePointAt(i);
+            int cy = y.codePointAt(j);
+            if (cx != cy) {
+                return Integer.compare(cx, cy);
+            }
+            i += Character.charCount(cx);
+            j += Character.charCount(cy);
+        }
+        return Integer.compare(x.length() - i, y.length() - j);
+    }
+
+    /**
+     * 以与字段顺序无关的方式计算摘要：对象按字段名排序，数值按规范化的十进制表示
+     */
+    static void updateDigest(MessageDigest digest, JsonNode node, String path, Set<String> excluded) {
+        if (node.isObject()) {
+            List<String> names = new ArrayList<>(node.size());
+            node.fieldNames().forEachRemaining(names::add);
+            Collections.sort(names);
+            digest.update((byte) '{');
+            for (String name : names) {
+                String childPath = path.isEmpty() ? name : path + "." + name;
+                if (excluded.contains(childPath)) {
+                    continue;
+                }
+                digest.update(name.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) ':');
+                updateDigest(digest, node.get(name), childPath, excluded);
+            }
+            digest.update((byte) '}');
+        } else if (node.isArray()) {
+            digest.update((byte) '[');
+            Iterator<JsonNode> elements = node.elements();
+            while (elements.hasNext()) {
+                updateDigest(digest, elements.next(), path, excluded);
+                digest.update((byte) ',');
+            }
+            digest.update((byte) ']');
+        } else if (node.isNumber()) {
+            digest.update((byte) 'n');
+            digest.update(node.decimalValue().stripTrailingZeros().toPlainString().getBytes(StandardCharsets.UTF_8));
+        } else if (node.isNull()) {
+            digest.update((byte) '0');
+        } else {
+            digest.update(node.isBoolean() ? (byte) 'b' : (byte) 's');
+            byte[] text = node.asText().getBytes(StandardCharsets.UTF_8);
+            digest.update(Integer.toString(text.length).getBytes(StandardCharsets.US_ASCII));
+            digest.update((byte) '"');
+            digest.update(text);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Doc {
+        private final JsonNode key;
+        private final String id;
+        private final byte[] hash;
+        private final JsonNode source;
+
+        Doc(JsonNode key, String id, byte[] hash, JsonNode source) {
+            this.key = key;
+            this.id = id;
+            this.hash = hash;
+            this.source = source;
+        }
+    }
+
+    private static class Page {
+        private final List<Doc> docs;
+        private final JsonNode lastSort;
+        private final boolean last;
+
+        Page(List<Doc> docs, JsonNode lastSort, boolean last) {
+            this.docs = docs;
+            this.lastSort = lastSort;
+            this.last = last;
+        }
+    }
+
+    /**
+     * 单条差异
+     */
+    public static class DiffEntry {
+        private final DiffType type;
+        private final String key;
+        private final String id;
+
+        public DiffEntry(DiffType type, String key, String id) {
+            this.type = type;
+            this.key = key;
+            this.id = id;
+        }
+
+        public DiffType getType() {
+            return type;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String toString() {
+            return type + " " + (key.equals(id) ? id : key + " (_id=" + id + ")");
+        }
+    }
+
+    /**
+     * 比对进度与结果，计数在比对过程中持续更新
+     */
+    public static class DiffResult {
+        private final AtomicLong sourceDocs = new AtomicLong();
+        private final AtomicLong targetDocs = new AtomicLong();
+        private final AtomicLong added = new AtomicLong();
+        private final AtomicLong removed = new AtomicLong();
+        private final AtomicLong changed = new AtomicLong();
+        private final AtomicLong unchanged = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final List<DiffEntry> entries = Collections.synchronizedList(new ArrayList<>());
+        private final int maxEntries;
+        private final long startedAt = System.nanoTime();
+        private volatile long finishedAt;
+
+        DiffResult(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        private void addEntry(DiffEntry entry) {
+            if (entries.size() < maxEntries) {
+                entries.add(entry);
+            }
+        }
+
+        private void finish() {
+            finishedAt = System.nanoTime();
+        }
+
+        public long getSourceDocs() {
+            return sourceDocs.get();
+        }
+
+        public long getTargetDocs() {
+            return targetDocs.get();
+        }
+
+        public long getAdded() {
+            return added.get();
+        }
+
+        public long getRemoved() {
+            return removed.get();
+        }
+
+        public long getChanged() {
+            return changed.get();
+        }
+
+        public long getUnchanged() {
+            return unchanged.get();
+        }
+
+        /**
+         * 缺少键字段而未参与比较的文档数
+         */
+        public long getSkipped() {
+            return skipped.get();
+        }
+
+        public long getDifferences() {
+            return getAdded() + getRemoved() + getChanged();
+        }
+
+        /**
+         * 记录的差异明细，最多 maxRecordedDiffs 条
+         */
+        public List<DiffEntry> getEntries() {
+            synchronized (entries) {
+                return new ArrayList<>(entries);
+            }
+        }
+
+        public Duration getElapsed() {
+            long end = finishedAt == 0 ? System.nanoTime() : finishedAt;
+            return Duration.ofNanos(end - startedAt);
+        }
+
+        public double getDocsPerSecond() {
+            double seconds = getElapsed().toNanos() / 1e9;
+            return seconds <= 0 ? 0 : (getSourceDocs() + getTargetDocs()) / seconds;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package io.github.lemostic.toolsuite.modules.search.es.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * 滚动时间窗口的延迟直方图
+ * <p>窗口被切成若干时间片，每个时间片保存一份按对数分桶（相邻桶上界相差25%）的计数，
+ * 以及各阶段耗时、字节数等累计值；过期的时间片在被复用时清零。
+ * 记录为 O(1)，内存固定，统计时合并窗口内的时间片</p>
+ */
+public class EsLatencyHistogram {
+
+    private static final double BUCKET_RATIO = 1.25;
+    /** 1.25^64 ≈ 1.6e6 ms，足以覆盖所有请求超时 */
+    private static final int BUCKET_COUNT = 64;
+    private static final double LOG_RATIO = Math.log(BUCKET_RATIO);
+
+    private final long slotNanos;
+    private final Slot[] slots;
+
+    public EsLatencyHistogram(Duration window, int slotCount) {
+        this.slotNanos = Math.max(1, window.toNanos() / slotCount);
+        this.slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    public synchronized void record(EsRequestMetrics metrics) {
+        long epoch = System.nanoTime() / slotNanos;
+        Slot slot = slots[(int) Math.floorMod(epoch, (long) slots.length)];
+        if (slot.epoch != epoch) {
+            slot.reset(epoch);
+        }
+        double total = metrics.getTotalMillis();
+        slot.buckets[bucketOf(total)]++;
+        slot.count++;
+        if (metrics.isFailed()) {
+            slot.failed++;
+        }
+        slot.totalMillis += total;
+        slot.maxMillis = Math.max(slot.maxMillis, total);
+        slot.queueMillis += metrics.getQueueMillis();
+        slot.ttfbMillis += metrics.getTtfbMillis();
+        slot.downloadMillis += metrics.getDownloadMillis();
+        slot.parseMillis += metrics.getParseMillis();
+        slot.wireBytes += metrics.getWireBytes();
+        slot.hits += metrics.getHits();
+        if (metrics.getTookMillis() >= 0) {
+            slot.tookMillis += metrics.getTookMillis();
+            slot.tookCount++;
+        }
+    }
+
+    /**
+     * 合并窗口内的时间片
+     */
+    public synchronized Stats snapshot() {
+        long current = System.nanoTime() / slotNanos;
+        long[] buckets = new long[BUCKET_COUNT];
+        Stats stats = new Stats();
+        for (Slot slot : slots) {
+            if (slot.count == 0 || current - slot.epoch >= slots.length) {
+                continue;
+            }
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets[i] += slot.buckets[i];
+            }
+            stats.count += slot.count;
+            stats.failed += slot.failed;
+            stats.totalMillis += slot.totalMillis;
+            stats.maxMillis = Math.max(stats.maxMillis, slot.maxMillis);
+            stats.queueMillis += slot.queueMillis;
+            stats.ttfbMillis += slot.ttfbMillis;
+            stats.downloadMillis += slot.downloadMillis;
+            stats.parseMillis += slot.parseMillis;
+            stats.wireBytes += slot.wireBytes;
+            stats.hits += slot.hits;
+            stats.tookMillis += slot.tookMillis;
+            stats.tookCount += slot.tookCount;
+        }
+        stats.p50 = percentile(buckets, stats.count, 0.50, stats.maxMillis);
+        stats.p90 = percentile(buckets, stats.count, 0.90, stats.maxMillis);
+        stats.p99 = percentile(buckets, stats.count, 0.99, stats.maxMillis);
+        return stats;
+    }
+
+    static int bucketOf(double millis) {
+        if (millis <= 1) {
+            return 0;
+        }
+        return Math.min(BUCKET_COUNT - 1, (int) Math.ceil(Math.log(millis) / LOG_RATIO));
+    }
+
+    /**
+     * 取所在桶的上界（不超过实际最大值），相对误差不超过25%
+     */
+    private static double percentile(long[] buckets, long count, double quantile, double max) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(max, Math.pow(BUCKET_RATIO, i));
+            }
+        }
+        return max;
+    }
+
+    private static class Slot {
+        private long epoch = Long.MIN_VALUE;
+        private final long[] buckets = new long[BUCKET_COUNT];
+        private long count;
+        private long failed;
+        private double totalMillis;
+        private double maxMillis;
+        private double queueMillis;
+        private double ttfbMillis;
+        private double downloadMillis;
+        private double parseMillis;
+        private long wireBytes;
+        private long hits;
+        private long tookMillis;
+        private long tookCount;
+
+        void reset(long epoch) {
+            this.epoch = epoch;
+            Arrays.fill(buckets, 0);
+            count = failed = wireBytes = hits = tookMillis = tookCount = 0;
+            totalMillis = maxMillis = queueMillis = ttfbMillis = downloadMillis = parseMillis = 0;
+        }
+    }
+
+    /**
+     * 窗口统计结果
+     */
+    public static class Stats {
+        private long count;
+        private long failed;
+        private double totalMillis;
+        private double maxMillis;
+        private double queueMillis;
+        private double ttfbMillis;
+        private double downloadMillis;
+        private double parseMillis;
+        private long wireBytes;
+        private long hits;
+        private long tookMillis;
+        private long tookCount;
+        private double p50;
+        private double p90;
+        private double p99;
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public double getP50() {
+            return p50;
+        }
+
+        public double getP90() {
+            return p90;
+        }
+
+        public double getP99() {
+            return p99;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+
+        public double getAvgMillis() {
+            return avg(totalMillis);
+        }
+
+        public double getAvgQueueMillis() {
+            return avg(queueMillis);
+        }
+
+        public double getAvgTtfbMillis() {
+            return avg(ttfbMillis);
+        }
+
+        public double getAvgDownloadMillis() {
+            return avg(downloadMillis);
+        }
+
+        public double getAvgParseMillis() {
+            return avg(parseMillis);
+        }
+
+        /**
+         * 服务端平均 took，没有 took 数据时为-1
+         */
+        public double getAvgTookMillis() {
+            return tookCount == 0 ? -1 : (double) tookMillis / tookCount;
+        }
+
+        public long getWireBytes() {
+            return wireBytes;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        private double avg(double sum) {
+            return count == 0 ? 0 : sum / count;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.lemostic.toolsuite.modules.search.es.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ES映射展开工具
+ * 将 mappings.properties 中的 object / nested 字段展开为点号分隔的字段路径，例如 user.address.city
+ * <p>多字段（fields，如 title.keyword）只存在于索引中，不在 _source 里，结果作为导出列时永远为空，因此不展开</p>
+ */
+public final class EsMappingFlattener {
+
+    private EsMappingFlattener() {
+    }
+
+    /**
+     * 展开字段映射
+     * @param properties mappings 下的 properties 节点
+     * @return 字段路径 -> 字段类型（object/nested 自身不返回，只返回叶子字段），按映射中的顺序
+     */
+    public static Map<String, String> flatten(JsonNode properties) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        flattenInto(properties, "", fields);
+        return fields;
+    }
+
+    /**
+     * 展开字段映射并合并到已有结果中，用于别名或通配符对应多个索引的情况
+     */
+    public static void flattenInto(JsonNode properties, String prefix, Map<String, String> fields) {
+        if (properties == null || !properties.isObject()) {
+            return;
+        }
+        Iterator<Map.Entry<String, JsonNode>> it = properties.fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            String path = prefix.isEmpty() ? entry.getKey() : prefix + "." + entry.getKey();
+            JsonNode definition = entry.getValue();
+
+            JsonNode children = definition.get("properties");
+            if (children != null) {
+                // object / nested：只展开子字段
+                flattenInto(children, path, fields);
+                continue;
+            }
+
+            fields.putIfAbsent(path, definition.path("type").asText("object"));
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package io.github.lemostic.toolsuite.modules.search.es.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * ES元数据缓存（索引列表、别名、字段映射）
+ * 每个集群一份，条目带TTL，过期后先返回旧值再在后台重新加载，保证界面总能立即显示；
+ * 条目总数有上限，超出时按最近最少使用淘汰。同一槽位的并发加载会合并为一次请求；
+ * 失效操作之前发起的加载完成后不再写入缓存，避免刷新后又放回旧数据
+ */
+public class EsMetadataCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(EsMetadataCache.class);
+
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    static final String INDICES = "indices";
+    static final String ALIASES = "aliases";
+    static final String MAPPING_PREFIX = "mapping:";
+
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final Map<String, CacheEntry> entries;
+    /** 槽位当前的加载，失效时移除；加载完成时只有仍登记在此的才写入缓存 */
+    private final Map<String, CompletableFuture<?>> loading = new HashMap<>();
+
+    public EsMetadataCache() {
+        this(DEFAULT_TTL, DEFAULT_MAX_ENTRIES);
+    }
+
+    public EsMetadataCache(Duration ttl, int maxEntries) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > EsMetadataCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 读取缓存，必要时异步加载
+     * <ul>
+     *     <li>无缓存：发起加载，返回加载中的 future</li>
+     *     <li>缓存未过期：直接返回已完成的 future</li>
+     *     <li>缓存已过期：返回旧值，并在后台重新加载，加载完成后回调 onRefreshed</li>
+     * </ul>
+     * @param slot 缓存槽位
+     * @param loader 异步加载函数
+     * @param onRefreshed 后台刷新成功后的回调，可为null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> get(String slot, Supplier<CompletableFuture<T>> loader, Consumer<T> onRefreshed) {
+        CacheEntry entry;
+        synchronized (this) {
+            entry = entries.get(slot);
+        }
+
+        if (entry == null) {
+            return load(slot, loader);
+        }
+
+        if (entry.isExpired(ttlNanos)) {
+            load(slot, loader).whenComplete((value, error) -> {
+                if (error != null) {
+                    logger.warn("后台刷新元数据失败: {} - {}", slot, error.getMessage());
+                } else if (onRefreshed != null) {
+                    onRefreshed.accept(value);
+                }
+            });
+        }
+        return CompletableFuture.completedFuture((T) entry.value);
+    }
+
+    /**
+     * 只读取缓存，不触发加载
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T getIfPresent(String slot) {
+        CacheEntry entry = entries.get(slot);
+        return entry == null ? null : (T) entry.value;
+    }
+
+    public synchronized void put(String slot, Object value) {
+        entries.put(slot, new CacheEntry(value));
+    }
+
+    /**
+     * 使单个槽位失效
+     */
+    public synchronized void invalidate(String slot) {
+        entries.remove(slot);
+        loading.remove(slot);
+    }
+
+    /**
+     * 使所有以指定前缀开头的槽位失效
+     */
+    public synchronized void invalidatePrefix(String prefix) {
+        entries.keySet().removeIf(slot -> slot.startsWith(prefix));
+        loading.keySet().removeIf(slot -> slot.startsWith(prefix));
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        loading.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> load(String slot, Supplier<CompletableFuture<T>> loader) {
+        CompletableFuture<T> pending;
+        synchronized (this) {
+            pending = (CompletableFuture<T>) loading.get(slot);
+            if (pending != null) {
+                return pending;
+            }
+            pending = new CompletableFuture<>();
+            loading.put(slot, pending);
+        }
+
+        CompletableFuture<T> future = pending;
+        CompletableFuture<T> source;
+        try {
+            source = loader.get();
+        } catch (Throwable t) {
+            source = CompletableFuture.failedFuture(t);
+        }
+        source.whenComplete((value, error) -> {
+            synchronized (this) {
+                // 加载期间该槽位被失效（可能已开始新的加载）时丢弃结果，其他槽位的失效不影响
+                boolean current = loading.remove(slot, future);
+                if (error == null && current) {
+                    entries.put(slot, new CacheEntry(value));
+                }
+            }
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(value);
+            }
+        });
+        return future;
+    }
+
+    private static class CacheEntry {
+        private final Object value;
+        private final long loadedAt = System.nanoTime();
+
+        CacheEntry(Object value) {
+            this.value = value;
+        }
+
+        boolean isExpired(long ttlNanos) {
+            return System.nanoTime() - loadedAt > ttlNanos;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package io.github.lemostic.toolsuite.modules.search.es.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * ES请求指标登记处
+ * 按 集群 + 索引 维护滚动窗口直方图，并保留最近的若干条请求明细；
+ * 其他模块可通过 {@link #addListener(Consumer)} 订阅每条请求的指标，或调用 {@link #snapshot()} 读取统计
+ */
+public class EsMetricsRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(EsMetricsRegistry.class);
+
+    public static final Duration DEFAULT_WINDOW = Duration.ofMinutes(5);
+    public static final int DEFAULT_SLOTS = 30;
+    public static final int DEFAULT_RECENT = 200;
+
+    private final Duration window;
+    private final int slots;
+    private final int recentLimit;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Deque<EsRequestMetrics> recent = new ArrayDeque<>();
+    private final List<Consumer<EsRequestMetrics>> listeners = new CopyOnWriteArrayList<>();
+
+    public EsMetricsRegistry() {
+        this(DEFAULT_WINDOW, DEFAULT_SLOTS, DEFAULT_RECENT);
+    }
+
+    public EsMetricsRegistry(Duration window, int slots, int recentLimit) {
+        this.window = window;
+        this.slots = slots;
+        this.recentLimit = recentLimit;
+    }
+
+    public void record(EsRequestMetrics metrics) {
+        entries.computeIfAbsent(metrics.getCluster() + "\n" + metrics.getIndex(),
+                        key -> new Entry(metrics.getCluster(), metrics.getIndex(), new EsLatencyHistogram(window, slots)))
+                .histogram.record(metrics);
+        synchronized (recent) {
+            recent.addLast(metrics);
+            if (recent.size() > recentLimit) {
+                recent.removeFirst();
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("ES请求: {}", metrics);
+        }
+        for (Consumer<EsRequestMetrics> listener : listeners) {
+            try {
+                listener.accept(metrics);
+            } catch (RuntimeException e) {
+                logger.warn("指标监听器执行失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 各 集群/索引 在当前窗口内的统计，窗口内没有请求的条目不返回
+     */
+    public List<Snapshot> snapshot() {
+        List<Snapshot> result = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            EsLatencyHistogram.Stats stats = entry.histogram.snapshot();
+            if (stats.getCount() > 0) {
+                result.add(new Snapshot(entry.cluster, entry.index, stats));
+            }
+        }
+        result.sort((a, b) -> {
+            int c = a.getCluster().compareTo(b.getCluster());
+            return c != 0 ? c : a.getIndex().compareTo(b.getIndex());
+        });
+        return result;
+    }
+
+    /**
+     * 最近的请求明细（从旧到新）
+     */
+    public List<EsRequestMetrics> recent() {
+        synchronized (recent) {
+            return new ArrayList<>(recent);
+        }
+    }
+
+    public void addListener(Consumer<EsRequestMetrics> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<EsRequestMetrics> listener) {
+        listeners.remove(listener);
+    }
+
+    public void clear() {
+        entries.clear();
+        synchronized (recent) {
+            recent.clear();
+        }
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    private static class Entry {
+        private final String cluster;
+        private final String index;
+        private final EsLatencyHistogram histogram;
+
+        Entry(String cluster, String index, EsLatencyHistogram histogram) {
+            this.cluster = cluster;
+            this.index = index;
+            this.histogram = histogram;
+        }
+    }
+
+    /**
+     * 某个 集群/索引 的窗口统计
+     */
+    public static class Snapshot {
+        private final String cluster;
+        private final String index;
+        private final EsLatencyHistogram.Stats stats;
+
+        Snapshot(String cluster, String index, EsLatencyHistogram.Stats stats) {
+            this.cluster = cluster;
+            this.index = index;
+            this.stats = stats;
+        }
+
+        public String getCluster() {
+            return cluster;
+        }
+
+        public String getIndex() {
+            return index;
+        }
+
+        public EsLatencyHistogram.Stats getStats() {
+            return stats;
+        }
+    }
+}
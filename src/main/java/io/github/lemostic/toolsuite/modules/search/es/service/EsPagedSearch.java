@@ -0,0 +1,405 @@
+package io.github.lemostic.toolsuite.modules.search.es.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 基于 PIT（point in time）+ search_after 的分页查询
+ * <p>打开时创建PIT并读取第一页和总数；之后按页号读取，每页的游标（上一页最后一条的 sort 值）
+ * 会被记住，翻回已经访问过的页时不需要从头翻起。跳到未访问过的页时，只取 sort 值（不取 _source），
+ * 每个请求最多向前定位 {@value #MAX_SEEK_HITS} 条，并记下途经各页的游标。</p>
+ * <p>同一分页查询的请求串行执行；PIT过期后会自动重建并重新定位。需要 ES 7.12 及以上版本（_shard_doc 排序）</p>
+ */
+public class EsPagedSearch implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EsPagedSearch.class);
+
+    public static final int DEFAULT_PAGE_SIZE = 200;
+    private static final String KEEP_ALIVE = "5m";
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    /** 一次定位请求最多跳过的命中数（不超过默认的 index.max_result_window） */
+    private static final int MAX_SEEK_HITS = 10_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final EsClient client;
+    private final String index;
+    private final ObjectNode baseQuery;
+    private final EsHitFlattener flattener;
+    private final int pageSize;
+
+    /** cursors.get(n) 为读取第 n 页时使用的 search_after 值，第0页为null */
+    private final List<JsonNode> cursors = new ArrayList<>();
+    private volatile String pitId;
+    private volatile long total;
+    private volatile List<Map<String, Object>> firstPage;
+    private volatile boolean closed;
+    private CompletableFuture<?> tail = CompletableFuture.completedFuture(null);
+
+    private EsPagedSearch(EsClient client, String index, ObjectNode baseQuery, Collection<String> fields, int pageSize) {
+        this.client = client;
+        this.index = index;
+        this.baseQuery = baseQuery;
+        this.flattener = fields == null ? EsHitFlattener.all() : new EsHitFlattener(fields);
+        this.pageSize = pageSize;
+        cursors.add(null);
+    }
+
+    /**
+     * 打开分页查询：创建PIT并读取第一页
+     * @param queryJson 用户的查询DSL，其中的 from/size/aggs 会被忽略，sort 会追加 _shard_doc 作为唯一排序键
+     * @return 完成时 {@link #getTotal()} 可用，第一页为 {@link #getFirstPage()}
+     */
+    static CompletableFuture<EsPagedSearch> open(EsClient client, String index, String queryJson,
+                                                Collection<String> fields, int pageSize) {
+        EsPagedSearch search;
+        try {
+            search = new EsPagedSearch(client, index, buildBaseQuery(queryJson), fields, pageSize);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new IOException("查询JSON格式错误: " + e.getMessage(), e));
+        }
+        // 取消时中止当前请求，已创建的PIT随即关闭
+        AtomicReference<CompletableFuture<?>> current = new AtomicReference<>(search.openPit());
+        CompletableFuture<EsPagedSearch> opened = current.get()
+                .thenCompose(ignored -> {
+                    CompletableFuture<List<Map<String, Object>>> first = search.fetch(0, pageSize, true, true);
+                    current.set(first);
+                    return first;
+                })
+                .thenApply(page -> {
+                    search.firstPage = page;
+                    return search;
+                });
+        opened.whenComplete((value, error) -> {
+            if (opened.isCancelled()) {
+                search.close();
+            }
+        });
+        return EsClient.cancelling(opened, current::get);
+    }
+
+    public List<Map<String, Object>> getFirstPage() {
+        return firstPage;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getPageCount() {
+        return (int) Math.min(Integer.MAX_VALUE, (total + pageSize - 1) / pageSize);
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    /**
+     * 读取指定页
+     * <p>取消返回的 future 时中止正在执行的请求，并停止向前定位</p>
+     * @param wanted 请求开始执行前和定位的每一步之前调用，返回false时跳过（例如页面已滚出可视区域），此时结果为null
+     */
+    public CompletableFuture<List<Map<String, Object>>> fetchPage(int page, BooleanSupplier wanted) {
+        if (page < 0 || page >= getPageCount()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        CompletableFuture<List<Map<String, Object>>> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<?>> current = new AtomicReference<>();
+        BooleanSupplier proceed = () -> !closed && !result.isDone() && (wanted == null || wanted.getAsBoolean());
+        synchronized (this) {
+            tail = tail.handle((ignored, error) -> null)
+                    .thenCompose(ignored -> {
+                        if (!proceed.getAsBoolean()) {
+                            result.complete(null);
+                            return CompletableFuture.completedFuture(null);
+                        }
+                        return seekAndFetch(page, proceed, current).whenComplete((docs, error) -> {
+                            if (error != null) {
+                                result.completeExceptionally(error);
+                            } else {
+                                result.complete(docs);
+                            }
+                        });
+                    });
+        }
+        return EsClient.cancelling(result, current::get);
+    }
+
+    /**
+     * 关闭PIT，释放集群上的资源
+     */
+    @Override
+    public void close() {
+        closed = true;
+        String id = pitId;
+        if (id == null) {
+            return;
+        }
+        ObjectNode body = objectMapper.createObjectNode().put("id", id);
+        HttpRequest request = client.newRequest("/_pit", TIMEOUT)
+                .header("Content-Type", "application/json")
+                .method("DELETE", HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding(), TIMEOUT)
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        logger.debug("关闭PIT失败: {}", error.getMessage());
+                    }
+                });
+    }
+
+    private CompletableFuture<List<Map<String, Object>>> seekAndFetch(int page, BooleanSupplier proceed,
+                                                                      AtomicReference<CompletableFuture<?>> current) {
+        return seek(page, proceed, current).exceptionallyCompose(error -> {
+            if (!isPitExpired(error)) {
+                return CompletableFuture.failedFuture(error);
+            }
+            logger.info("PIT已过期，重新打开: {}", index);
+            synchronized (cursors) {
+                cursors.subList(1, cursors.size()).clear();
+            }
+            CompletableFuture<Void> reopened = openPit();
+            current.set(reopened);
+            return reopened.thenCompose(ignored -> seek(page, proceed, current));
+        });
+    }
+
+    /**
+     * 定位到目标页并读取，中途 proceed 返回false时结果为null
+     */
+    private CompletableFuture<List<Map<String, Object>>> seek(int page, BooleanSupplier proceed,
+                                                              AtomicReference<CompletableFuture<?>> current) {
+        int known;
+        synchronized (cursors) {
+            known = cursors.size() - 1;
+        }
+        if (known >= page) {
+            CompletableFuture<List<Map<String, Object>>> fetched = fetch(page, pageSize, true, false);
+            current.set(fetched);
+            return fetched;
+        }
+        if (!proceed.getAsBoolean()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // 只取 sort 值，一次跳过多页，记下途经各页的游标
+        int pages = Math.min(page - known, Math.max(1, MAX_SEEK_HITS / pageSize));
+        CompletableFuture<List<Map<String, Object>>> skipped = fetch(known, pages * pageSize, false, false);
+        current.set(skipped);
+        return skipped.thenCompose(ignored -> {
+            synchronized (cursors) {
+                if (cursors.size() - 1 == known) {
+                    // 数据已减少，目标页不存在
+                    return CompletableFuture.completedFuture(Collections.<Map<String, Object>>emptyList());
+                }
+            }
+            return seek(page, proceed, current);
+        });
+    }
+
+    /**
+     * 从指定页开始读取，并记录此后每一页的游标
+     * @param size 读取的条数，为页大小的整数倍
+     * @param withSource 为false时只取 sort 值，用于定位
+     */
+    private CompletableFuture<List<Map<String, Object>>> fetch(int page, int size, boolean withSource, boolean trackTotal) {
+        JsonNode searchAfter;
+        synchronized (cursors) {
+            searchAfter = cursors.get(page);
+        }
+        ObjectNode body = baseQuery.deepCopy();
+        body.put("size", size);
+        body.put("track_total_hits", trackTotal);
+        body.putObject("pit").put("id", pitId).put("keep_alive", KEEP_ALIVE);
+        if (searchAfter != null) {
+            body.set("search_after", searchAfter);
+        }
+        if (!withSource) {
+            body.put("_source", false);
+        }
+
+        // 定位时只需要 pit_id 和每条命中的 sort 值
+        String path = withSource ? "/_search" : "/_search?filter_path=took,pit_id,hits.hits.sort";
+        HttpRequest request = client.newRequest(path, TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+        EsRequestTimer timer = client.startTimer(withSource ? "page" : "page_seek", index);
+        CompletableFuture<HttpResponse<EsResponseBody>> sent = client.sendAsync(request, TIMEOUT, timer);
+        return EsClient.cancelling(sent.thenApply(response -> {
+            if (response.statusCode() != 200) {
+                throw new CompletionException(new PagedSearchException(response.statusCode(), response.body().asString()));
+            }
+            try (JsonParser parser = objectMapper.getFactory().createParser(response.body().openStream())) {
+                List<Map<String, Object>> documents = parsePage(parser, page, withSource, trackTotal, timer);
+                timer.complete(documents.size(), -1);
+                return documents;
+            } catch (IOException e) {
+                timer.fail(response.statusCode());
+                throw new CompletionException(e);
+            }
+        }), sent);
+    }
+
+    private List<Map<String, Object>> parsePage(JsonParser parser, int page, boolean withSource,
+                                                boolean trackTotal, EsRequestTimer timer) throws IOException {
+        List<Map<String, Object>> documents = new ArrayList<>(withSource ? pageSize : 0);
+        int count = 0;
+
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("无法解析查询响应");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("took".equals(field)) {
+                timer.setTookMillis(parser.getValueAsLong(-1));
+            } else if ("pit_id".equals(field)) {
+                pitId = parser.getText();
+            } else if ("hits".equals(field) && token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String hitsField = parser.currentName();
+                    token = parser.nextToken();
+                    if ("total".equals(hitsField) && trackTotal) {
+                        total = token == JsonToken.START_OBJECT
+                                ? objectMapper.<JsonNode>readTree(parser).path("value").asLong()
+                                : parser.getValueAsLong();
+                    } else if ("hits".equals(hitsField) && token == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            Map<String, Object> doc = withSource ? new LinkedHashMap<>() : null;
+                            // 每页最后一条的 sort 值为下一页的游标
+                            boolean pageEnd = ++count % pageSize == 0;
+                            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                                String hitField = parser.currentName();
+                                parser.nextToken();
+                                if ("sort".equals(hitField) && pageEnd) {
+                                    addCursor(page + count / pageSize, objectMapper.readTree(parser));
+                                } else if (doc != null && "_id".equals(hitField)) {
+                                    doc.put("_id", parser.getText());
+                                } else if (doc != null && "_source".equals(hitField)) {
+                                    flattener.flatten(parser, doc);
+                                } else {
+                                    parser.skipChildren();
+                                }
+                            }
+                            if (doc != null) {
+                                documents.add(doc);
+                            }
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return Collections.unmodifiableList(documents);
+    }
+
+    private void addCursor(int page, JsonNode searchAfter) {
+        synchronized (cursors) {
+            if (cursors.size() == page) {
+                cursors.add(searchAfter);
+            }
+        }
+    }
+
+    private CompletableFuture<Void> openPit() {
+        HttpRequest request = client.newRequest("/" + index + "/_pit?keep_alive=" + KEEP_ALIVE, TIMEOUT)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        CompletableFuture<HttpResponse<EsResponseBody>> sent = client.sendAsync(request, TIMEOUT);
+        return EsClient.cancelling(sent.thenAccept(response -> {
+            if (response.statusCode() != 200) {
+                throw new CompletionException(new IOException(
+                        "无法创建PIT（需要ES 7.12及以上版本）: " + response.statusCode() + " - " + response.body().asString()));
+            }
+            try {
+                pitId = objectMapper.readTree(response.body().openStream()).path("id").asText();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }), sent);
+    }
+
+    /**
+     * 去掉分页和聚合相关的参数，并为排序追加唯一的 _shard_doc 键
+     */
+    static ObjectNode buildBaseQuery(String queryJson) throws IOException {
+        JsonNode parsed = new ObjectMapper().readTree(queryJson);
+        if (!(parsed instanceof ObjectNode query)) {
+            throw new IOException("查询必须是JSON对象");
+        }
+        query.remove(List.of("from", "size", "aggs", "aggregations", "search_after", "pit", "track_total_hits"));
+
+        ArrayNode sort;
+        JsonNode existing = query.get("sort");
+        if (existing instanceof ArrayNode array) {
+            sort = array;
+        } else {
+            sort = query.arrayNode();
+            if (existing != null && !existing.isNull()) {
+                sort.add(existing);
+            }
+        }
+        boolean hasTiebreaker = false;
+        for (JsonNode element : sort) {
+            if ("_shard_doc".equals(element.asText()) || element.has("_shard_doc")) {
+                hasTiebreaker = true;
+            }
+        }
+        if (!hasTiebreaker) {
+            sort.addObject().put("_shard_doc", "asc");
+        }
+        query.set("sort", sort);
+        return query;
+    }
+
+    private static boolean isPitExpired(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof PagedSearchException e
+                && e.status == 404
+                && (e.body.contains("search_context_missing_exception") || e.body.contains("No search context"));
+    }
+
+    /**
+     * 分页请求返回非200状态
+     */
+    static class PagedSearchException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+        private final String body;
+
+        PagedSearchException(int status, String body) {
+            super("分页查询失败: " + status + " - " + body);
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package io.github.lemostic.toolsuite.modules.search.es.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.lemostic.toolsuite.modules.search.es.service.EsQueryService.QueryResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+
+/**
+ * 查询结果缓存
+ * 以 集群 + 索引 + 规范化后的查询DSL（忽略空白和键顺序）为键，保存最近的查询结果；
+ * 按估算的内存占用设上限，超出时按最近最少使用淘汰，淘汰的结果可选地溢出到磁盘（H2）
+ */
+public class EsQueryResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(EsQueryResultCache.class);
+
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final long maxBytes;
+    private final Duration ttl;
+    private final long ttlNanos;
+    private final Executor diskExecutor;
+    private final LinkedHashMap<String, CachedResult> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+    private volatile EsResultDiskStore diskStore;
+
+    public EsQueryResultCache(Executor diskExecutor) {
+        this(DEFAULT_MAX_BYTES, DEFAULT_TTL, diskExecutor);
+    }
+
+    public EsQueryResultCache(long maxBytes, Duration ttl, Executor diskExecutor) {
+        this.maxBytes = maxBytes;
+        this.ttl = ttl;
+        this.ttlNanos = ttl.toNanos();
+        this.diskExecutor = diskExecutor;
+    }
+
+    /**
+     * 生成缓存键
+     * @return 查询JSON无法解析时返回null（此时不缓存，由ES返回错误）
+     */
+    public String buildKey(String clusterKey, String index, String queryJson, Collection<String> fields) {
+        String canonical;
+        try {
+            canonical = canonicalize(queryJson);
+        } catch (IOException e) {
+            return null;
+        }
+        String fieldPart = fields == null ? "*" : String.join(",", new TreeSet<>(fields));
+        return clusterKey + "\n" + index + "\n" + fieldPart + "\n" + canonical;
+    }
+
+    /**
+     * 规范化查询DSL：去除空白，对象的键按字母排序（数组顺序保持不变）
+     */
+    public String canonicalize(String json) throws IOException {
+        JsonNode node = objectMapper.readTree(json);
+        StringWriter writer = new StringWriter(json.length());
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)) {
+            writeSorted(node, generator);
+        }
+        return writer.toString();
+    }
+
+    private void writeSorted(JsonNode node, JsonGenerator generator) throws IOException {
+        if (node.isObject()) {
+            generator.writeStartObject();
+            List<String> names = new ArrayList<>();
+            node.fieldNames().forEachRemaining(names::add);
+            names.sort(null);
+            for (String name : names) {
+                generator.writeFieldName(name);
+                writeSorted(node.get(name), generator);
+            }
+            generator.writeEndObject();
+        } else if (node.isArray()) {
+            generator.writeStartArray();
+            for (JsonNode element : node) {
+                writeSorted(element, generator);
+            }
+            generator.writeEndArray();
+        } else {
+            generator.writeTree(node);
+        }
+    }
+
+    /**
+     * 从内存中读取未过期的结果
+     */
+    public synchronized QueryResult get(String key) {
+        CachedResult cached = entries.get(key);
+        if (cached == null) {
+            return null;
+        }
+        if (System.nanoTime() - cached.storedAt > ttlNanos) {
+            remove(key);
+            return null;
+        }
+        return cached.result.asCached();
+    }
+
+    /**
+     * 从磁盘读取结果（阻塞，应在工作线程中调用），命中时放回内存
+     */
+    public QueryResult getFromDisk(String key) {
+        EsResultDiskStore store = diskStore;
+        if (store == null) {
+            return null;
+        }
+        QueryResult result = store.load(key, ttl);
+        if (result != null) {
+            put(key, result);
+            return result.asCached();
+        }
+        return null;
+    }
+
+    public synchronized void put(String key, QueryResult result) {
+        long size = estimateSize(result);
+        if (size > maxBytes) {
+            // 单个结果超过上限，不放入内存，只尝试写磁盘
+            spill(key, result);
+            return;
+        }
+        remove(key);
+        entries.put(key, new CachedResult(result, size));
+        currentBytes += size;
+        evictIfNeeded();
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        currentBytes = 0;
+        EsResultDiskStore store = diskStore;
+        if (store != null) {
+            diskExecutor.execute(store::clear);
+        }
+    }
+
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public boolean isDiskStoreEnabled() {
+        return diskStore != null;
+    }
+
+    /**
+     * 启用或关闭磁盘溢出
+     */
+    public void setDiskStore(EsResultDiskStore store) {
+        EsResultDiskStore old = this.diskStore;
+        this.diskStore = store;
+        if (old != null && old != store) {
+            old.close();
+        }
+    }
+
+    private void remove(String key) {
+        CachedResult removed = entries.remove(key);
+        if (removed != null) {
+            currentBytes -= removed.size;
+        }
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, CachedResult>> it = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, CachedResult> eldest = it.next();
+            it.remove();
+            currentBytes -= eldest.getValue().size;
+            spill(eldest.getKey(), eldest.getValue().result);
+        }
+    }
+
+    private void spill(String key, QueryResult result) {
+        EsResultDiskStore store = diskStore;
+        if (store == null) {
+            return;
+        }
+        diskExecutor.execute(() -> {
+            try {
+                store.save(key, result);
+            } catch (Exception e) {
+                logger.warn("查询结果写入磁盘缓存失败: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 粗略估算结果占用的堆内存
+     */
+    static long estimateSize(QueryResult result) {
+        long size = 64 + estimateRows(result.getDocuments());
+        if (result.getAggregations() != null) {
+            size += estimateRows(result.getAggregations().getRows());
+        }
+        return size;
+    }
+
+    private static long estimateRows(List<Map<String, Object>> rows) {
+        long size = 0;
+        for (Map<String, Object> row : rows) {
+            size += 64;
+            for (Map.Entry<String, Object> entry : row.entrySet()) {
+                size += 48 + 2L * entry.getKey().length() + estimateValue(entry.getValue());
+            }
+        }
+        return size;
+    }
+
+    private static long estimateValue(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            return 40 + 2L * ((String) value).length();
+        }
+        if (value instanceof Collection) {
+            long size = 40;
+            for (Object element : (Collection<?>) value) {
+                size += 8 + estimateValue(element);
+            }
+            return size;
+        }
+        return 24;
+    }
+
+    private static class CachedResult {
+        private final QueryResult result;
+        private final long size;
+        private final long storedAt = System.nanoTime();
+
+        CachedResult(QueryResult result, long size) {
+            this.result = result;
+            this.size = size;
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package io.github.lemostic.toolsuite.modules.search.es.service;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleStringProperty;
@@ -14,12 +17,20 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
+import java.io.InputStream;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 /**
  * Elasticsearch查询服务
@@ -28,15 +39,22 @@ public class EsQueryService {
     
     private static final Logger logger = LoggerFactory.getLogger(EsQueryService.class);
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final HttpClient httpClient;
+    private final EsConnectionManager connectionManager;
+    
+    private static final Duration METADATA_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration QUERY_TIMEOUT = Duration.ofSeconds(30);
+    /** 导出预估时随机抽样的文档数 */
+    private static final int EXPORT_SAMPLE_SIZE = 200;
     
     private final StringProperty statusMessage = new SimpleStringProperty("就绪");
     private final DoubleProperty progress = new SimpleDoubleProperty(0);
     
     public EsQueryService() {
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(10))
-                .build();
+        this(EsConnectionManager.getInstance());
+    }
+    
+    public EsQueryService(EsConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
     }
     
     public StringProperty statusMessageProperty() {
@@ -56,19 +74,84 @@ public class EsQueryService {
         private final String username;
         private final String password;
         private final boolean useHttps;
+        private final boolean useHttp2;
+        private final String authHeader;
+        private final String key;
         
         public ConnectionInfo(String host, int port, String username, String password, boolean useHttps) {
+            this(host, port, username, password, useHttps, false);
+        }
+        
+        public ConnectionInfo(String host, int port, String username, String password, 
+                              boolean useHttps, boolean useHttp2) {
             this.host = host;
             this.port = port;
             this.username = username;
             this.password = password;
             this.useHttps = useHttps;
+            this.useHttp2 = useHttp2;
+            this.authHeader = buildAuthHeader(username, password);
+            this.key = getBaseUrl() + "|" + (username == null ? "" : username) + "|" + credentialDigest(authHeader)
+                    + "|" + (useHttp2 ? "h2" : "h1");
+        }
+        
+        private static String buildAuthHeader(String username, String password) {
+            if (username == null || username.isEmpty()) {
+                return null;
+            }
+            String auth = username + ":" + (password == null ? "" : password);
+            return "Basic " + Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
         }
         
         public String getBaseUrl() {
             return (useHttps ? "https://" : "http://") + host + ":" + port;
         }
         
+        /**
+         * 集群标识，用于复用客户端；包含认证信息的摘要，修改密码后不会复用带旧认证头的客户端
+         */
+        public String getKey() {
+            return key;
+        }
+        
+        /**
+         * 认证头的 SHA-256 摘要（前16位），不在标识中暴露密码
+         */
+        private static String credentialDigest(String authHeader) {
+            if (authHeader == null) {
+                return "";
+            }
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(authHeader.getBytes(StandardCharsets.UTF_8));
+                return HexFormat.of().formatHex(digest, 0, 8);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        
+        /**
+         * 预先计算好的Basic认证头，无用户名时为null
+         */
+        public String getAuthHeader() {
+            return authHeader;
+        }
+        
+        public boolean isUseHttp2() {
+            return useHttp2;
+        }
+        
+        public String getHost() {
+            return host;
+        }
+        
+        public int getPort() {
+            return port;
+        }
+        
+        public boolean isUseHttps() {
+            return useHttps;
+        }
+        
         public String getUsername() {
             return username;
         }
@@ -82,152 +165,447 @@ public class EsQueryService {
      * 测试连接
      */
     public boolean testConnection(ConnectionInfo conn) throws Exception {
-        String url = conn.getBaseUrl() + "/";
-        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
-                .uri(URI.create(url))
+        return await(testConnectionAsync(conn));
+    }
+    
+    /**
+     * 异步测试连接
+     */
+    public CompletableFuture<Boolean> testConnectionAsync(ConnectionInfo conn) {
+        EsClient client = connectionManager.getClient(conn);
+        HttpRequest request = client.newRequest("/", Duration.ofSeconds(5))
                 .GET()
-                .timeout(Duration.ofSeconds(5));
-        
-        if (conn.getUsername() != null && !conn.getUsername().isEmpty()) {
-            String auth = conn.getUsername() + ":" + conn.getPassword();
-            String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes());
-            requestBuilder.header("Authorization", "Basic " + encodedAuth);
-        }
-        
-        HttpResponse<String> response = httpClient.send(requestBuilder.build(), 
-                HttpResponse.BodyHandlers.ofString());
+                .build();
         
-        return response.statusCode() == 200;
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding(), Duration.ofSeconds(5))
+                .thenApply(response -> response.statusCode() == 200);
     }
     
     /**
-     * 获取所有索引列表
+     * 获取所有索引列表（优先读取元数据缓存）
      */
     public List<String> getIndices(ConnectionInfo conn) throws Exception {
-        String url = conn.getBaseUrl() + "/_cat/indices?format=json";
-        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
-                .uri(URI.create(url))
+        return await(getIndicesAsync(conn, null));
+    }
+    
+    /**
+     * 获取所有索引列表（优先读取元数据缓存）
+     * @param onRefreshed 缓存过期时后台刷新完成的回调，可为null
+     */
+    public List<String> getIndices(ConnectionInfo conn, Consumer<List<String>> onRefreshed) throws Exception {
+        return await(getIndicesAsync(conn, onRefreshed));
+    }
+    
+    /**
+     * 异步获取所有索引列表（优先读取元数据缓存）
+     * @param onRefreshed 缓存过期时后台刷新完成的回调，可为null
+     */
+    public CompletableFuture<List<String>> getIndicesAsync(ConnectionInfo conn, Consumer<List<String>> onRefreshed) {
+        EsClient client = connectionManager.getClient(conn);
+        return client.getMetadataCache().get(EsMetadataCache.INDICES, () -> fetchIndices(client), onRefreshed);
+    }
+    
+    /**
+     * 获取别名与索引的对应关系（优先读取元数据缓存）
+     */
+    public Map<String, List<String>> getAliases(ConnectionInfo conn) throws Exception {
+        return await(getAliasesAsync(conn));
+    }
+    
+    /**
+     * 异步获取别名与索引的对应关系（优先读取元数据缓存）
+     */
+    public CompletableFuture<Map<String, List<String>>> getAliasesAsync(ConnectionInfo conn) {
+        EsClient client = connectionManager.getClient(conn);
+        return client.getMetadataCache().get(EsMetadataCache.ALIASES, () -> fetchAliases(client), null);
+    }
+    
+    /**
+     * 获取索引的字段映射（优先读取元数据缓存）
+     */
+    public List<String> getIndexFields(ConnectionInfo conn, String index) throws Exception {
+        return await(getIndexFieldsAsync(conn, index));
+    }
+    
+    /**
+     * 异步获取索引的字段映射（优先读取元数据缓存）
+     */
+    public CompletableFuture<List<String>> getIndexFieldsAsync(ConnectionInfo conn, String index) {
+        EsClient client = connectionManager.getClient(conn);
+        return client.getMetadataCache().get(EsMetadataCache.MAPPING_PREFIX + index, 
+                () -> fetchIndexFields(client, index), null);
+    }
+    
+    /**
+     * 使集群的全部元数据缓存失效
+     */
+    public void invalidateMetadata(ConnectionInfo conn) {
+        connectionManager.getClient(conn).getMetadataCache().invalidateAll();
+    }
+    
+    /**
+     * 使单个索引的字段映射缓存失效
+     */
+    public void invalidateMapping(ConnectionInfo conn, String index) {
+        connectionManager.getClient(conn).getMetadataCache().invalidate(EsMetadataCache.MAPPING_PREFIX + index);
+    }
+    
+    private CompletableFuture<List<String>> fetchIndices(EsClient client) {
+        HttpRequest request = client.newRequest("/_cat/indices?format=json&h=index", METADATA_TIMEOUT)
                 .GET()
-                .timeout(Duration.ofSeconds(10));
-        
-        if (conn.getUsername() != null && !conn.getUsername().isEmpty()) {
-            String auth = conn.getUsername() + ":" + conn.getPassword();
-            String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes());
-            requestBuilder.header("Authorization", "Basic " + encodedAuth);
-        }
-        
-        HttpResponse<String> response = httpClient.send(requestBuilder.build(), 
-                HttpResponse.BodyHandlers.ofString());
+                .build();
         
-        if (response.statusCode() != 200) {
-            throw new IOException("获取索引列表失败: " + response.statusCode());
-        }
+        EsRequestTimer timer = client.startTimer("cat_indices", null);
+        return client.sendAsync(request, METADATA_TIMEOUT, timer)
+                .thenApply(response -> {
+                    checkStatus(response, "获取索引列表失败");
+                    JsonNode jsonArray = readTree(response.body());
+                    List<String> indices = new ArrayList<>();
+                    jsonArray.forEach(node -> indices.add(node.get("index").asText()));
+                    Collections.sort(indices);
+                    timer.complete(indices.size(), -1);
+                    return Collections.unmodifiableList(indices);
+                });
+    }
+    
+    private CompletableFuture<Map<String, List<String>>> fetchAliases(EsClient client) {
+        HttpRequest request = client.newRequest("/_cat/aliases?format=json&h=alias,index", METADATA_TIMEOUT)
+                .GET()
+                .build();
         
-        JsonNode jsonArray = objectMapper.readTree(response.body());
-        List<String> indices = new ArrayList<>();
-        jsonArray.forEach(node -> indices.add(node.get("index").asText()));
+        EsRequestTimer timer = client.startTimer("cat_aliases", null);
+        return client.sendAsync(request, METADATA_TIMEOUT, timer)
+                .thenApply(response -> {
+                    checkStatus(response, "获取别名列表失败");
+                    JsonNode jsonArray = readTree(response.body());
+                    Map<String, List<String>> aliases = new TreeMap<>();
+                    jsonArray.forEach(node -> aliases
+                            .computeIfAbsent(node.get("alias").asText(), k -> new ArrayList<>())
+                            .add(node.get("index").asText()));
+                    timer.complete(jsonArray.size(), -1);
+                    return Collections.unmodifiableMap(aliases);
+                });
+    }
+    
+    private CompletableFuture<List<String>> fetchIndexFields(EsClient client, String index) {
+        HttpRequest request = client.newRequest("/" + index + "/_mapping", METADATA_TIMEOUT)
+                .GET()
+                .build();
         
-        return indices;
+        EsRequestTimer timer = client.startTimer("mapping", index);
+        return client.sendAsync(request, METADATA_TIMEOUT, timer)
+                .thenApply(response -> {
+                    checkStatus(response, "获取字段映射失败");
+                    // 别名或通配符会返回多个索引，合并各索引展开后的字段
+                    JsonNode root = readTree(response.body());
+                    Map<String, String> fields = new LinkedHashMap<>();
+                    root.forEach(indexNode -> 
+                            EsMappingFlattener.flattenInto(indexNode.path("mappings").path("properties"), "", fields));
+                    timer.complete(fields.size(), -1);
+                    return List.copyOf(fields.keySet());
+                });
     }
     
     /**
-     * 获取索引的字段映射
+     * 执行查询
      */
-    public List<String> getIndexFields(ConnectionInfo conn, String index) throws Exception {
-        String url = conn.getBaseUrl() + "/" + index + "/_mapping";
-        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .GET()
-                .timeout(Duration.ofSeconds(10));
+    public QueryResult executeQuery(ConnectionInfo conn, String index, String queryJson) throws Exception {
+        return await(executeQueryAsync(conn, index, queryJson, null));
+    }
+    
+    /**
+     * 执行查询，只提取指定的字段路径
+     * @param fields 点号分隔的字段路径（如 user.address.city），为空时提取全部字段
+     */
+    public QueryResult executeQuery(ConnectionInfo conn, String index, String queryJson, 
+                                    Collection<String> fields) throws Exception {
+        return await(executeQueryAsync(conn, index, queryJson, fields));
+    }
+    
+    /**
+     * 异步执行查询（优先读取查询结果缓存）
+     * <p>受集群在途请求数限制；取消返回的 future 会中止请求</p>
+     * @param fields 点号分隔的字段路径，为空时提取全部字段
+     */
+    public CompletableFuture<QueryResult> executeQueryAsync(ConnectionInfo conn, String index, String queryJson,
+                                                            Collection<String> fields) {
+        return executeQueryAsync(conn, index, queryJson, fields, false);
+    }
+    
+    /**
+     * 异步执行查询
+     * <p>受集群在途请求数限制；取消返回的 future 会中止请求</p>
+     * @param fields 点号分隔的字段路径，为空时提取全部字段
+     * @param forceRefresh 为true时跳过查询结果缓存，直接查询集群（结果仍会写入缓存）
+     */
+    public CompletableFuture<QueryResult> executeQueryAsync(ConnectionInfo conn, String index, String queryJson,
+                                                            Collection<String> fields, boolean forceRefresh) {
+        EsClient client = connectionManager.getClient(conn);
+        EsQueryResultCache resultCache = connectionManager.getResultCache();
+        String cacheKey = resultCache.buildKey(client.getKey(), index, queryJson, fields);
         
-        if (conn.getUsername() != null && !conn.getUsername().isEmpty()) {
-            String auth = conn.getUsername() + ":" + conn.getPassword();
-            String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes());
-            requestBuilder.header("Authorization", "Basic " + encodedAuth);
+        if (cacheKey == null || forceRefresh) {
+            return searchAsync(client, index, queryJson, fields, cacheKey);
         }
         
-        HttpResponse<String> response = httpClient.send(requestBuilder.build(), 
-                HttpResponse.BodyHandlers.ofString());
-        
-        if (response.statusCode() != 200) {
-            throw new IOException("获取字段映射失败: " + response.statusCode());
+        QueryResult cached = resultCache.get(cacheKey);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
         }
+        if (!resultCache.isDiskStoreEnabled()) {
+            return searchAsync(client, index, queryJson, fields, cacheKey);
+        }
+        AtomicReference<CompletableFuture<QueryResult>> search = new AtomicReference<>();
+        CompletableFuture<QueryResult> result = CompletableFuture
+                .supplyAsync(() -> resultCache.getFromDisk(cacheKey), connectionManager.getDiskExecutor())
+                .thenCompose(fromDisk -> {
+                    if (fromDisk != null) {
+                        return CompletableFuture.completedFuture(fromDisk);
+                    }
+                    search.set(searchAsync(client, index, queryJson, fields, cacheKey));
+                    return search.get();
+                });
+        return EsClient.cancelling(result, search::get);
+    }
+    
+    /**
+     * 打开分页浏览查询（PIT + search_after），完成时已读取第一页和总数
+     * <p>使用完毕后需调用 {@link EsPagedSearch#close()} 释放集群上的PIT</p>
+     * @param fields 点号分隔的字段路径，为空时提取全部字段
+     */
+    public CompletableFuture<EsPagedSearch> openPagedSearchAsync(ConnectionInfo conn, String index, String queryJson,
+                                                                 Collection<String> fields, int pageSize) {
+        return EsPagedSearch.open(connectionManager.getClient(conn), index, queryJson, fields, pageSize);
+    }
+    
+    /**
+     * 导出前的预估：并行执行 _count 和一次 random_score 随机抽样，
+     * 根据样本的平均文档大小估算数据量，根据近期同一索引的读取速度（没有时用抽样请求本身）估算耗时
+     * @param fields 导出的字段，为空时按全部字段估算
+     */
+    public CompletableFuture<ExportEstimate> estimateExportAsync(ConnectionInfo conn, String index, String queryJson,
+                                                                 Collection<String> fields) {
+        EsClient client = connectionManager.getClient(conn);
+        JsonNode query;
+        try {
+            query = objectMapper.readTree(queryJson).get("query");
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new IOException("查询JSON格式错误: " + e.getMessage(), e));
+        }
+        ObjectNode countBody = objectMapper.createObjectNode();
+        ObjectNode sampleBody = objectMapper.createObjectNode().put("size", EXPORT_SAMPLE_SIZE);
+        ObjectNode functionScore = sampleBody.putObject("query").putObject("function_score");
+        if (query != null) {
+            countBody.set("query", query);
+            functionScore.set("query", query);
+        }
+        functionScore.putObject("random_score");
+        functionScore.put("boost_mode", "replace");
         
-        JsonNode root = objectMapper.readTree(response.body());
-        JsonNode properties = root.get(index).get("mappings").get("properties");
+        EsRequestTimer countTimer = client.startTimer("count", index);
+        HttpRequest countRequest = client.newRequest("/" + index + "/_count?filter_path=count", METADATA_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(countBody.toString()))
+                .build();
+        CompletableFuture<Long> count = client.sendAsync(countRequest, METADATA_TIMEOUT, countTimer)
+                .thenApply(response -> {
+                    checkStatus(response, "统计文档数失败");
+                    long value = readTree(response.body()).path("count").asLong();
+                    countTimer.complete(value, -1);
+                    return value;
+                });
         
-        List<String> fields = new ArrayList<>();
-        properties.fieldNames().forEachRemaining(fields::add);
+        EsHitFlattener flattener = new EsHitFlattener(fields);
+        EsRequestTimer sampleTimer = client.startTimer("sample", index);
+        HttpRequest sampleRequest = client.newRequest("/" + index + "/_search?filter_path=took,hits.hits._source", 
+                        QUERY_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(sampleBody.toString()))
+                .build();
+        long sampleStart = System.nanoTime();
+        CompletableFuture<ExportEstimate> sample = client.sendAsync(sampleRequest, QUERY_TIMEOUT, sampleTimer)
+                .thenApply(response -> {
+                    checkStatus(response, "抽样失败");
+                    JsonNode root = readTree(response.body());
+                    sampleTimer.setTookMillis(root.path("took").asLong(-1));
+                    Set<String> columns = new LinkedHashSet<>();
+                    long bytes = 0;
+                    int docs = 0;
+                    try {
+                        for (JsonNode hit : root.path("hits").path("hits")) {
+                            Map<String, Object> doc = new LinkedHashMap<>();
+                            try (JsonParser parser = objectMapper.treeAsTokens(hit.path("_source"))) {
+                                parser.nextToken();
+                                flattener.flatten(parser, doc);
+                            }
+                            columns.addAll(doc.keySet());
+                            bytes += objectMapper.writeValueAsBytes(doc).length;
+                            docs++;
+                        }
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                    sampleTimer.complete(docs, -1);
+                    double seconds = (System.nanoTime() - sampleStart) / 1e9;
+                    return new ExportEstimate(0, docs, docs == 0 ? 0 : (double) bytes / docs,
+                            seconds <= 0 ? 0 : docs / seconds, new ArrayList<>(columns), false);
+                });
         
-        return fields;
+        return count.thenCombine(sample, (total, estimate) -> {
+            double recentRate = recentDocsPerSecond(client, index);
+            return new ExportEstimate(total, estimate.getSampleSize(), estimate.getAvgDocBytes(),
+                    recentRate > 0 ? recentRate : estimate.getDocsPerSecond(), estimate.getColumns(), recentRate > 0);
+        });
     }
     
     /**
-     * 执行查询
+     * 按 PIT + search_after 把查询的全部命中直接写入文件（.xlsx 或 .csv），不经过结果表格
+     * @see EsStreamingExporter#export
      */
-    public QueryResult executeQuery(ConnectionInfo conn, String index, String queryJson) throws Exception {
-        String url = conn.getBaseUrl() + "/" + index + "/_search";
-        
-        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
-                .uri(URI.create(url))
+    public CompletableFuture<Long> exportQueryToFileAsync(ConnectionInfo conn, String index, String queryJson,
+                                                          List<String> columns, File outputFile, 
+                                                          LongConsumer listener) {
+        return new EsStreamingExporter(connectionManager).export(conn, index, queryJson, columns, outputFile, listener);
+    }
+    
+    /**
+     * 近期同一索引成批读取文档的速度（条/秒），样本不足时返回0
+     */
+    private double recentDocsPerSecond(EsClient client, String index) {
+        long hits = 0;
+        double millis = 0;
+        for (EsRequestMetrics metrics : client.getMetrics().recent()) {
+            if (metrics.isFailed() || metrics.getHits() < 100 || !index.equals(metrics.getIndex())
+                    || !client.getBaseUrl().equals(metrics.getCluster())) {
+                continue;
+            }
+            switch (metrics.getOperation()) {
+                case "search", "page", "diff" -> {
+                    hits += metrics.getHits();
+                    millis += metrics.getTotalMillis();
+                }
+                default -> {
+                }
+            }
+        }
+        return hits < 1000 || millis <= 0 ? 0 : hits * 1000.0 / millis;
+    }
+    
+    /**
+     * 比对两个索引（可在不同集群）的文档差异
+     * @see EsIndexDiffService#compare
+     */
+    public CompletableFuture<EsIndexDiffService.DiffResult> compareIndicesAsync(EsIndexDiffService.DiffOptions options,
+                                                                             Consumer<EsIndexDiffService.DiffResult> listener) {
+        return new EsIndexDiffService(connectionManager).compare(options, listener);
+    }
+    
+    /**
+     * 清空查询结果缓存（内存与磁盘）
+     */
+    public void invalidateQueryCache() {
+        connectionManager.getResultCache().invalidateAll();
+    }
+    
+    private CompletableFuture<QueryResult> searchAsync(EsClient client, String index, String queryJson,
+                                                       Collection<String> fields, String cacheKey) {
+        // size 为0的聚合查询只取回总数和聚合结果，跳过命中解析
+        boolean aggregationOnly = isSizeZero(queryJson);
+        String path = "/" + index + "/_search" 
+                + (aggregationOnly ? "?filter_path=took,hits.total,aggregations" : "");
+        HttpRequest request = client.newRequest(path, QUERY_TIMEOUT)
                 .header("Content-Type", "application/json")
                 .POST(HttpRequest.BodyPublishers.ofString(queryJson))
-                .timeout(Duration.ofSeconds(30));
-        
-        if (conn.getUsername() != null && !conn.getUsername().isEmpty()) {
-            String auth = conn.getUsername() + ":" + conn.getPassword();
-            String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes());
-            requestBuilder.header("Authorization", "Basic " + encodedAuth);
-        }
+                .build();
         
-        HttpResponse<String> response = httpClient.send(requestBuilder.build(), 
-                HttpResponse.BodyHandlers.ofString());
+        EsHitFlattener flattener = aggregationOnly ? null
+                : fields == null ? EsHitFlattener.all() : new EsHitFlattener(fields);
+        EsRequestTimer timer = client.startTimer("search", index);
+        CompletableFuture<HttpResponse<EsResponseBody>> sent = client.sendAsync(request, QUERY_TIMEOUT, timer);
+        return EsClient.cancelling(sent.thenApply(response -> {
+            if (response.statusCode() != 200) {
+                throw new CompletionException(new IOException(
+                        "查询失败: " + response.statusCode() + " - " + response.body().asString()));
+            }
+            QueryResult result;
+            try (JsonParser parser = objectMapper.getFactory().createParser(response.body().openStream())) {
+                result = parseSearchResponse(parser, flattener, timer);
+            } catch (IOException e) {
+                timer.fail(response.statusCode());
+                throw new CompletionException(e);
+            }
+            timer.complete(aggregationOnly ? result.getAggregations() == null ? 0 
+                    : result.getAggregations().getRows().size() : result.getDocuments().size(), -1);
+            if (cacheKey != null) {
+                connectionManager.getResultCache().put(cacheKey, result);
+            }
+            return result;
+        }), sent);
+    }
+    
+    /**
+     * 流式解析 _search 响应，文档在读取时即被展开
+     * @param flattener 为null时跳过命中文档，只读取总数和聚合
+     * @param timer 用于记录服务端的 took
+     */
+    private QueryResult parseSearchResponse(JsonParser parser, EsHitFlattener flattener,
+                                            EsRequestTimer timer) throws IOException {
+        long total = 0;
+        List<Map<String, Object>> documents = new ArrayList<>();
+        EsAggregationTable aggregations = null;
         
-        if (response.statusCode() != 200) {
-            throw new IOException("查询失败: " + response.statusCode() + " - " + response.body());
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("无法解析查询响应");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken fieldToken = parser.nextToken();
+            if ("took".equals(field)) {
+                timer.setTookMillis(parser.getValueAsLong(-1));
+                continue;
+            }
+            if ("aggregations".equals(field) && fieldToken == JsonToken.START_OBJECT) {
+                aggregations = EsAggregationParser.parse(objectMapper.<JsonNode>readTree(parser));
+                continue;
+            }
+            if (!"hits".equals(field)) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String hitsField = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("total".equals(hitsField)) {
+                    total = token == JsonToken.START_OBJECT 
+                            ? objectMapper.<JsonNode>readTree(parser).path("value").asLong() 
+                            : parser.getValueAsLong();
+                } else if ("hits".equals(hitsField) && token == JsonToken.START_ARRAY && flattener != null) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        documents.add(parseHit(parser, flattener));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
         }
         
-        JsonNode root = objectMapper.readTree(response.body());
-        JsonNode hits = root.get("hits");
-        int total = hits.get("total").get("value").asInt();
-        
-        List<Map<String, Object>> documents = new ArrayList<>();
-        hits.get("hits").forEach(hit -> {
-            Map<String, Object> doc = new LinkedHashMap<>();
-            doc.put("_id", hit.get("_id").asText());
-            
-            JsonNode source = hit.get("_source");
-            source.fieldNames().forEachRemaining(fieldName -> {
-                JsonNode value = source.get(fieldName);
-                doc.put(fieldName, nodeToObject(value));
-            });
-            
-            documents.add(doc);
-        });
-        
-        return new QueryResult(total, documents);
+        return new QueryResult(total, Collections.unmodifiableList(documents), aggregations);
     }
     
-    private Object nodeToObject(JsonNode node) {
-        if (node.isNull()) {
-            return null;
-        } else if (node.isBoolean()) {
-            return node.asBoolean();
-        } else if (node.isNumber()) {
-            return node.numberValue();
-        } else if (node.isTextual()) {
-            return node.asText();
-        } else if (node.isArray()) {
-            List<Object> list = new ArrayList<>();
-            node.forEach(n -> list.add(nodeToObject(n)));
-            return list;
-        } else if (node.isObject()) {
-            Map<String, Object> map = new LinkedHashMap<>();
-            node.fieldNames().forEachRemaining(fieldName -> 
-                map.put(fieldName, nodeToObject(node.get(fieldName))));
-            return map;
+    private Map<String, Object> parseHit(JsonParser parser, EsHitFlattener flattener) throws IOException {
+        Map<String, Object> doc = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("_id".equals(field)) {
+                doc.put("_id", parser.getText());
+            } else if ("_source".equals(field)) {
+                flattener.flatten(parser, doc);
+            } else {
+                parser.skipChildren();
+            }
         }
-        return node.toString();
+        return doc;
     }
     
     /**
@@ -269,19 +647,7 @@ public class EsQueryService {
                 Map<String, Object> doc = data.get(rowIdx);
                 
                 for (int colIdx = 0; colIdx < selectedColumns.size(); colIdx++) {
-                    Cell cell = row.createCell(colIdx);
-                    String columnName = selectedColumns.get(colIdx);
-                    Object value = doc.get(columnName);
-                    
-                    if (value == null) {
-                        cell.setCellValue("");
-                    } else if (value instanceof Number) {
-                        cell.setCellValue(((Number) value).doubleValue());
-                    } else if (value instanceof Boolean) {
-                        cell.setCellValue((Boolean) value);
-                    } else {
-                        cell.setCellValue(value.toString());
-                    }
+                    writeCell(row.createCell(colIdx), doc.get(selectedColumns.get(colIdx)));
                 }
                 
                 // 更新进度
@@ -309,24 +675,223 @@ public class EsQueryService {
         }
     }
     
+    /**
+     * 按值的类型写入单元格，数组字段合并为一个单元格
+     */
+    static void writeCell(Cell cell, Object value) {
+        if (value == null) {
+            cell.setCellValue("");
+        } else if (value instanceof Number) {
+            cell.setCellValue(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            cell.setCellValue((Boolean) value);
+        } else if (value instanceof Collection) {
+            cell.setCellValue(joinValues((Collection<?>) value));
+        } else {
+            cell.setCellValue(value.toString());
+        }
+    }
+    
+    /**
+     * 在有界工作线程池中异步导出到Excel
+     */
+    public CompletableFuture<Void> exportToExcelAsync(List<Map<String, Object>> data, List<String> selectedColumns, 
+                                                      File outputFile) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                exportToExcel(data, selectedColumns, outputFile);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, connectionManager.getWorkerExecutor());
+    }
+    
+    /**
+     * 判断查询是否为 "size": 0（只需要聚合或总数）
+     */
+    private boolean isSizeZero(String queryJson) {
+        try {
+            JsonNode size = objectMapper.readTree(queryJson).get("size");
+            return size != null && size.isNumber() && size.asInt() == 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    private void checkStatus(HttpResponse<?> response, String message) {
+        if (response.statusCode() != 200) {
+            throw new CompletionException(new IOException(message + ": " + response.statusCode()));
+        }
+    }
+    
+    private JsonNode readTree(EsResponseBody body) {
+        try (InputStream in = body.openStream()) {
+            return objectMapper.readTree(in);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+    
+    /**
+     * 等待异步结果，并还原原始异常
+     */
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+    
+    static String joinValues(Collection<?> values) {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (Object v : values) {
+            joiner.add(String.valueOf(v));
+        }
+        return joiner.toString();
+    }
+    
+    /**
+     * 导出预估
+     */
+    public static class ExportEstimate {
+        /** 超过该文档数时直接流式写入文件（与ES默认的 max_result_window 一致，结果表格一次最多装下这么多） */
+        public static final long STREAMING_THRESHOLD_DOCS = 10_000;
+        /** 估算数据量超过该值时直接流式写入文件 */
+        public static final long STREAMING_THRESHOLD_BYTES = 100L * 1024 * 1024;
+        
+        private final long total;
+        private final int sampleSize;
+        private final double avgDocBytes;
+        private final double docsPerSecond;
+        private final List<String> columns;
+        private final boolean measuredThroughput;
+        
+        public ExportEstimate(long total, int sampleSize, double avgDocBytes, double docsPerSecond,
+                              List<String> columns, boolean measuredThroughput) {
+            this.total = total;
+            this.sampleSize = sampleSize;
+            this.avgDocBytes = avgDocBytes;
+            this.docsPerSecond = docsPerSecond;
+            this.columns = Collections.unmodifiableList(columns);
+            this.measuredThroughput = measuredThroughput;
+        }
+        
+        /**
+         * 命中的文档总数（_count）
+         */
+        public long getTotal() {
+            return total;
+        }
+        
+        public int getSampleSize() {
+            return sampleSize;
+        }
+        
+        /**
+         * 样本中每个文档（只含导出字段）的平均JSON字节数
+         */
+        public double getAvgDocBytes() {
+            return avgDocBytes;
+        }
+        
+        public long getEstimatedBytes() {
+            return (long) (avgDocBytes * total);
+        }
+        
+        public double getDocsPerSecond() {
+            return docsPerSecond;
+        }
+        
+        /**
+         * 预计耗时，无法估算读取速度时为null
+         */
+        public Duration getEstimatedDuration() {
+            return docsPerSecond <= 0 ? null : Duration.ofMillis((long) (total / docsPerSecond * 1000));
+        }
+        
+        /**
+         * 样本中出现的列，按出现顺序
+         */
+        public List<String> getColumns() {
+            return columns;
+        }
+        
+        /**
+         * 读取速度是否来自近期实际的批量读取（否则来自抽样请求，通常偏低）
+         */
+        public boolean isMeasuredThroughput() {
+            return measuredThroughput;
+        }
+        
+        /**
+         * 是否应直接流式写入文件
+         */
+        public boolean isStreamingRecommended() {
+            return total > STREAMING_THRESHOLD_DOCS || getEstimatedBytes() > STREAMING_THRESHOLD_BYTES;
+        }
+    }
+    
     /**
      * 查询结果
      */
     public static class QueryResult {
-        private final int total;
+        private final long total;
         private final List<Map<String, Object>> documents;
+        private final EsAggregationTable aggregations;
+        private final boolean fromCache;
+        
+        public QueryResult(long total, List<Map<String, Object>> documents) {
+            this(total, documents, null);
+        }
         
-        public QueryResult(int total, List<Map<String, Object>> documents) {
+        public QueryResult(long total, List<Map<String, Object>> documents, EsAggregationTable aggregations) {
+            this(total, documents, aggregations, false);
+        }
+        
+        private QueryResult(long total, List<Map<String, Object>> documents, EsAggregationTable aggregations,
+                            boolean fromCache) {
             this.total = total;
             this.documents = documents;
+            this.aggregations = aggregations;
+            this.fromCache = fromCache;
+        }
+        
+        /**
+         * 返回标记为来自缓存的副本（共享文档列表）
+         */
+        QueryResult asCached() {
+            return fromCache ? this : new QueryResult(total, documents, aggregations, true);
+        }
+        
+        /**
+         * 结果是否来自查询缓存
+         */
+        public boolean isFromCache() {
+            return fromCache;
         }
         
-        public int getTotal() {
+        public long getTotal() {
             return total;
         }
         
         public List<Map<String, Object>> getDocuments() {
             return documents;
         }
+        
+        /**
+         * 展开后的聚合结果，查询不含聚合时为null
+         */
+        public EsAggregationTable getAggregations() {
+            return aggregations;
+        }
+        
+        public boolean hasAggregations() {
+            return aggregations != null && !aggregations.isEmpty();
+        }
     }
 }
@@ -0,0 +1,114 @@
+package io.github.lemostic.toolsuite.modules.search.es.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 在途请求限流器
+ * 限制单个集群同时在途的异步请求数，超出的请求排队等待，不占用线程；
+ * 调用方取消或超时返回的 future 时，会同时取消底层请求并释放名额
+ */
+public class EsRequestLimiter {
+
+    private final int maxInFlight;
+    private final Deque<Runnable> waiting = new ArrayDeque<>();
+    private int inFlight;
+
+    public EsRequestLimiter(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight 必须大于0");
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * 提交异步任务，有空闲名额时立即启动，否则排队
+     * @param task 启动请求并返回其 future
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> start(task, result);
+
+        boolean runNow;
+        synchronized (this) {
+            runNow = inFlight < maxInFlight;
+            if (runNow) {
+                inFlight++;
+            } else {
+                waiting.addLast(start);
+            }
+        }
+        if (runNow) {
+            start.run();
+        }
+        return result;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return waiting.size();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    private <T> void start(Supplier<CompletableFuture<T>> task, CompletableFuture<T> result) {
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                releaseSlot();
+            }
+        };
+
+        // 排队期间已被取消或超时
+        if (result.isDone()) {
+            release.run();
+            return;
+        }
+
+        CompletableFuture<T> inner;
+        try {
+            inner = task.get();
+        } catch (Throwable t) {
+            release.run();
+            result.completeExceptionally(t);
+            return;
+        }
+
+        inner.whenComplete((value, error) -> {
+            release.run();
+            if (error != null) {
+                result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            } else {
+                result.complete(value);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (!inner.isDone()) {
+                inner.cancel(true);
+            }
+        });
+    }
+
+    private void releaseSlot() {
+        Runnable next;
+        synchronized (this) {
+            next = waiting.pollFirst();
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+        }
+        // 名额直接转交给下一个排队任务
+        next.run();
+    }
+}
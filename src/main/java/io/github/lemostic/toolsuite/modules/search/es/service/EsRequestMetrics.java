@@ -0,0 +1,137 @@
+package io.github.lemostic.toolsuite.modules.search.es.service;
+
+/**
+ * 单次ES请求的耗时和数据量
+ * <p>各阶段（毫秒）：</p>
+ * <ul>
+ *     <li>queue：在途请求数已满时的排队时间</li>
+ *     <li>ttfb：从发出请求到收到响应头，包含建连（DNS、TCP、TLS，连接复用时为0）和服务端处理时间。
+ *     JDK HttpClient 不单独暴露建连耗时，可用 ttfb - took 估算网络和排队开销</li>
+ *     <li>download：从收到响应头到响应体接收完毕</li>
+ *     <li>parse：响应体接收完毕到解析完成（含解压）</li>
+ * </ul>
+ */
+public class EsRequestMetrics {
+
+    private final String cluster;
+    private final String index;
+    private final String operation;
+    private final long startedAt;
+    private final int status;
+    private final double queueMillis;
+    private final double ttfbMillis;
+    private final double downloadMillis;
+    private final double parseMillis;
+    private final long wireBytes;
+    private final long hits;
+    private final long tookMillis;
+    private final boolean failed;
+
+    EsRequestMetrics(String cluster, String index, String operation, long startedAt, int status,
+                     double queueMillis, double ttfbMillis, double downloadMillis, double parseMillis,
+                     long wireBytes, long hits, long tookMillis, boolean failed) {
+        this.cluster = cluster;
+        this.index = index;
+        this.operation = operation;
+        this.startedAt = startedAt;
+        this.status = status;
+        this.queueMillis = queueMillis;
+        this.ttfbMillis = ttfbMillis;
+        this.downloadMillis = downloadMillis;
+        this.parseMillis = parseMillis;
+        this.wireBytes = wireBytes;
+        this.hits = hits;
+        this.tookMillis = tookMillis;
+        this.failed = failed;
+    }
+
+    /**
+     * 集群地址
+     */
+    public String getCluster() {
+        return cluster;
+    }
+
+    /**
+     * 索引，集群级请求为 "-"
+     */
+    public String getIndex() {
+        return index;
+    }
+
+    /**
+     * 请求类型，如 search、bulk、mapping
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * 请求开始时间（epoch 毫秒）
+     */
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * HTTP状态码，请求未完成（超时、连接失败）时为0
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    public double getQueueMillis() {
+        return queueMillis;
+    }
+
+    public double getTtfbMillis() {
+        return ttfbMillis;
+    }
+
+    public double getDownloadMillis() {
+        return downloadMillis;
+    }
+
+    public double getParseMillis() {
+        return parseMillis;
+    }
+
+    /**
+     * 总耗时：排队 + TTFB + 下载 + 解析
+     */
+    public double getTotalMillis() {
+        return queueMillis + ttfbMillis + downloadMillis + parseMillis;
+    }
+
+    /**
+     * 网络上接收的响应字节数（压缩后）
+     */
+    public long getWireBytes() {
+        return wireBytes;
+    }
+
+    /**
+     * 命中数或写入的文档数，未知时为0
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * 服务端报告的处理时间（took），未知时为-1
+     */
+    public long getTookMillis() {
+        return tookMillis;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s/%s 总计%.1fms（排队%.1f TTFB%.1f 下载%.1f 解析%.1f，took=%d）%d字节 %d条",
+                operation, cluster, index, getTotalMillis(), queueMillis, ttfbMillis, downloadMillis, parseMillis,
+                tookMillis, wireBytes, hits);
+    }
+}
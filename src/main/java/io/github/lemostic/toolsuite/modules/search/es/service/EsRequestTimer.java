@@ -0,0 +1,94 @@
+package io.github.lemostic.toolsuite.modules.search.es.service;
+
+/**
+ * 单次请求的计时器
+ * 由 {@link EsClient#startTimer(String, String)} 创建，发送、接收各阶段的时间点由 EsClient 记录，
+ * 调用方在解析完成后调用 {@link #complete(long, long)}（或失败时 {@link #fail(int)}）提交到 {@link EsMetricsRegistry}
+ */
+public class EsRequestTimer {
+
+    private final EsMetricsRegistry registry;
+    private final String cluster;
+    private final String index;
+    private final String operation;
+    private final long createdAtMillis = System.currentTimeMillis();
+    private final long submittedAt = System.nanoTime();
+    private volatile long startedAt;
+    private volatile long headersAt;
+    private volatile long receivedAt;
+    private volatile int status;
+    private volatile long wireBytes;
+    private volatile long tookMillis = -1;
+    private volatile boolean recorded;
+
+    EsRequestTimer(EsMetricsRegistry registry, String cluster, String index, String operation) {
+        this.registry = registry;
+        this.cluster = cluster;
+        this.index = index == null || index.isEmpty() ? "-" : index;
+        this.operation = operation;
+    }
+
+    void markStarted() {
+        startedAt = System.nanoTime();
+    }
+
+    void markHeaders(int status) {
+        this.status = status;
+        headersAt = System.nanoTime();
+    }
+
+    void markReceived(long wireBytes) {
+        this.wireBytes = wireBytes;
+        receivedAt = System.nanoTime();
+    }
+
+    /**
+     * 记录服务端返回的 took
+     */
+    public void setTookMillis(long tookMillis) {
+        this.tookMillis = tookMillis;
+    }
+
+    /**
+     * 解析完成，提交指标
+     * @param hits 命中数或写入的文档数
+     * @param tookMillis 服务端报告的 took，未知时传-1（会保留之前通过 setTookMillis 设置的值）
+     */
+    public void complete(long hits, long tookMillis) {
+        if (tookMillis >= 0) {
+            this.tookMillis = tookMillis;
+        }
+        record(hits, false);
+    }
+
+    /**
+     * 请求失败（状态码非2xx、超时或连接失败）
+     */
+    public void fail(int status) {
+        if (status > 0) {
+            this.status = status;
+        }
+        record(0, true);
+    }
+
+    private synchronized void record(long hits, boolean failed) {
+        if (recorded) {
+            return;
+        }
+        recorded = true;
+        long now = System.nanoTime();
+        long started = startedAt != 0 ? startedAt : submittedAt;
+        long headers = headersAt != 0 ? headersAt : now;
+        long received = receivedAt != 0 ? receivedAt : headers;
+        registry.record(new EsRequestMetrics(cluster, index, operation, createdAtMillis, status,
+                millis(started - submittedAt),
+                millis(headers - started),
+                millis(received - headers),
+                millis(now - received),
+                wireBytes, hits, tookMillis, failed));
+    }
+
+    private static double millis(long nanos) {
+        return Math.max(0, nanos) / 1_000_000.0;
+    }
+}
@@ -0,0 +1,89 @@
+package io.github.lemostic.toolsuite.modules.search.es.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ES响应体
+ * 保存网络上收到的原始（可能已压缩的）字节，读取时按 Content-Encoding 流式解压，
+ * 解析大响应时不需要先还原成完整的字符串
+ */
+public final class EsResponseBody {
+
+    private static final HttpResponse.BodyHandler<EsResponseBody> HANDLER = responseInfo -> {
+        String encoding = responseInfo.headers().firstValue("Content-Encoding").orElse(null);
+        return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(),
+                bytes -> new EsResponseBody(bytes, encoding));
+    };
+
+    private final byte[] raw;
+    private final String contentEncoding;
+
+    EsResponseBody(byte[] raw, String contentEncoding) {
+        this.raw = raw;
+        this.contentEncoding = contentEncoding;
+    }
+
+    /**
+     * 异步收集响应体，不阻塞HttpClient的线程
+     */
+    public static HttpResponse.BodyHandler<EsResponseBody> handler() {
+        return HANDLER;
+    }
+
+    /**
+     * 同 {@link #handler()}，并记录收到响应头和响应体接收完毕的时间点
+     */
+    static HttpResponse.BodyHandler<EsResponseBody> handler(EsRequestTimer timer) {
+        return responseInfo -> {
+            timer.markHeaders(responseInfo.statusCode());
+            String encoding = responseInfo.headers().firstValue("Content-Encoding").orElse(null);
+            return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(), bytes -> {
+                timer.markReceived(bytes.length);
+                return new EsResponseBody(bytes, encoding);
+            });
+        };
+    }
+
+    /**
+     * 打开解压后的输入流
+     */
+    public InputStream openStream() throws IOException {
+        return EsCompression.decode(contentEncoding, new ByteArrayInputStream(raw));
+    }
+
+    /**
+     * 解压并以UTF-8解码为字符串（用于错误信息和小响应）
+     */
+    public String asString() {
+        try (InputStream in = openStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 网络上传输的字节数（压缩后）
+     */
+    public int getWireBytes() {
+        return raw.length;
+    }
+
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    public boolean isCompressed() {
+        return contentEncoding != null && !"identity".equalsIgnoreCase(contentEncoding);
+    }
+
+    @Override
+    public String toString() {
+        return asString();
+    }
+}
@@ -0,0 +1,173 @@
+package io.github.lemostic.toolsuite.modules.search.es.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.lemostic.toolsuite.modules.search.es.service.EsQueryService.QueryResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 查询结果磁盘缓存
+ * 使用内置的H2数据库保存从内存中淘汰的查询结果，条目数有上限，超出时删除最早写入的条目
+ */
+public class EsResultDiskStore implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EsResultDiskStore.class);
+
+    public static final int DEFAULT_MAX_ROWS = 500;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int maxRows;
+    private final Connection connection;
+
+    public EsResultDiskStore(Path file) throws SQLException {
+        this(file, DEFAULT_MAX_ROWS);
+    }
+
+    /**
+     * @param file 数据库文件路径（不含 .mv.db 后缀）
+     * @param maxRows 最多保存的结果数
+     */
+    public EsResultDiskStore(Path file, int maxRows) throws SQLException {
+        this.maxRows = maxRows;
+        this.connection = DriverManager.getConnection("jdbc:h2:file:" + file.toAbsolutePath() + ";DB_CLOSE_ON_EXIT=FALSE");
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS es_query_result (" +
+                    "cache_key CHAR(64) PRIMARY KEY, " +
+                    "total BIGINT NOT NULL, " +
+                    "documents BLOB NOT NULL, " +
+                    "aggregations BLOB, " +
+                    "stored_at BIGINT NOT NULL)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_es_query_result_stored_at ON es_query_result(stored_at)");
+        }
+    }
+
+    /**
+     * 默认的数据库位置：用户目录下的 .tool-suite/es-result-cache
+     */
+    public static Path defaultLocation() {
+        return Path.of(System.getProperty("user.home"), ".tool-suite", "es-result-cache");
+    }
+
+    public synchronized void save(String key, QueryResult result) throws Exception {
+        byte[] documents = objectMapper.writeValueAsBytes(result.getDocuments());
+        EsAggregationTable aggregationTable = result.getAggregations();
+        byte[] aggregations = aggregationTable == null ? null : objectMapper.writeValueAsBytes(
+                Map.of("columns", aggregationTable.getColumns(), "rows", aggregationTable.getRows()));
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "MERGE INTO es_query_result (cache_key, total, documents, aggregations, stored_at) KEY (cache_key) " +
+                "VALUES (?, ?, ?, ?, ?)")) {
+            stmt.setString(1, hash(key));
+            stmt.setLong(2, result.getTotal());
+            stmt.setBytes(3, documents);
+            stmt.setBytes(4, aggregations);
+            stmt.setLong(5, System.currentTimeMillis());
+            stmt.executeUpdate();
+        }
+        trim();
+    }
+
+    /**
+     * 读取结果，超过 maxAge 的条目视为不存在并删除
+     */
+    public synchronized QueryResult load(String key, Duration maxAge) {
+        String hash = hash(key);
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT total, documents, stored_at, aggregations FROM es_query_result WHERE cache_key = ?")) {
+            stmt.setString(1, hash);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                if (System.currentTimeMillis() - rs.getLong(3) > maxAge.toMillis()) {
+                    delete(hash);
+                    return null;
+                }
+                List<Map<String, Object>> documents = objectMapper.readValue(rs.getBytes(2),
+                        new TypeReference<List<Map<String, Object>>>() {});
+                EsAggregationTable aggregations = null;
+                byte[] aggregationBytes = rs.getBytes(4);
+                if (aggregationBytes != null) {
+                    Map<String, List<Object>> stored = objectMapper.readValue(aggregationBytes,
+                            new TypeReference<Map<String, List<Object>>>() {});
+                    aggregations = toAggregationTable(stored);
+                }
+                return new QueryResult(rs.getLong(1), documents, aggregations);
+            }
+        } catch (Exception e) {
+            logger.warn("读取磁盘缓存失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    public synchronized void clear() {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM es_query_result");
+        } catch (SQLException e) {
+            logger.warn("清空磁盘缓存失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.warn("关闭磁盘缓存失败: {}", e.getMessage());
+        }
+    }
+
+    private void delete(String hash) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM es_query_result WHERE cache_key = ?")) {
+            stmt.setString(1, hash);
+            stmt.executeUpdate();
+        }
+    }
+
+    private void trim() throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "DELETE FROM es_query_result WHERE cache_key IN (" +
+                "SELECT cache_key FROM es_query_result ORDER BY stored_at DESC OFFSET ? ROWS)")) {
+            stmt.setInt(1, maxRows);
+            stmt.executeUpdate();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static EsAggregationTable toAggregationTable(Map<String, List<Object>> stored) {
+        List<String> columns = new ArrayList<>();
+        for (Object column : stored.getOrDefault("columns", List.of())) {
+            columns.add(String.valueOf(column));
+        }
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Object row : stored.getOrDefault("rows", List.of())) {
+            rows.add((Map<String, Object>) row);
+        }
+        return new EsAggregationTable(columns, rows);
+    }
+
+    private static String hash(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
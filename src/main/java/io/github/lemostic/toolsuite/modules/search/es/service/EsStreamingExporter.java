@@ -0,0 +1,248 @@
+package io.github.lemostic.toolsuite.modules.search.es.service;
+
+import cn.hutool.core.text.csv.CsvWriter;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.LongConsumer;
+
+/**
+ * 流式导出
+ * <p>用 PIT + search_after 逐页读取全部命中，边读边写入文件，不经过结果表格：</p>
+ * <ul>
+ *     <li>.csv 文件逐行写出</li>
+ *     <li>其余按 .xlsx 写出，使用 SXSSF 只在内存中保留最近的若干行，超过单个工作表的行数上限时自动新建工作表</li>
+ * </ul>
+ * <p>写当前页的同时读取下一页，内存占用只与页大小有关</p>
+ */
+public class EsStreamingExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(EsStreamingExporter.class);
+
+    public static final int PAGE_SIZE = 1000;
+    /** xlsx 单个工作表的最大行数（含标题行） */
+    private static final int MAX_SHEET_ROWS = 1_048_576;
+    private static final int WINDOW_ROWS = 200;
+
+    private final EsConnectionManager connectionManager;
+
+    public EsStreamingExporter() {
+        this(EsConnectionManager.getInstance());
+    }
+
+    public EsStreamingExporter(EsConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
+    }
+
+    /**
+     * 开始导出
+     * <p>返回的 future 被取消时停止读取，已写出的部分保留在文件中</p>
+     * @param columns 导出的列（点号分隔的字段路径）
+     * @param listener 每写完一页回调一次已写出的条数（在导出线程中调用），可为null
+     * @return 完成时为写出的文档数
+     */
+    public CompletableFuture<Long> export(EsQueryService.ConnectionInfo conn, String index, String queryJson,
+                                          List<String> columns, File outputFile, LongConsumer listener) {
+        ExportJob job = new ExportJob(connectionManager.getClient(conn), index, queryJson, columns, outputFile, listener);
+        job.result.whenComplete((value, error) -> {
+            if (error instanceof CancellationException) {
+                job.cancel();
+            }
+        });
+        connectionManager.getWorkerExecutor().execute(job::run);
+        return job.result;
+    }
+
+    private static class ExportJob {
+        private final EsClient client;
+        private final String index;
+        private final String queryJson;
+        private final List<String> columns;
+        private final File outputFile;
+        private final LongConsumer listener;
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+        private volatile CompletableFuture<?> pending;
+        private volatile boolean cancelled;
+
+        ExportJob(EsClient client, String index, String queryJson, List<String> columns, File outputFile,
+                  LongConsumer listener) {
+            this.client = client;
+            this.index = index;
+            this.queryJson = queryJson;
+            this.columns = columns;
+            this.outputFile = outputFile;
+            this.listener = listener;
+        }
+
+        void run() {
+            if (cancelled) {
+                // 排队期间已取消
+                return;
+            }
+            EsPagedSearch search = null;
+            try {
+                CompletableFuture<EsPagedSearch> opening = EsPagedSearch.open(client, index, queryJson, columns, PAGE_SIZE);
+                pending = opening;
+                search = opening.join();
+                long written = 0;
+                try (RowSink sink = openSink()) {
+                    List<Map<String, Object>> page = search.getFirstPage();
+                    int pageNo = 0;
+                    while (!page.isEmpty()) {
+                        CompletableFuture<List<Map<String, Object>>> next = pageNo + 1 < search.getPageCount()
+                                ? search.fetchPage(pageNo + 1, null) : null;
+                        pending = next;
+                        for (Map<String, Object> doc : page) {
+                            sink.write(doc);
+                        }
+                        written += page.size();
+                        if (listener != null) {
+                            listener.accept(written);
+                        }
+                        if (next == null || cancelled) {
+                            break;
+                        }
+                        page = next.join();
+                        pageNo++;
+                    }
+                }
+                if (cancelled) {
+                    return;
+                }
+                logger.info("流式导出完成: {} 条 -> {}", written, outputFile);
+                result.complete(written);
+            } catch (CancellationException e) {
+                // 已取消
+            } catch (Throwable t) {
+                if (!cancelled) {
+                    result.completeExceptionally(t instanceof CompletionException && t.getCause() != null
+                            ? t.getCause() : t);
+                }
+            } finally {
+                if (search != null) {
+                    search.close();
+                }
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            CompletableFuture<?> future = pending;
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+
+        private RowSink openSink() throws IOException {
+            if (outputFile.getName().toLowerCase(Locale.ROOT).endsWith(".csv")) {
+                return new CsvSink(outputFile, columns);
+            }
+            return new ExcelSink(outputFile, columns);
+        }
+    }
+
+    private interface RowSink extends Closeable {
+        void write(Map<String, Object> doc) throws IOException;
+    }
+
+    private static class CsvSink implements RowSink {
+        private final CsvWriter writer;
+        private final List<String> columns;
+        private final String[] line;
+
+        CsvSink(File file, List<String> columns) throws IOException {
+            this.writer = new CsvWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8));
+            this.columns = columns;
+            this.line = new String[columns.size()];
+            writer.writeHeaderLine(columns.toArray(new String[0]));
+        }
+
+        @Override
+        public void write(Map<String, Object> doc) {
+            for (int i = 0; i < line.length; i++) {
+                Object value = doc.get(columns.get(i));
+                line[i] = value == null ? ""
+                        : value instanceof Collection<?> values ? EsQueryService.joinValues(values) : value.toString();
+            }
+            writer.write(line);
+        }
+
+        @Override
+        public void close() {
+            writer.close();
+        }
+    }
+
+    private static class ExcelSink implements RowSink {
+        private final SXSSFWorkbook workbook = new SXSSFWorkbook(WINDOW_ROWS);
+        private final OutputStream out;
+        private final List<String> columns;
+        private final CellStyle headerStyle;
+        private Sheet sheet;
+        private int rowIndex;
+
+        ExcelSink(File file, List<String> columns) throws IOException {
+            this.out = new FileOutputStream(file);
+            this.columns = columns;
+            // 临时文件压缩，避免大导出占满磁盘
+            workbook.setCompressTempFiles(true);
+            headerStyle = workbook.createCellStyle();
+            Font headerFont = workbook.createFont();
+            headerFont.setBold(true);
+            headerStyle.setFont(headerFont);
+            newSheet();
+        }
+
+        private void newSheet() {
+            int number = workbook.getNumberOfSheets() + 1;
+            sheet = workbook.createSheet(number == 1 ? "ES Data" : "ES Data " + number);
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < columns.size(); i++) {
+                Cell cell = header.createCell(i);
+                cell.setCellValue(columns.get(i));
+                cell.setCellStyle(headerStyle);
+                sheet.setColumnWidth(i, 20 * 256);
+            }
+            rowIndex = 1;
+        }
+
+        @Override
+        public void write(Map<String, Object> doc) {
+            if (rowIndex >= MAX_SHEET_ROWS) {
+                newSheet();
+            }
+            Row row = sheet.createRow(rowIndex++);
+            for (int i = 0; i < columns.size(); i++) {
+                EsQueryService.writeCell(row.createCell(i), doc.get(columns.get(i)));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (out; workbook) {
+                // close() 同时删除 SXSSF 的临时文件
+                workbook.write(out);
+            }
+        }
+    }
+}
@@ -36,6 +36,11 @@ module ToolSuite {
     requires org.apache.poi.ooxml;
     requires java.prefs;
 
+    // 压缩包清理（zstd-jni 和 xz 是 commons-compress 的可选依赖，需显式加入模块图）
+    requires org.apache.commons.compress;
+    requires com.github.luben.zstd_jni;
+    requires org.tukaani.xz;
+
     // 二维码生成
     requires com.google.zxing;
 